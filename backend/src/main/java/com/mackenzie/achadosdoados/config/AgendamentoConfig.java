@@ -0,0 +1,19 @@
+package com.mackenzie.achadosdoados.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita as tarefas agendadas (@Scheduled), como a geocodificação
+ * em segundo plano de cadastros antigos (ver BackfillGeocodificacao).
+ *
+ * As tarefas dividem o agendador do Spring Boot, que por padrão tem uma
+ * só thread; 'spring.task.scheduling.pool.size' fica acima do número de
+ * tarefas para que as longas (ColetaImagensOrfas, BackfillGeocodificacao)
+ * não segurem as frequentes (IndiceBuscaDemandas, TokenStore,
+ * ListaRevogacao, ArmazenamentoS3).
+ */
+@Configuration
+@EnableScheduling
+public class AgendamentoConfig {
+}
@@ -0,0 +1,69 @@
+package com.mackenzie.achadosdoados.config;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Garante, ao subir, que as sequências de id estão à frente dos ids já
+ * gravados nas tabelas.
+ *
+ * As tabelas criadas quando os ids eram IDENTITY já têm linhas, mas a
+ * sequência nova começa em 1; sem o ajuste, os primeiros inserts colidiriam
+ * com ids existentes. Roda antes do servidor aceitar requisições (na criação
+ * do bean) e só reinicia a sequência quando ela está atrás de MAX(id).
+ */
+@Component
+public class AlinhamentoSequencias implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlinhamentoSequencias.class);
+
+    /** allocationSize dos @SequenceGenerator das entidades. */
+    public static final int BLOCO = 50;
+
+    /** Sequência -> tabela cujo id ela gera. */
+    private static final Map<String, String> SEQUENCIAS = new LinkedHashMap<>();
+
+    static {
+        SEQUENCIAS.put("usuarios_seq", "usuarios");
+        SEQUENCIAS.put("demandas_seq", "demandas");
+        SEQUENCIAS.put("doacoes_seq", "doacoes");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+
+    public AlinhamentoSequencias(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        SEQUENCIAS.forEach(this::alinhar);
+    }
+
+    private void alinhar(String sequencia, String tabela) {
+        Long maiorId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + tabela, Long.class);
+        if (maiorId == null) {
+            return;
+        }
+        // Consome um valor (desperdiça no máximo um bloco de ids)
+        Long proximo = jdbcTemplate.queryForObject(dialect.getSequenceNextValString(sequencia), Long.class);
+        // O otimizador pooled usa o valor lido como fim do bloco: ids de (v - BLOCO, v]
+        if (proximo != null && proximo - BLOCO >= maiorId) {
+            return;
+        }
+        long reinicio = maiorId + BLOCO + 1;
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequencia + " RESTART WITH " + reinicio);
+        logger.info("Sequência {} reiniciada em {} (maior id em {}: {})", sequencia, reinicio, tabela, maiorId);
+    }
+}
@@ -0,0 +1,77 @@
+package com.mackenzie.achadosdoados.config;
+
+import com.mackenzie.achadosdoados.service.ArmazenamentoImagens;
+import com.mackenzie.achadosdoados.service.ArmazenamentoLocal;
+import com.mackenzie.achadosdoados.service.ArmazenamentoS3;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Onde ficam as imagens enviadas (ver ArmazenamentoImagens), conforme
+ * 'imagens.armazenamento':
+ * - local (padrão): só o disco, em 'imagens.diretorio';
+ * - s3: um bucket compatível com S3, com o disco como cache. Para MinIO ou
+ *   outro serviço compatível, informe 'imagens.s3.endpoint' e ligue
+ *   'imagens.s3.path-style'. Sem chaves configuradas, as credenciais vêm da
+ *   cadeia padrão da AWS (variáveis de ambiente, perfil, role da instância).
+ */
+@Configuration
+public class ArmazenamentoConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "imagens.armazenamento", havingValue = "local", matchIfMissing = true)
+    public ArmazenamentoImagens armazenamentoLocal(@Value("${imagens.diretorio:data/images}") String diretorio) {
+        return new ArmazenamentoLocal(Paths.get(diretorio));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "imagens.armazenamento", havingValue = "s3")
+    public S3Client s3Client(@Value("${imagens.s3.regiao:us-east-1}") String regiao,
+                             @Value("${imagens.s3.endpoint:}") String endpoint,
+                             @Value("${imagens.s3.path-style:false}") boolean pathStyle,
+                             @Value("${imagens.s3.access-key:}") String accessKey,
+                             @Value("${imagens.s3.secret-key:}") String secretKey) {
+        AwsCredentialsProvider credenciais = accessKey.isEmpty()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(regiao))
+                .credentialsProvider(credenciais)
+                .forcePathStyle(pathStyle);
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "imagens.armazenamento", havingValue = "s3")
+    public ArmazenamentoImagens armazenamentoS3(S3Client s3Client,
+                                                MeterRegistry meterRegistry,
+                                                @Value("${imagens.diretorio:data/images}") String diretorio,
+                                                @Value("${imagens.s3.bucket}") String bucket,
+                                                @Value("${imagens.s3.prefixo:}") String prefixo,
+                                                @Value("${imagens.s3.parte:8MB}") DataSize parte,
+                                                @Value("${imagens.s3.replicacao.threads:2}") int threads,
+                                                @Value("${imagens.s3.replicacao.fila:200}") int fila,
+                                                @Value("${imagens.s3.replicacao.tentativas:5}") int tentativas,
+                                                @Value("${imagens.s3.ausentes:PT1M}") Duration ausentes) {
+        return new ArmazenamentoS3(s3Client, bucket, prefixo, Paths.get(diretorio), parte.toBytes(),
+                threads, fila, tentativas, ausentes, meterRegistry);
+    }
+}
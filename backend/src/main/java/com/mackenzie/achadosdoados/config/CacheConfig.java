@@ -0,0 +1,37 @@
+package com.mackenzie.achadosdoados.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache em memória (Caffeine) das listagens públicas.
+ *
+ * As entradas são invalidadas pelos eventos de alteração confirmados
+ * (ver InvalidacaoCacheCatalogo); o limite de tamanho e o TTL configurados
+ * em 'cache.catalogo.spec' só cobrem alterações feitas fora desta instância.
+ * As estatísticas ficam ligadas para que o actuator publique acertos, faltas
+ * e remoções em /actuator/metrics/cache.gets e cache.evictions.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /** Lista de demandas públicas do carregamento inicial da home. */
+    public static final String DEMANDAS_PUBLICAS = "demandasPublicas";
+
+    /** Lista pública de instituições. */
+    public static final String INSTITUICOES = "instituicoes";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${cache.catalogo.spec:maximumSize=100,expireAfterWrite=10m}") String spec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(DEMANDAS_PUBLICAS, INSTITUICOES);
+        cacheManager.setCaffeine(Caffeine.from(spec).recordStats());
+        return cacheManager;
+    }
+}
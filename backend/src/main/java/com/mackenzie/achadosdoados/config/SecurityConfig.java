@@ -1,18 +1,26 @@
 package com.mackenzie.achadosdoados.config;
 
+import com.mackenzie.achadosdoados.service.CachePrincipais;
+import com.mackenzie.achadosdoados.service.CodificadorSenhas;
+import com.mackenzie.achadosdoados.service.TokenService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -32,11 +40,17 @@ public class SecurityConfig {
     /**
      * Define um Bean para o PasswordEncoder, que será usado para
      * criptografar (hash) as senhas dos usuários.
-     * Usamos o BCrypt, que é o padrão recomendado.
+     * Usamos o BCrypt, que é o padrão recomendado, executado num pool
+     * limitado (ver CodificadorSenhas). Ao aumentar a força, as senhas
+     * antigas são refeitas no próximo login.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public CodificadorSenhas passwordEncoder(@Value("${seguranca.bcrypt.forca:10}") int forca,
+                                           @Value("${seguranca.senhas.threads:0}") int threads,
+                                           @Value("${seguranca.senhas.fila:32}") int fila,
+                                           MeterRegistry meterRegistry) {
+        int tamanhoPool = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new CodificadorSenhas(new BCryptPasswordEncoder(forca), tamanhoPool, fila, meterRegistry);
     }
 
     /**
@@ -79,9 +93,14 @@ public class SecurityConfig {
 
     /**
      * Configura a cadeia de filtros de segurança do Spring Security.
+     * O TokenAuthenticationFilter resolve o usuário do token uma vez por
+     * requisição; os controllers o recebem via @AuthenticationPrincipal.
+     * Do Actuator, só health e info são públicos; os demais endpoints
+     * expostos (métricas) respondem apenas a requisições da própria máquina.
      */
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, TokenService tokenService,
+                                           CachePrincipais cachePrincipais) throws Exception {
         http
             // Habilita CORS
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
@@ -91,9 +110,17 @@ public class SecurityConfig {
             
             // Configura a política de criação de sessão como STATELESS
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+
+            // Autentica pelo header "Authorization: Bearer <token>"
+            .addFilterBefore(new TokenAuthenticationFilter(tokenService, cachePrincipais),
+                    UsernamePasswordAuthenticationFilter.class)
             
             // Configura a autorização para as requisições HTTP
             .authorizeHttpRequests(auth -> auth
+                .requestMatchers(EndpointRequest.to("health", "info")).permitAll()
+                .requestMatchers(EndpointRequest.toAnyEndpoint())
+                    .access((autenticacao, contexto) ->
+                            new AuthorizationDecision(isLocal(contexto.getRequest().getRemoteAddr())))
                 // Permite acesso público a todos os endpoints por enquanto
                 // TODO: Restringir endpoints no futuro (ex: /admin, /meuperfil)
                 .anyRequest().permitAll() 
@@ -101,4 +128,13 @@ public class SecurityConfig {
 
         return http.build();
     }
-}
\ No newline at end of file
+
+    private static boolean isLocal(String enderecoRemoto) {
+        try {
+            // Endereço IP literal: não há consulta de DNS
+            return enderecoRemoto != null && InetAddress.getByName(enderecoRemoto).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.mackenzie.achadosdoados.config;
+
+import com.mackenzie.achadosdoados.dto.UsuarioAutenticado;
+import com.mackenzie.achadosdoados.service.CachePrincipais;
+import com.mackenzie.achadosdoados.service.TokenService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Resolve o usuário do header "Authorization: Bearer <token>" uma vez por
+ * requisição e o coloca no SecurityContext como UsuarioAutenticado
+ * (disponível nos controllers via @AuthenticationPrincipal).
+ *
+ * Token ausente, inválido ou de usuário inexistente não interrompe a
+ * requisição: ela segue anônima e cada endpoint decide se responde 401.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String PREFIXO = "Bearer ";
+
+    private final TokenService tokenService;
+    private final CachePrincipais cachePrincipais;
+
+    public TokenAuthenticationFilter(TokenService tokenService, CachePrincipais cachePrincipais) {
+        this.tokenService = tokenService;
+        this.cachePrincipais = cachePrincipais;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith(PREFIXO)) {
+            UsuarioAutenticado usuario = autenticar(authorization.substring(PREFIXO.length()));
+            if (usuario != null) {
+                UsernamePasswordAuthenticationToken autenticacao = new UsernamePasswordAuthenticationToken(
+                        usuario, null, List.of(new SimpleGrantedAuthority("ROLE_" + usuario.getTipo())));
+                SecurityContextHolder.getContext().setAuthentication(autenticacao);
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private UsuarioAutenticado autenticar(String token) {
+        TokenService.Sessao sessao = tokenService.validar(token);
+        if (sessao == null) {
+            return null;
+        }
+        UsuarioAutenticado usuario = cachePrincipais.buscar(sessao.getUsuarioId());
+        // o tipo no token precisa bater com o cadastro
+        return usuario != null && usuario.getTipo().equals(sessao.getTipo()) ? usuario : null;
+    }
+}
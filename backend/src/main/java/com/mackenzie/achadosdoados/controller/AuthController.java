@@ -1,7 +1,5 @@
 package com.mackenzie.achadosdoados.controller;
 
-import com.mackenzie.achadosdoados.model.Doador;
-import com.mackenzie.achadosdoados.model.Instituicao;
 import com.mackenzie.achadosdoados.model.Usuario;
 import com.mackenzie.achadosdoados.repository.UsuarioRepository;
 import org.springframework.http.HttpStatus;
@@ -12,9 +10,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import com.mackenzie.achadosdoados.service.LimitadorLogin;
 import com.mackenzie.achadosdoados.service.TokenService;
 
 @RestController
@@ -24,11 +24,14 @@ public class AuthController {
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
     private final TokenService tokenService;
+    private final LimitadorLogin limitadorLogin;
 
-    public AuthController(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder, TokenService tokenService) {
+    public AuthController(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder, TokenService tokenService,
+                          LimitadorLogin limitadorLogin) {
         this.usuarioRepository = usuarioRepository;
         this.passwordEncoder = passwordEncoder;
         this.tokenService = tokenService;
+        this.limitadorLogin = limitadorLogin;
     }
 
     // DTO simples para receber o body
@@ -40,11 +43,14 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest req) {
+    public ResponseEntity<?> login(@RequestBody LoginRequest req, HttpServletRequest request) {
         if (req == null || req.email == null || req.senha == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", "E-mail e senha são obrigatórios"));
         }
 
+        // Limite por IP e por e-mail antes do BCrypt (429 quando excedido)
+        limitadorLogin.registrarTentativa(request.getRemoteAddr(), req.email);
+
         Optional<Usuario> uopt = usuarioRepository.findByEmail(req.email);
         if (uopt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Credenciais inválidas"));
@@ -55,13 +61,16 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Credenciais inválidas"));
         }
 
-    // Gera um token simples e o armazena via TokenService.
-    String token = tokenService.generateToken(usuario.getId());
+        // Senha gravada com força de BCrypt menor que a configurada: refaz o hash
+        if (passwordEncoder.upgradeEncoding(usuario.getSenha())) {
+            usuarioRepository.atualizarSenha(usuario.getId(), passwordEncoder.encode(req.senha));
+        }
+
+    // define tipo (DOADOR / INSTITUICAO) para o frontend; também vai no token
+    String tipo = TokenService.tipoDe(usuario);
 
-    // define tipo (DOADOR / INSTITUICAO) para o frontend
-    String tipo = "USUARIO";
-    if (usuario instanceof Instituicao) tipo = "INSTITUICAO";
-    else if (usuario instanceof Doador) tipo = "DOADOR";
+    // Gera o token de sessão via TokenService.
+    String token = tokenService.generateToken(usuario.getId(), tipo);
 
     Map<String, Object> user = new HashMap<>();
     user.put("id", usuario.getId());
@@ -99,9 +108,7 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Usuário não encontrado"));
         }
         Usuario usuario = uopt.get();
-        String tipo = "USUARIO";
-        if (usuario instanceof Instituicao) tipo = "INSTITUICAO";
-        else if (usuario instanceof Doador) tipo = "DOADOR";
+        String tipo = TokenService.tipoDe(usuario);
 
         Map<String, Object> user = new HashMap<>();
         user.put("id", usuario.getId());
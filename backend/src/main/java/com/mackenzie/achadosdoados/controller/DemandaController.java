@@ -1,13 +1,19 @@
 package com.mackenzie.achadosdoados.controller;
 
+import com.mackenzie.achadosdoados.dto.CursorPage;
+import com.mackenzie.achadosdoados.dto.DemandaFiltro;
+import com.mackenzie.achadosdoados.dto.DemandaResumo;
+import com.mackenzie.achadosdoados.dto.PaginaFacetada;
 import com.mackenzie.achadosdoados.model.Demanda;
 import com.mackenzie.achadosdoados.service.DemandaService;
+import com.mackenzie.achadosdoados.service.VersaoCatalogo;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -19,9 +25,11 @@ import java.util.List;
 public class DemandaController {
 
     private final DemandaService demandaService;
+    private final VersaoCatalogo versaoCatalogo;
 
-    public DemandaController(DemandaService demandaService) {
+    public DemandaController(DemandaService demandaService, VersaoCatalogo versaoCatalogo) {
         this.demandaService = demandaService;
+        this.versaoCatalogo = versaoCatalogo;
     }
 
     /**
@@ -30,25 +38,62 @@ public class DemandaController {
      * Responde a:
      * - GET /api/demandas (retorna todas)
      * - GET /api/demandas?titulo=roupas (retorna filtradas)
+     * - GET /api/demandas?limite=20&cursor=...&ordem=prazo (retorna uma página)
+     * - GET /api/demandas?categoria=Roupas&nivelUrgencia=Alta&instituicaoId=1
+     *       &prazoDe=2025-01-01&prazoAte=2025-12-31 (retorna uma página filtrada)
+     * - GET /api/demandas?titulo=roupas&instituicaoId=1 (busca + filtros, paginada)
      *
-     * @param titulo Parâmetro opcional para filtrar pelo título da demanda.
-     * @return Uma lista de demandas e status 200 (OK).
+     * As listagens trazem resumos (DemandaResumo, com um trecho da descrição);
+     * a demanda completa é obtida em GET /api/demandas/{id}.
+     * Apenas 'titulo' mantém a resposta em lista, ordenada por relevância.
+     * Quando outro filtro, 'limite' ou 'cursor' é informado, a resposta é um
+     * objeto { items, next, facetas } em vez da lista completa; 'next' deve ser
+     * reenviado em 'cursor' para buscar a página seguinte, e 'facetas' traz as
+     * contagens por categoria, urgência e status (da instituição filtrada,
+     * ou de todas).
+     *
+     * As respostas levam uma ETag forte com a versão do catálogo; se o
+     * cliente reenviar a tag atual em If-None-Match, a resposta é 304 sem
+     * montar a listagem (ver VersaoCatalogo).
+     *
+     * @param filtro Filtros opcionais (titulo, categoria, nivelUrgencia, status,
+     *               instituicaoId, prazoDe, prazoAte).
+     * @param limite Tamanho da página (opcional, ativa a paginação).
+     * @param cursor Cursor opaco da página anterior (opcional, ativa a paginação).
+     * @param ordem  "id" (padrão) ou "prazo".
+     * @return Uma lista (ou página) de demandas e status 200 (OK), ou 304 (Not Modified).
      */
     @GetMapping
-    public ResponseEntity<List<Demanda>> buscarDemandas(
-            @RequestParam(required = false) String titulo) {
+    public ResponseEntity<?> buscarDemandas(
+            DemandaFiltro filtro,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String ordem,
+            WebRequest request) {
+
+        // Versão lida antes da consulta: uma alteração concorrente gera uma tag nova
+        String etag = versaoCatalogo.etagDemandas();
+        if (request.checkNotModified(etag)) {
+            return RespostaCondicional.naoModificado();
+        }
         
-        List<Demanda> demandas;
+        List<DemandaResumo> demandas;
         
-        if (titulo != null && !titulo.isEmpty()) {
+        boolean paginado = limite != null || cursor != null;
+        if (filtro.isSomenteTitulo() && !paginado) {
             // Fluxo com filtro (barra de busca)
-            demandas = demandaService.buscarDemandasPorTitulo(titulo);
+            demandas = demandaService.buscarDemandasPorTitulo(filtro.getTitulo());
+        } else if (!filtro.isVazio() || paginado) {
+            // Fluxo paginado (keyset), com filtros e facetas
+            CursorPage<DemandaResumo> pagina = demandaService.buscarPaginaDemandas(filtro, ordem, limite, cursor);
+            return RespostaCondicional.ok(etag, new PaginaFacetada<>(pagina,
+                    demandaService.contarFacetas(filtro.getInstituicaoId())));
         } else {
             // Fluxo sem filtro (carregamento inicial)
             demandas = demandaService.buscarTodasDemandas();
         }
         
-        return ResponseEntity.ok(demandas);
+        return RespostaCondicional.ok(etag, demandas);
     }
 
     /**
@@ -57,12 +102,16 @@ public class DemandaController {
      * Responde a: GET /api/demandas/1
      *
      * @param id O ID da demanda (vem da URL).
-     * @return A demanda encontrada com status 200 (OK) ou 404 (Not Found).
+     * @return A demanda encontrada com status 200 (OK), 304 (Not Modified) ou 404 (Not Found).
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Demanda> buscarDemandaPorId(@PathVariable Long id) {
+    public ResponseEntity<Demanda> buscarDemandaPorId(@PathVariable Long id, WebRequest request) {
+        String etag = versaoCatalogo.etagDemandas();
+        if (request.checkNotModified(etag)) {
+            return RespostaCondicional.naoModificado();
+        }
         return demandaService.buscarDemandaPorId(id)
-                .map(demanda -> ResponseEntity.ok(demanda)) // Encontrou -> 200 OK
+                .map(demanda -> RespostaCondicional.ok(etag, demanda)) // Encontrou -> 200 OK
                 .orElse(ResponseEntity.notFound().build()); // Não encontrou -> 404 Not Found
     }
 
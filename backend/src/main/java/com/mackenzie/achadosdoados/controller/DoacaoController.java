@@ -1,14 +1,15 @@
 package com.mackenzie.achadosdoados.controller;
 
+import com.mackenzie.achadosdoados.dto.DoacaoResumo;
+import com.mackenzie.achadosdoados.dto.UsuarioAutenticado;
 import com.mackenzie.achadosdoados.model.Doacao;
 import com.mackenzie.achadosdoados.service.DoacaoService;
-import com.mackenzie.achadosdoados.service.TokenService;
 import com.mackenzie.achadosdoados.repository.UsuarioRepository;
 import com.mackenzie.achadosdoados.model.Usuario;
 import com.mackenzie.achadosdoados.model.Doador;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -28,12 +29,10 @@ import java.util.List;
 public class DoacaoController {
 
     private final DoacaoService doacaoService;
-    private final TokenService tokenService;
     private final UsuarioRepository usuarioRepository;
 
-    public DoacaoController(DoacaoService doacaoService, TokenService tokenService, UsuarioRepository usuarioRepository) {
+    public DoacaoController(DoacaoService doacaoService, UsuarioRepository usuarioRepository) {
         this.doacaoService = doacaoService;
-        this.tokenService = tokenService;
         this.usuarioRepository = usuarioRepository;
     }
 
@@ -47,23 +46,15 @@ public class DoacaoController {
      */
     @PostMapping
     public ResponseEntity<Doacao> registrarIntencaoDeDoacao(
-            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @AuthenticationPrincipal UsuarioAutenticado usuario,
             @RequestParam(required = false) Long doadorId,
             @RequestParam Long demandaId) {
 
         Long resolvedDoadorId = null;
 
-        // Try to resolve from Authorization: Bearer <token>
-        if (authorization != null && authorization.startsWith("Bearer ")) {
-            String token = authorization.substring(7);
-            Long uid = tokenService.getUserIdForToken(token);
-            if (uid != null) {
-                // confirm it's a Doador
-                Usuario u = usuarioRepository.findById(uid).orElse(null);
-                if (u instanceof Doador) {
-                    resolvedDoadorId = uid;
-                }
-            }
+        // Resolved from the Bearer token by TokenAuthenticationFilter
+        if (usuario != null && usuario.isDoador()) {
+            resolvedDoadorId = usuario.getId();
         }
 
         // fallback to explicit param if provided
@@ -107,8 +98,8 @@ public class DoacaoController {
      * @return Lista de doações e status 200 (OK).
      */
     @GetMapping("/doador/{doadorId}")
-    public ResponseEntity<List<Doacao>> buscarDoacoesPorDoador(@PathVariable Long doadorId) {
-        List<Doacao> doacoes = doacaoService.buscarDoacoesPorDoador(doadorId);
+    public ResponseEntity<List<DoacaoResumo>> buscarDoacoesPorDoador(@PathVariable Long doadorId) {
+        List<DoacaoResumo> doacoes = doacaoService.buscarDoacoesPorDoador(doadorId);
         return ResponseEntity.ok(doacoes);
     }
 
@@ -121,8 +112,8 @@ public class DoacaoController {
      * @return Lista de doações e status 200 (OK).
      */
     @GetMapping("/instituicao/{instituicaoId}")
-    public ResponseEntity<List<Doacao>> buscarDoacoesPorInstituicao(@PathVariable Long instituicaoId) {
-        List<Doacao> doacoes = doacaoService.buscarDoacoesPorInstituicao(instituicaoId);
+    public ResponseEntity<List<DoacaoResumo>> buscarDoacoesPorInstituicao(@PathVariable Long instituicaoId) {
+        List<DoacaoResumo> doacoes = doacaoService.buscarDoacoesPorInstituicao(instituicaoId);
         return ResponseEntity.ok(doacoes);
     }
 
@@ -135,8 +126,8 @@ public class DoacaoController {
      * @return Lista de doações e status 200 (OK).
      */
     @GetMapping("/demanda/{demandaId}")
-    public ResponseEntity<List<Doacao>> buscarDoacoesPorDemanda(@PathVariable Long demandaId) {
-        List<Doacao> doacoes = doacaoService.buscarDoacoesPorDemanda(demandaId);
+    public ResponseEntity<List<DoacaoResumo>> buscarDoacoesPorDemanda(@PathVariable Long demandaId) {
+        List<DoacaoResumo> doacoes = doacaoService.buscarDoacoesPorDemanda(demandaId);
         return ResponseEntity.ok(doacoes);
     }
 }
\ No newline at end of file
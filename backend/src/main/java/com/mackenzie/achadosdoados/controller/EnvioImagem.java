@@ -0,0 +1,260 @@
+package com.mackenzie.achadosdoados.controller;
+
+import com.mackenzie.achadosdoados.service.CacheImagens;
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+
+/**
+ * Envio de um arquivo de imagem na resposta HTTP, sem carregá-lo no heap.
+ *
+ * Com o conector NIO do Tomcat o corpo vai por sendfile (o Tomcat copia do
+ * arquivo para o socket depois que o controller retorna); sem suporte, ou
+ * para arquivos pequenos, por FileChannel.transferTo. Imagens que já estão
+ * no CacheImagens saem direto do buffer. Trata ETag (304) e um único
+ * intervalo de bytes em Range (206/416).
+ *
+ * O ETag é o nome do arquivo, que já traz o SHA-256 do conteúdo (e o
+ * tamanho, nas variantes): é o mesmo em todas as instâncias e não depende
+ * da data de modificação, que o ImageStorageService renova ao reaproveitar
+ * uma imagem (proteção contra a coleta) e que difere entre as cópias
+ * baixadas do S3. Pelo mesmo motivo não há Last-Modified; If-Range com
+ * data nunca confere.
+ */
+final class EnvioImagem {
+
+    /** Arquivos com nome único nunca mudam: o cache pode guardá-los por um ano. */
+    static final String CACHE_IMUTAVEL = "public, max-age=31536000, immutable";
+    /** Conteúdo provisório (ex.: original no lugar da variante ainda não gerada). */
+    static final String CACHE_REVALIDAR = "public, no-cache";
+
+    private static final String SENDFILE_SUPORTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARQUIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIM = "org.apache.tomcat.sendfile.end";
+    /** Abaixo disso a cópia direta custa menos que agendar o sendfile (mesmo limite do DefaultServlet). */
+    private static final long MINIMO_SENDFILE = 48 * 1024;
+
+    private static final long[] INSATISFAZIVEL = new long[0];
+
+    private EnvioImagem() {
+    }
+
+    /**
+     * Envia o arquivo, ou só os headers quando a resposta for 304/416/HEAD.
+     *
+     * @param imutavel Se o conteúdo desta URL nunca muda (Cache-Control immutable).
+     */
+    static void enviar(Path arquivo, boolean imutavel, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        BasicFileAttributes atributos;
+        try {
+            atributos = Files.readAttributes(arquivo, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!atributos.isRegularFile()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long[] trecho = prepararResposta(arquivo, atributos.size(), imutavel, request, response);
+        if (trecho == null) {
+            return;
+        }
+        long inicio = trecho[0];
+        long comprimento = trecho[1];
+
+        if (comprimento >= MINIMO_SENDFILE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPORTE))) {
+            request.setAttribute(SENDFILE_ARQUIVO, arquivo.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIM, inicio + comprimento);
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            WritableByteChannel saida = Channels.newChannel(response.getOutputStream());
+            long posicao = inicio;
+            long restante = comprimento;
+            while (restante > 0) {
+                long enviados = canal.transferTo(posicao, restante, saida);
+                if (enviados <= 0) {
+                    break; // arquivo truncado durante o envio
+                }
+                posicao += enviados;
+                restante -= enviados;
+            }
+        }
+    }
+
+    /**
+     * Envia uma imagem já em memória (CacheImagens), com os mesmos headers
+     * e regras de cache/Range do envio a partir do arquivo.
+     */
+    static void enviar(Path arquivo, CacheImagens.Imagem imagem, boolean imutavel, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        long[] trecho = prepararResposta(arquivo, imagem.getTamanho(), imutavel, request, response);
+        if (trecho == null) {
+            return;
+        }
+        ByteBuffer conteudo = imagem.getConteudo();
+        conteudo.position((int) trecho[0]);
+        conteudo.limit((int) (trecho[0] + trecho[1]));
+        WritableByteChannel saida = Channels.newChannel(response.getOutputStream());
+        while (conteudo.hasRemaining()) {
+            saida.write(conteudo);
+        }
+    }
+
+    /**
+     * Escreve status e headers (ETag, Cache-Control, Range).
+     *
+     * @return [início, comprimento] do corpo a enviar, ou null se a resposta
+     *         não tiver corpo (304, 416, HEAD ou arquivo vazio).
+     */
+    private static long[] prepararResposta(Path arquivo, long tamanho, boolean imutavel,
+                                           HttpServletRequest request, HttpServletResponse response) {
+        String etag = etag(arquivo);
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, imutavel ? CACHE_IMUTAVEL : CACHE_REVALIDAR);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && contemEtag(ifNoneMatch, etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+
+        response.setContentType(tipoConteudo(arquivo));
+        long inicio = 0;
+        long fim = tamanho - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeValido(request, etag)) {
+            long[] intervalo = intervalo(range, tamanho);
+            if (intervalo == INSATISFAZIVEL) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamanho);
+                return null;
+            }
+            if (intervalo != null) {
+                inicio = intervalo[0];
+                fim = intervalo[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fim + "/" + tamanho);
+            }
+        }
+        long comprimento = fim - inicio + 1;
+        response.setContentLengthLong(comprimento);
+        if ("HEAD".equals(request.getMethod()) || comprimento <= 0) {
+            return null;
+        }
+        return new long[]{inicio, comprimento};
+    }
+
+    /**
+     * ETag forte do arquivo: o nome, único por conteúdo.
+     */
+    static String etag(Path arquivo) {
+        return "\"" + arquivo.getFileName() + "\"";
+    }
+
+    /**
+     * Content-Type pela extensão (os nomes são gerados pelo próprio serviço).
+     */
+    static String tipoConteudo(Path arquivo) {
+        String nome = arquivo.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (nome.endsWith(".jpg") || nome.endsWith(".jpeg") || nome.endsWith(".jfif")) {
+            return "image/jpeg";
+        } else if (nome.endsWith(".png")) {
+            return "image/png";
+        } else if (nome.endsWith(".gif")) {
+            return "image/gif";
+        } else if (nome.endsWith(".webp")) {
+            return "image/webp";
+        }
+        return "application/octet-stream";
+    }
+
+    /**
+     * Sem If-Range o intervalo vale; com ele, só se o ETag for o mesmo (uma
+     * data não confere, já que a resposta não tem Last-Modified).
+     */
+    private static boolean ifRangeValido(HttpServletRequest request, String etag) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.equals(etag);
+    }
+
+    private static boolean contemEtag(String lista, String etag) {
+        for (String valor : lista.split(",")) {
+            String candidato = valor.trim();
+            if (candidato.startsWith("W/")) {
+                candidato = candidato.substring(2);
+            }
+            if (candidato.equals("*") || candidato.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Interpreta "bytes=a-b", "bytes=a-" e "bytes=-n".
+     *
+     * @return [início, fim] inclusivos; null para ignorar o header (sintaxe
+     *         desconhecida ou vários intervalos, respondidos com o arquivo
+     *         inteiro); INSATISFAZIVEL se o intervalo estiver fora do arquivo.
+     */
+    static long[] intervalo(String range, long tamanho) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String especificacao = range.substring("bytes=".length()).trim();
+        int hifen = especificacao.indexOf('-');
+        if (hifen < 0) {
+            return null;
+        }
+        try {
+            String antes = especificacao.substring(0, hifen).trim();
+            String depois = especificacao.substring(hifen + 1).trim();
+            long inicio;
+            long fim;
+            if (antes.isEmpty()) {
+                // Sufixo: os últimos n bytes
+                long sufixo = Long.parseLong(depois);
+                if (sufixo <= 0 || tamanho == 0) {
+                    return INSATISFAZIVEL;
+                }
+                inicio = Math.max(0, tamanho - sufixo);
+                fim = tamanho - 1;
+            } else {
+                inicio = Long.parseLong(antes);
+                fim = tamanho - 1;
+                if (!depois.isEmpty()) {
+                    long ultimo = Long.parseLong(depois);
+                    if (ultimo < inicio) {
+                        return null; // inválido: ignorado, como pede a RFC 7233
+                    }
+                    fim = Math.min(ultimo, fim);
+                }
+            }
+            if (inicio < 0 || inicio >= tamanho) {
+                return INSATISFAZIVEL;
+            }
+            return new long[]{inicio, fim};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
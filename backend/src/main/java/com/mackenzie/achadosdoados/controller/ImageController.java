@@ -1,19 +1,27 @@
 package com.mackenzie.achadosdoados.controller;
 
+import com.mackenzie.achadosdoados.dto.UsuarioAutenticado;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
 import com.mackenzie.achadosdoados.model.Instituicao;
 import com.mackenzie.achadosdoados.model.Usuario;
 import com.mackenzie.achadosdoados.repository.UsuarioRepository;
+import com.mackenzie.achadosdoados.service.CacheImagens;
 import com.mackenzie.achadosdoados.service.ImageStorageService;
-import com.mackenzie.achadosdoados.service.TokenService;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import com.mackenzie.achadosdoados.service.ImagemRecusadaException;
+import com.mackenzie.achadosdoados.service.VariantesImagem;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
@@ -26,89 +34,108 @@ import java.util.Map;
 public class ImageController {
 
     private final ImageStorageService imageStorageService;
-    private final TokenService tokenService;
     private final UsuarioRepository usuarioRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ImageController(ImageStorageService imageStorageService, 
-                          TokenService tokenService, 
-                          UsuarioRepository usuarioRepository) {
+    public ImageController(ImageStorageService imageStorageService,
+                          UsuarioRepository usuarioRepository,
+                          ApplicationEventPublisher eventPublisher) {
         this.imageStorageService = imageStorageService;
-        this.tokenService = tokenService;
         this.usuarioRepository = usuarioRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
      * Upload de foto de perfil da instituição.
-     * POST /api/portal/instituicoes/foto
+     * POST /api/portal/instituicoes/foto (multipart, campo "foto")
      */
-    @PostMapping("/portal/instituicoes/foto")
+    @PostMapping(value = "/portal/instituicoes/foto", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<Map<String, String>> uploadFotoInstituicao(
             @RequestParam("foto") MultipartFile file,
-            @RequestHeader(value = "Authorization", required = false) String authorization) {
+            @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
 
-        System.out.println("=== Upload foto - Authorization: " + (authorization != null ? "presente" : "AUSENTE"));
-        
-        // Validar autenticação
-        if (authorization == null || !authorization.startsWith("Bearer ")) {
-            System.out.println("=== ERRO: Authorization header inválido");
-            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        // Validar tipo de arquivo
+        String contentType = file.getContentType();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Apenas imagens são permitidas");
+            return ResponseEntity.badRequest().body(error);
         }
-        
-        String token = authorization.substring("Bearer ".length());
-        System.out.println("=== Token extraído: " + token.substring(0, Math.min(10, token.length())) + "...");
-        
-        Long userId = tokenService.getUserIdForToken(token);
-        System.out.println("=== UserId do token: " + userId);
-        
-        if (userId == null) {
-            System.out.println("=== ERRO: Token inválido ou expirado");
+
+        return atualizarFoto(usuarioAutenticado, () -> imageStorageService.store(file));
+    }
+
+    /**
+     * Upload de foto de perfil com a imagem como corpo da requisição.
+     * POST /api/portal/instituicoes/foto (Content-Type: image/jpeg, image/png...)
+     *
+     * O corpo é lido uma única vez, direto para o arquivo final (sem o
+     * buffer em memória/arquivo temporário do multipart), com o limite de
+     * 'imagens.upload.limite' conferido durante a leitura.
+     */
+    @PostMapping(value = "/portal/instituicoes/foto", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<Map<String, String>> uploadFotoInstituicaoCorpo(
+            HttpServletRequest request,
+            @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
+
+        return atualizarFoto(usuarioAutenticado, () -> imageStorageService.store(
+                Channels.newChannel(request.getInputStream()), request.getContentLengthLong()));
+    }
+
+    /** Grava a imagem enviada e devolve o nome do arquivo. */
+    private interface GravacaoImagem {
+        String gravar() throws IOException;
+    }
+
+    /**
+     * Confere o usuário, grava a imagem e troca a foto da instituição. A
+     * imagem só é lida depois da autorização.
+     */
+    private ResponseEntity<Map<String, String>> atualizarFoto(UsuarioAutenticado usuarioAutenticado,
+                                                              GravacaoImagem gravacao) {
+        // Usuário resolvido pelo TokenAuthenticationFilter
+        if (usuarioAutenticado == null) {
             return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
         }
+        if (!usuarioAutenticado.isInstituicao()) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
 
-        Usuario usuario = usuarioRepository.findById(userId).orElse(null);
-        System.out.println("=== Usuario encontrado: " + (usuario != null ? usuario.getNome() : "NULL"));
-        System.out.println("=== Tipo do usuario: " + (usuario != null ? usuario.getClass().getSimpleName() : "NULL"));
-        
+        // A entidade só é carregada porque a foto será gravada nela
+        Usuario usuario = usuarioRepository.findById(usuarioAutenticado.getId()).orElse(null);
         if (!(usuario instanceof Instituicao)) {
-            System.out.println("=== ERRO: Usuario não é instituição");
             return new ResponseEntity<>(HttpStatus.FORBIDDEN);
         }
 
         Instituicao instituicao = (Instituicao) usuario;
 
-        // Validar arquivo
-        if (file.isEmpty()) {
-            Map<String, String> error = new HashMap<>();
-            error.put("error", "Arquivo vazio");
-            return ResponseEntity.badRequest().body(error);
-        }
-
-        // Validar tipo de arquivo
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("image/")) {
-            Map<String, String> error = new HashMap<>();
-            error.put("error", "Apenas imagens são permitidas");
-            return ResponseEntity.badRequest().body(error);
-        }
-
         try {
-            // Deletar foto antiga se existir
-            if (instituicao.getFotoUrl() != null) {
-                String oldFilename = instituicao.getFotoUrl().substring(instituicao.getFotoUrl().lastIndexOf("/") + 1);
-                imageStorageService.delete(oldFilename);
-            }
-
             // Salvar nova foto
-            String filename = imageStorageService.store(file);
-            String fotoUrl = "/api/images/" + filename;
-            
+            String filename = gravacao.gravar();
+            String fotoUrl = ImageStorageService.URL_PREFIXO + filename;
+            String fotoAntiga = instituicao.getFotoUrl();
+
             // Atualizar instituição
             instituicao.setFotoUrl(fotoUrl);
+            instituicao.setFotoPlaceholder(imageStorageService.placeholder(filename));
             usuarioRepository.save(instituicao);
+            eventPublisher.publishEvent(new InstituicaoAlteradaEvent(instituicao));
+
+            // Só depois de gravada a nova: a antiga pode ser o mesmo arquivo
+            // ou ainda servir a outra instituição (delete confere)
+            if (fotoAntiga != null && !fotoAntiga.equals(fotoUrl)) {
+                imageStorageService.delete(fotoAntiga.substring(fotoAntiga.lastIndexOf("/") + 1));
+            }
 
             Map<String, String> response = new HashMap<>();
             response.put("fotoUrl", fotoUrl);
+            response.put("fotoPlaceholder", instituicao.getFotoPlaceholder());
             return ResponseEntity.ok(response);
+        } catch (ImagemRecusadaException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            HttpStatus status = e.isMuitoGrande() ? HttpStatus.PAYLOAD_TOO_LARGE : HttpStatus.BAD_REQUEST;
+            return ResponseEntity.status(status).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Erro ao salvar imagem: " + e.getMessage());
@@ -119,35 +146,33 @@ public class ImageController {
     /**
      * Servir imagens armazenadas.
      * GET /api/images/{filename}
+     * GET /api/images/{filename}?size=thumb (ou card, full)
+     *
+     * Os nomes são únicos e o conteúdo nunca muda, então a resposta vai com
+     * cache imutável, ETag e suporte a Range (ver EnvioImagem).
+     * A exceção é o original servido no lugar de uma variante ainda não
+     * gerada, que precisa ser revalidado.
      */
     @GetMapping("/images/{filename:.+}")
-    public ResponseEntity<Resource> serveImage(@PathVariable String filename) {
-        try {
-            Path file = imageStorageService.load(filename);
-            Resource resource = new UrlResource(file.toUri());
-            
-            if (resource.exists() || resource.isReadable()) {
-                // Determinar tipo de conteúdo
-                String contentType = "application/octet-stream";
-                if (filename.toLowerCase().endsWith(".jpg") || filename.toLowerCase().endsWith(".jpeg")) {
-                    contentType = "image/jpeg";
-                } else if (filename.toLowerCase().endsWith(".png")) {
-                    contentType = "image/png";
-                } else if (filename.toLowerCase().endsWith(".gif")) {
-                    contentType = "image/gif";
-                } else if (filename.toLowerCase().endsWith(".webp")) {
-                    contentType = "image/webp";
-                }
-
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+    public void serveImage(@PathVariable String filename,
+                           @RequestParam(value = "size", required = false) String size,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        // Tamanho inválido é erro do cliente (400), não arquivo inexistente
+        VariantesImagem.Tamanho tamanho = VariantesImagem.Tamanho.de(size);
+        if (filename.contains("..") || filename.contains("/") || filename.contains("\\")) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Path file = imageStorageService.load(filename, size);
+        boolean imutavel = tamanho == null || VariantesImagem.isVariante(file.getFileName().toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"");
+        CacheImagens.Imagem emMemoria = imageStorageService.loadCached(file);
+        if (emMemoria != null) {
+            EnvioImagem.enviar(file, emMemoria, imutavel, request, response);
+        } else {
+            EnvioImagem.enviar(file, imutavel, request, response);
         }
     }
 }
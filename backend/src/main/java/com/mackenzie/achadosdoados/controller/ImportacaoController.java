@@ -0,0 +1,93 @@
+package com.mackenzie.achadosdoados.controller;
+
+import com.mackenzie.achadosdoados.dto.ResultadoImportacao;
+import com.mackenzie.achadosdoados.service.ImportacaoService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Importação em lote de contas (onboarding de redes parceiras).
+ *
+ * Protegida pela chave em 'importacao.chave', enviada no header
+ * X-Chave-Importacao; sem chave configurada o endpoint fica desativado (404).
+ * Aceita JSON (lista de objetos) ou CSV com cabeçalho (text/csv, UTF-8).
+ */
+@RestController
+@RequestMapping("/api/importacao")
+public class ImportacaoController {
+
+    static final String HEADER_CHAVE = "X-Chave-Importacao";
+
+    private final ImportacaoService importacaoService;
+    private final byte[] chave;
+
+    public ImportacaoController(ImportacaoService importacaoService,
+                                @Value("${importacao.chave:}") String chave) {
+        this.importacaoService = importacaoService;
+        this.chave = chave.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Responde a: POST /api/importacao/instituicoes (ou /doadores), corpo JSON.
+     */
+    @PostMapping(value = "/{tipo}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResultadoImportacao> importarJson(
+            @PathVariable String tipo,
+            @RequestHeader(value = HEADER_CHAVE, required = false) String chaveInformada,
+            @RequestBody List<Map<String, Object>> registros) {
+        ResponseEntity<ResultadoImportacao> negado = autorizar(chaveInformada);
+        if (negado != null) {
+            return negado;
+        }
+        return ResponseEntity.ok(importacaoService.importar(ImportacaoService.Tipo.de(tipo), registros));
+    }
+
+    /**
+     * Responde a: POST /api/importacao/instituicoes (ou /doadores), corpo CSV.
+     */
+    @PostMapping(value = "/{tipo}", consumes = "text/csv")
+    public ResponseEntity<ResultadoImportacao> importarCsv(
+            @PathVariable String tipo,
+            @RequestHeader(value = HEADER_CHAVE, required = false) String chaveInformada,
+            HttpServletRequest request) throws IOException {
+        ResponseEntity<ResultadoImportacao> negado = autorizar(chaveInformada);
+        if (negado != null) {
+            return negado;
+        }
+        ImportacaoService.Tipo tipoImportacao = ImportacaoService.Tipo.de(tipo);
+        try (Reader csv = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+            return ResponseEntity.ok(importacaoService.importarCsv(tipoImportacao, csv));
+        }
+    }
+
+    /**
+     * @return A resposta de recusa, ou null se a chave confere.
+     */
+    private ResponseEntity<ResultadoImportacao> autorizar(String chaveInformada) {
+        if (chave.length == 0) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (chaveInformada == null
+                || !MessageDigest.isEqual(chave, chaveInformada.getBytes(StandardCharsets.UTF_8))) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        return null;
+    }
+}
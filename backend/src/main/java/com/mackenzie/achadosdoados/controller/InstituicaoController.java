@@ -1,11 +1,16 @@
 package com.mackenzie.achadosdoados.controller;
 
-import com.mackenzie.achadosdoados.model.Instituicao;
-import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import com.mackenzie.achadosdoados.dto.InstituicaoProxima;
+import com.mackenzie.achadosdoados.dto.InstituicaoResumo;
+import com.mackenzie.achadosdoados.dto.MapaInstituicoes;
+import com.mackenzie.achadosdoados.service.InstituicaoService;
+import com.mackenzie.achadosdoados.service.VersaoCatalogo;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -16,15 +21,55 @@ import java.util.List;
 @RequestMapping("/api/instituicoes")
 public class InstituicaoController {
 
-    private final InstituicaoRepository instituicaoRepository;
+    private final InstituicaoService instituicaoService;
+    private final VersaoCatalogo versaoCatalogo;
 
-    public InstituicaoController(InstituicaoRepository instituicaoRepository) {
-        this.instituicaoRepository = instituicaoRepository;
+    public InstituicaoController(InstituicaoService instituicaoService, VersaoCatalogo versaoCatalogo) {
+        this.instituicaoService = instituicaoService;
+        this.versaoCatalogo = versaoCatalogo;
     }
 
+    /**
+     * Lista pública de instituições, com ETag forte; responde 304 sem
+     * montar a lista quando o cliente já tem a versão atual.
+     */
     @GetMapping
-    public ResponseEntity<List<Instituicao>> listarTodas() {
-        List<Instituicao> lista = instituicaoRepository.findAll();
-        return ResponseEntity.ok(lista);
+    public ResponseEntity<List<InstituicaoResumo>> listarTodas(WebRequest request) {
+        String etag = versaoCatalogo.etagInstituicoes();
+        if (request.checkNotModified(etag)) {
+            return RespostaCondicional.naoModificado();
+        }
+        List<InstituicaoResumo> lista = instituicaoService.listarInstituicoes();
+        return RespostaCondicional.ok(etag, lista);
+    }
+
+    /**
+     * Mapa de instituições para a área visível: clusters (quantidade e
+     * centroide) nos zooms baixos e marcadores individuais nos altos.
+     * Usa a mesma ETag da lista, que muda a cada alteração de instituição.
+     * Ex.: GET /api/instituicoes/mapa?bbox=-47.2,-24.1,-46.1,-23.2&zoom=9
+     */
+    @GetMapping("/mapa")
+    public ResponseEntity<MapaInstituicoes> mapa(@RequestParam String bbox,
+                                                 @RequestParam Integer zoom,
+                                                 WebRequest request) {
+        String etag = versaoCatalogo.etagInstituicoes();
+        if (request.checkNotModified(etag)) {
+            return RespostaCondicional.naoModificado();
+        }
+        return RespostaCondicional.ok(etag, instituicaoService.montarMapa(bbox, zoom));
+    }
+
+    /**
+     * Instituições próximas de um ponto: as k mais próximas ou, com raio
+     * (km), as que estão dentro dele, ordenadas pela distância.
+     * Ex.: GET /api/instituicoes/proximas?lat=-23.55&lng=-46.63&raio=5&k=20
+     */
+    @GetMapping("/proximas")
+    public ResponseEntity<List<InstituicaoProxima>> buscarProximas(@RequestParam Double lat,
+                                                                   @RequestParam Double lng,
+                                                                   @RequestParam(required = false) Double raio,
+                                                                   @RequestParam(required = false) Integer k) {
+        return ResponseEntity.ok(instituicaoService.buscarProximas(lat, lng, raio, k));
     }
 }
@@ -0,0 +1,114 @@
+package com.mackenzie.achadosdoados.controller;
+
+import com.mackenzie.achadosdoados.dto.UsuarioAutenticado;
+import com.mackenzie.achadosdoados.service.ExportacaoService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportação do histórico da instituição logada ("Portal da Instituição").
+ * Responde a:
+ * - GET /api/portal/instituicoes/1/exportacao/demandas?formato=ndjson
+ * - GET /api/portal/instituicoes/1/exportacao/doacoes?formato=csv
+ *
+ * As linhas são escritas direto no corpo da resposta à medida que saem do
+ * banco. Com "Accept-Encoding: gzip" a saída é comprimida (Content-Encoding: gzip).
+ */
+@RestController
+@RequestMapping("/api/portal/instituicoes/{instituicaoId}/exportacao")
+public class PortalExportacaoController {
+
+    private static final int TAMANHO_BUFFER_GZIP = 8192;
+
+    private final ExportacaoService exportacaoService;
+
+    public PortalExportacaoController(ExportacaoService exportacaoService) {
+        this.exportacaoService = exportacaoService;
+    }
+
+    /**
+     * Exporta todas as demandas da instituição (inclusive inativas).
+     *
+     * @param instituicaoId O ID da instituição logada.
+     * @param formato       "ndjson" (padrão) ou "csv".
+     */
+    @GetMapping("/demandas")
+    public void exportarDemandas(
+            @PathVariable Long instituicaoId,
+            @RequestParam(defaultValue = "ndjson") String formato,
+            @AuthenticationPrincipal UsuarioAutenticado usuario,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+
+        ExportacaoService.Formato tipo = ExportacaoService.Formato.de(formato);
+        if (!autorizar(instituicaoId, usuario, response)) {
+            return;
+        }
+        try (OutputStream saida = abrirSaida(response, tipo, "demandas-" + instituicaoId, acceptEncoding)) {
+            exportacaoService.exportarDemandas(instituicaoId, tipo, saida);
+        }
+    }
+
+    /**
+     * Exporta todas as doações recebidas pela instituição.
+     *
+     * @param instituicaoId O ID da instituição logada.
+     * @param formato       "ndjson" (padrão) ou "csv".
+     */
+    @GetMapping("/doacoes")
+    public void exportarDoacoes(
+            @PathVariable Long instituicaoId,
+            @RequestParam(defaultValue = "ndjson") String formato,
+            @AuthenticationPrincipal UsuarioAutenticado usuario,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+
+        ExportacaoService.Formato tipo = ExportacaoService.Formato.de(formato);
+        if (!autorizar(instituicaoId, usuario, response)) {
+            return;
+        }
+        try (OutputStream saida = abrirSaida(response, tipo, "doacoes-" + instituicaoId, acceptEncoding)) {
+            exportacaoService.exportarDoacoes(instituicaoId, tipo, saida);
+        }
+    }
+
+    /**
+     * Confere se o token pertence à instituição da URL; caso contrário
+     * define 401/403 na resposta.
+     */
+    private boolean autorizar(Long instituicaoId, UsuarioAutenticado usuario, HttpServletResponse response) {
+        if (usuario == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return false;
+        }
+        if (!usuario.isInstituicao(instituicaoId)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return false;
+        }
+        return true;
+    }
+
+    private OutputStream abrirSaida(HttpServletResponse response, ExportacaoService.Formato formato,
+                                    String nomeArquivo, String acceptEncoding) throws IOException {
+        response.setContentType(formato.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + nomeArquivo + "." + formato.getExtensao() + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return new GZIPOutputStream(response.getOutputStream(), TAMANHO_BUFFER_GZIP);
+        }
+        return response.getOutputStream();
+    }
+}
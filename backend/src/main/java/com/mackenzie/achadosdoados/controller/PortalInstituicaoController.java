@@ -1,13 +1,12 @@
 package com.mackenzie.achadosdoados.controller;
 
+import com.mackenzie.achadosdoados.dto.DemandaResumo;
+import com.mackenzie.achadosdoados.dto.UsuarioAutenticado;
 import com.mackenzie.achadosdoados.model.Demanda;
 import com.mackenzie.achadosdoados.service.DemandaService;
-import com.mackenzie.achadosdoados.service.TokenService;
-import com.mackenzie.achadosdoados.repository.UsuarioRepository;
-import com.mackenzie.achadosdoados.model.Usuario;
-import com.mackenzie.achadosdoados.model.Instituicao;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -29,13 +28,9 @@ import java.util.List;
 public class PortalInstituicaoController {
 
     private final DemandaService demandaService;
-    private final TokenService tokenService;
-    private final UsuarioRepository usuarioRepository;
 
-    public PortalInstituicaoController(DemandaService demandaService, TokenService tokenService, UsuarioRepository usuarioRepository) {
+    public PortalInstituicaoController(DemandaService demandaService) {
         this.demandaService = demandaService;
-        this.tokenService = tokenService;
-        this.usuarioRepository = usuarioRepository;
     }
 
     /**
@@ -50,20 +45,13 @@ public class PortalInstituicaoController {
     public ResponseEntity<Demanda> criarDemanda(
             @PathVariable Long instituicaoId,
             @RequestBody Demanda demanda,
-            @org.springframework.web.bind.annotation.RequestHeader(value = "Authorization", required = false) String authorization) {
+            @AuthenticationPrincipal UsuarioAutenticado usuario) {
 
-        // Segurança básica de desenvolvimento: verifica se o token pertence à instituição
-        if (authorization == null || !authorization.startsWith("Bearer ")) {
+        // Usuário resolvido pelo TokenAuthenticationFilter
+        if (usuario == null) {
             return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
         }
-        String token = authorization.substring("Bearer ".length());
-        Long userId = tokenService.getUserIdForToken(token);
-        if (userId == null) {
-            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
-        }
-
-        Usuario usuario = usuarioRepository.findById(userId).orElse(null);
-        if (!(usuario instanceof Instituicao) || !usuario.getId().equals(instituicaoId)) {
+        if (!usuario.isInstituicao(instituicaoId)) {
             // token não pertence à instituição informada na URL
             return new ResponseEntity<>(HttpStatus.FORBIDDEN);
         }
@@ -81,10 +69,10 @@ public class PortalInstituicaoController {
      * @return Lista de demandas da instituição.
      */
     @GetMapping
-    public ResponseEntity<List<Demanda>> listarDemandasDaInstituicao(
+    public ResponseEntity<List<DemandaResumo>> listarDemandasDaInstituicao(
             @PathVariable Long instituicaoId) {
         // do usuário autenticado no token.
-        List<Demanda> demandas = demandaService.buscarDemandasPorInstituicao(instituicaoId);
+        List<DemandaResumo> demandas = demandaService.buscarDemandasPorInstituicao(instituicaoId);
         return ResponseEntity.ok(demandas);
     }
 
@@ -102,21 +90,13 @@ public class PortalInstituicaoController {
             @PathVariable Long instituicaoId,
             @PathVariable Long demandaId,
             @RequestBody Demanda dadosAtualizados,
-            @org.springframework.web.bind.annotation.RequestHeader(value = "Authorization", required = false) String authorization) {
+            @AuthenticationPrincipal UsuarioAutenticado usuario) {
         
-        // Validar autenticação
-        if (authorization == null || !authorization.startsWith("Bearer ")) {
-            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
-        }
-        String token = authorization.substring("Bearer ".length());
-        Long userId = tokenService.getUserIdForToken(token);
-        if (userId == null) {
+        // Usuário resolvido pelo TokenAuthenticationFilter
+        if (usuario == null) {
             return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
         }
-
-        // Validar que o usuário é instituição
-        Usuario usuario = usuarioRepository.findById(userId).orElse(null);
-        if (!(usuario instanceof Instituicao) || !usuario.getId().equals(instituicaoId)) {
+        if (!usuario.isInstituicao(instituicaoId)) {
             return new ResponseEntity<>(HttpStatus.FORBIDDEN);
         }
 
@@ -142,21 +122,13 @@ public class PortalInstituicaoController {
     public ResponseEntity<Void> excluirDemanda(
             @PathVariable Long instituicaoId,
             @PathVariable Long demandaId,
-            @org.springframework.web.bind.annotation.RequestHeader(value = "Authorization", required = false) String authorization) {
+            @AuthenticationPrincipal UsuarioAutenticado usuario) {
         
-        // Validar autenticação
-        if (authorization == null || !authorization.startsWith("Bearer ")) {
-            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
-        }
-        String token = authorization.substring("Bearer ".length());
-        Long userId = tokenService.getUserIdForToken(token);
-        if (userId == null) {
+        // Usuário resolvido pelo TokenAuthenticationFilter
+        if (usuario == null) {
             return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
         }
-
-        // Validar que o usuário é instituição
-        Usuario usuario = usuarioRepository.findById(userId).orElse(null);
-        if (!(usuario instanceof Instituicao) || !usuario.getId().equals(instituicaoId)) {
+        if (!usuario.isInstituicao(instituicaoId)) {
             return new ResponseEntity<>(HttpStatus.FORBIDDEN);
         }
 
@@ -0,0 +1,38 @@
+package com.mackenzie.achadosdoados.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Respostas de GET condicional (ETag / If-None-Match) das listagens públicas.
+ * O Cache-Control explícito substitui o "no-store" padrão do Spring Security,
+ * permitindo que o navegador guarde a resposta e a revalide a cada uso.
+ */
+final class RespostaCondicional {
+
+    private static final CacheControl REVALIDAR = CacheControl.noCache();
+
+    private RespostaCondicional() {
+    }
+
+    /**
+     * 304 Not Modified: o cliente já tem a versão atual.
+     * Usar depois de WebRequest.checkNotModified(etag), que já escreve a ETag.
+     */
+    static <T> ResponseEntity<T> naoModificado() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .cacheControl(REVALIDAR)
+                .build();
+    }
+
+    /**
+     * 200 OK com a ETag da versão usada para montar o corpo.
+     */
+    static <T> ResponseEntity<T> ok(String etag, T corpo) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(REVALIDAR)
+                .body(corpo);
+    }
+}
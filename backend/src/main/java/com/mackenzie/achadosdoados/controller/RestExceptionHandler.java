@@ -1,5 +1,7 @@
 package com.mackenzie.achadosdoados.controller;
 
+import com.mackenzie.achadosdoados.service.LimiteExcedidoException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -15,6 +17,14 @@ import java.util.Map;
 @ControllerAdvice
 public class RestExceptionHandler {
 
+    @ExceptionHandler(LimiteExcedidoException.class)
+    public ResponseEntity<Map<String, String>> handleLimite(LimiteExcedidoException ex) {
+        // 429 Too Many Requests, telling the client when to retry
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getTentarNovamenteEmSegundos()))
+                .body(Map.of("message", ex.getMessage()));
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, String>> handleRuntime(RuntimeException ex) {
         // Return 400 Bad Request with a simple JSON message
@@ -0,0 +1,29 @@
+package com.mackenzie.achadosdoados.dto;
+
+import java.util.List;
+
+/**
+ * Página de resultados paginada por cursor (keyset).
+ * O campo 'next' é opaco para o cliente: basta reenviá-lo no parâmetro
+ * 'cursor' para obter a página seguinte. Quando for null, não há mais páginas.
+ *
+ * @param <T> Tipo dos itens da página.
+ */
+public class CursorPage<T> {
+
+    private final List<T> items;
+    private final String next;
+
+    public CursorPage(List<T> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,73 @@
+package com.mackenzie.achadosdoados.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Linha da exportação de demandas de uma instituição: todos os campos da
+ * demanda, inclusive a descrição completa e as inativas (histórico).
+ * Montada direto pela consulta (constructor expression), sem entidade
+ * gerenciada, para que a exportação não acumule objetos no contexto de
+ * persistência.
+ */
+public class DemandaExportacao {
+
+    private final Long id;
+    private final String titulo;
+    private final String categoria;
+    private final String descricao;
+    private final String quantidadeDescricao;
+    private final String status;
+    private final String nivelUrgencia;
+    private final LocalDate prazoDesejado;
+    private final Integer metaNumerica;
+
+    public DemandaExportacao(Long id, String titulo, String categoria, String descricao,
+                             String quantidadeDescricao, String status, String nivelUrgencia,
+                             LocalDate prazoDesejado, Integer metaNumerica) {
+        this.id = id;
+        this.titulo = titulo;
+        this.categoria = categoria;
+        this.descricao = descricao;
+        this.quantidadeDescricao = quantidadeDescricao;
+        this.status = status;
+        this.nivelUrgencia = nivelUrgencia;
+        this.prazoDesejado = prazoDesejado;
+        this.metaNumerica = metaNumerica;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+
+    public String getQuantidadeDescricao() {
+        return quantidadeDescricao;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getNivelUrgencia() {
+        return nivelUrgencia;
+    }
+
+    public LocalDate getPrazoDesejado() {
+        return prazoDesejado;
+    }
+
+    public Integer getMetaNumerica() {
+        return metaNumerica;
+    }
+}
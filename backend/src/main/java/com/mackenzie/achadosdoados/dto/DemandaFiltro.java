@@ -0,0 +1,141 @@
+package com.mackenzie.achadosdoados.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Filtros combináveis da busca pública de demandas.
+ * Todos os campos são opcionais; os informados são combinados com AND.
+ */
+public class DemandaFiltro {
+
+    private String titulo;
+    private String categoria;
+    private String nivelUrgencia;
+    private String status;
+    private Long instituicaoId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate prazoDe;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate prazoAte;
+
+    /** Centro e raio (km) da busca por região; os três vêm juntos. */
+    private Double lat;
+    private Double lng;
+    private Double raio;
+
+    public DemandaFiltro() {
+    }
+
+    /**
+     * @return true se nenhum filtro foi informado.
+     */
+    public boolean isVazio() {
+        return vazio(titulo) && vazio(categoria) && vazio(nivelUrgencia) && vazio(status)
+                && instituicaoId == null && prazoDe == null && prazoAte == null && !isPorRegiao();
+    }
+
+    /**
+     * @return true se algum dos parâmetros da busca por região foi informado.
+     */
+    public boolean isPorRegiao() {
+        return lat != null || lng != null || raio != null;
+    }
+
+    private static boolean vazio(String valor) {
+        return valor == null || valor.isEmpty();
+    }
+
+    /**
+     * @return true se apenas o termo de busca foi informado.
+     */
+    public boolean isSomenteTitulo() {
+        return !vazio(titulo) && vazio(categoria) && vazio(nivelUrgencia) && vazio(status)
+                && instituicaoId == null && prazoDe == null && prazoAte == null && !isPorRegiao();
+    }
+
+    // --- Getters e Setters ---
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public void setTitulo(String titulo) {
+        this.titulo = titulo;
+    }
+
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public void setCategoria(String categoria) {
+        this.categoria = categoria;
+    }
+
+    public String getNivelUrgencia() {
+        return nivelUrgencia;
+    }
+
+    public void setNivelUrgencia(String nivelUrgencia) {
+        this.nivelUrgencia = nivelUrgencia;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getInstituicaoId() {
+        return instituicaoId;
+    }
+
+    public void setInstituicaoId(Long instituicaoId) {
+        this.instituicaoId = instituicaoId;
+    }
+
+    public LocalDate getPrazoDe() {
+        return prazoDe;
+    }
+
+    public void setPrazoDe(LocalDate prazoDe) {
+        this.prazoDe = prazoDe;
+    }
+
+    public LocalDate getPrazoAte() {
+        return prazoAte;
+    }
+
+    public void setPrazoAte(LocalDate prazoAte) {
+        this.prazoAte = prazoAte;
+    }
+
+    public Double getLat() {
+        return lat;
+    }
+
+    public void setLat(Double lat) {
+        this.lat = lat;
+    }
+
+    public Double getLng() {
+        return lng;
+    }
+
+    public void setLng(Double lng) {
+        this.lng = lng;
+    }
+
+    public Double getRaio() {
+        return raio;
+    }
+
+    public void setRaio(Double raio) {
+        this.raio = raio;
+    }
+}
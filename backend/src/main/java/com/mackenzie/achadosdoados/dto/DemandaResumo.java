@@ -0,0 +1,122 @@
+package com.mackenzie.achadosdoados.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Projeção de leitura de uma Demanda para as listagens (cards da busca e
+ * painel "Meus Pedidos"). É montada direto pela consulta (constructor
+ * expression), sem carregar a entidade nem a instituição inteira.
+ *
+ * A descrição vem truncada em TAMANHO_TRECHO caracteres, suficiente para o
+ * resumo exibido nos cards; a descrição completa está em GET /api/demandas/{id}.
+ */
+public class DemandaResumo {
+
+    /** Tamanho do trecho da descrição selecionado pelas consultas de resumo. */
+    public static final int TAMANHO_TRECHO = 200;
+
+    private final Long id;
+    private final String titulo;
+    private final String categoria;
+    private final String descricao;
+    private final String quantidadeDescricao;
+    private final String status;
+    private final String nivelUrgencia;
+    private final LocalDate prazoDesejado;
+    private final Integer metaNumerica;
+    private final InstituicaoResumida instituicao;
+
+    public DemandaResumo(Long id, String titulo, String categoria, String descricao,
+                         String quantidadeDescricao, String status, String nivelUrgencia,
+                         LocalDate prazoDesejado, Integer metaNumerica,
+                         Long instituicaoId, String instituicaoNome, String instituicaoFotoUrl,
+                         String instituicaoFotoPlaceholder) {
+        this.id = id;
+        this.titulo = titulo;
+        this.categoria = categoria;
+        this.descricao = descricao;
+        this.quantidadeDescricao = quantidadeDescricao;
+        this.status = status;
+        this.nivelUrgencia = nivelUrgencia;
+        this.prazoDesejado = prazoDesejado;
+        this.metaNumerica = metaNumerica;
+        this.instituicao = instituicaoId != null
+                ? new InstituicaoResumida(instituicaoId, instituicaoNome, instituicaoFotoUrl,
+                        instituicaoFotoPlaceholder)
+                : null;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+
+    public String getQuantidadeDescricao() {
+        return quantidadeDescricao;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getNivelUrgencia() {
+        return nivelUrgencia;
+    }
+
+    public LocalDate getPrazoDesejado() {
+        return prazoDesejado;
+    }
+
+    public Integer getMetaNumerica() {
+        return metaNumerica;
+    }
+
+    public InstituicaoResumida getInstituicao() {
+        return instituicao;
+    }
+
+    /**
+     * Dados da instituição exibidos no cabeçalho do card.
+     */
+    public static class InstituicaoResumida {
+
+        private final Long id;
+        private final String nome;
+        private final String fotoUrl;
+        private final String fotoPlaceholder;
+
+        public InstituicaoResumida(Long id, String nome, String fotoUrl, String fotoPlaceholder) {
+            this.id = id;
+            this.nome = nome;
+            this.fotoUrl = fotoUrl;
+            this.fotoPlaceholder = fotoPlaceholder;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public String getFotoUrl() {
+            return fotoUrl;
+        }
+
+        public String getFotoPlaceholder() {
+            return fotoPlaceholder;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.mackenzie.achadosdoados.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projeção de leitura de uma Doação para as listagens (histórico do doador
+ * e painéis da instituição). Montada direto pela consulta (constructor
+ * expression) com apenas os dados de contato do doador e o título da demanda.
+ */
+public class DoacaoResumo {
+
+    private final Long id;
+    private final LocalDateTime data;
+    private final String status;
+    private final DoadorResumido doador;
+    private final DemandaResumida demanda;
+
+    public DoacaoResumo(Long id, LocalDateTime data, String status,
+                        Long doadorId, String doadorNome, String doadorEmail,
+                        Long demandaId, String demandaTitulo) {
+        this.id = id;
+        this.data = data;
+        this.status = status;
+        this.doador = new DoadorResumido(doadorId, doadorNome, doadorEmail);
+        this.demanda = new DemandaResumida(demandaId, demandaTitulo);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getData() {
+        return data;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public DoadorResumido getDoador() {
+        return doador;
+    }
+
+    public DemandaResumida getDemanda() {
+        return demanda;
+    }
+
+    /**
+     * Quem registrou a intenção de doação.
+     */
+    public static class DoadorResumido {
+
+        private final Long id;
+        private final String nome;
+        private final String email;
+
+        public DoadorResumido(Long id, String nome, String email) {
+            this.id = id;
+            this.nome = nome;
+            this.email = email;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+    }
+
+    /**
+     * A demanda atendida pela doação.
+     */
+    public static class DemandaResumida {
+
+        private final Long id;
+        private final String titulo;
+
+        public DemandaResumida(Long id, String titulo) {
+            this.id = id;
+            this.titulo = titulo;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getTitulo() {
+            return titulo;
+        }
+    }
+}
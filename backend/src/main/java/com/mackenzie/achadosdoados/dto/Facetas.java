@@ -0,0 +1,42 @@
+package com.mackenzie.achadosdoados.dto;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Contagens de demandas públicas por categoria, nível de urgência e status.
+ * Instâncias são imutáveis e podem ser compartilhadas entre requisições.
+ */
+public class Facetas {
+
+    public static final Facetas VAZIAS = new Facetas(0, Collections.emptyMap(),
+            Collections.emptyMap(), Collections.emptyMap());
+
+    private final long total;
+    private final Map<String, Long> categoria;
+    private final Map<String, Long> nivelUrgencia;
+    private final Map<String, Long> status;
+
+    public Facetas(long total, Map<String, Long> categoria, Map<String, Long> nivelUrgencia, Map<String, Long> status) {
+        this.total = total;
+        this.categoria = Collections.unmodifiableMap(categoria);
+        this.nivelUrgencia = Collections.unmodifiableMap(nivelUrgencia);
+        this.status = Collections.unmodifiableMap(status);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public Map<String, Long> getCategoria() {
+        return categoria;
+    }
+
+    public Map<String, Long> getNivelUrgencia() {
+        return nivelUrgencia;
+    }
+
+    public Map<String, Long> getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,24 @@
+package com.mackenzie.achadosdoados.dto;
+
+/**
+ * Resultado da busca de instituições por proximidade: o resumo da
+ * instituição e a distância até o ponto consultado.
+ */
+public class InstituicaoProxima {
+
+    private final InstituicaoResumo instituicao;
+    private final double distanciaKm;
+
+    public InstituicaoProxima(InstituicaoResumo instituicao, double distanciaKm) {
+        this.instituicao = instituicao;
+        this.distanciaKm = distanciaKm;
+    }
+
+    public InstituicaoResumo getInstituicao() {
+        return instituicao;
+    }
+
+    public double getDistanciaKm() {
+        return distanciaKm;
+    }
+}
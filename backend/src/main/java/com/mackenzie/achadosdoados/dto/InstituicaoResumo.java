@@ -0,0 +1,87 @@
+package com.mackenzie.achadosdoados.dto;
+
+/**
+ * Projeção de leitura de uma Instituição para a listagem pública e o mapa.
+ * Montada direto pela consulta (constructor expression); não inclui senha,
+ * CEP nem a coleção de demandas.
+ */
+public class InstituicaoResumo {
+
+    private final Long id;
+    private final String nome;
+    private final String email;
+    private final String endereco;
+    private final String numero;
+    private final String cidade;
+    private final String estado;
+    private final String telefone;
+    private final String fotoUrl;
+    private final String fotoPlaceholder;
+    private final Double latitude;
+    private final Double longitude;
+
+    public InstituicaoResumo(Long id, String nome, String email, String endereco, String numero,
+                             String cidade, String estado, String telefone, String fotoUrl,
+                             String fotoPlaceholder, Double latitude, Double longitude) {
+        this.id = id;
+        this.nome = nome;
+        this.email = email;
+        this.endereco = endereco;
+        this.numero = numero;
+        this.cidade = cidade;
+        this.estado = estado;
+        this.telefone = telefone;
+        this.fotoUrl = fotoUrl;
+        this.fotoPlaceholder = fotoPlaceholder;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getEndereco() {
+        return endereco;
+    }
+
+    public String getNumero() {
+        return numero;
+    }
+
+    public String getCidade() {
+        return cidade;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public String getTelefone() {
+        return telefone;
+    }
+
+    public String getFotoUrl() {
+        return fotoUrl;
+    }
+
+    public String getFotoPlaceholder() {
+        return fotoPlaceholder;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+}
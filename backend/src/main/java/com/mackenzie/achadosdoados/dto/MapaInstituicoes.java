@@ -0,0 +1,77 @@
+package com.mackenzie.achadosdoados.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Conteúdo do mapa de instituições para uma área visível e um zoom.
+ * Até o zoom de agrupamento vêm apenas clusters (quantidade e centroide
+ * por célula da grade); acima dele, os marcadores individuais.
+ */
+public class MapaInstituicoes {
+
+    private final int zoom;
+    private final boolean agrupado;
+    private final List<Cluster> clusters;
+    private final List<InstituicaoResumo> marcadores;
+
+    private MapaInstituicoes(int zoom, boolean agrupado, List<Cluster> clusters, List<InstituicaoResumo> marcadores) {
+        this.zoom = zoom;
+        this.agrupado = agrupado;
+        this.clusters = clusters;
+        this.marcadores = marcadores;
+    }
+
+    public static MapaInstituicoes agrupado(int zoom, List<Cluster> clusters) {
+        return new MapaInstituicoes(zoom, true, clusters, Collections.emptyList());
+    }
+
+    public static MapaInstituicoes individual(int zoom, List<InstituicaoResumo> marcadores) {
+        return new MapaInstituicoes(zoom, false, Collections.emptyList(), marcadores);
+    }
+
+    public int getZoom() {
+        return zoom;
+    }
+
+    public boolean isAgrupado() {
+        return agrupado;
+    }
+
+    public List<Cluster> getClusters() {
+        return clusters;
+    }
+
+    public List<InstituicaoResumo> getMarcadores() {
+        return marcadores;
+    }
+
+    /**
+     * Instituições de uma célula da grade: quantas são e o centroide
+     * das suas coordenadas.
+     */
+    public static class Cluster {
+
+        private final double latitude;
+        private final double longitude;
+        private final int quantidade;
+
+        public Cluster(double latitude, double longitude, int quantidade) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.quantidade = quantidade;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public int getQuantidade() {
+            return quantidade;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.mackenzie.achadosdoados.dto;
+
+/**
+ * Página keyset acompanhada das contagens por faceta.
+ *
+ * @param <T> Tipo dos itens da página.
+ */
+public class PaginaFacetada<T> extends CursorPage<T> {
+
+    private final Facetas facetas;
+
+    public PaginaFacetada(CursorPage<T> pagina, Facetas facetas) {
+        super(pagina.getItems(), pagina.getNext());
+        this.facetas = facetas;
+    }
+
+    public Facetas getFacetas() {
+        return facetas;
+    }
+}
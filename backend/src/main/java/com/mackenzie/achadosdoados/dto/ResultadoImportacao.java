@@ -0,0 +1,45 @@
+package com.mackenzie.achadosdoados.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de uma importação em lote: quantas contas foram criadas e as
+ * linhas recusadas, com o motivo.
+ */
+public class ResultadoImportacao {
+
+    /** Linha recusada; a numeração começa em 1 no primeiro registro (após o cabeçalho, no CSV). */
+    public static class Erro {
+        private final int linha;
+        private final String mensagem;
+
+        public Erro(int linha, String mensagem) {
+            this.linha = linha;
+            this.mensagem = mensagem;
+        }
+
+        public int getLinha() {
+            return linha;
+        }
+
+        public String getMensagem() {
+            return mensagem;
+        }
+    }
+
+    private final int criadas;
+    private final List<Erro> erros;
+
+    public ResultadoImportacao(int criadas, List<Erro> erros) {
+        this.criadas = criadas;
+        this.erros = erros;
+    }
+
+    public int getCriadas() {
+        return criadas;
+    }
+
+    public List<Erro> getErros() {
+        return erros;
+    }
+}
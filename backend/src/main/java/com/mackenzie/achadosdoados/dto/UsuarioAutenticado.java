@@ -0,0 +1,48 @@
+package com.mackenzie.achadosdoados.dto;
+
+import com.mackenzie.achadosdoados.service.TokenService;
+
+/**
+ * Usuário autenticado na requisição (principal do Spring Security).
+ * Instantâneo imutável de id, tipo e nome guardado no CachePrincipais,
+ * para que a autorização não precise carregar a entidade.
+ */
+public class UsuarioAutenticado {
+
+    private final Long id;
+    private final String tipo;
+    private final String nome;
+
+    public UsuarioAutenticado(Long id, String tipo, String nome) {
+        this.id = id;
+        this.tipo = tipo;
+        this.nome = nome;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public boolean isInstituicao() {
+        return TokenService.TIPO_INSTITUICAO.equals(tipo);
+    }
+
+    public boolean isDoador() {
+        return TokenService.TIPO_DOADOR.equals(tipo);
+    }
+
+    /**
+     * @return true se este usuário é a instituição informada.
+     */
+    public boolean isInstituicao(Long instituicaoId) {
+        return isInstituicao() && id.equals(instituicaoId);
+    }
+}
@@ -0,0 +1,25 @@
+package com.mackenzie.achadosdoados.event;
+
+import com.mackenzie.achadosdoados.model.Demanda;
+
+/**
+ * Evento publicado pelo DemandaService sempre que uma demanda é criada,
+ * atualizada ou excluída (logicamente).
+ * Os ouvintes usam @TransactionalEventListener para reagir apenas depois
+ * que a transação foi confirmada no banco.
+ */
+public class DemandaAlteradaEvent {
+
+    private final Demanda demanda;
+
+    public DemandaAlteradaEvent(Demanda demanda) {
+        this.demanda = demanda;
+    }
+
+    /**
+     * @return A demanda no estado em que foi salva.
+     */
+    public Demanda getDemanda() {
+        return demanda;
+    }
+}
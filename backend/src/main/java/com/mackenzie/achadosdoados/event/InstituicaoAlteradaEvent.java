@@ -0,0 +1,25 @@
+package com.mackenzie.achadosdoados.event;
+
+import com.mackenzie.achadosdoados.model.Instituicao;
+
+/**
+ * Evento publicado quando uma instituição é cadastrada ou tem seus dados
+ * públicos alterados (ex.: nova foto de perfil).
+ * Os ouvintes usam @TransactionalEventListener para reagir apenas depois
+ * que a transação foi confirmada no banco.
+ */
+public class InstituicaoAlteradaEvent {
+
+    private final Instituicao instituicao;
+
+    public InstituicaoAlteradaEvent(Instituicao instituicao) {
+        this.instituicao = instituicao;
+    }
+
+    /**
+     * @return A instituição no estado em que foi salva.
+     */
+    public Instituicao getInstituicao() {
+        return instituicao;
+    }
+}
@@ -6,13 +6,18 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import javax.persistence.OneToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -22,13 +27,23 @@ import java.util.List;
  * registrada por uma Instituição.
  */
 @Entity
-@Table(name = "demandas")
+@Table(name = "demandas", indexes = {
+        // Suportam a paginação keyset: (status, id) e (prazoDesejado, id)
+        @Index(name = "idx_demandas_status_id", columnList = "status, id"),
+        @Index(name = "idx_demandas_prazo_id", columnList = "prazoDesejado, id"),
+        // Filtro por instituição na busca pública
+        @Index(name = "idx_demandas_instituicao_id", columnList = "instituicao_id, id"),
+        // Sincronização do índice de busca com as gravações de outras instâncias
+        @Index(name = "idx_demandas_atualizado_em_id", columnList = "atualizadoEm, id")
+})
 public class Demanda implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequência em blocos de 50 ids (ver Usuario)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "demandas_seq")
+    @SequenceGenerator(name = "demandas_seq", sequenceName = "demandas_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 150)
@@ -53,6 +68,10 @@ public class Demanda implements Serializable {
 
     private Integer metaNumerica; // Opcional [cite: 169, 171]
 
+    // Instante da última gravação (ver IndiceBuscaDemandas.sincronizar)
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private Instant atualizadoEm;
+
     // --- Relacionamentos ---
 
     /**
@@ -152,6 +171,20 @@ public class Demanda implements Serializable {
         this.metaNumerica = metaNumerica;
     }
 
+    public Instant getAtualizadoEm() {
+        return atualizadoEm;
+    }
+
+    public void setAtualizadoEm(Instant atualizadoEm) {
+        this.atualizadoEm = atualizadoEm;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void marcarAtualizacao() {
+        atualizadoEm = Instant.now();
+    }
+
     public Instituicao getInstituicao() {
         return instituicao;
     }
@@ -8,6 +8,7 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 import java.io.Serializable;
@@ -24,7 +25,9 @@ public class Doacao implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequência em blocos de 50 ids (ver Usuario)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "doacoes_seq")
+    @SequenceGenerator(name = "doacoes_seq", sequenceName = "doacoes_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
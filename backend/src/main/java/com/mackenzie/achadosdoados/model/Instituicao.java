@@ -3,10 +3,14 @@ package com.mackenzie.achadosdoados.model;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.PrimaryKeyJoinColumn;
 import javax.persistence.Table;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,7 +19,10 @@ import java.util.List;
  * Esta classe herda de Usuario e está mapeada para a tabela 'instituicoes'.
  */
 @Entity
-@Table(name = "instituicoes")
+@Table(name = "instituicoes", indexes = {
+        // Contagem de referências das fotos deduplicadas (ver ImageStorageService)
+        @Index(name = "idx_instituicoes_foto_url", columnList = "fotoUrl")
+})
 @PrimaryKeyJoinColumn(name = "usuario_id") // Chave estrangeira para a tabela 'usuarios'
 @com.fasterxml.jackson.annotation.JsonIgnoreProperties({"hibernateLazyInitializer","handler","demandas"})
 public class Instituicao extends Usuario {
@@ -31,6 +38,10 @@ public class Instituicao extends Usuario {
     @Column(length = 500)
     private String fotoUrl;
 
+    // Data URI da foto reduzida, mostrado enquanto a foto carrega
+    @Column(length = 1024)
+    private String fotoPlaceholder;
+
     // Campos de localização para mapa
     @Column(length = 10)
     private String cep;
@@ -50,6 +61,10 @@ public class Instituicao extends Usuario {
     @Column
     private Double longitude;
 
+    // Instante da última gravação (ver VersaoCatalogo)
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private Instant atualizadoEm;
+
     /**
      * Mapeia a relação "publica" do diagrama.
      * Uma Instituição pode publicar várias Demandas.
@@ -96,6 +111,14 @@ public class Instituicao extends Usuario {
         this.fotoUrl = fotoUrl;
     }
 
+    public String getFotoPlaceholder() {
+        return fotoPlaceholder;
+    }
+
+    public void setFotoPlaceholder(String fotoPlaceholder) {
+        this.fotoPlaceholder = fotoPlaceholder;
+    }
+
     public String getCep() {
         return cep;
     }
@@ -144,6 +167,20 @@ public class Instituicao extends Usuario {
         this.longitude = longitude;
     }
 
+    public Instant getAtualizadoEm() {
+        return atualizadoEm;
+    }
+
+    public void setAtualizadoEm(Instant atualizadoEm) {
+        this.atualizadoEm = atualizadoEm;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void marcarAtualizacao() {
+        atualizadoEm = Instant.now();
+    }
+
     public List<Demanda> getDemandas() {
         return demandas;
     }
@@ -0,0 +1,39 @@
+package com.mackenzie.achadosdoados.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Token assinado revogado no logout, compartilhado entre as instâncias
+ * (ver ListaRevogacao). A linha pode ser apagada assim que o token
+ * expiraria de qualquer forma.
+ */
+@Entity
+@Table(name = "tokens_revogados")
+public class TokenRevogado {
+
+    @Id
+    @Column(length = 36)
+    private String jti;
+
+    @Column(name = "expira_em", nullable = false)
+    private long expiraEm; // segundos desde a época
+
+    protected TokenRevogado() {
+    }
+
+    public TokenRevogado(String jti, long expiraEm) {
+        this.jti = jti;
+        this.expiraEm = expiraEm;
+    }
+
+    public String getJti() {
+        return jti;
+    }
+
+    public long getExpiraEm() {
+        return expiraEm;
+    }
+}
@@ -8,9 +8,13 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 import java.io.Serializable;
+import java.util.Locale;
 
 /**
  * Classe base abstrata para todos os usuários da plataforma.
@@ -26,7 +30,11 @@ public abstract class Usuario implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequência com blocos de 50 ids (otimizador pooled): permite o batch de
+    // inserts do Hibernate, que IDENTITY desativa. Realinhada ao subir por
+    // AlinhamentoSequencias.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usuarios_seq")
+    @SequenceGenerator(name = "usuarios_seq", sequenceName = "usuarios_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 100)
@@ -84,6 +92,20 @@ public abstract class Usuario implements Serializable {
         this.senha = senha;
     }
 
+    /**
+     * Forma canônica do e-mail (sem espaços nas pontas, em minúsculas),
+     * usada ao gravar e ao comparar; a unicidade vale sem diferenciar caixa.
+     */
+    public static String normalizarEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void normalizarAntesDeGravar() {
+        email = normalizarEmail(email);
+    }
+
     // --- hashCode e equals (baseados no ID) ---
 
     @Override
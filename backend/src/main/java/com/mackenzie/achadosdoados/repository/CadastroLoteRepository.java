@@ -0,0 +1,115 @@
+package com.mackenzie.achadosdoados.repository;
+
+import com.mackenzie.achadosdoados.config.AlinhamentoSequencias;
+import com.mackenzie.achadosdoados.model.Doador;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.model.Usuario;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserção de contas em lote via JDBC batch, para a importação.
+ *
+ * Com herança JOINED o Hibernate 5 alterna o INSERT de 'usuarios' com o da
+ * subclasse dentro da mesma chave de batch, o que esvazia o batch a cada
+ * linha; aqui cada tabela recebe um único batch por lote. Os ids vêm da
+ * mesma sequência da entidade, em blocos de AlinhamentoSequencias.BLOCO
+ * (mesma convenção do otimizador pooled), então não colidem com os
+ * gerados pelo Hibernate. Roda na transação corrente (JpaTransactionManager).
+ */
+@Repository
+public class CadastroLoteRepository {
+
+    private static final String SEQUENCIA_USUARIOS = "usuarios_seq";
+
+    private static final String INSERT_USUARIO = "INSERT INTO usuarios (id, nome, email, senha) VALUES (?, ?, ?, ?)";
+    private static final int[] TIPOS_USUARIO = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR};
+
+    private static final String INSERT_INSTITUICAO = "INSERT INTO instituicoes (usuario_id, endereco, telefone, "
+            + "foto_url, foto_placeholder, cep, cidade, estado, numero, latitude, longitude, atualizado_em) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] TIPOS_INSTITUICAO = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.DOUBLE,
+            Types.TIMESTAMP};
+
+    private static final String INSERT_DOADOR = "INSERT INTO doadores (usuario_id, cep, cidade, estado, "
+            + "latitude, longitude) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final int[] TIPOS_DOADOR = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.DOUBLE, Types.DOUBLE};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+
+    public CadastroLoteRepository(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    /**
+     * Insere as instituições (e-mail já normalizado, senha já codificada)
+     * e preenche o id de cada uma.
+     */
+    public void inserirInstituicoes(List<Instituicao> instituicoes) {
+        inserirUsuarios(instituicoes);
+        Instant agora = Instant.now();
+        List<Object[]> linhas = new ArrayList<>(instituicoes.size());
+        for (Instituicao i : instituicoes) {
+            i.setAtualizadoEm(agora);
+            linhas.add(new Object[]{i.getId(), i.getEndereco(), i.getTelefone(), i.getFotoUrl(),
+                    i.getFotoPlaceholder(), i.getCep(), i.getCidade(), i.getEstado(), i.getNumero(),
+                    i.getLatitude(), i.getLongitude(), Timestamp.from(agora)});
+        }
+        jdbcTemplate.batchUpdate(INSERT_INSTITUICAO, linhas, TIPOS_INSTITUICAO);
+    }
+
+    /**
+     * Insere os doadores (e-mail já normalizado, senha já codificada) e
+     * preenche o id de cada um.
+     */
+    public void inserirDoadores(List<Doador> doadores) {
+        inserirUsuarios(doadores);
+        List<Object[]> linhas = new ArrayList<>(doadores.size());
+        for (Doador d : doadores) {
+            linhas.add(new Object[]{d.getId(), d.getCep(), d.getCidade(), d.getEstado(),
+                    d.getLatitude(), d.getLongitude()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_DOADOR, linhas, TIPOS_DOADOR);
+    }
+
+    private void inserirUsuarios(List<? extends Usuario> usuarios) {
+        long proximo = 0;
+        long fimDoBloco = -1;
+        List<Object[]> linhas = new ArrayList<>(usuarios.size());
+        for (Usuario u : usuarios) {
+            if (proximo > fimDoBloco) {
+                // O valor lido é o fim do bloco: ids de (v - BLOCO, v]. Numa
+                // sequência nova o primeiro valor é o início (como no pooled):
+                // ids de [v, próximo valor], nunca ids <= 0.
+                long v = proximoValor();
+                if (v <= AlinhamentoSequencias.BLOCO) {
+                    proximo = v;
+                    fimDoBloco = proximoValor();
+                } else {
+                    proximo = v - AlinhamentoSequencias.BLOCO + 1;
+                    fimDoBloco = v;
+                }
+            }
+            u.setId(proximo++);
+            linhas.add(new Object[]{u.getId(), u.getNome(), u.getEmail(), u.getSenha()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_USUARIO, linhas, TIPOS_USUARIO);
+    }
+
+    private long proximoValor() {
+        return jdbcTemplate.queryForObject(dialect.getSequenceNextValString(SEQUENCIA_USUARIOS), Long.class);
+    }
+}
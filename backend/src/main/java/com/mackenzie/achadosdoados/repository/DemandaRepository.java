@@ -1,13 +1,24 @@
 package com.mackenzie.achadosdoados.repository;
 
+import com.mackenzie.achadosdoados.dto.DemandaExportacao;
+import com.mackenzie.achadosdoados.dto.DemandaResumo;
 import com.mackenzie.achadosdoados.model.Demanda;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 /**
  * Repositório para a entidade Demanda.
@@ -15,7 +26,24 @@ import java.util.Optional;
  * customizados para os filtros da aplicação.
  */
 @Repository
-public interface DemandaRepository extends JpaRepository<Demanda, Long> {
+public interface DemandaRepository extends JpaRepository<Demanda, Long>,
+        JpaSpecificationExecutor<Demanda>, DemandaRepositoryCustom {
+
+    /**
+     * Início das consultas de resumo: seleciona só as colunas exibidas nas
+     * listagens, com um trecho da descrição e o id, nome e foto da instituição.
+     */
+    String SELECT_RESUMO = "SELECT new com.mackenzie.achadosdoados.dto.DemandaResumo("
+            + "d.id, d.titulo, d.categoria, SUBSTRING(d.descricao, 1, " + DemandaResumo.TAMANHO_TRECHO + "), "
+            + "d.quantidadeDescricao, d.status, d.nivelUrgencia, d.prazoDesejado, d.metaNumerica, "
+            + "i.id, i.nome, i.fotoUrl, i.fotoPlaceholder) "
+            + "FROM Demanda d LEFT JOIN d.instituicao i ";
+
+    /** Demandas não excluídas logicamente. */
+    String WHERE_PUBLICAS = "(d.status IS NULL OR d.status <> 'Inativo')";
+
+    /** Linhas buscadas por ida ao banco nas exportações em stream. */
+    String FETCH_SIZE_EXPORTACAO = "500";
 
     /**
      * Busca todas as demandas associadas a um ID de instituição.
@@ -70,6 +98,100 @@ public interface DemandaRepository extends JpaRepository<Demanda, Long> {
     @Query("SELECT d FROM Demanda d LEFT JOIN FETCH d.instituicao")
     List<Demanda> findAllWithInstituicao();
 
-    // Poderíamos adicionar buscas mais complexas combinando filtros,
-    // mas por enquanto, isso pode ser feito na camada de Serviço (Service).
+    /**
+     * Resumos de todas as demandas públicas, em ordem de id.
+     * Usado no carregamento inicial da página de busca.
+     *
+     * @return Lista de resumos.
+     */
+    @Query(SELECT_RESUMO + "WHERE " + WHERE_PUBLICAS + " ORDER BY d.id")
+    List<DemandaResumo> listarResumosPublicos();
+
+    /**
+     * Resumos das demandas com os IDs informados, inclusive inativas.
+     * Usado para materializar os resultados do índice de busca.
+     *
+     * @param ids Os IDs das demandas.
+     * @return Lista (sem ordem garantida) de resumos.
+     */
+    @Query(SELECT_RESUMO + "WHERE d.id IN :ids")
+    List<DemandaResumo> listarResumosPorIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Resumos das demandas públicas de uma instituição, em ordem de id.
+     * Usado no painel "Meus Pedidos".
+     *
+     * @param instituicaoId O ID da Instituição.
+     * @return Lista de resumos.
+     */
+    @Query(SELECT_RESUMO + "WHERE i.id = :instituicaoId AND " + WHERE_PUBLICAS + " ORDER BY d.id")
+    List<DemandaResumo> listarResumosPorInstituicao(@Param("instituicaoId") Long instituicaoId);
+
+    /**
+     * Demandas públicas com id maior que o informado, em ordem de id, sem
+     * a instituição. Usado para carregar o índice de busca em lotes.
+     *
+     * @param aposId Último id já lido (0 para começar).
+     * @param pagina Limite de linhas (sempre página 0).
+     * @return As demandas do lote.
+     */
+    @Query("SELECT d FROM Demanda d WHERE " + WHERE_PUBLICAS + " AND d.id > :aposId ORDER BY d.id")
+    List<Demanda> buscarPublicasAposId(@Param("aposId") Long aposId, Pageable pagina);
+
+    /**
+     * Demandas gravadas depois do instante informado, inclusive as inativas,
+     * em ordem de (atualizadoEm, id). Usado para trazer ao índice de busca as
+     * alterações feitas por outras instâncias.
+     *
+     * @param desde  Instante da última linha já lida.
+     * @param aposId Id da última linha já lida com atualizadoEm igual a 'desde'.
+     * @param pagina Limite de linhas (sempre página 0).
+     * @return As demandas do lote.
+     */
+    @Query("SELECT d FROM Demanda d WHERE d.atualizadoEm > :desde "
+            + "OR (d.atualizadoEm = :desde AND d.id > :aposId) ORDER BY d.atualizadoEm, d.id")
+    List<Demanda> buscarAlteradasDesde(@Param("desde") Instant desde, @Param("aposId") Long aposId,
+                                       Pageable pagina);
+
+    /**
+     * [maior atualizadoEm, quantidade] de todas as demandas, inclusive as
+     * inativas: muda a cada gravação. Usado como versão das respostas
+     * públicas (ver VersaoCatalogo).
+     *
+     * @return Uma única linha.
+     */
+    @Query("SELECT MAX(d.atualizadoEm), COUNT(d) FROM Demanda d")
+    List<Object[]> versao();
+
+    /**
+     * Projeção leve usada para carregar as contagens por faceta:
+     * [id, instituicao.id, categoria, nivelUrgencia, status] das demandas
+     * públicas com id maior que o informado, em ordem de id.
+     *
+     * @param aposId Último id já lido (0 para começar).
+     * @param pagina Limite de linhas (sempre página 0).
+     * @return Linhas da projeção.
+     */
+    @Query("SELECT d.id, d.instituicao.id, d.categoria, d.nivelUrgencia, d.status FROM Demanda d "
+            + "WHERE " + WHERE_PUBLICAS + " AND d.id > :aposId "
+            + "ORDER BY d.id")
+    List<Object[]> buscarFacetasAposId(@Param("aposId") Long aposId, Pageable pagina);
+
+    /**
+     * Todas as demandas de uma instituição, inclusive as inativas, em ordem
+     * de id, lidas sob demanda do cursor do banco. Deve ser consumido dentro
+     * de uma transação e fechado ao final (try-with-resources).
+     *
+     * @param instituicaoId O ID da Instituição.
+     * @return Stream das linhas de exportação.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = FETCH_SIZE_EXPORTACAO))
+    @Query("SELECT new com.mackenzie.achadosdoados.dto.DemandaExportacao("
+            + "d.id, d.titulo, d.categoria, d.descricao, d.quantidadeDescricao, d.status, "
+            + "d.nivelUrgencia, d.prazoDesejado, d.metaNumerica) "
+            + "FROM Demanda d WHERE d.instituicao.id = :instituicaoId ORDER BY d.id")
+    Stream<DemandaExportacao> exportarPorInstituicao(@Param("instituicaoId") Long instituicaoId);
+
+    // Buscas que combinam filtros usam DemandaSpecifications com os
+    // métodos keyset de DemandaRepositoryCustom.
 }
\ No newline at end of file
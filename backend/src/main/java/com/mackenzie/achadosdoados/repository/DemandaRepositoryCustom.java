@@ -0,0 +1,45 @@
+package com.mackenzie.achadosdoados.repository;
+
+import com.mackenzie.achadosdoados.dto.DemandaResumo;
+import com.mackenzie.achadosdoados.model.Demanda;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Consultas de paginação keyset sobre Demanda que combinam uma Specification
+ * com a posição do cursor. Diferente de findAll(spec, Pageable), não
+ * executam consulta de contagem e carregam apenas o limite pedido, já
+ * projetado em DemandaResumo.
+ */
+public interface DemandaRepositoryCustom {
+
+    /**
+     * Página ordenada por id.
+     *
+     * @param filtro Filtros da busca.
+     * @param aposId Último id já entregue (0 para a primeira página).
+     * @param limite Máximo de linhas.
+     */
+    List<DemandaResumo> buscarPaginaPorId(Specification<Demanda> filtro, long aposId, int limite);
+
+    /**
+     * Página ordenada por (prazoDesejado, id), apenas demandas com prazo.
+     *
+     * @param filtro Filtros da busca.
+     * @param prazo  Prazo da última demanda entregue.
+     * @param aposId Id da última demanda entregue.
+     * @param limite Máximo de linhas.
+     */
+    List<DemandaResumo> buscarPaginaPorPrazo(Specification<Demanda> filtro, LocalDate prazo, long aposId, int limite);
+
+    /**
+     * Continuação da ordem por prazo: demandas sem prazo, ordenadas por id.
+     *
+     * @param filtro Filtros da busca.
+     * @param aposId Último id já entregue (0 para começar).
+     * @param limite Máximo de linhas.
+     */
+    List<DemandaResumo> buscarPaginaSemPrazo(Specification<Demanda> filtro, long aposId, int limite);
+}
@@ -0,0 +1,82 @@
+package com.mackenzie.achadosdoados.repository;
+
+import com.mackenzie.achadosdoados.dto.DemandaResumo;
+import com.mackenzie.achadosdoados.model.Demanda;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementação das consultas keyset de DemandaRepositoryCustom com a
+ * Criteria API. O Spring Data liga esta classe ao DemandaRepository
+ * pelo sufixo "Impl". As linhas são projetadas em DemandaResumo com as
+ * mesmas colunas de DemandaRepository.SELECT_RESUMO.
+ */
+public class DemandaRepositoryImpl implements DemandaRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<DemandaResumo> buscarPaginaPorId(Specification<Demanda> filtro, long aposId, int limite) {
+        return buscar(filtro.and((root, query, cb) -> cb.greaterThan(root.get("id"), aposId)),
+                limite, "id");
+    }
+
+    @Override
+    public List<DemandaResumo> buscarPaginaPorPrazo(Specification<Demanda> filtro, LocalDate prazo, long aposId, int limite) {
+        Specification<Demanda> aposCursor = (root, query, cb) -> {
+            Path<LocalDate> prazoDesejado = root.get("prazoDesejado");
+            return cb.and(
+                    cb.isNotNull(prazoDesejado),
+                    cb.or(cb.greaterThan(prazoDesejado, prazo),
+                          cb.and(cb.equal(prazoDesejado, prazo), cb.greaterThan(root.get("id"), aposId))));
+        };
+        return buscar(filtro.and(aposCursor), limite, "prazoDesejado", "id");
+    }
+
+    @Override
+    public List<DemandaResumo> buscarPaginaSemPrazo(Specification<Demanda> filtro, long aposId, int limite) {
+        Specification<Demanda> aposCursor = (root, query, cb) -> cb.and(
+                cb.isNull(root.get("prazoDesejado")),
+                cb.greaterThan(root.get("id"), aposId));
+        return buscar(filtro.and(aposCursor), limite, "id");
+    }
+
+    private List<DemandaResumo> buscar(Specification<Demanda> spec, int limite, String... ordem) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DemandaResumo> query = cb.createQuery(DemandaResumo.class);
+        Root<Demanda> root = query.from(Demanda.class);
+        Join<Demanda, Instituicao> instituicao = root.join("instituicao", JoinType.LEFT);
+        query.select(cb.construct(DemandaResumo.class,
+                root.get("id"), root.get("titulo"), root.get("categoria"),
+                cb.substring(root.get("descricao"), 1, DemandaResumo.TAMANHO_TRECHO),
+                root.get("quantidadeDescricao"), root.get("status"), root.get("nivelUrgencia"),
+                root.get("prazoDesejado"), root.get("metaNumerica"),
+                instituicao.get("id"), instituicao.get("nome"), instituicao.get("fotoUrl"),
+                instituicao.get("fotoPlaceholder")));
+
+        Predicate predicado = spec.toPredicate(root, query, cb);
+        if (predicado != null) {
+            query.where(predicado);
+        }
+        query.orderBy(Arrays.stream(ordem).map(campo -> cb.asc(root.get(campo))).toArray(Order[]::new));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+}
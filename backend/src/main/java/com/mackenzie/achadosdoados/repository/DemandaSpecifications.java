@@ -0,0 +1,114 @@
+package com.mackenzie.achadosdoados.repository;
+
+import com.mackenzie.achadosdoados.dto.DemandaFiltro;
+import com.mackenzie.achadosdoados.model.Demanda;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Specifications reutilizáveis para a busca de demandas.
+ * Cada filtro informado vira um predicado, e todos são combinados
+ * em uma única consulta.
+ */
+public final class DemandaSpecifications {
+
+    /** Caractere de escape dos padrões LIKE. */
+    static final char ESCAPE_LIKE = '\\';
+
+    private DemandaSpecifications() {
+    }
+
+    /**
+     * Demandas públicas: exclui as excluídas logicamente ("Inativo").
+     */
+    public static Specification<Demanda> publicas() {
+        return (root, query, cb) -> cb.or(
+                cb.isNull(root.get("status")),
+                cb.notEqual(root.get("status"), "Inativo"));
+    }
+
+    /**
+     * Demandas públicas que atendem a todos os filtros informados.
+     * O termo de busca (titulo) não é tratado aqui: o DemandaService o
+     * resolve pelo índice invertido e combina os candidatos com idEm.
+     *
+     * @param filtro Filtros opcionais (pode ser null).
+     */
+    public static Specification<Demanda> comFiltro(DemandaFiltro filtro) {
+        Specification<Demanda> spec = Specification.where(publicas());
+        if (filtro == null) {
+            return spec;
+        }
+        if (informado(filtro.getCategoria())) {
+            spec = spec.and(campoIgual("categoria", filtro.getCategoria()));
+        }
+        if (informado(filtro.getNivelUrgencia())) {
+            spec = spec.and(campoIgual("nivelUrgencia", filtro.getNivelUrgencia()));
+        }
+        if (informado(filtro.getStatus())) {
+            spec = spec.and(campoIgual("status", filtro.getStatus()));
+        }
+        if (filtro.getInstituicaoId() != null) {
+            Long instituicaoId = filtro.getInstituicaoId();
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("instituicao").get("id"), instituicaoId));
+        }
+        if (filtro.getPrazoDe() != null) {
+            spec = spec.and((root, query, cb) ->
+                    cb.greaterThanOrEqualTo(root.get("prazoDesejado"), filtro.getPrazoDe()));
+        }
+        if (filtro.getPrazoAte() != null) {
+            spec = spec.and((root, query, cb) ->
+                    cb.lessThanOrEqualTo(root.get("prazoDesejado"), filtro.getPrazoAte()));
+        }
+        return spec;
+    }
+
+    /**
+     * Restringe a um conjunto de IDs (ex.: candidatos do índice de busca).
+     */
+    public static Specification<Demanda> idEm(Collection<Long> ids) {
+        return (root, query, cb) -> ids.isEmpty() ? cb.disjunction() : root.get("id").in(ids);
+    }
+
+    /**
+     * Restringe às demandas de um conjunto de instituições
+     * (ex.: as que estão dentro do raio da busca por região).
+     */
+    public static Specification<Demanda> instituicaoEm(Collection<Long> instituicaoIds) {
+        return (root, query, cb) -> instituicaoIds.isEmpty()
+                ? cb.disjunction()
+                : root.get("instituicao").get("id").in(instituicaoIds);
+    }
+
+    /**
+     * Título contendo o termo, ignorando maiúsculas/minúsculas.
+     * Usado apenas enquanto o índice de busca ainda não foi carregado.
+     * '%' e '_' no termo são literais (escapados com ESCAPE_LIKE).
+     */
+    public static Specification<Demanda> tituloContem(String termo) {
+        String padrao = "%" + escaparLike(termo.toLowerCase(Locale.ROOT)) + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get("titulo")), padrao, ESCAPE_LIKE);
+    }
+
+    static String escaparLike(String termo) {
+        StringBuilder escapado = new StringBuilder(termo.length() + 8);
+        for (int i = 0; i < termo.length(); i++) {
+            char c = termo.charAt(i);
+            if (c == ESCAPE_LIKE || c == '%' || c == '_') {
+                escapado.append(ESCAPE_LIKE);
+            }
+            escapado.append(c);
+        }
+        return escapado.toString();
+    }
+
+    private static Specification<Demanda> campoIgual(String campo, String valor) {
+        return (root, query, cb) -> cb.equal(root.get(campo), valor);
+    }
+
+    private static boolean informado(String valor) {
+        return valor != null && !valor.isEmpty();
+    }
+}
@@ -1,12 +1,18 @@
 package com.mackenzie.achadosdoados.repository;
 
+import com.mackenzie.achadosdoados.dto.DoacaoResumo;
 import com.mackenzie.achadosdoados.model.Doacao;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 /**
  * Repositório para a entidade Doacao.
@@ -15,6 +21,14 @@ import java.util.List;
 @Repository
 public interface DoacaoRepository extends JpaRepository<Doacao, Long> {
 
+    /**
+     * Início das consultas de resumo: data, status, contato do doador e
+     * título da demanda, sem carregar as entidades.
+     */
+    String SELECT_RESUMO = "SELECT new com.mackenzie.achadosdoados.dto.DoacaoResumo("
+            + "d.id, d.data, d.status, doador.id, doador.nome, doador.email, demanda.id, demanda.titulo) "
+            + "FROM Doacao d JOIN d.doador doador JOIN d.demanda demanda ";
+
     /**
      * Busca todas as doações feitas por um Doador específico.
      * Útil para o "Meu Perfil" do doador.
@@ -42,4 +56,43 @@ public interface DoacaoRepository extends JpaRepository<Doacao, Long> {
      * @return Uma lista de todas as Doações para as demandas daquela instituição.
      */
     List<Doacao> findAllByDemandaInstituicaoId(Long instituicaoId);
-}
\ No newline at end of file
+
+    /**
+     * Resumos das doações feitas por um Doador.
+     *
+     * @param doadorId O ID do Doador.
+     * @return Lista de resumos, em ordem de id.
+     */
+    @Query(SELECT_RESUMO + "WHERE doador.id = :doadorId ORDER BY d.id")
+    List<DoacaoResumo> listarResumosPorDoador(@Param("doadorId") Long doadorId);
+
+    /**
+     * Resumos das doações recebidas para uma Demanda.
+     *
+     * @param demandaId O ID da Demanda.
+     * @return Lista de resumos, em ordem de id.
+     */
+    @Query(SELECT_RESUMO + "WHERE demanda.id = :demandaId ORDER BY d.id")
+    List<DoacaoResumo> listarResumosPorDemanda(@Param("demandaId") Long demandaId);
+
+    /**
+     * Resumos das doações recebidas por uma Instituição.
+     *
+     * @param instituicaoId O ID da Instituição.
+     * @return Lista de resumos, em ordem de id.
+     */
+    @Query(SELECT_RESUMO + "WHERE demanda.instituicao.id = :instituicaoId ORDER BY d.id")
+    List<DoacaoResumo> listarResumosPorInstituicao(@Param("instituicaoId") Long instituicaoId);
+
+    /**
+     * Resumos de todas as doações recebidas por uma Instituição, em ordem
+     * de id, lidos sob demanda do cursor do banco. Deve ser consumido dentro
+     * de uma transação e fechado ao final (try-with-resources).
+     *
+     * @param instituicaoId O ID da Instituição.
+     * @return Stream dos resumos.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = DemandaRepository.FETCH_SIZE_EXPORTACAO))
+    @Query(SELECT_RESUMO + "WHERE demanda.instituicao.id = :instituicaoId ORDER BY d.id")
+    Stream<DoacaoResumo> exportarPorInstituicao(@Param("instituicaoId") Long instituicaoId);
+}
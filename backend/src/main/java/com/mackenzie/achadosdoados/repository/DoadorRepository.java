@@ -1,9 +1,14 @@
 package com.mackenzie.achadosdoados.repository;
 
 import com.mackenzie.achadosdoados.model.Doador;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Repositório para a entidade Doador.
  * Herda os métodos CRUD básicos do JpaRepository.
@@ -15,4 +20,15 @@ public interface DoadorRepository extends JpaRepository<Doador, Long> {
     // pois a busca por email já está definida em UsuarioRepository.
     // O JpaRepository já nos fornece save(), findById(), findAll(), delete(), etc.
 
-}
\ No newline at end of file
+    /**
+     * Lote de doadores com CEP mas sem coordenadas, em ordem de id
+     * (paginação keyset), para a geocodificação em segundo plano.
+     *
+     * @param aposId Último id já lido (Long.MIN_VALUE para começar).
+     * @param pagina Limite de linhas (sempre página 0).
+     * @return Os doadores do lote.
+     */
+    @Query("SELECT d FROM Doador d WHERE d.id > :aposId AND d.cep IS NOT NULL "
+            + "AND (d.latitude IS NULL OR d.longitude IS NULL) ORDER BY d.id")
+    List<Doador> buscarSemCoordenadasAposId(@Param("aposId") Long aposId, Pageable pagina);
+}
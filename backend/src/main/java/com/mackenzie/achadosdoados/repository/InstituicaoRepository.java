@@ -1,9 +1,15 @@
 package com.mackenzie.achadosdoados.repository;
 
+import com.mackenzie.achadosdoados.dto.InstituicaoResumo;
 import com.mackenzie.achadosdoados.model.Instituicao;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Repositório para a entidade Instituicao.
  * Herda os métodos CRUD básicos do JpaRepository.
@@ -14,4 +20,55 @@ public interface InstituicaoRepository extends JpaRepository<Instituicao, Long>
     // Métodos CRUD básicos como save(), findById(), findAll() e delete()
     // são herdados automaticamente do JpaRepository.
 
-}
\ No newline at end of file
+    /**
+     * Resumos de todas as instituições para a listagem pública e o mapa,
+     * em ordem de id.
+     *
+     * @return Lista de resumos.
+     */
+    @Query("SELECT new com.mackenzie.achadosdoados.dto.InstituicaoResumo("
+            + "i.id, i.nome, i.email, i.endereco, i.numero, i.cidade, i.estado, i.telefone, i.fotoUrl, "
+            + "i.fotoPlaceholder, i.latitude, i.longitude) FROM Instituicao i ORDER BY i.id")
+    List<InstituicaoResumo> listarResumos();
+
+    /**
+     * Lote de instituições com CEP mas sem coordenadas, em ordem de id
+     * (paginação keyset), para a geocodificação em segundo plano.
+     *
+     * @param aposId Último id já lido (Long.MIN_VALUE para começar).
+     * @param pagina Limite de linhas (sempre página 0).
+     * @return As instituições do lote.
+     */
+    @Query("SELECT i FROM Instituicao i WHERE i.id > :aposId AND i.cep IS NOT NULL "
+            + "AND (i.latitude IS NULL OR i.longitude IS NULL) ORDER BY i.id")
+    List<Instituicao> buscarSemCoordenadasAposId(@Param("aposId") Long aposId, Pageable pagina);
+
+    /**
+     * Lote de (id, fotoUrl) das instituições com foto, em ordem de id
+     * (paginação keyset), para a coleta de imagens órfãs.
+     *
+     * @param aposId Último id já lido (Long.MIN_VALUE para começar).
+     * @param pagina Limite de linhas (sempre página 0).
+     * @return Pares [id, fotoUrl] do lote.
+     */
+    @Query("SELECT i.id, i.fotoUrl FROM Instituicao i WHERE i.id > :aposId AND i.fotoUrl IS NOT NULL ORDER BY i.id")
+    List<Object[]> buscarFotoUrlsAposId(@Param("aposId") Long aposId, Pageable pagina);
+
+    /**
+     * Quantas instituições usam a foto (as imagens são deduplicadas por
+     * conteúdo, então o mesmo arquivo pode servir a várias).
+     *
+     * @param fotoUrl URL da foto ("/api/images/...").
+     * @return Número de referências.
+     */
+    long countByFotoUrl(String fotoUrl);
+
+    /**
+     * [maior atualizadoEm, quantidade] das instituições: muda a cada
+     * gravação. Usado como versão das respostas públicas (ver VersaoCatalogo).
+     *
+     * @return Uma única linha.
+     */
+    @Query("SELECT MAX(i.atualizadoEm), COUNT(i) FROM Instituicao i")
+    List<Object[]> versao();
+}
@@ -0,0 +1,38 @@
+package com.mackenzie.achadosdoados.repository;
+
+import com.mackenzie.achadosdoados.model.TokenRevogado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Repositório dos tokens revogados, lido periodicamente pela ListaRevogacao
+ * de cada instância.
+ */
+@Repository
+public interface TokenRevogadoRepository extends JpaRepository<TokenRevogado, String> {
+
+    /**
+     * Revogações de tokens que ainda não expiraram.
+     *
+     * @param agora Segundos desde a época.
+     */
+    @Query("SELECT t FROM TokenRevogado t WHERE t.expiraEm > :agora")
+    List<TokenRevogado> listarVigentes(@Param("agora") long agora);
+
+    /**
+     * Apaga as revogações de tokens já expirados.
+     *
+     * @param agora Segundos desde a época.
+     * @return Quantidade de linhas apagadas.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TokenRevogado t WHERE t.expiraEm <= :agora")
+    int apagarExpirados(@Param("agora") long agora);
+}
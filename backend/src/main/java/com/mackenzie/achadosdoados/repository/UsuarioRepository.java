@@ -1,9 +1,16 @@
 package com.mackenzie.achadosdoados.repository;
 
 import com.mackenzie.achadosdoados.model.Usuario;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -15,12 +22,42 @@ import java.util.Optional;
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 
     /**
-     * Busca um usuário pelo seu endereço de e-mail.
-     * O Spring Data JPA implementará este método automaticamente.
+     * Busca um usuário pelo seu endereço de e-mail, sem diferenciar caixa.
+     * No PostgreSQL a comparação usa o índice único em lower(email)
+     * (schema-postgresql.sql).
      *
      * @param email O e-mail a ser buscado.
      * @return um Optional contendo o Usuário, se encontrado.
      */
-    Optional<Usuario> findByEmail(String email);
+    @Query("SELECT u FROM Usuario u WHERE lower(u.email) = lower(:email)")
+    Optional<Usuario> findByEmail(@Param("email") String email);
 
+    /**
+     * Lote de (id, e-mail) em ordem de id (paginação keyset), para carregar
+     * o FiltroEmails ao subir.
+     *
+     * @param aposId Último id já lido (Long.MIN_VALUE para começar).
+     * @param pagina Limite de linhas (sempre página 0).
+     * @return Pares [id, email] do lote.
+     */
+    @Query("SELECT u.id, u.email FROM Usuario u WHERE u.id > :aposId ORDER BY u.id")
+    List<Object[]> buscarEmailsAposId(@Param("aposId") Long aposId, Pageable pagina);
+
+    /**
+     * Quais dos e-mails (já normalizados) têm conta, para a importação em lote.
+     *
+     * @param emails E-mails em minúsculas.
+     * @return Os que já existem, em minúsculas.
+     */
+    @Query("SELECT lower(u.email) FROM Usuario u WHERE lower(u.email) IN :emails")
+    List<String> buscarEmailsExistentes(@Param("emails") Collection<String> emails);
+
+    /**
+     * Troca só o hash da senha (rehash no login), sem carregar nem mesclar
+     * a entidade inteira.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Usuario u SET u.senha = :senha WHERE u.id = :id")
+    int atualizarSenha(@Param("id") Long id, @Param("senha") String senha);
 }
\ No newline at end of file
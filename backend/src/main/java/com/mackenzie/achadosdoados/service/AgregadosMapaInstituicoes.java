@@ -0,0 +1,219 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.dto.InstituicaoResumo;
+import com.mackenzie.achadosdoados.dto.MapaInstituicoes;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Agregados do mapa de instituições, pré-calculados por nível de zoom.
+ *
+ * Para cada zoom de 0 a ZOOM_MAXIMO_AGRUPADO o mundo é dividido em uma
+ * grade alinhada aos tiles Web Mercator (CELULAS_POR_TILE x CELULAS_POR_TILE
+ * células por tile, ~64 px na tela), e cada célula guarda quantas
+ * instituições contém e a soma das coordenadas, de onde sai o centroide.
+ * Uma consulta só lê as células da área visível.
+ *
+ * Os agregados são carregados ao subir a aplicação e, a cada
+ * InstituicaoAlteradaEvent confirmado, a instituição sai da célula antiga
+ * e entra na nova em cada zoom, sem recalcular o restante.
+ */
+@Component
+public class AgregadosMapaInstituicoes {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgregadosMapaInstituicoes.class);
+
+    /** Maior zoom servido com clusters; acima dele o mapa recebe os marcadores. */
+    public static final int ZOOM_MAXIMO_AGRUPADO = 12;
+
+    /** Células por lado de um tile de 256 px. */
+    static final int CELULAS_POR_TILE = 4;
+
+    /** Limite de latitude da projeção Web Mercator. */
+    private static final double LATITUDE_MAXIMA_MERCATOR = 85.05112878;
+
+    /** Soma das coordenadas e quantidade de instituições de uma célula. */
+    private static final class Agregado {
+        int quantidade;
+        double somaLatitude;
+        double somaLongitude;
+    }
+
+    private final InstituicaoRepository instituicaoRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** id da instituição -> {latitude, longitude} agregada. */
+    private final Map<Long, double[]> posicoes = new HashMap<>();
+
+    /** Por zoom: célula da grade -> agregado. */
+    private final List<Map<Long, Agregado>> grades = new ArrayList<>();
+
+    public AgregadosMapaInstituicoes(InstituicaoRepository instituicaoRepository) {
+        this.instituicaoRepository = instituicaoRepository;
+        for (int zoom = 0; zoom <= ZOOM_MAXIMO_AGRUPADO; zoom++) {
+            grades.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Calcula os agregados de todas as instituições ao subir a aplicação.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        for (InstituicaoResumo instituicao : instituicaoRepository.listarResumos()) {
+            atualizar(instituicao.getId(), instituicao.getLatitude(), instituicao.getLongitude());
+        }
+        logger.info("Agregados do mapa carregados com {} instituições em {} níveis de zoom",
+                posicoes.size(), grades.size());
+    }
+
+    /**
+     * Move a instituição de célula quando a localização muda.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstituicaoAlterada(InstituicaoAlteradaEvent event) {
+        Instituicao instituicao = event.getInstituicao();
+        if (instituicao == null || instituicao.getId() == null) {
+            return;
+        }
+        atualizar(instituicao.getId(), instituicao.getLatitude(), instituicao.getLongitude());
+    }
+
+    /**
+     * Registra a posição atual de uma instituição. Sem coordenadas válidas,
+     * ela deixa de ser contada.
+     */
+    public void atualizar(Long instituicaoId, Double latitude, Double longitude) {
+        boolean valida = IndiceEspacialInstituicoes.coordenadasValidas(latitude, longitude);
+        lock.writeLock().lock();
+        try {
+            double[] anterior = posicoes.get(instituicaoId);
+            if (anterior != null && valida && anterior[0] == latitude && anterior[1] == longitude) {
+                return;
+            }
+            if (anterior != null) {
+                posicoes.remove(instituicaoId);
+                for (int zoom = 0; zoom < grades.size(); zoom++) {
+                    retirar(grades.get(zoom), celula(zoom, anterior[0], anterior[1]), anterior[0], anterior[1]);
+                }
+            }
+            if (valida) {
+                posicoes.put(instituicaoId, new double[]{latitude, longitude});
+                for (int zoom = 0; zoom < grades.size(); zoom++) {
+                    Agregado agregado = grades.get(zoom)
+                            .computeIfAbsent(celula(zoom, latitude, longitude), c -> new Agregado());
+                    agregado.quantidade++;
+                    agregado.somaLatitude += latitude;
+                    agregado.somaLongitude += longitude;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Clusters das células que cruzam a área visível.
+     *
+     * @param zoom Nível de zoom, de 0 a ZOOM_MAXIMO_AGRUPADO.
+     * @return Um cluster por célula não vazia.
+     */
+    public List<MapaInstituicoes.Cluster> clusters(double latitudeMin, double longitudeMin,
+                                                   double latitudeMax, double longitudeMax, int zoom) {
+        int lado = CELULAS_POR_TILE << zoom;
+        // Em Mercator a linha cresce para o sul
+        int linhaMin = linha(latitudeMax, lado);
+        int linhaMax = linha(latitudeMin, lado);
+        List<MapaInstituicoes.Cluster> clusters = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Long, Agregado> grade = grades.get(zoom);
+            if (longitudeMin <= longitudeMax) {
+                coletar(grade, linhaMin, linhaMax, coluna(longitudeMin, lado), coluna(longitudeMax, lado), clusters);
+            } else {
+                // Área visível cruza o antimeridiano
+                coletar(grade, linhaMin, linhaMax, coluna(longitudeMin, lado), lado - 1, clusters);
+                coletar(grade, linhaMin, linhaMax, 0, coluna(longitudeMax, lado), clusters);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return clusters;
+    }
+
+    private static void coletar(Map<Long, Agregado> grade, int linhaMin, int linhaMax, int colunaMin, int colunaMax,
+                                List<MapaInstituicoes.Cluster> destino) {
+        long celulasNaArea = (long) (linhaMax - linhaMin + 1) * (colunaMax - colunaMin + 1);
+        if (celulasNaArea <= grade.size()) {
+            for (int l = linhaMin; l <= linhaMax; l++) {
+                for (int c = colunaMin; c <= colunaMax; c++) {
+                    Agregado agregado = grade.get(chave(l, c));
+                    if (agregado != null) {
+                        destino.add(cluster(agregado));
+                    }
+                }
+            }
+            return;
+        }
+        // Área maior que o número de células ocupadas: percorre as ocupadas
+        for (Map.Entry<Long, Agregado> entrada : grade.entrySet()) {
+            int l = (int) (entrada.getKey() >> 32);
+            int c = (int) (long) entrada.getKey();
+            if (l >= linhaMin && l <= linhaMax && c >= colunaMin && c <= colunaMax) {
+                destino.add(cluster(entrada.getValue()));
+            }
+        }
+    }
+
+    private static MapaInstituicoes.Cluster cluster(Agregado agregado) {
+        return new MapaInstituicoes.Cluster(agregado.somaLatitude / agregado.quantidade,
+                agregado.somaLongitude / agregado.quantidade, agregado.quantidade);
+    }
+
+    private static void retirar(Map<Long, Agregado> grade, long celula, double latitude, double longitude) {
+        Agregado agregado = grade.get(celula);
+        if (agregado == null) {
+            return;
+        }
+        if (--agregado.quantidade == 0) {
+            grade.remove(celula);
+        } else {
+            agregado.somaLatitude -= latitude;
+            agregado.somaLongitude -= longitude;
+        }
+    }
+
+    private static long celula(int zoom, double latitude, double longitude) {
+        int lado = CELULAS_POR_TILE << zoom;
+        return chave(linha(latitude, lado), coluna(longitude, lado));
+    }
+
+    private static long chave(int linha, int coluna) {
+        return ((long) linha << 32) | (coluna & 0xffffffffL);
+    }
+
+    private static int coluna(double longitude, int lado) {
+        double x = (Math.max(-180, Math.min(180, longitude)) + 180) / 360;
+        return Math.min(lado - 1, (int) Math.floor(x * lado));
+    }
+
+    private static int linha(double latitude, int lado) {
+        double phi = Math.toRadians(Math.max(-LATITUDE_MAXIMA_MERCATOR, Math.min(LATITUDE_MAXIMA_MERCATOR, latitude)));
+        double y = (1 - Math.log(Math.tan(phi) + 1 / Math.cos(phi)) / Math.PI) / 2;
+        return Math.max(0, Math.min(lado - 1, (int) Math.floor(y * lado)));
+    }
+}
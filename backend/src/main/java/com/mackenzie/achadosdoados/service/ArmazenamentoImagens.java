@@ -0,0 +1,79 @@
+package com.mackenzie.achadosdoados.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Onde ficam os arquivos de imagem (originais e variantes), usado pelo
+ * ImageStorageService. A chave é o caminho relativo da imagem
+ * ("ab/cd/abcd….jpg", ou só o nome nas imagens antigas).
+ *
+ * Toda implementação mantém uma cópia local em 'imagens.diretorio', que é o
+ * que o envio por sendfile e o gerador de variantes leem: no armazenamento
+ * local ela é a própria imagem; no S3 (ver ArmazenamentoS3), um cache de
+ * leitura. A implementação é escolhida por 'imagens.armazenamento' (ver
+ * ArmazenamentoConfig).
+ */
+public interface ArmazenamentoImagens {
+
+    /**
+     * Caminho da cópia local da imagem, sem buscá-la no armazenamento (o
+     * arquivo pode não existir).
+     */
+    Path caminhoLocal(String chave);
+
+    /**
+     * Caminho local da imagem, trazendo-a do armazenamento se ainda não
+     * estiver em disco.
+     *
+     * @return O caminho; o arquivo não existe se a imagem não existir.
+     */
+    Path abrir(String chave);
+
+    /**
+     * Grava a imagem sob a chave. O arquivo é movido (rename atômico) para o
+     * caminho local da chave, então precisa estar no mesmo disco; se já
+     * estiver nele (ex.: variante gerada no lugar), só é publicado.
+     */
+    void gravar(String chave, Path arquivo) throws IOException;
+
+    /**
+     * Renova a data de modificação da imagem (no armazenamento e na cópia
+     * local), para que ela volte a contar como recém-enviada em todas as
+     * instâncias (ver modificadaEm). A data só serve a essa proteção: o
+     * envio das imagens não a usa (ver EnvioImagem).
+     *
+     * @return false se a imagem não existir (nada foi renovado).
+     */
+    boolean tocar(String chave) throws IOException;
+
+    /**
+     * Data da última gravação da imagem ou da última chamada a tocar.
+     *
+     * @return O instante, ou null se a imagem não existir.
+     */
+    Instant modificadaEm(String chave) throws IOException;
+
+    /**
+     * Remove a imagem e a cópia local. Não falha se ela não existir.
+     */
+    void apagar(String chave) throws IOException;
+
+    /**
+     * Percorre, em ordem de chave, as imagens guardadas fora do disco local
+     * (o bucket, no ArmazenamentoS3), para a coleta de órfãs; as do disco a
+     * coleta lê no próprio diretório. No armazenamento local não há nada
+     * além do disco.
+     *
+     * @param visitante Recebe cada imagem; devolve false para interromper.
+     */
+    default void percorrerRemotas(Visitante visitante) throws IOException {
+    }
+
+    /** Recebe as imagens listadas por percorrerRemotas. */
+    @FunctionalInterface
+    interface Visitante {
+        boolean visitar(String chave, long tamanho, Instant modificadaEm);
+    }
+}
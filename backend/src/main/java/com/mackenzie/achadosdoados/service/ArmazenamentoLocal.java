@@ -0,0 +1,90 @@
+package com.mackenzie.achadosdoados.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+/**
+ * Imagens só no disco local ('imagens.diretorio'): serve a uma instância,
+ * ou a várias se o diretório for um volume compartilhado entre elas.
+ */
+public class ArmazenamentoLocal implements ArmazenamentoImagens {
+
+    private final Path raiz;
+
+    public ArmazenamentoLocal(Path raiz) {
+        this.raiz = raiz;
+    }
+
+    @Override
+    public Path caminhoLocal(String chave) {
+        return raiz.resolve(chave);
+    }
+
+    @Override
+    public Path abrir(String chave) {
+        return caminhoLocal(chave);
+    }
+
+    @Override
+    public void gravar(String chave, Path arquivo) throws IOException {
+        moverParaLocal(caminhoLocal(chave), arquivo);
+    }
+
+    @Override
+    public boolean tocar(String chave) throws IOException {
+        return tocar(caminhoLocal(chave));
+    }
+
+    @Override
+    public Instant modificadaEm(String chave) throws IOException {
+        return modificadaEm(caminhoLocal(chave));
+    }
+
+    @Override
+    public void apagar(String chave) throws IOException {
+        Files.deleteIfExists(caminhoLocal(chave));
+    }
+
+    /**
+     * Move o arquivo para o destino, criando os subdiretórios; não faz nada
+     * se ele já for o destino. Dois uploads iguais simultâneos renomeiam o
+     * mesmo conteúdo: tanto faz quem vence.
+     */
+    static void moverParaLocal(Path destino, Path arquivo) throws IOException {
+        if (arquivo.toAbsolutePath().normalize().equals(destino.toAbsolutePath().normalize())) {
+            return;
+        }
+        Files.createDirectories(destino.getParent());
+        Files.move(arquivo, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Põe a data de modificação do arquivo no instante atual.
+     *
+     * @return false se o arquivo não existir.
+     */
+    static boolean tocar(Path arquivo) throws IOException {
+        try {
+            Files.setLastModifiedTime(arquivo, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return A data de modificação do arquivo, ou null se ele não existir.
+     */
+    static Instant modificadaEm(Path arquivo) throws IOException {
+        try {
+            return Files.getLastModifiedTime(arquivo).toInstant();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
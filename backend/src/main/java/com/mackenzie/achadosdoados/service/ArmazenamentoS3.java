@@ -0,0 +1,422 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imagens num bucket compatível com S3 (AWS, MinIO etc.), para várias
+ * instâncias atrás de um balanceador sem volume compartilhado.
+ *
+ * O diretório local funciona como cache de leitura: a imagem que não está
+ * em disco é baixada na primeira leitura e dali em diante servida como no
+ * armazenamento local (as chaves são únicas e nunca mudam, então a cópia
+ * não precisa ser revalidada). Imagens ausentes no bucket ficam marcadas
+ * por 'imagens.s3.ausentes', para que variantes ainda não geradas não
+ * virem uma consulta ao S3 por requisição.
+ *
+ * A gravação é local e a réplica no bucket é enviada em segundo plano, num
+ * pool próprio, com novas tentativas e espera crescente; até lá, esta
+ * instância responde pela imagem. Arquivos maiores que 'imagens.s3.parte'
+ * vão por multipart upload, lidos do disco uma parte por vez.
+ * Com a fila cheia a réplica é enviada na própria thread que gravou (a
+ * imagem não pode ficar só nesta instância).
+ * Cada réplica não confirmada tem um marcador em '.replicacao/', no mesmo
+ * disco das imagens: as que esgotaram as tentativas, ou que ficaram para
+ * trás numa parada, são reenviadas a cada 'imagens.s3.replicacao.reenvio'
+ * (a primeira vez logo depois de subir).
+ * Métricas: executor.*{name=replicacao}, imagens.replicacao{resultado} e
+ * imagens.replicacao.pendentes.
+ */
+public class ArmazenamentoS3 implements ArmazenamentoImagens {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArmazenamentoS3.class);
+
+    /** Menor parte aceita pelo S3 no multipart upload (exceto a última). */
+    static final long PARTE_MINIMA = 5L * 1024 * 1024;
+    private static final long ESPERA_INICIAL_MILLIS = 500;
+    /** Subdiretório (oculto) da raiz com os marcadores das réplicas não confirmadas. */
+    static final String DIRETORIO_REPLICACAO = ".replicacao";
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String prefixo;
+    private final Path raiz;
+    private final Path marcadores;
+    private final int tamanhoParte;
+    private final int tentativas;
+    private final Executor replicacao;
+    /** Imagens gravadas aqui com a réplica em andamento (na fila ou sendo enviada). */
+    private final Map<String, Path> pendentes = new ConcurrentHashMap<>();
+    private final Cache<String, Boolean> ausentes;
+    private final Counter replicadas;
+    private final Counter falhas;
+    private final Counter baixadas;
+
+    public ArmazenamentoS3(S3Client s3, String bucket, String prefixo, Path raiz, long tamanhoParte,
+                           int threads, int fila, int tentativas, Duration ausentes, MeterRegistry meterRegistry) {
+        this(s3, bucket, prefixo, raiz, tamanhoParte, tentativas, ausentes,
+                novoPool(threads, fila, meterRegistry), meterRegistry);
+    }
+
+    ArmazenamentoS3(S3Client s3, String bucket, String prefixo, Path raiz, long tamanhoParte,
+                    int tentativas, Duration ausentes, Executor replicacao, MeterRegistry meterRegistry) {
+        if (tamanhoParte < PARTE_MINIMA) {
+            throw new IllegalArgumentException("imagens.s3.parte deve ser de ao menos 5MB");
+        }
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.prefixo = prefixo == null || prefixo.isEmpty() || prefixo.endsWith("/") ? prefixo : prefixo + "/";
+        this.raiz = raiz;
+        this.marcadores = raiz.resolve(DIRETORIO_REPLICACAO);
+        this.tamanhoParte = (int) Math.min(tamanhoParte, Integer.MAX_VALUE - 8);
+        this.tentativas = Math.max(1, tentativas);
+        this.replicacao = replicacao;
+        this.ausentes = Caffeine.newBuilder().expireAfterWrite(ausentes).maximumSize(10_000).build();
+        this.replicadas = contador(meterRegistry, "replicadas");
+        this.falhas = contador(meterRegistry, "falhas");
+        this.baixadas = contador(meterRegistry, "baixadas");
+        Gauge.builder("imagens.replicacao.pendentes", pendentes, Map::size)
+                .description("Imagens gravadas nesta instância ainda não enviadas ao bucket")
+                .register(meterRegistry);
+        try {
+            Files.createDirectories(marcadores);
+        } catch (IOException e) {
+            throw new RuntimeException("Não foi possível criar diretório de imagens", e);
+        }
+    }
+
+    @Override
+    public Path caminhoLocal(String chave) {
+        return raiz.resolve(chave);
+    }
+
+    @Override
+    public Path abrir(String chave) {
+        Path local = caminhoLocal(chave);
+        if (Files.exists(local) || ausentes.getIfPresent(chave) != null) {
+            return local;
+        }
+        // Nome próprio por leitura: duas requisições simultâneas não disputam o temporário
+        Path temporario = local.resolveSibling(local.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createDirectories(local.getParent());
+            s3.getObject(GetObjectRequest.builder().bucket(bucket).key(objeto(chave)).build(), temporario);
+            ArmazenamentoLocal.moverParaLocal(local, temporario);
+            baixadas.increment();
+        } catch (NoSuchKeyException e) {
+            ausentes.put(chave, Boolean.TRUE);
+        } catch (IOException | SdkException e) {
+            logger.warn("Falha ao baixar {} do bucket: {}", chave, e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(temporario);
+            } catch (IOException e) {
+                logger.warn("Não foi possível remover {}: {}", temporario, e.getMessage());
+            }
+        }
+        return local;
+    }
+
+    @Override
+    public void gravar(String chave, Path arquivo) throws IOException {
+        Path local = caminhoLocal(chave);
+        ArmazenamentoLocal.moverParaLocal(local, arquivo);
+        ausentes.invalidate(chave);
+        Files.write(marcador(chave), chave.getBytes(StandardCharsets.UTF_8));
+        pendentes.put(chave, local);
+        replicacao.execute(() -> replicar(chave, local));
+    }
+
+    /**
+     * Renova a cópia local e o objeto no bucket (CopyObject sobre ele mesmo,
+     * que atualiza o LastModified). Uma imagem que ainda aguarda a réplica
+     * chega ao bucket com a data nova; uma que só existe no disco desta
+     * instância conta como inexistente, para que seja gravada e enviada de
+     * novo.
+     */
+    @Override
+    public boolean tocar(String chave) throws IOException {
+        boolean local = ArmazenamentoLocal.tocar(caminhoLocal(chave));
+        if (pendentes.containsKey(chave)) {
+            return local;
+        }
+        String objeto = objeto(chave);
+        try {
+            s3.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(bucket).sourceKey(objeto)
+                    .destinationBucket(bucket).destinationKey(objeto)
+                    .metadataDirective(MetadataDirective.REPLACE)
+                    .build());
+            return true;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Falha ao renovar " + chave + " no bucket", e);
+        } catch (SdkException e) {
+            throw new IOException("Falha ao renovar " + chave + " no bucket", e);
+        }
+    }
+
+    /**
+     * Data do objeto no bucket, ou da cópia local enquanto a réplica não
+     * foi confirmada.
+     */
+    @Override
+    public Instant modificadaEm(String chave) throws IOException {
+        if (pendentes.containsKey(chave)) {
+            return ArmazenamentoLocal.modificadaEm(caminhoLocal(chave));
+        }
+        try {
+            return s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(objeto(chave)).build())
+                    .lastModified();
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (SdkException e) {
+            throw new IOException("Falha ao consultar " + chave + " no bucket", e);
+        }
+    }
+
+    @Override
+    public void apagar(String chave) throws IOException {
+        pendentes.remove(chave);
+        Files.deleteIfExists(marcador(chave));
+        Files.deleteIfExists(caminhoLocal(chave));
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objeto(chave)).build());
+        } catch (SdkException e) {
+            throw new IOException("Falha ao apagar " + chave + " do bucket", e);
+        }
+    }
+
+    /**
+     * Lista o bucket (sob o prefixo) uma página por vez.
+     */
+    @Override
+    public void percorrerRemotas(Visitante visitante) throws IOException {
+        int inicio = prefixo == null ? 0 : prefixo.length();
+        String continuacao = null;
+        try {
+            do {
+                ListObjectsV2Response pagina = s3.listObjectsV2(ListObjectsV2Request.builder()
+                        .bucket(bucket).prefix(prefixo).continuationToken(continuacao).build());
+                for (S3Object objeto : pagina.contents()) {
+                    if (!visitante.visitar(objeto.key().substring(inicio), objeto.size(), objeto.lastModified())) {
+                        return;
+                    }
+                }
+                continuacao = Boolean.TRUE.equals(pagina.isTruncated()) ? pagina.nextContinuationToken() : null;
+            } while (continuacao != null);
+        } catch (SdkException e) {
+            throw new IOException("Falha ao listar o bucket " + bucket, e);
+        }
+    }
+
+    /**
+     * Para o pool aguardando (por um tempo limitado) as réplicas na fila,
+     * para que uma imagem recém-enviada não fique só no disco desta instância.
+     */
+    public void shutdown() throws InterruptedException {
+        if (replicacao instanceof ExecutorService) {
+            ExecutorService executor = (ExecutorService) replicacao;
+            executor.shutdown();
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("{} imagens não replicadas no bucket ao encerrar (reenviadas ao subir)",
+                        pendentes.size());
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Põe de volta na fila as réplicas com marcador que não estão em
+     * andamento: as que esgotaram as tentativas e as deixadas por uma parada
+     * antes da confirmação. Marcadores de imagens que não estão mais em disco
+     * são descartados.
+     *
+     * @return Quantas réplicas foram reenfileiradas.
+     */
+    @Scheduled(initialDelayString = "PT30S", fixedDelayString = "${imagens.s3.replicacao.reenvio:PT5M}")
+    public int reenviarPendentes() {
+        int reenviadas = 0;
+        try (DirectoryStream<Path> lista = Files.newDirectoryStream(marcadores)) {
+            for (Path marcador : lista) {
+                String chave = new String(Files.readAllBytes(marcador), StandardCharsets.UTF_8);
+                Path local = caminhoLocal(chave);
+                if (!Files.exists(local)) {
+                    Files.deleteIfExists(marcador);
+                } else if (pendentes.putIfAbsent(chave, local) == null) {
+                    replicacao.execute(() -> replicar(chave, local));
+                    reenviadas++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Falha ao ler {}: {}", marcadores, e.getMessage());
+        }
+        if (reenviadas > 0) {
+            logger.info("{} imagens reenfileiradas para o bucket", reenviadas);
+        }
+        return reenviadas;
+    }
+
+    /**
+     * Envia a imagem ao bucket, tentando de novo com espera crescente. Se
+     * ela for apagada antes do envio, desiste. Esgotadas as tentativas, o
+     * marcador fica para reenviarPendentes.
+     */
+    private void replicar(String chave, Path arquivo) {
+        long espera = ESPERA_INICIAL_MILLIS;
+        for (int tentativa = 1; pendentes.containsKey(chave); tentativa++) {
+            try {
+                enviar(chave, arquivo);
+                Files.deleteIfExists(marcador(chave));
+                pendentes.remove(chave, arquivo);
+                replicadas.increment();
+                return;
+            } catch (IOException | RuntimeException e) {
+                if (tentativa >= tentativas) {
+                    pendentes.remove(chave, arquivo);
+                    falhas.increment();
+                    logger.error("Imagem {} não replicada no bucket após {} tentativas (nova rodada em "
+                            + "imagens.s3.replicacao.reenvio): {}", chave, tentativas, e.getMessage());
+                    return;
+                }
+                logger.warn("Falha ao replicar {} (tentativa {}): {}", chave, tentativa, e.getMessage());
+                try {
+                    Thread.sleep(espera);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                espera *= 2;
+            }
+        }
+    }
+
+    /**
+     * PutObject para arquivos de até uma parte; acima disso, multipart
+     * upload com um buffer do tamanho da parte (a memória não depende do
+     * tamanho do arquivo), abortado em caso de falha.
+     */
+    void enviar(String chave, Path arquivo) throws IOException {
+        String objeto = objeto(chave);
+        long tamanho = Files.size(arquivo);
+        if (tamanho <= tamanhoParte) {
+            s3.putObject(PutObjectRequest.builder().bucket(bucket).key(objeto).build(), RequestBody.fromFile(arquivo));
+            return;
+        }
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(objeto).build()).uploadId();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            List<CompletedPart> partes = new ArrayList<>();
+            ByteBuffer buffer = ByteBuffer.allocate(tamanhoParte);
+            for (int numero = 1; ; numero++) {
+                buffer.clear();
+                while (buffer.hasRemaining() && canal.read(buffer) >= 0) {
+                    // lê até completar a parte ou acabar o arquivo
+                }
+                buffer.flip();
+                if (!buffer.hasRemaining()) {
+                    break;
+                }
+                String etag = s3.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucket).key(objeto).uploadId(uploadId).partNumber(numero)
+                                .contentLength((long) buffer.remaining()).build(),
+                        RequestBody.fromByteBuffer(buffer)).eTag();
+                partes.add(CompletedPart.builder().partNumber(numero).eTag(etag).build());
+            }
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket).key(objeto).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(partes).build())
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            try {
+                s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucket).key(objeto).uploadId(uploadId).build());
+            } catch (SdkException abortar) {
+                e.addSuppressed(abortar);
+            }
+            throw e;
+        }
+    }
+
+    /** Marcador da réplica: a chave vai no conteúdo, o nome só precisa ser único. */
+    private Path marcador(String chave) {
+        return marcadores.resolve(chave.replace('/', '_'));
+    }
+
+    private String objeto(String chave) {
+        return prefixo == null ? chave : prefixo + chave;
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("imagens.replicacao")
+                .description("Imagens copiadas entre o bucket e o disco local")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    private static ThreadPoolExecutor novoPool(int threads, int fila, MeterRegistry meterRegistry) {
+        AtomicInteger contador = new AtomicInteger();
+        ThreadFactory fabrica = r -> {
+            Thread thread = new Thread(r, "replicacao-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fila), fabrica, new ThreadPoolExecutor.CallerRunsPolicy());
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "replicacao", Collections.emptyList());
+        return executor;
+    }
+}
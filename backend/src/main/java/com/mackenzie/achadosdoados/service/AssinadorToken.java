@@ -0,0 +1,172 @@
+package com.mackenzie.achadosdoados.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Tokens de acesso autocontidos, assinados com HMAC-SHA256.
+ *
+ * Formato: base64url(conteúdo) + "." + base64url(assinatura), em que o
+ * conteúdo tem tamanho fixo (TAMANHO_CONTEUDO bytes): versão, id do
+ * usuário, código do tipo, expiração (segundos desde a época) e o
+ * identificador do token (jti, 128 bits, usado na revogação).
+ *
+ * A validação só recalcula a assinatura e confere a expiração, sem estado
+ * compartilhado: qualquer instância com o mesmo segredo valida tokens
+ * emitidos por outra. O segredo vem de 'auth.token.secret' (mínimo de
+ * 32 caracteres); sem ele, um segredo aleatório é gerado a cada
+ * inicialização e os tokens só valem nesta instância até ela reiniciar.
+ * Com 'auth.token.exigir-segredo' (ligado em produção) a falta do segredo
+ * impede a inicialização, em vez de cada instância recusar os tokens das
+ * outras.
+ */
+@Component
+public class AssinadorToken {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssinadorToken.class);
+
+    static final byte VERSAO = 1;
+    static final int TAMANHO_CONTEUDO = 1 + 8 + 1 + 8 + 16;
+    private static final int TAMANHO_MINIMO_SEGREDO = 32;
+    private static final String ALGORITMO = "HmacSHA256";
+
+    /** Dados carregados pelo token. */
+    public static final class Conteudo {
+        private final long usuarioId;
+        private final byte tipo;
+        private final long expiraEm;
+        private final long jtiAltos;
+        private final long jtiBaixos;
+
+        Conteudo(long usuarioId, byte tipo, long expiraEm, long jtiAltos, long jtiBaixos) {
+            this.usuarioId = usuarioId;
+            this.tipo = tipo;
+            this.expiraEm = expiraEm;
+            this.jtiAltos = jtiAltos;
+            this.jtiBaixos = jtiBaixos;
+        }
+
+        public long getUsuarioId() {
+            return usuarioId;
+        }
+
+        public byte getTipo() {
+            return tipo;
+        }
+
+        /** Expiração, em segundos desde a época. */
+        public long getExpiraEm() {
+            return expiraEm;
+        }
+
+        public long getJtiAltos() {
+            return jtiAltos;
+        }
+
+        public long getJtiBaixos() {
+            return jtiBaixos;
+        }
+    }
+
+    private static final Base64.Encoder CODIFICADOR = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODIFICADOR = Base64.getUrlDecoder();
+
+    private final SecretKeySpec chave;
+    private final SecureRandom aleatorio = new SecureRandom();
+    private final ThreadLocal<Mac> macs;
+
+    public AssinadorToken(String segredo) {
+        this(segredo, false);
+    }
+
+    @Autowired
+    public AssinadorToken(@Value("${auth.token.secret:}") String segredo,
+                          @Value("${auth.token.exigir-segredo:false}") boolean exigirSegredo) {
+        byte[] bytes;
+        if ((segredo == null || segredo.isEmpty()) && exigirSegredo) {
+            throw new IllegalStateException("auth.token.secret (AUTH_TOKEN_SECRET) não configurado: "
+                    + "defina o mesmo segredo em todas as instâncias");
+        } else if (segredo == null || segredo.isEmpty()) {
+            logger.warn("auth.token.secret não configurado: usando segredo aleatório; "
+                    + "os tokens só valem nesta instância e até ela reiniciar");
+            bytes = new byte[TAMANHO_MINIMO_SEGREDO];
+            new SecureRandom().nextBytes(bytes);
+        } else if (segredo.length() < TAMANHO_MINIMO_SEGREDO) {
+            throw new IllegalStateException("auth.token.secret deve ter pelo menos "
+                    + TAMANHO_MINIMO_SEGREDO + " caracteres");
+        } else {
+            bytes = segredo.getBytes(StandardCharsets.UTF_8);
+        }
+        this.chave = new SecretKeySpec(bytes, ALGORITMO);
+        // Mac não é thread-safe; uma instância por thread evita lock e recriação
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITMO);
+                mac.init(chave);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 indisponível", e);
+            }
+        });
+    }
+
+    /**
+     * Emite um token assinado.
+     *
+     * @param expiraEm Expiração, em segundos desde a época.
+     */
+    public String assinar(long usuarioId, byte tipo, long expiraEm) {
+        ByteBuffer conteudo = ByteBuffer.allocate(TAMANHO_CONTEUDO);
+        conteudo.put(VERSAO).putLong(usuarioId).put(tipo).putLong(expiraEm)
+                .putLong(aleatorio.nextLong()).putLong(aleatorio.nextLong());
+        byte[] bytes = conteudo.array();
+        return CODIFICADOR.encodeToString(bytes) + "." + CODIFICADOR.encodeToString(macs.get().doFinal(bytes));
+    }
+
+    /**
+     * Confere formato, assinatura e expiração.
+     *
+     * @param agora Instante atual, em segundos desde a época.
+     * @return O conteúdo do token, ou null se for inválido ou estiver expirado.
+     */
+    public Conteudo verificar(String token, long agora) {
+        if (token == null) {
+            return null;
+        }
+        int ponto = token.indexOf('.');
+        if (ponto <= 0 || ponto != token.lastIndexOf('.')) {
+            return null;
+        }
+        byte[] conteudo;
+        byte[] assinatura;
+        try {
+            conteudo = DECODIFICADOR.decode(token.substring(0, ponto));
+            assinatura = DECODIFICADOR.decode(token.substring(ponto + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (conteudo.length != TAMANHO_CONTEUDO || conteudo[0] != VERSAO) {
+            return null;
+        }
+        // Comparação em tempo constante
+        if (!MessageDigest.isEqual(macs.get().doFinal(conteudo), assinatura)) {
+            return null;
+        }
+        ByteBuffer leitura = ByteBuffer.wrap(conteudo, 1, TAMANHO_CONTEUDO - 1);
+        Conteudo dados = new Conteudo(leitura.getLong(), leitura.get(), leitura.getLong(),
+                leitura.getLong(), leitura.getLong());
+        return dados.getExpiraEm() > agora ? dados : null;
+    }
+}
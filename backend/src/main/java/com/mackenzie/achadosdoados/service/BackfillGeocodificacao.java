@@ -0,0 +1,127 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import com.mackenzie.achadosdoados.model.Doador;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.repository.DoadorRepository;
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Geocodifica em segundo plano instituições e doadores que têm CEP mas
+ * não têm coordenadas (cadastros anteriores à geocodificação no servidor),
+ * usando apenas a base local de CEPs.
+ *
+ * Percorre as tabelas em lotes por id (keyset), cada lote lido e gravado
+ * em sua própria transação; linhas cujo CEP não está na base ficam para a próxima rodada.
+ * As instituições atualizadas publicam InstituicaoAlteradaEvent para que
+ * o índice espacial, o mapa e os caches as vejam.
+ */
+@Component
+public class BackfillGeocodificacao {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackfillGeocodificacao.class);
+
+    private final InstituicaoRepository instituicaoRepository;
+    private final DoadorRepository doadorRepository;
+    private final InstituicaoService instituicaoService;
+    private final DoadorService doadorService;
+    private final GeocodificadorCep geocodificador;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transacao;
+    private final int tamanhoLote;
+
+    public BackfillGeocodificacao(InstituicaoRepository instituicaoRepository,
+                                  DoadorRepository doadorRepository,
+                                  InstituicaoService instituicaoService,
+                                  DoadorService doadorService,
+                                  GeocodificadorCep geocodificador,
+                                  ApplicationEventPublisher eventPublisher,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${geocodificacao.backfill.lote:500}") int tamanhoLote) {
+        this.instituicaoRepository = instituicaoRepository;
+        this.doadorRepository = doadorRepository;
+        this.instituicaoService = instituicaoService;
+        this.doadorService = doadorService;
+        this.geocodificador = geocodificador;
+        this.eventPublisher = eventPublisher;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    /**
+     * Uma rodada completa sobre instituições e doadores.
+     */
+    @Scheduled(initialDelayString = "${geocodificacao.backfill.atraso-inicial:PT30S}",
+               fixedDelayString = "${geocodificacao.backfill.intervalo:PT6H}")
+    public void executar() {
+        if (!geocodificador.isDisponivel()) {
+            return;
+        }
+        int instituicoes = geocodificarInstituicoes();
+        int doadores = geocodificarDoadores();
+        if (instituicoes > 0 || doadores > 0) {
+            logger.info("Geocodificação em segundo plano: {} instituições e {} doadores atualizados",
+                    instituicoes, doadores);
+        }
+    }
+
+    int geocodificarInstituicoes() {
+        return processar(instituicaoRepository::buscarSemCoordenadasAposId, Instituicao::getId, instituicao -> {
+            if (!instituicaoService.geocodificar(instituicao)) {
+                return false;
+            }
+            eventPublisher.publishEvent(new InstituicaoAlteradaEvent(instituicao));
+            return true;
+        });
+    }
+
+    int geocodificarDoadores() {
+        return processar(doadorRepository::buscarSemCoordenadasAposId, Doador::getId, doadorService::geocodificar);
+    }
+
+    /**
+     * Lê e geocodifica um lote por transação até esgotar a tabela. As
+     * entidades são alteradas dentro da transação e gravadas no commit.
+     *
+     * @return Quantas linhas foram geocodificadas.
+     */
+    private <T> int processar(BiFunction<Long, Pageable, List<T>> buscarLote,
+                              Function<T, Long> id,
+                              Predicate<T> geocodificar) {
+        // Desde o menor id: importações antigas gravaram contas com id <= 0
+        long[] aposId = {Long.MIN_VALUE};
+        int total = 0;
+        while (true) {
+            int[] loteLidoEAlterados = transacao.execute(status -> {
+                List<T> lote = buscarLote.apply(aposId[0], PageRequest.of(0, tamanhoLote));
+                int alterados = 0;
+                for (T linha : lote) {
+                    if (geocodificar.test(linha)) {
+                        alterados++;
+                    }
+                    aposId[0] = id.apply(linha);
+                }
+                return new int[]{lote.size(), alterados};
+            });
+            total += loteLidoEAlterados[1];
+            if (loteLidoEAlterados[0] < tamanhoLote) {
+                return total;
+            }
+        }
+    }
+}
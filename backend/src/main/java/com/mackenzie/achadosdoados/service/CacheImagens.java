@@ -0,0 +1,141 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Cache dos bytes das imagens mais acessadas (fotos das instituições na
+ * home e no mapa, principalmente as variantes thumb), em ByteBuffers
+ * diretos: o conteúdo fica fora do heap e não pesa no GC.
+ *
+ * Limitado pelo total de bytes ('imagens.cache.capacidade', que precisa
+ * caber em -XX:MaxDirectMemorySize); a política de descarte é a W-TinyLFU
+ * do Caffeine. Arquivos acima de 'imagens.cache.maximo-arquivo' não entram.
+ * Como os nomes são únicos, só a remoção da imagem invalida a entrada.
+ * Métricas: cache.*{cache=imagens}, imagens.cache.bytes e imagens.cache.acertos.
+ */
+@Component
+public class CacheImagens {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheImagens.class);
+
+    /**
+     * Conteúdo de uma imagem.
+     */
+    public static final class Imagem {
+        private final ByteBuffer conteudo;
+
+        Imagem(ByteBuffer conteudo) {
+            this.conteudo = conteudo;
+        }
+
+        /**
+         * @return Uma visão somente leitura, com posição própria (pode ser
+         *         consumida sem afetar outras requisições).
+         */
+        public ByteBuffer getConteudo() {
+            return conteudo.duplicate();
+        }
+
+        public int getTamanho() {
+            return conteudo.capacity();
+        }
+    }
+
+    private final Cache<Path, Imagem> cache;
+    private final long maximoArquivo;
+
+    public CacheImagens(@Value("${imagens.cache.capacidade:64MB}") DataSize capacidade,
+                        @Value("${imagens.cache.maximo-arquivo:1MB}") DataSize maximoArquivo,
+                        MeterRegistry meterRegistry) {
+        this.maximoArquivo = maximoArquivo.toBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(capacidade.toBytes())
+                .weigher((Path arquivo, Imagem imagem) -> imagem.getTamanho())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "imagens");
+        Gauge.builder("imagens.cache.bytes", this, CacheImagens::getBytesResidentes)
+                .description("Bytes de imagens mantidos no cache (memória direta)")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("imagens.cache.acertos", cache, c -> c.stats().hitRate())
+                .description("Fração das leituras de imagem atendidas pelo cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Busca a imagem no cache, carregando o arquivo em caso de falta.
+     *
+     * @return A imagem, ou null se o arquivo não existir, for grande demais
+     *         para o cache ou não puder ser lido (quem chama lê do disco).
+     */
+    public Imagem buscar(Path arquivo) {
+        try {
+            return cache.get(arquivo, this::carregar);
+        } catch (UncheckedIOException e) {
+            logger.warn("Falha ao carregar {} no cache: {}", arquivo.getFileName(), e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Remove a imagem do cache (chamado quando o arquivo é apagado).
+     */
+    public void invalidar(Path arquivo) {
+        cache.invalidate(arquivo);
+    }
+
+    public long getBytesResidentes() {
+        return cache.policy().eviction()
+                .map(e -> e.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    /** Executa os descartes pendentes (o Caffeine os faz de forma assíncrona). */
+    void limparPendencias() {
+        cache.cleanUp();
+    }
+
+    private Imagem carregar(Path arquivo) {
+        try {
+            BasicFileAttributes atributos = Files.readAttributes(arquivo, BasicFileAttributes.class);
+            if (!atributos.isRegularFile() || atributos.size() > maximoArquivo) {
+                return null;
+            }
+            ByteBuffer conteudo = ByteBuffer.allocateDirect((int) atributos.size());
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                while (conteudo.hasRemaining() && canal.read(conteudo) >= 0) {
+                    // lê até encher o buffer
+                }
+            }
+            if (conteudo.hasRemaining()) {
+                return null; // arquivo encolheu durante a leitura
+            }
+            conteudo.flip();
+            return new Imagem(conteudo.asReadOnlyBuffer());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mackenzie.achadosdoados.dto.UsuarioAutenticado;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import com.mackenzie.achadosdoados.repository.UsuarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Cache dos usuários autenticados (id, tipo e nome), consultado pelo
+ * TokenAuthenticationFilter a cada requisição com token.
+ *
+ * Sem ele, cada requisição autenticada faria um findById em Usuario, que
+ * por causa da herança JOINED é uma junção de usuarios, doadores e
+ * instituicoes. A entrada é descartada quando o perfil muda (evento
+ * confirmado); o TTL de 'cache.principais.spec' cobre alterações feitas
+ * em outras instâncias. Usuários inexistentes não são guardados.
+ * Métricas em /actuator/metrics/cache.gets{cache=principais}.
+ */
+@Component
+public class CachePrincipais {
+
+    private final UsuarioRepository usuarioRepository;
+    private final Cache<Long, UsuarioAutenticado> cache;
+
+    public CachePrincipais(UsuarioRepository usuarioRepository,
+                           @Value("${cache.principais.spec:maximumSize=10000,expireAfterWrite=30m}") String spec,
+                           MeterRegistry meterRegistry) {
+        this.usuarioRepository = usuarioRepository;
+        this.cache = Caffeine.from(spec).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principais");
+    }
+
+    /**
+     * @return O usuário, do cache ou do banco, ou null se não existir.
+     */
+    public UsuarioAutenticado buscar(Long usuarioId) {
+        return cache.get(usuarioId, id -> usuarioRepository.findById(id)
+                .map(u -> new UsuarioAutenticado(u.getId(), TokenService.tipoDe(u), u.getNome()))
+                .orElse(null));
+    }
+
+    public void invalidar(Long usuarioId) {
+        cache.invalidate(usuarioId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstituicaoAlterada(InstituicaoAlteradaEvent event) {
+        invalidar(event.getInstituicao().getId());
+    }
+}
@@ -0,0 +1,134 @@
+package com.mackenzie.achadosdoados.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PasswordEncoder que executa o hash (BCrypt, dezenas de milissegundos de
+ * CPU) num pool próprio e limitado, em vez de na thread do Tomcat.
+ *
+ * Com todas as threads ocupadas e a fila cheia, a operação é recusada na
+ * hora com LimiteExcedidoException (429): um pico de logins ou cadastros
+ * fica restrito a este pool e não consome a CPU dos demais endpoints.
+ * upgradeEncoding é barato e roda direto.
+ * Métricas: executor.*{name=senhas} e senhas.rejeitadas.
+ */
+public class CodificadorSenhas implements PasswordEncoder {
+
+    private static final long TENTAR_NOVAMENTE_SEGUNDOS = 1;
+
+    private final PasswordEncoder delegado;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejeitadas;
+
+    public CodificadorSenhas(PasswordEncoder delegado, int threads, int fila, MeterRegistry meterRegistry) {
+        this.delegado = delegado;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fila), novaFabrica(), new ThreadPoolExecutor.AbortPolicy());
+        this.rejeitadas = Counter.builder("senhas.rejeitadas")
+                .description("Operações de hash de senha recusadas por falta de capacidade")
+                .register(meterRegistry);
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "senhas", Collections.emptyList());
+    }
+
+    @Override
+    public String encode(CharSequence senha) {
+        return executar(() -> delegado.encode(senha));
+    }
+
+    @Override
+    public boolean matches(CharSequence senha, String hash) {
+        return executar(() -> delegado.matches(senha, hash));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String hash) {
+        return delegado.upgradeEncoding(hash);
+    }
+
+    /**
+     * Codifica várias senhas em paralelo (importação em lote), ocupando no
+     * máximo metade das threads do pool para não travar os logins.
+     *
+     * @return Os hashes, na mesma ordem das senhas.
+     * @throws LimiteExcedidoException se o pool recusar alguma tarefa.
+     */
+    public List<String> codificarTodos(List<? extends CharSequence> senhas) {
+        int emVoo = Math.max(1, executor.getMaximumPoolSize() / 2);
+        List<String> hashes = new ArrayList<>(senhas.size());
+        Deque<Future<String>> pendentes = new ArrayDeque<>();
+        for (CharSequence senha : senhas) {
+            if (pendentes.size() == emVoo) {
+                hashes.add(aguardar(pendentes.removeFirst()));
+            }
+            pendentes.addLast(submeter(() -> delegado.encode(senha)));
+        }
+        while (!pendentes.isEmpty()) {
+            hashes.add(aguardar(pendentes.removeFirst()));
+        }
+        return hashes;
+    }
+
+    /**
+     * Encerra o pool (chamado pelo Spring ao destruir o bean).
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T executar(Callable<T> tarefa) {
+        return aguardar(submeter(tarefa));
+    }
+
+    private <T> Future<T> submeter(Callable<T> tarefa) {
+        try {
+            return executor.submit(tarefa);
+        } catch (RejectedExecutionException e) {
+            rejeitadas.increment();
+            throw new LimiteExcedidoException("Servidor ocupado, tente novamente em instantes",
+                    TENTAR_NOVAMENTE_SEGUNDOS);
+        }
+    }
+
+    private static <T> T aguardar(Future<T> futuro) {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando o hash da senha", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            throw new IllegalStateException(causa);
+        }
+    }
+
+    private static ThreadFactory novaFabrica() {
+        AtomicInteger contador = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "senhas-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,310 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remove em segundo plano os arquivos de imagem que nenhuma instituição
+ * referencia: fotos trocadas cuja remoção falhou, uploads cuja fotoUrl não
+ * chegou a ser gravada e temporários deixados por uma queda no meio do
+ * upload.
+ *
+ * Lê as fotoUrl em lotes por id (keyset) e percorre o diretório um
+ * arquivo por vez, sem listá-lo inteiro; depois, as imagens que o
+ * armazenamento guarda fora do disco (o bucket, no S3), uma página por vez,
+ * o que alcança as enviadas por outras instâncias e nunca lidas nesta. Só
+ * imagens modificadas há mais de 'imagens.coleta.carencia' são candidatas,
+ * e cada uma passa de novo pelas verificações de ImageStorageService.delete
+ * (referências no banco e uploads recentes), o que cobre fotos gravadas
+ * durante a rodada. As variantes saem junto com o original. As remoções são espaçadas por
+ * 'imagens.coleta.remocoes-por-segundo' para não disputar o disco com as
+ * requisições.
+ * Métricas: imagens.coleta.bytes e imagens.coleta.arquivos.
+ */
+@Component
+public class ColetaImagensOrfas {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColetaImagensOrfas.class);
+
+    private final ImageStorageService imageStorageService;
+    private final ArmazenamentoImagens armazenamento;
+    private final InstituicaoRepository instituicaoRepository;
+    private final Path raiz;
+    private final Duration carencia;
+    private final int tamanhoLote;
+    private final long pausaEntreRemocoes;
+    private final Counter bytesLiberados;
+    private final Counter arquivosRemovidos;
+
+    public ColetaImagensOrfas(ImageStorageService imageStorageService,
+                              ArmazenamentoImagens armazenamento,
+                              InstituicaoRepository instituicaoRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${imagens.diretorio:data/images}") String diretorio,
+                              @Value("${imagens.coleta.carencia:PT24H}") Duration carencia,
+                              @Value("${imagens.coleta.lote:1000}") int tamanhoLote,
+                              @Value("${imagens.coleta.remocoes-por-segundo:10}") int remocoesPorSegundo) {
+        this.imageStorageService = imageStorageService;
+        this.armazenamento = armazenamento;
+        this.instituicaoRepository = instituicaoRepository;
+        this.raiz = Paths.get(diretorio);
+        this.carencia = carencia;
+        this.tamanhoLote = tamanhoLote;
+        this.pausaEntreRemocoes = 1000L / Math.max(1, remocoesPorSegundo);
+        this.bytesLiberados = Counter.builder("imagens.coleta.bytes")
+                .description("Bytes liberados pela remoção de imagens órfãs")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.arquivosRemovidos = Counter.builder("imagens.coleta.arquivos")
+                .description("Arquivos de imagem órfãos removidos")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Uma rodada completa sobre o diretório de imagens e o armazenamento.
+     */
+    @Scheduled(initialDelayString = "${imagens.coleta.atraso-inicial:PT10M}",
+               fixedDelayString = "${imagens.coleta.intervalo:PT24H}")
+    public void executar() {
+        Set<String> referenciadas = carregarReferenciadas();
+        long limite = System.currentTimeMillis() - carencia.toMillis();
+        long[] total = {0, 0};
+        try {
+            // Raiz (nomes antigos e temporários) e os dois níveis de subdiretórios
+            Files.walkFileTree(raiz, EnumSet.noneOf(FileVisitOption.class), 3, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path diretorio, BasicFileAttributes atributos) {
+                    // Diretórios ocultos são do armazenamento (ex.: marcadores do ArmazenamentoS3)
+                    return !diretorio.equals(raiz) && diretorio.getFileName().toString().startsWith(".")
+                            ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path arquivo, BasicFileAttributes atributos) throws IOException {
+                    if (!atributos.isRegularFile() || atributos.lastModifiedTime().toMillis() > limite) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    String nome = arquivo.getFileName().toString();
+                    long[] removidos;
+                    if (nome.endsWith(".tmp")) {
+                        removidos = Files.deleteIfExists(arquivo) ? new long[]{1, atributos.size()} : null;
+                    } else if (referenciadas.contains(base(nome)) || originalPresente(arquivo, nome)) {
+                        return FileVisitResult.CONTINUE;
+                    } else {
+                        removidos = remover(arquivo, nome);
+                    }
+                    return registrar(total, removidos) ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path arquivo, IOException e) {
+                    // Variante já removida junto com o original, ou upload renomeado
+                    if (!(e instanceof NoSuchFileException)) {
+                        logger.warn("Falha ao ler {}: {}", arquivo, e.getMessage());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Falha ao percorrer {}: {}", raiz, e.getMessage());
+        }
+        if (!Thread.currentThread().isInterrupted()) {
+            coletarRemotas(referenciadas, limite, total);
+        }
+        if (total[0] > 0) {
+            logger.info("Coleta de imagens órfãs: {} arquivos removidos, {} bytes liberados", total[0], total[1]);
+        }
+    }
+
+    /**
+     * Nomes-base (sem extensão) das fotos em uso, lidos em lotes por id.
+     */
+    Set<String> carregarReferenciadas() {
+        Set<String> referenciadas = new HashSet<>();
+        // Desde o menor id: importações antigas gravaram contas com id <= 0
+        long aposId = Long.MIN_VALUE;
+        List<Object[]> lote;
+        do {
+            lote = instituicaoRepository.buscarFotoUrlsAposId(aposId, PageRequest.of(0, tamanhoLote));
+            for (Object[] linha : lote) {
+                String fotoUrl = (String) linha[1];
+                if (fotoUrl.startsWith(ImageStorageService.URL_PREFIXO)) {
+                    referenciadas.add(base(fotoUrl.substring(ImageStorageService.URL_PREFIXO.length())));
+                }
+                aposId = (Long) linha[0];
+            }
+        } while (lote.size() == tamanhoLote);
+        return referenciadas;
+    }
+
+    /**
+     * Imagens listadas por ArmazenamentoImagens.percorrerRemotas, pela data
+     * do armazenamento. A listagem vem em ordem de chave, então o original e
+     * as variantes de uma imagem chegam juntos ("ab/cd/<hash>.*"): as
+     * variantes ficam guardadas até o fim do grupo e só são removidas por
+     * conta própria se ele não tiver original.
+     */
+    private void coletarRemotas(Set<String> referenciadas, long limite, long[] total) {
+        GrupoRemoto grupo = new GrupoRemoto();
+        try {
+            armazenamento.percorrerRemotas((chave, tamanho, modificadaEm) -> {
+                String nome = chave.substring(chave.lastIndexOf('/') + 1);
+                if (!base(nome).equals(grupo.base)) {
+                    if (!encerrar(grupo, total)) {
+                        return false;
+                    }
+                    grupo.base = base(nome);
+                }
+                boolean variante = VariantesImagem.isVariante(nome);
+                grupo.comOriginal |= !variante;
+                if (nome.startsWith(".") || modificadaEm.toEpochMilli() > limite
+                        || referenciadas.contains(grupo.base)) {
+                    return true;
+                }
+                if (variante) {
+                    grupo.variantes.put(nome, tamanho);
+                    return true;
+                }
+                grupo.originalRemovido = imageStorageService.delete(nome);
+                return !grupo.originalRemovido || registrar(total, new long[]{1, tamanho});
+            });
+            encerrar(grupo, total);
+        } catch (IOException e) {
+            logger.warn("Falha ao percorrer o armazenamento: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fecha o grupo de uma imagem remota: as variantes saíram com o original
+     * removido (só contadas) ou, sem original, são removidas uma a uma.
+     *
+     * @return false se a thread foi interrompida.
+     */
+    private boolean encerrar(GrupoRemoto grupo, long[] total) {
+        try {
+            if (grupo.originalRemovido) {
+                long bytes = grupo.variantes.values().stream().mapToLong(Long::longValue).sum();
+                return grupo.variantes.isEmpty() || registrar(total, new long[]{grupo.variantes.size(), bytes});
+            }
+            if (!grupo.comOriginal) {
+                for (Map.Entry<String, Long> variante : grupo.variantes.entrySet()) {
+                    if (imageStorageService.delete(variante.getKey())
+                            && !registrar(total, new long[]{1, variante.getValue()})) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } finally {
+            grupo.comOriginal = false;
+            grupo.originalRemovido = false;
+            grupo.variantes.clear();
+        }
+    }
+
+    /**
+     * Soma uma remoção às métricas e espera a pausa entre remoções.
+     *
+     * @return false se a thread foi interrompida.
+     */
+    private boolean registrar(long[] total, long[] removidos) {
+        if (removidos == null) {
+            return true;
+        }
+        total[0] += removidos[0];
+        total[1] += removidos[1];
+        arquivosRemovidos.increment(removidos[0]);
+        bytesLiberados.increment(removidos[1]);
+        try {
+            Thread.sleep(pausaEntreRemocoes);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Remove a imagem (com as variantes) pelo ImageStorageService.
+     *
+     * @return [arquivos, bytes] removidos, ou null se ela foi mantida.
+     */
+    private long[] remover(Path arquivo, String nome) {
+        long[] tamanho = {0, 0};
+        somar(tamanho, arquivo);
+        if (!VariantesImagem.isVariante(nome)) {
+            for (VariantesImagem.Tamanho variante : VariantesImagem.Tamanho.values()) {
+                somar(tamanho, VariantesImagem.caminho(arquivo, variante));
+            }
+        }
+        return imageStorageService.delete(nome) ? tamanho : null;
+    }
+
+    /**
+     * Uma variante cujo original ainda existe sai junto com ele; só as
+     * variantes sem original são removidas por conta própria.
+     */
+    private static boolean originalPresente(Path arquivo, String nome) throws IOException {
+        if (!VariantesImagem.isVariante(nome)) {
+            return false;
+        }
+        try (DirectoryStream<Path> irmaos = Files.newDirectoryStream(arquivo.getParent(), base(nome) + ".*")) {
+            for (Path irmao : irmaos) {
+                String nomeIrmao = irmao.getFileName().toString();
+                if (!VariantesImagem.isVariante(nomeIrmao) && !nomeIrmao.endsWith(".tmp")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void somar(long[] tamanho, Path arquivo) {
+        try {
+            tamanho[1] += Files.size(arquivo);
+            tamanho[0]++;
+        } catch (IOException e) {
+            // variante inexistente
+        }
+    }
+
+    /** Imagem remota em andamento na listagem: original e variantes ("ab/cd/<hash>.*"). */
+    private static final class GrupoRemoto {
+        private String base;
+        private boolean comOriginal;
+        private boolean originalRemovido;
+        /** Variantes candidatas à remoção: nome -> bytes. */
+        private final Map<String, Long> variantes = new LinkedHashMap<>();
+    }
+
+    /** Nome sem extensões: o hash (ou UUID) comum ao original e às variantes. */
+    private static String base(String nome) {
+        int ponto = nome.indexOf('.');
+        return ponto > 0 ? nome.substring(0, ponto) : nome;
+    }
+}
@@ -0,0 +1,112 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.dto.DemandaResumo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor opaco usado na paginação keyset das demandas.
+ * Guarda a posição da última demanda entregue ao cliente:
+ * - ordem por id: apenas o id;
+ * - ordem por prazo: o par (prazoDesejado, id), seguido das demandas
+ *   sem prazo (ordenadas por id) quando as datadas se esgotam.
+ * O valor é serializado em Base64 URL-safe para que o cliente não
+ * dependa do formato interno.
+ */
+final class DemandaCursor {
+
+    enum Fase { ID, PRAZO, SEM_PRAZO }
+
+    /** Data anterior a qualquer prazo real, usada como início da ordem por prazo. */
+    static final LocalDate PRAZO_INICIAL = LocalDate.of(1, 1, 1);
+
+    private final Fase fase;
+    private final LocalDate prazo;
+    private final long id;
+
+    private DemandaCursor(Fase fase, LocalDate prazo, long id) {
+        this.fase = fase;
+        this.prazo = prazo;
+        this.id = id;
+    }
+
+    /**
+     * Cursor que aponta para o início da listagem na ordem informada.
+     */
+    static DemandaCursor inicio(boolean porPrazo) {
+        return porPrazo
+                ? new DemandaCursor(Fase.PRAZO, PRAZO_INICIAL, 0L)
+                : new DemandaCursor(Fase.ID, null, 0L);
+    }
+
+    /**
+     * Cursor que aponta logo após a demanda informada.
+     */
+    static DemandaCursor apos(DemandaResumo demanda, boolean porPrazo) {
+        if (!porPrazo) {
+            return new DemandaCursor(Fase.ID, null, demanda.getId());
+        }
+        if (demanda.getPrazoDesejado() == null) {
+            return new DemandaCursor(Fase.SEM_PRAZO, null, demanda.getId());
+        }
+        return new DemandaCursor(Fase.PRAZO, demanda.getPrazoDesejado(), demanda.getId());
+    }
+
+    /**
+     * Decodifica um cursor recebido do cliente.
+     *
+     * @throws RuntimeException se o cursor for inválido ou não corresponder à ordem pedida.
+     */
+    static DemandaCursor decodificar(String valor, boolean porPrazo) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(valor), StandardCharsets.UTF_8);
+            String[] partes = texto.split(":");
+            DemandaCursor cursor;
+            if (partes.length == 2 && "i".equals(partes[0])) {
+                cursor = new DemandaCursor(Fase.ID, null, Long.parseLong(partes[1]));
+            } else if (partes.length == 2 && "n".equals(partes[0])) {
+                cursor = new DemandaCursor(Fase.SEM_PRAZO, null, Long.parseLong(partes[1]));
+            } else if (partes.length == 3 && "p".equals(partes[0])) {
+                cursor = new DemandaCursor(Fase.PRAZO, LocalDate.parse(partes[1]), Long.parseLong(partes[2]));
+            } else {
+                throw new IllegalArgumentException(texto);
+            }
+            if ((cursor.fase == Fase.ID) == porPrazo) {
+                throw new IllegalArgumentException(texto);
+            }
+            return cursor;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new RuntimeException("Cursor inválido.");
+        }
+    }
+
+    String codificar() {
+        String texto;
+        switch (fase) {
+            case PRAZO:
+                texto = "p:" + prazo + ":" + id;
+                break;
+            case SEM_PRAZO:
+                texto = "n:" + id;
+                break;
+            default:
+                texto = "i:" + id;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Fase getFase() {
+        return fase;
+    }
+
+    LocalDate getPrazo() {
+        return prazo;
+    }
+
+    long getId() {
+        return id;
+    }
+}
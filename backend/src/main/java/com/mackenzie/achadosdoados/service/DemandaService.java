@@ -1,14 +1,28 @@
 package com.mackenzie.achadosdoados.service;
 
+import com.mackenzie.achadosdoados.config.CacheConfig;
+import com.mackenzie.achadosdoados.dto.CursorPage;
+import com.mackenzie.achadosdoados.dto.DemandaFiltro;
+import com.mackenzie.achadosdoados.dto.DemandaResumo;
+import com.mackenzie.achadosdoados.dto.Facetas;
+import com.mackenzie.achadosdoados.event.DemandaAlteradaEvent;
 import com.mackenzie.achadosdoados.model.Demanda;
 import com.mackenzie.achadosdoados.model.Instituicao;
 import com.mackenzie.achadosdoados.repository.DemandaRepository;
+import com.mackenzie.achadosdoados.repository.DemandaSpecifications;
 import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Classe de serviço para gerenciar a lógica de negócio das Demandas (Pedidos de Doação).
@@ -17,12 +31,34 @@ import java.util.Optional;
 @Service
 public class DemandaService {
 
+    /** Tamanho de página usado quando o cliente não informa o limite. */
+    public static final int LIMITE_PADRAO = 20;
+
+    /** Maior página aceita na listagem paginada. */
+    public static final int LIMITE_MAXIMO = 100;
+
+    /** Máximo de candidatos do índice de busca combinados com os demais filtros. */
+    static final int LIMITE_CANDIDATOS_BUSCA = 1000;
+
     private final DemandaRepository demandaRepository;
     private final InstituicaoRepository instituicaoRepository;
+    private final IndiceBuscaDemandas indiceBusca;
+    private final FacetasDemandas facetas;
+    private final IndiceEspacialInstituicoes indiceEspacial;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public DemandaService(DemandaRepository demandaRepository, InstituicaoRepository instituicaoRepository) {
+    public DemandaService(DemandaRepository demandaRepository,
+                          InstituicaoRepository instituicaoRepository,
+                          IndiceBuscaDemandas indiceBusca,
+                          FacetasDemandas facetas,
+                          IndiceEspacialInstituicoes indiceEspacial,
+                          ApplicationEventPublisher eventPublisher) {
         this.demandaRepository = demandaRepository;
         this.instituicaoRepository = instituicaoRepository;
+        this.indiceBusca = indiceBusca;
+        this.facetas = facetas;
+        this.indiceEspacial = indiceEspacial;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -55,35 +91,149 @@ public class DemandaService {
             demanda.setStatus("Ativo");
         }
 
-        // 4. Salva no banco
-        return demandaRepository.save(demanda);
+        // 4. Salva no banco e avisa os índices após o commit
+        Demanda salva = demandaRepository.save(demanda);
+        eventPublisher.publishEvent(new DemandaAlteradaEvent(salva));
+        return salva;
     }
 
     /**
      * UC1 - Buscar demanda
-     * Retorna todas as demandas ativas.
+     * Retorna todas as demandas ativas, projetadas em DemandaResumo.
+     * O resultado fica em cache até a próxima alteração confirmada
+     * (ver InvalidacaoCacheCatalogo).
      *
      * @return Lista de todas as demandas.
      */
+    @Cacheable(CacheConfig.DEMANDAS_PUBLICAS)
     @Transactional(readOnly = true) // readOnly = true otimiza a transação para leitura
-    public List<Demanda> buscarTodasDemandas() {
-        List<Demanda> todasDemandas = demandaRepository.findAllWithInstituicao();
-        // Filtrar demandas inativas (deletadas logicamente)
-        return todasDemandas.stream()
-                .filter(d -> !"Inativo".equals(d.getStatus()))
-                .collect(java.util.stream.Collectors.toList());
+    public List<DemandaResumo> buscarTodasDemandas() {
+        // Demandas inativas (deletadas logicamente) são filtradas na consulta
+        return demandaRepository.listarResumosPublicos();
     }
     
+    /**
+     * UC1 - Buscar demanda (paginado e filtrado)
+     * Retorna uma página de demandas ativas usando paginação keyset (cursor).
+     * Os filtros são combinados em uma única consulta (Specifications) e a
+     * ordenação é feita no banco; no máximo uma página (mais uma linha de
+     * sentinela) é carregada por chamada. O termo de busca é resolvido pelo
+     * índice invertido e entra na consulta como uma lista de IDs candidatos
+     * (os LIMITE_CANDIDATOS_BUSCA mais relevantes); nesse caso a página segue
+     * a ordem pedida, não a relevância. Da mesma forma, a busca por região
+     * (lat, lng, raio) é resolvida pelo índice espacial e entra como a lista
+     * de instituições dentro do raio.
+     *
+     * @param filtro  Filtros opcionais (título, categoria, urgência, status, instituição, prazo, região).
+     * @param ordem   "id" (padrão) ou "prazo" para ordenar por (prazoDesejado, id).
+     * @param limite  Tamanho da página; limitado a LIMITE_MAXIMO.
+     * @param cursor  Cursor opaco devolvido na página anterior (opcional).
+     * @return A página de demandas e o cursor da próxima, se houver.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<DemandaResumo> buscarPaginaDemandas(DemandaFiltro filtro, String ordem, Integer limite, String cursor) {
+        boolean porPrazo = "prazo".equalsIgnoreCase(ordem);
+        int tamanho = limite == null ? LIMITE_PADRAO : Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+        Specification<Demanda> spec = DemandaSpecifications.comFiltro(filtro);
+        String termo = filtro != null ? filtro.getTitulo() : null;
+        if (termo != null && !termo.isEmpty()) {
+            if (indiceBusca.isPronto()) {
+                List<Long> candidatos = indiceBusca.buscar(termo, LIMITE_CANDIDATOS_BUSCA);
+                if (candidatos.isEmpty()) {
+                    return new CursorPage<>(new ArrayList<>(), null);
+                }
+                spec = spec.and(DemandaSpecifications.idEm(candidatos));
+            } else {
+                spec = spec.and(DemandaSpecifications.tituloContem(termo));
+            }
+        }
+        if (filtro != null && filtro.isPorRegiao()) {
+            if (filtro.getRaio() == null) {
+                throw new RuntimeException("Raio inválido. Informe lat, lng e raio (km) para buscar por região.");
+            }
+            IndiceEspacialInstituicoes.validarConsulta(filtro.getLat(), filtro.getLng(), filtro.getRaio());
+            Set<Long> instituicoes = indiceEspacial.idsDentroDoRaio(filtro.getLat(), filtro.getLng(), filtro.getRaio());
+            if (instituicoes.isEmpty()) {
+                return new CursorPage<>(new ArrayList<>(), null);
+            }
+            spec = spec.and(DemandaSpecifications.instituicaoEm(instituicoes));
+        }
+
+        DemandaCursor posicao = (cursor == null || cursor.isEmpty())
+                ? DemandaCursor.inicio(porPrazo)
+                : DemandaCursor.decodificar(cursor, porPrazo);
+
+        // Busca uma linha a mais para saber se existe próxima página
+        List<DemandaResumo> itens = new ArrayList<>();
+        if (posicao.getFase() == DemandaCursor.Fase.ID) {
+            itens.addAll(demandaRepository.buscarPaginaPorId(spec, posicao.getId(), tamanho + 1));
+        } else {
+            if (posicao.getFase() == DemandaCursor.Fase.PRAZO) {
+                itens.addAll(demandaRepository.buscarPaginaPorPrazo(
+                        spec, posicao.getPrazo(), posicao.getId(), tamanho + 1));
+            }
+            // Demandas sem prazo vêm depois de todas as datadas
+            if (itens.size() <= tamanho) {
+                long aposId = posicao.getFase() == DemandaCursor.Fase.SEM_PRAZO ? posicao.getId() : 0L;
+                itens.addAll(demandaRepository.buscarPaginaSemPrazo(spec, aposId, tamanho + 1 - itens.size()));
+            }
+        }
+
+        String proximo = null;
+        if (itens.size() > tamanho) {
+            itens = new ArrayList<>(itens.subList(0, tamanho));
+            proximo = DemandaCursor.apos(itens.get(tamanho - 1), porPrazo).codificar();
+        }
+        return new CursorPage<>(itens, proximo);
+    }
+
+    /**
+     * Contagens por categoria, urgência e status das demandas públicas,
+     * mantidas em memória (sem GROUP BY por requisição).
+     *
+     * @param instituicaoId Restringe à instituição; null para todas.
+     * @return As contagens por faceta.
+     */
+    public Facetas contarFacetas(Long instituicaoId) {
+        return facetas.contagens(instituicaoId);
+    }
+
     /**
      * UC1 - Buscar demanda (Filtro)
-     * Retorna demandas com base em um termo de busca no título.
+     * Retorna demandas cujo título, categoria ou descrição casam com o termo
+     * de busca, da mais para a menos relevante, usando o índice invertido em
+     * memória. Enquanto o índice ainda está sendo carregado, cai para a busca
+     * por título no banco.
      *
-     * @param titulo Termo de busca para o título.
+     * @param titulo Termo de busca.
      * @return Lista de demandas filtradas.
      */
     @Transactional(readOnly = true)
-    public List<Demanda> buscarDemandasPorTitulo(String titulo) {
-        return demandaRepository.findAllByTituloContainingIgnoreCase(titulo);
+    public List<DemandaResumo> buscarDemandasPorTitulo(String titulo) {
+        if (!indiceBusca.isPronto()) {
+            Specification<Demanda> spec = DemandaSpecifications.publicas()
+                    .and(DemandaSpecifications.tituloContem(titulo));
+            return demandaRepository.buscarPaginaPorId(spec, 0L, LIMITE_MAXIMO);
+        }
+
+        List<Long> ids = indiceBusca.buscar(titulo, LIMITE_MAXIMO);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Carrega os resumos em uma única consulta e mantém a ordem de relevância
+        Map<Long, DemandaResumo> porId = new HashMap<>();
+        for (DemandaResumo demanda : demandaRepository.listarResumosPorIds(ids)) {
+            porId.put(demanda.getId(), demanda);
+        }
+        List<DemandaResumo> resultado = new ArrayList<>();
+        for (Long id : ids) {
+            DemandaResumo demanda = porId.get(id);
+            if (demanda != null && !"Inativo".equals(demanda.getStatus())) {
+                resultado.add(demanda);
+            }
+        }
+        return resultado;
     }
 
     /**
@@ -105,12 +255,9 @@ public class DemandaService {
      * @return Lista de demandas daquela instituição.
      */
     @Transactional(readOnly = true)
-    public List<Demanda> buscarDemandasPorInstituicao(Long instituicaoId) {
-        List<Demanda> todasDemandas = demandaRepository.findAllByInstituicaoId(instituicaoId);
-        // Filtrar demandas inativas (deletadas logicamente)
-        return todasDemandas.stream()
-                .filter(d -> !"Inativo".equals(d.getStatus()))
-                .collect(java.util.stream.Collectors.toList());
+    public List<DemandaResumo> buscarDemandasPorInstituicao(Long instituicaoId) {
+        // Demandas inativas (deletadas logicamente) são filtradas na consulta
+        return demandaRepository.listarResumosPorInstituicao(instituicaoId);
     }
 
     /**
@@ -138,7 +285,9 @@ public class DemandaService {
         demandaExistente.setMetaNumerica(dadosAtualizados.getMetaNumerica());
 
         // 3. Salva as alterações
-        return demandaRepository.save(demandaExistente);
+        Demanda salva = demandaRepository.save(demandaExistente);
+        eventPublisher.publishEvent(new DemandaAlteradaEvent(salva));
+        return salva;
     }
 
     /**
@@ -156,5 +305,6 @@ public class DemandaService {
         // Em vez de deletar, mudamos o status
         demanda.setStatus("Inativo"); // ou "Excluído"
         demandaRepository.save(demanda);
+        eventPublisher.publishEvent(new DemandaAlteradaEvent(demanda));
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.mackenzie.achadosdoados.service;
 
+import com.mackenzie.achadosdoados.dto.DoacaoResumo;
 import com.mackenzie.achadosdoados.model.Demanda;
 import com.mackenzie.achadosdoados.model.Doacao;
 import com.mackenzie.achadosdoados.model.Doador;
@@ -83,8 +84,8 @@ public class DoacaoService {
      * @return Lista de doações.
      */
     @Transactional(readOnly = true)
-    public List<Doacao> buscarDoacoesPorDoador(Long doadorId) {
-        return doacaoRepository.findAllByDoadorId(doadorId);
+    public List<DoacaoResumo> buscarDoacoesPorDoador(Long doadorId) {
+        return doacaoRepository.listarResumosPorDoador(doadorId);
     }
 
     /**
@@ -95,8 +96,8 @@ public class DoacaoService {
      * @return Lista de doações.
      */
     @Transactional(readOnly = true)
-    public List<Doacao> buscarDoacoesPorInstituicao(Long instituicaoId) {
-        return doacaoRepository.findAllByDemandaInstituicaoId(instituicaoId);
+    public List<DoacaoResumo> buscarDoacoesPorInstituicao(Long instituicaoId) {
+        return doacaoRepository.listarResumosPorInstituicao(instituicaoId);
     }
 
     /**
@@ -106,7 +107,7 @@ public class DoacaoService {
      * @return Lista de doações.
      */
     @Transactional(readOnly = true)
-    public List<Doacao> buscarDoacoesPorDemanda(Long demandaId) {
-        return doacaoRepository.findAllByDemandaId(demandaId);
+    public List<DoacaoResumo> buscarDoacoesPorDemanda(Long demandaId) {
+        return doacaoRepository.listarResumosPorDemanda(demandaId);
     }
 }
\ No newline at end of file
@@ -1,12 +1,16 @@
 package com.mackenzie.achadosdoados.service;
 
 import com.mackenzie.achadosdoados.model.Doador;
+import com.mackenzie.achadosdoados.model.Usuario;
 import com.mackenzie.achadosdoados.repository.DoadorRepository;
 import com.mackenzie.achadosdoados.repository.UsuarioRepository;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Optional;
+
 /**
  * Classe de serviço para gerenciar a lógica de negócio do Doador.
  * Implementa o Caso de Uso 2 - Cadastrar Usuário.
@@ -14,33 +18,93 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class DoadorService {
 
+    private static final String EMAIL_EXISTENTE = "Usuário já existente. Já existe conta com o e-mail informado.";
+
     private final DoadorRepository doadorRepository;
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
+    private final GeocodificadorCep geocodificador;
+    private final FiltroEmails filtroEmails;
 
     public DoadorService(DoadorRepository doadorRepository,
                          UsuarioRepository usuarioRepository,
-                         PasswordEncoder passwordEncoder) {
+                         PasswordEncoder passwordEncoder,
+                         GeocodificadorCep geocodificador,
+                         FiltroEmails filtroEmails) {
         this.doadorRepository = doadorRepository;
         this.usuarioRepository = usuarioRepository;
         this.passwordEncoder = passwordEncoder;
+        this.geocodificador = geocodificador;
+        this.filtroEmails = filtroEmails;
     }
 
-    @Transactional
-    public Doador cadastrarDoador(Doador doador) {
+    /**
+     * Confere os campos obrigatórios do cadastro (também usado na importação).
+     *
+     * @throws RuntimeException se algum estiver ausente.
+     */
+    public static void validarObrigatorios(Doador doador) {
         if (doador.getNome() == null || doador.getNome().isEmpty() ||
             doador.getEmail() == null || doador.getEmail().isEmpty() ||
             doador.getSenha() == null || doador.getSenha().isEmpty()) {
             throw new RuntimeException("Dados inválidos ou ausentes. Campos obrigatórios não podem ser nulos.");
         }
+    }
+
+    @Transactional
+    public Doador cadastrarDoador(Doador doador) {
+        validarObrigatorios(doador);
 
-        if (usuarioRepository.findByEmail(doador.getEmail()).isPresent()) {
-            throw new RuntimeException("Usuário já existente. Já existe conta com o e-mail informado.");
+        // Consulta só se o filtro não descartar o e-mail; o índice único cobre o resto
+        doador.setEmail(Usuario.normalizarEmail(doador.getEmail()));
+        if (filtroEmails.podeExistir(doador.getEmail())
+                && usuarioRepository.findByEmail(doador.getEmail()).isPresent()) {
+            throw new RuntimeException(EMAIL_EXISTENTE);
         }
 
         String senhaCriptografada = passwordEncoder.encode(doador.getSenha());
         doador.setSenha(senhaCriptografada);
 
-        return doadorRepository.save(doador);
+        // Coordenadas pelo CEP (base local)
+        geocodificar(doador);
+
+        Doador salvo;
+        try {
+            salvo = doadorRepository.save(doador);
+            doadorRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if (FiltroEmails.isEmailDuplicado(e)) {
+                throw new RuntimeException(EMAIL_EXISTENTE);
+            }
+            throw e;
+        }
+        filtroEmails.adicionar(salvo.getEmail());
+        return salvo;
+    }
+
+    /**
+     * Preenche latitude/longitude (e cidade/UF, se vazias) a partir do CEP,
+     * quando o doador ainda não tem coordenadas.
+     *
+     * @return true se o doador foi geocodificado.
+     */
+    public boolean geocodificar(Doador doador) {
+        if (doador.getLatitude() != null && doador.getLongitude() != null) {
+            return false;
+        }
+        Optional<GeocodificadorCep.Localizacao> localizacao = geocodificador.localizar(doador.getCep());
+        if (!localizacao.isPresent()) {
+            return false;
+        }
+        GeocodificadorCep.Localizacao local = localizacao.get();
+        doador.setLatitude(local.getLatitude());
+        doador.setLongitude(local.getLongitude());
+        if (doador.getCidade() == null || doador.getCidade().isEmpty()) {
+            doador.setCidade(local.getCidade());
+        }
+        if (doador.getEstado() == null || doador.getEstado().isEmpty()) {
+            doador.setEstado(local.getUf());
+        }
+        return true;
     }
-}
\ No newline at end of file
+}
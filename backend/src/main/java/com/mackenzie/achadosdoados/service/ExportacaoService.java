@@ -0,0 +1,193 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mackenzie.achadosdoados.dto.DemandaExportacao;
+import com.mackenzie.achadosdoados.dto.DoacaoResumo;
+import com.mackenzie.achadosdoados.repository.DemandaRepository;
+import com.mackenzie.achadosdoados.repository.DoacaoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Exportação do histórico de uma instituição (demandas e doações) em
+ * NDJSON ou CSV.
+ *
+ * As linhas vêm de Streams do repositório (cursor do banco com fetch size)
+ * e são escritas uma a uma na saída, sem montar a lista em memória: o
+ * consumo de memória não depende do tamanho do histórico.
+ */
+@Service
+public class ExportacaoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportacaoService.class);
+
+    private static final int TAMANHO_BUFFER = 8192;
+
+    /**
+     * Formatos de exportação suportados.
+     */
+    public enum Formato {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv;charset=UTF-8", "csv");
+
+        private final String contentType;
+        private final String extensao;
+
+        Formato(String contentType, String extensao) {
+            this.contentType = contentType;
+            this.extensao = extensao;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtensao() {
+            return extensao;
+        }
+
+        /**
+         * @throws RuntimeException se o formato não for suportado.
+         */
+        public static Formato de(String valor) {
+            for (Formato formato : values()) {
+                if (formato.extensao.equalsIgnoreCase(valor)) {
+                    return formato;
+                }
+            }
+            throw new RuntimeException("Formato de exportação inválido. Use 'ndjson' ou 'csv'.");
+        }
+    }
+
+    private static final String[] COLUNAS_DEMANDAS = {"id", "titulo", "categoria", "descricao",
+            "quantidadeDescricao", "status", "nivelUrgencia", "prazoDesejado", "metaNumerica"};
+
+    private static final String[] COLUNAS_DOACOES = {"id", "data", "status", "doadorId", "doadorNome",
+            "doadorEmail", "demandaId", "demandaTitulo"};
+
+    private final DemandaRepository demandaRepository;
+    private final DoacaoRepository doacaoRepository;
+    private final ObjectWriter json;
+
+    public ExportacaoService(DemandaRepository demandaRepository,
+                             DoacaoRepository doacaoRepository,
+                             ObjectMapper objectMapper) {
+        this.demandaRepository = demandaRepository;
+        this.doacaoRepository = doacaoRepository;
+        // Datas em ISO-8601 e sem flush a cada linha (a saída já é bufferizada)
+        this.json = objectMapper.writer()
+                .without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Escreve todas as demandas da instituição, inclusive as inativas.
+     *
+     * @param instituicaoId O ID da instituição.
+     * @param formato       NDJSON ou CSV.
+     * @param saida         Destino (não é fechado).
+     * @return Número de linhas exportadas.
+     */
+    @Transactional(readOnly = true)
+    public long exportarDemandas(Long instituicaoId, Formato formato, OutputStream saida) throws IOException {
+        try (Stream<DemandaExportacao> linhas = demandaRepository.exportarPorInstituicao(instituicaoId)) {
+            long total = escrever(linhas.iterator(), formato, saida, COLUNAS_DEMANDAS, d -> new Object[]{
+                    d.getId(), d.getTitulo(), d.getCategoria(), d.getDescricao(), d.getQuantidadeDescricao(),
+                    d.getStatus(), d.getNivelUrgencia(), d.getPrazoDesejado(), d.getMetaNumerica()});
+            logger.info("Exportadas {} demandas da instituição {} em {}", total, instituicaoId, formato);
+            return total;
+        }
+    }
+
+    /**
+     * Escreve todas as doações recebidas pela instituição.
+     *
+     * @param instituicaoId O ID da instituição.
+     * @param formato       NDJSON ou CSV.
+     * @param saida         Destino (não é fechado).
+     * @return Número de linhas exportadas.
+     */
+    @Transactional(readOnly = true)
+    public long exportarDoacoes(Long instituicaoId, Formato formato, OutputStream saida) throws IOException {
+        try (Stream<DoacaoResumo> linhas = doacaoRepository.exportarPorInstituicao(instituicaoId)) {
+            long total = escrever(linhas.iterator(), formato, saida, COLUNAS_DOACOES, d -> new Object[]{
+                    d.getId(), d.getData(), d.getStatus(),
+                    d.getDoador().getId(), d.getDoador().getNome(), d.getDoador().getEmail(),
+                    d.getDemanda().getId(), d.getDemanda().getTitulo()});
+            logger.info("Exportadas {} doações da instituição {} em {}", total, instituicaoId, formato);
+            return total;
+        }
+    }
+
+    private <T> long escrever(Iterator<T> linhas, Formato formato, OutputStream saida,
+                              String[] colunas, Function<T, Object[]> valores) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), TAMANHO_BUFFER);
+        long total = 0;
+        if (formato == Formato.NDJSON) {
+            JsonGenerator gerador = json.getFactory().createGenerator(writer);
+            gerador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gerador.setRootValueSeparator(new SerializedString("\n"));
+            while (linhas.hasNext()) {
+                json.writeValue(gerador, linhas.next());
+                total++;
+            }
+            if (total > 0) {
+                gerador.writeRaw('\n');
+            }
+            gerador.flush();
+        } else {
+            escreverLinhaCsv(writer, colunas);
+            while (linhas.hasNext()) {
+                escreverLinhaCsv(writer, valores.apply(linhas.next()));
+                total++;
+            }
+        }
+        writer.flush();
+        return total;
+    }
+
+    private static void escreverLinhaCsv(Writer writer, Object[] valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(campoCsv(valores[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Formata um campo conforme a RFC 4180. Textos que começam com =, +, - ou @
+     * ganham um apóstrofo para não serem interpretados como fórmula em planilhas.
+     */
+    static String campoCsv(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        String texto = valor.toString();
+        if (valor instanceof String && !texto.isEmpty() && "=+-@".indexOf(texto.charAt(0)) >= 0) {
+            texto = "'" + texto;
+        }
+        if (texto.indexOf(',') >= 0 || texto.indexOf('"') >= 0
+                || texto.indexOf('\n') >= 0 || texto.indexOf('\r') >= 0) {
+            return '"' + texto.replace("\"", "\"\"") + '"';
+        }
+        return texto;
+    }
+}
@@ -0,0 +1,220 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.dto.Facetas;
+import com.mackenzie.achadosdoados.event.DemandaAlteradaEvent;
+import com.mackenzie.achadosdoados.model.Demanda;
+import com.mackenzie.achadosdoados.repository.DemandaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Contagens por faceta (categoria, nível de urgência e status) das demandas
+ * públicas, no total e por instituição.
+ *
+ * As contagens são carregadas uma vez ao subir a aplicação e depois
+ * mantidas incrementalmente a cada DemandaAlteradaEvent confirmado, de modo
+ * que nenhuma requisição precise de um GROUP BY sobre a tabela inteira.
+ * As leituras devolvem instantâneos imutáveis, recalculados apenas quando
+ * há escrita. Demandas alteradas por evento durante a carga (inclusive as
+ * excluídas, que saem das entradas) ficam marcadas para que o lote lido
+ * antes do evento não as traga de volta.
+ */
+@Component
+public class FacetasDemandas {
+
+    private static final Logger logger = LoggerFactory.getLogger(FacetasDemandas.class);
+
+    private static final int TAMANHO_LOTE_CARGA = 1000;
+
+    /** Valores de faceta de uma demanda pública. */
+    private static final class Entrada {
+        final Long instituicaoId;
+        final String categoria;
+        final String nivelUrgencia;
+        final String status;
+
+        Entrada(Long instituicaoId, String categoria, String nivelUrgencia, String status) {
+            this.instituicaoId = instituicaoId;
+            this.categoria = categoria;
+            this.nivelUrgencia = nivelUrgencia;
+            this.status = status;
+        }
+    }
+
+    /** Contadores mutáveis de um escopo (global ou de uma instituição). */
+    private static final class Contadores {
+        long total;
+        final Map<String, Long> categoria = new HashMap<>();
+        final Map<String, Long> nivelUrgencia = new HashMap<>();
+        final Map<String, Long> status = new HashMap<>();
+
+        void aplicar(Entrada entrada, long delta) {
+            total += delta;
+            somar(categoria, entrada.categoria, delta);
+            somar(nivelUrgencia, entrada.nivelUrgencia, delta);
+            somar(status, entrada.status, delta);
+        }
+
+        Facetas instantaneo() {
+            return new Facetas(total, new TreeMap<>(categoria), new TreeMap<>(nivelUrgencia), new TreeMap<>(status));
+        }
+
+        private static void somar(Map<String, Long> contagens, String valor, long delta) {
+            if (valor == null) {
+                return;
+            }
+            contagens.merge(valor, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    private final DemandaRepository demandaRepository;
+
+    // Estado mutável protegido pelo monitor deste objeto
+    private final Map<Long, Entrada> entradas = new HashMap<>();
+    private final Contadores global = new Contadores();
+    private final Map<Long, Contadores> porInstituicao = new HashMap<>();
+    private final Set<Long> alteradasDuranteCarga = new HashSet<>();
+    private boolean carregando = false;
+
+    // Instantâneos publicados para leitura sem bloqueio
+    private volatile Facetas facetasGlobais = Facetas.VAZIAS;
+    private final Map<Long, Facetas> facetasPorInstituicao = new ConcurrentHashMap<>();
+
+    public FacetasDemandas(DemandaRepository demandaRepository) {
+        this.demandaRepository = demandaRepository;
+    }
+
+    /**
+     * Carrega as contagens a partir de uma projeção leve, em lotes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        synchronized (this) {
+            carregando = true;
+        }
+        long aposId = 0L;
+        int total = 0;
+        List<Object[]> lote;
+        do {
+            lote = demandaRepository.buscarFacetasAposId(aposId, PageRequest.of(0, TAMANHO_LOTE_CARGA));
+            synchronized (this) {
+                for (Object[] linha : lote) {
+                    Long id = (Long) linha[0];
+                    // Um evento confirmado durante a carga é mais recente que a leitura
+                    if (!alteradasDuranteCarga.contains(id)) {
+                        aplicar(id, new Entrada((Long) linha[1], (String) linha[2], (String) linha[3], (String) linha[4]));
+                    }
+                    aposId = id;
+                }
+            }
+            total += lote.size();
+        } while (lote.size() == TAMANHO_LOTE_CARGA);
+
+        synchronized (this) {
+            carregando = false;
+            alteradasDuranteCarga.clear();
+            publicarTodos();
+        }
+
+        logger.info("Contagens por faceta carregadas com {} demandas", total);
+    }
+
+    /**
+     * Atualiza as contagens depois que a alteração foi confirmada no banco.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDemandaAlterada(DemandaAlteradaEvent event) {
+        registrar(event.getDemanda());
+    }
+
+    /**
+     * Aplica o estado atual de uma demanda às contagens.
+     * Demandas inativas deixam de ser contadas.
+     *
+     * @param demanda A demanda alterada.
+     */
+    public synchronized void registrar(Demanda demanda) {
+        if (demanda == null || demanda.getId() == null) {
+            return;
+        }
+        if (carregando) {
+            alteradasDuranteCarga.add(demanda.getId());
+        }
+        Entrada nova = null;
+        if (!"Inativo".equals(demanda.getStatus())) {
+            Long instituicaoId = demanda.getInstituicao() != null ? demanda.getInstituicao().getId() : null;
+            nova = new Entrada(instituicaoId, demanda.getCategoria(), demanda.getNivelUrgencia(), demanda.getStatus());
+        }
+        Entrada anterior = aplicar(demanda.getId(), nova);
+
+        facetasGlobais = global.instantaneo();
+        publicar(anterior != null ? anterior.instituicaoId : null);
+        if (nova != null && (anterior == null || !Objects.equals(anterior.instituicaoId, nova.instituicaoId))) {
+            publicar(nova.instituicaoId);
+        }
+    }
+
+    /**
+     * Contagens das demandas públicas.
+     *
+     * @param instituicaoId Restringe às demandas da instituição; null para todas.
+     * @return Instantâneo imutável das contagens.
+     */
+    public Facetas contagens(Long instituicaoId) {
+        if (instituicaoId == null) {
+            return facetasGlobais;
+        }
+        return facetasPorInstituicao.getOrDefault(instituicaoId, Facetas.VAZIAS);
+    }
+
+    private Entrada aplicar(Long demandaId, Entrada nova) {
+        Entrada anterior = nova != null ? entradas.put(demandaId, nova) : entradas.remove(demandaId);
+        if (anterior != null) {
+            global.aplicar(anterior, -1);
+            contadores(anterior.instituicaoId).aplicar(anterior, -1);
+        }
+        if (nova != null) {
+            global.aplicar(nova, 1);
+            contadores(nova.instituicaoId).aplicar(nova, 1);
+        }
+        return anterior;
+    }
+
+    private Contadores contadores(Long instituicaoId) {
+        return porInstituicao.computeIfAbsent(instituicaoId, id -> new Contadores());
+    }
+
+    private void publicar(Long instituicaoId) {
+        if (instituicaoId == null) {
+            return;
+        }
+        Contadores contadores = porInstituicao.get(instituicaoId);
+        if (contadores == null || contadores.total == 0) {
+            porInstituicao.remove(instituicaoId);
+            facetasPorInstituicao.remove(instituicaoId);
+        } else {
+            facetasPorInstituicao.put(instituicaoId, contadores.instantaneo());
+        }
+    }
+
+    private void publicarTodos() {
+        facetasGlobais = global.instantaneo();
+        for (Long instituicaoId : porInstituicao.keySet().toArray(new Long[0])) {
+            publicar(instituicaoId);
+        }
+    }
+}
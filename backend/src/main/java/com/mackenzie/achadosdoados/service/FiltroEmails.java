@@ -0,0 +1,168 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.model.Usuario;
+import com.mackenzie.achadosdoados.repository.UsuarioRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom dos e-mails cadastrados (normalizados), para que o
+ * cadastro só consulte o banco quando o e-mail talvez já exista.
+ *
+ * "Não contém" é definitivo para os cadastros feitos por esta instância e
+ * os carregados ao subir; "talvez contenha" (inclusive falsos positivos,
+ * ~1% até 'cadastro.emails.capacidade' elementos) cai na consulta normal.
+ * Cadastros feitos em outras instâncias não entram no filtro: nesse caso,
+ * quem barra o e-mail repetido é o índice único, e a violação é traduzida
+ * para a mesma mensagem (ver isEmailDuplicado). Até o carregamento
+ * terminar, o filtro responde sempre "talvez".
+ */
+@Component
+public class FiltroEmails {
+
+    private static final Logger logger = LoggerFactory.getLogger(FiltroEmails.class);
+
+    static final double TAXA_FALSO_POSITIVO = 0.01;
+    private static final String VIOLACAO_UNICIDADE = "23505";
+
+    /**
+     * Restrições que barram e-mail repetido: o índice sem diferenciar caixa
+     * de schema-postgresql.sql e a chave única que o Hibernate gera (nome
+     * derivado da tabela e da coluna) para o unique = true de Usuario.email.
+     */
+    static final List<String> RESTRICOES_EMAIL = List.of("ux_usuarios_email_lower", "uk_kfsp0s1tflm1cwlj8idhqsad0");
+    private static final int LOTE = 1000;
+
+    private final UsuarioRepository usuarioRepository;
+    private final AtomicLongArray bits;
+    private final long totalBits;
+    private final int funcoes;
+    private volatile boolean pronto;
+
+    public FiltroEmails(UsuarioRepository usuarioRepository,
+                        @Value("${cadastro.emails.capacidade:100000}") int capacidade) {
+        this.usuarioRepository = usuarioRepository;
+        // m = -n ln p / (ln 2)^2 ; k = m/n ln 2
+        long m = (long) Math.ceil(-capacidade * Math.log(TAXA_FALSO_POSITIVO) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+        this.totalBits = bits.length() * 64L;
+        this.funcoes = Math.max(1, (int) Math.round((double) totalBits / capacidade * Math.log(2)));
+    }
+
+    /**
+     * Carrega os e-mails existentes ao subir a aplicação, em lotes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        // Desde o menor id: importações antigas gravaram contas com id <= 0
+        long aposId = Long.MIN_VALUE;
+        int total = 0;
+        List<Object[]> lote;
+        do {
+            lote = usuarioRepository.buscarEmailsAposId(aposId, PageRequest.of(0, LOTE));
+            for (Object[] linha : lote) {
+                aposId = (Long) linha[0];
+                adicionar((String) linha[1]);
+            }
+            total += lote.size();
+        } while (lote.size() == LOTE);
+        pronto = true;
+        logger.info("Filtro de e-mails carregado com {} usuários", total);
+    }
+
+    /**
+     * @return false se o e-mail certamente não foi cadastrado (nesta instância
+     * ou antes de ela subir); true se talvez tenha sido.
+     */
+    public boolean podeExistir(String email) {
+        if (!pronto) {
+            return true;
+        }
+        long h1 = hash(Usuario.normalizarEmail(email));
+        long h2 = misturar(h1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < funcoes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, totalBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void adicionar(String email) {
+        long h1 = hash(Usuario.normalizarEmail(email));
+        long h2 = misturar(h1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < funcoes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, totalBits);
+            long mascara = 1L << bit;
+            bits.getAndUpdate((int) (bit >>> 6), v -> v | mascara);
+        }
+    }
+
+    /**
+     * @return true se a violação de integridade veio de uma das restrições
+     * únicas de e-mail (RESTRICOES_EMAIL). O nome vem da exceção do Hibernate
+     * ou, nas gravações em lote via JDBC, da mensagem do SQLException com
+     * SQLState 23505; outras violações (NOT NULL, chaves estrangeiras, outros
+     * índices únicos) não são confundidas com e-mail repetido.
+     */
+    public static boolean isEmailDuplicado(DataIntegrityViolationException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException) {
+                String restricao = ((ConstraintViolationException) t).getConstraintName();
+                if (restricao != null) {
+                    return isRestricaoEmail(restricao);
+                }
+            } else if (t instanceof SQLException && VIOLACAO_UNICIDADE.equals(((SQLException) t).getSQLState())) {
+                return t.getMessage() != null && isRestricaoEmail(t.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRestricaoEmail(String texto) {
+        String minusculo = texto.toLowerCase(Locale.ROOT);
+        for (String restricao : RESTRICOES_EMAIL) {
+            if (minusculo.contains(restricao)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getFuncoes() {
+        return funcoes;
+    }
+
+    /** FNV-1a de 64 bits seguido de mistura, para espalhar e-mails parecidos. */
+    private static long hash(String texto) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < texto.length(); i++) {
+            h ^= texto.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return misturar(h);
+    }
+
+    /** Finalizador do MurmurHash3 (fmix64). */
+    private static long misturar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93e185a6c53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
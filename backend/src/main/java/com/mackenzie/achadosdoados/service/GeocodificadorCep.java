@@ -0,0 +1,348 @@
+package com.mackenzie.achadosdoados.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Geocodificação offline de CEP: CEP -> (latitude, longitude, cidade, UF),
+ * sem chamadas de rede.
+ *
+ * A base é um CSV local com as colunas cep, latitude, longitude, cidade, uf
+ * (separadas por vírgula ou ponto e vírgula; cabeçalho opcional). Ao subir,
+ * se o CSV for mais novo que o arquivo binário, ele é compilado para um
+ * arquivo ordenado por CEP com registros de tamanho fixo:
+ *
+ * <pre>
+ * cabeçalho  MAGICO, registros, localidades, 0          (4 x int)
+ * registros  cep, latitude, longitude, localidade        (4 x int; graus em milionésimos)
+ * deslocamentos das localidades                          ((localidades + 1) x int)
+ * nomes das localidades em UTF-8 ("cidade\tUF")
+ * </pre>
+ *
+ * O arquivo binário é mapeado em memória e cada consulta é uma busca
+ * binária sobre os registros; as localidades (alguns milhares) são lidas
+ * uma vez. Quando o CEP exato não está na base, usa-se o CEP vizinho do
+ * mesmo setor (cinco primeiros dígitos). Sem base configurada, o
+ * geocodificador fica indisponível e as consultas não encontram nada.
+ */
+@Component
+public class GeocodificadorCep {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeocodificadorCep.class);
+
+    static final int MAGICO = 0x43455031; // "CEP1"
+    private static final double MICROGRAUS = 1_000_000d;
+    private static final int TAMANHO_CABECALHO = 16;
+    private static final int TAMANHO_REGISTRO = 16;
+
+    /** Resultado da geocodificação de um CEP. */
+    public static final class Localizacao {
+        private final double latitude;
+        private final double longitude;
+        private final String cidade;
+        private final String uf;
+
+        Localizacao(double latitude, double longitude, String cidade, String uf) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cidade = cidade;
+            this.uf = uf;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public String getCidade() {
+            return cidade;
+        }
+
+        public String getUf() {
+            return uf;
+        }
+    }
+
+    private final MappedByteBuffer registros;
+    private final int quantidade;
+    private final String[] localidades;
+
+    public GeocodificadorCep(@Value("${geocodificacao.cep.csv:./data/ceps.csv}") String caminhoCsv,
+                             @Value("${geocodificacao.cep.arquivo:./data/ceps.bin}") String caminhoArquivo) {
+        Path csv = Paths.get(caminhoCsv);
+        Path arquivo = Paths.get(caminhoArquivo);
+        MappedByteBuffer mapeado = null;
+        String[] nomes = new String[0];
+        try {
+            if (Files.isRegularFile(csv) && (!Files.exists(arquivo)
+                    || Files.getLastModifiedTime(csv).compareTo(Files.getLastModifiedTime(arquivo)) > 0)) {
+                int compilados = compilar(csv, arquivo);
+                logger.info("Base de CEPs compilada: {} CEPs de {} em {}", compilados, csv, arquivo);
+            }
+            if (Files.isRegularFile(arquivo)) {
+                try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                    mapeado = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+                }
+                if (mapeado.getInt(0) != MAGICO) {
+                    throw new IOException("Arquivo de CEPs inválido: " + arquivo);
+                }
+                nomes = lerLocalidades(mapeado);
+            }
+        } catch (IOException e) {
+            // A aplicação funciona sem geocodificação; só não preenche coordenadas
+            logger.error("Não foi possível carregar a base de CEPs", e);
+            mapeado = null;
+            nomes = new String[0];
+        }
+        this.registros = mapeado;
+        this.quantidade = mapeado != null ? mapeado.getInt(4) : 0;
+        this.localidades = nomes;
+        if (mapeado == null) {
+            logger.warn("Base de CEPs não encontrada ({} / {}); geocodificação desativada", csv, arquivo);
+        }
+    }
+
+    /**
+     * @return true se há uma base de CEPs carregada.
+     */
+    public boolean isDisponivel() {
+        return quantidade > 0;
+    }
+
+    /**
+     * Localiza um CEP na base.
+     *
+     * @param cep CEP com ou sem máscara (ex.: "01302-907").
+     * @return A localização do CEP ou do vizinho mais próximo do mesmo
+     *         setor; vazio se o CEP for inválido ou não houver dados.
+     */
+    public Optional<Localizacao> localizar(String cep) {
+        int numero = normalizar(cep);
+        if (numero < 0 || quantidade == 0) {
+            return Optional.empty();
+        }
+        // Busca binária pelo último registro com CEP <= numero
+        int inicio = 0;
+        int fim = quantidade - 1;
+        int piso = -1;
+        while (inicio <= fim) {
+            int meio = (inicio + fim) >>> 1;
+            int valor = cepNaPosicao(meio);
+            if (valor == numero) {
+                return Optional.of(localizacaoNaPosicao(meio));
+            }
+            if (valor < numero) {
+                piso = meio;
+                inicio = meio + 1;
+            } else {
+                fim = meio - 1;
+            }
+        }
+        int setor = numero / 1000;
+        if (piso >= 0 && cepNaPosicao(piso) / 1000 == setor) {
+            return Optional.of(localizacaoNaPosicao(piso));
+        }
+        if (piso + 1 < quantidade && cepNaPosicao(piso + 1) / 1000 == setor) {
+            return Optional.of(localizacaoNaPosicao(piso + 1));
+        }
+        return Optional.empty();
+    }
+
+    private int cepNaPosicao(int indice) {
+        return registros.getInt(TAMANHO_CABECALHO + indice * TAMANHO_REGISTRO);
+    }
+
+    private Localizacao localizacaoNaPosicao(int indice) {
+        int base = TAMANHO_CABECALHO + indice * TAMANHO_REGISTRO;
+        String localidade = localidades[registros.getInt(base + 12)];
+        int separador = localidade.indexOf('\t');
+        return new Localizacao(registros.getInt(base + 4) / MICROGRAUS, registros.getInt(base + 8) / MICROGRAUS,
+                localidade.substring(0, separador), localidade.substring(separador + 1));
+    }
+
+    private static String[] lerLocalidades(ByteBuffer buffer) {
+        int registros = buffer.getInt(4);
+        int total = buffer.getInt(8);
+        int deslocamentos = TAMANHO_CABECALHO + registros * TAMANHO_REGISTRO;
+        int nomes = deslocamentos + (total + 1) * 4;
+        String[] localidades = new String[total];
+        for (int i = 0; i < total; i++) {
+            int de = buffer.getInt(deslocamentos + i * 4);
+            int ate = buffer.getInt(deslocamentos + (i + 1) * 4);
+            byte[] bytes = new byte[ate - de];
+            for (int b = 0; b < bytes.length; b++) {
+                bytes[b] = buffer.get(nomes + de + b);
+            }
+            localidades[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return localidades;
+    }
+
+    /**
+     * Compila o CSV para o formato binário ordenado. Linhas inválidas são
+     * ignoradas; para CEPs repetidos vale a primeira linha. O arquivo é
+     * escrito ao lado do destino e renomeado no final.
+     *
+     * @return Número de CEPs gravados.
+     */
+    static int compilar(Path csv, Path destino) throws IOException {
+        int[] ceps = new int[1024];
+        int[] latitudes = new int[1024];
+        int[] longitudes = new int[1024];
+        int[] localidadeDe = new int[1024];
+        Map<String, Integer> indiceLocalidades = new HashMap<>();
+        List<String> localidades = new ArrayList<>();
+        int linhas = 0;
+
+        try (BufferedReader leitor = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                String[] campos = linha.split("[,;]", -1);
+                if (campos.length < 5) {
+                    continue;
+                }
+                int cep = normalizar(semAspas(campos[0]));
+                double latitude;
+                double longitude;
+                try {
+                    latitude = Double.parseDouble(semAspas(campos[1]));
+                    longitude = Double.parseDouble(semAspas(campos[2]));
+                } catch (NumberFormatException e) {
+                    continue; // cabeçalho ou linha inválida
+                }
+                if (cep < 0 || !IndiceEspacialInstituicoes.coordenadasValidas(latitude, longitude)) {
+                    continue;
+                }
+                String localidade = semAspas(campos[3]) + "\t" + semAspas(campos[4]).toUpperCase();
+                Integer indice = indiceLocalidades.get(localidade);
+                if (indice == null) {
+                    indice = localidades.size();
+                    indiceLocalidades.put(localidade, indice);
+                    localidades.add(localidade);
+                }
+                if (linhas == ceps.length) {
+                    int novo = linhas * 2;
+                    ceps = Arrays.copyOf(ceps, novo);
+                    latitudes = Arrays.copyOf(latitudes, novo);
+                    longitudes = Arrays.copyOf(longitudes, novo);
+                    localidadeDe = Arrays.copyOf(localidadeDe, novo);
+                }
+                ceps[linhas] = cep;
+                latitudes[linhas] = (int) Math.round(latitude * MICROGRAUS);
+                longitudes[linhas] = (int) Math.round(longitude * MICROGRAUS);
+                localidadeDe[linhas] = indice;
+                linhas++;
+            }
+        }
+
+        // Ordena por (cep, linha) num único long[]: sem objetos por registro
+        long[] ordem = new long[linhas];
+        for (int i = 0; i < linhas; i++) {
+            ordem[i] = ((long) ceps[i] << 32) | i;
+        }
+        Arrays.sort(ordem);
+        int unicos = 0;
+        for (int i = 0; i < linhas; i++) {
+            if (i == 0 || (ordem[i] >>> 32) != (ordem[i - 1] >>> 32)) {
+                ordem[unicos++] = ordem[i];
+            }
+        }
+
+        Path diretorio = destino.toAbsolutePath().getParent();
+        Files.createDirectories(diretorio);
+        Path temporario = Files.createTempFile(diretorio, "ceps", ".tmp");
+        try {
+            try (DataOutputStream saida = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporario)))) {
+                saida.writeInt(MAGICO);
+                saida.writeInt(unicos);
+                saida.writeInt(localidades.size());
+                saida.writeInt(0);
+                for (int i = 0; i < unicos; i++) {
+                    int linha = (int) ordem[i];
+                    saida.writeInt(ceps[linha]);
+                    saida.writeInt(latitudes[linha]);
+                    saida.writeInt(longitudes[linha]);
+                    saida.writeInt(localidadeDe[linha]);
+                }
+                List<byte[]> nomes = new ArrayList<>();
+                int deslocamento = 0;
+                for (String localidade : localidades) {
+                    byte[] bytes = localidade.getBytes(StandardCharsets.UTF_8);
+                    nomes.add(bytes);
+                    saida.writeInt(deslocamento);
+                    deslocamento += bytes.length;
+                }
+                saida.writeInt(deslocamento);
+                for (byte[] bytes : nomes) {
+                    saida.write(bytes);
+                }
+            }
+            try {
+                Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+        return unicos;
+    }
+
+    /**
+     * @return O CEP como número de 8 dígitos, ou -1 se inválido.
+     */
+    static int normalizar(String cep) {
+        if (cep == null) {
+            return -1;
+        }
+        int numero = 0;
+        int digitos = 0;
+        for (int i = 0; i < cep.length(); i++) {
+            char c = cep.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digitos > 8) {
+                    return -1;
+                }
+                numero = numero * 10 + (c - '0');
+            } else if (c != '-' && c != '.' && c != ' ') {
+                return -1;
+            }
+        }
+        return digitos == 8 ? numero : -1;
+    }
+
+    private static String semAspas(String campo) {
+        String valor = campo.trim();
+        if (valor.length() >= 2 && valor.startsWith("\"") && valor.endsWith("\"")) {
+            valor = valor.substring(1, valor.length() - 1).trim();
+        }
+        return valor;
+    }
+}
@@ -1,24 +1,100 @@
 package com.mackenzie.achadosdoados.service;
 
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
 import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
- * Serviço para armazenar e recuperar imagens no sistema de arquivos.
+ * Serviço para armazenar e recuperar imagens. Os arquivos ficam no
+ * ArmazenamentoImagens configurado (disco local ou bucket S3), sempre com
+ * uma cópia em 'imagens.diretorio', que é de onde são servidos.
+ *
+ * O nome de cada imagem é o SHA-256 do conteúdo (calculado enquanto o
+ * upload é gravado) mais a extensão do formato detectado pelos bytes
+ * iniciais, e o arquivo fica em dois níveis de subdiretórios pelos
+ * primeiros caracteres do hash ("ab/cd/abcd….jpg"), para que nenhum
+ * diretório acumule todos os arquivos. Fotos iguais viram
+ * um único arquivo; a contagem de referências é a das instituições com
+ * aquela fotoUrl, e o arquivo só é apagado quando ela chega a zero.
+ * Imagens antigas, com nome UUID, continuam na raiz do diretório.
+ *
+ * Cada upload ganha variantes redimensionadas, geradas em segundo plano
+ * (ver VariantesImagem), e um placeholder minúsculo gravado na instituição.
+ * As imagens pequenas mais lidas ficam também em memória (ver CacheImagens).
  */
 @Service
 public class ImageStorageService {
 
-    private final Path rootLocation = Paths.get("data/images");
+    private static final Logger logger = LoggerFactory.getLogger(ImageStorageService.class);
 
-    public ImageStorageService() {
+    /** Prefixo das URLs gravadas em Instituicao.fotoUrl. */
+    public static final String URL_PREFIXO = "/api/images/";
+
+    private static final Pattern NOME_POR_CONTEUDO = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]{1,5})?");
+    /** Buffer de leitura/gravação do upload: a memória por upload não depende do tamanho. */
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path rootLocation;
+    private final VariantesImagem variantes;
+    private final ArmazenamentoImagens armazenamento;
+    private final CacheImagens cache;
+    private final InstituicaoRepository instituicaoRepository;
+    /**
+     * Imagens gravadas (ou reaproveitadas, ver store) há menos que isso não
+     * são apagadas: a fotoUrl de quem as enviou talvez ainda não tenha sido
+     * gravada. Vale para todas as instâncias, pois usa a data da imagem no
+     * armazenamento. Se a gravação falhar, o arquivo fica órfão até a coleta.
+     */
+    private final Duration protecaoUpload;
+    private final Counter deduplicadas;
+    private final long limiteUpload;
+
+    public ImageStorageService(VariantesImagem variantes,
+                               ArmazenamentoImagens armazenamento,
+                               CacheImagens cache,
+                               InstituicaoRepository instituicaoRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${imagens.diretorio:data/images}") String diretorio,
+                               @Value("${imagens.protecao-upload:PT10M}") Duration protecaoUpload,
+                               @Value("${imagens.upload.limite:5MB}") DataSize limiteUpload) {
+        this.rootLocation = Paths.get(diretorio);
+        this.limiteUpload = limiteUpload.toBytes();
+        this.variantes = variantes;
+        this.armazenamento = armazenamento;
+        this.cache = cache;
+        this.instituicaoRepository = instituicaoRepository;
+        this.protecaoUpload = protecaoUpload;
+        this.deduplicadas = Counter.builder("imagens.deduplicadas")
+                .description("Uploads cujo conteúdo já estava armazenado")
+                .register(meterRegistry);
         try {
             Files.createDirectories(rootLocation);
         } catch (IOException e) {
@@ -27,64 +103,332 @@ public class ImageStorageService {
     }
 
     /**
-     * Salva uma imagem no sistema de arquivos.
-     * 
+     * Salva uma imagem enviada como multipart. Se já existir uma imagem com
+     * o mesmo conteúdo, ela é reaproveitada.
+     *
      * @param file Arquivo enviado
-     * @return Nome do arquivo salvo (UUID + extensão original)
+     * @return Nome do arquivo salvo (SHA-256 + extensão do formato detectado)
+     * @throws ImagemRecusadaException se o arquivo for vazio, grande demais
+     *         ou não for JPEG, PNG, GIF ou WebP.
      */
     public String store(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new ImagemRecusadaException("Arquivo vazio", false);
+        }
+        try (InputStream entrada = file.getInputStream()) {
+            return store(Channels.newChannel(entrada), file.getSize());
+        } catch (IOException e) {
+            throw new RuntimeException("Falha ao salvar arquivo", e);
+        }
+    }
+
+    /**
+     * Salva uma imagem lida de um canal (ex.: o corpo da requisição), numa
+     * única passada com buffer de tamanho fixo: o limite de bytes é conferido
+     * durante a leitura, o formato é detectado pelos bytes iniciais e o hash
+     * é calculado junto com a gravação. O arquivo temporário fica no mesmo
+     * diretório raiz, e o rename para o destino local é atômico.
+     *
+     * @param entrada           Conteúdo da imagem
+     * @param tamanhoDeclarado  Tamanho informado pelo cliente, ou -1 se desconhecido
+     * @return Nome do arquivo salvo (SHA-256 + extensão do formato detectado)
+     * @throws ImagemRecusadaException se o conteúdo for vazio, passar do
+     *         limite ou não for JPEG, PNG, GIF ou WebP.
+     */
+    public String store(ReadableByteChannel entrada, long tamanhoDeclarado) throws IOException {
+        if (tamanhoDeclarado > limiteUpload) {
+            throw muitoGrande();
+        }
+        Path temporario = rootLocation.resolve(".upload-" + UUID.randomUUID() + ".tmp");
         try {
-            if (file.isEmpty()) {
-                throw new RuntimeException("Arquivo vazio");
+            MessageDigest sha256 = novoSha256();
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_BUFFER);
+            String extension = null;
+            long total = 0;
+            try (FileChannel saida = FileChannel.open(temporario,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                boolean fim = false;
+                while (!fim) {
+                    while (buffer.hasRemaining()) {
+                        if (entrada.read(buffer) < 0) {
+                            fim = true;
+                            break;
+                        }
+                    }
+                    total += buffer.position();
+                    if (total > limiteUpload) {
+                        throw muitoGrande();
+                    }
+                    buffer.flip();
+                    if (extension == null) {
+                        if (!buffer.hasRemaining()) {
+                            throw new ImagemRecusadaException("Arquivo vazio", false);
+                        }
+                        extension = detectarExtensao(buffer);
+                    }
+                    sha256.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        saida.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                saida.force(false);
             }
 
-            // Gerar nome único
-            String originalFilename = file.getOriginalFilename();
-            String extension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            }
-            String filename = UUID.randomUUID().toString() + extension;
-
-            // Salvar arquivo
-            Path destinationFile = rootLocation.resolve(filename).normalize().toAbsolutePath();
-            
-            // Validar que o arquivo está dentro do diretório permitido
-            if (!destinationFile.getParent().equals(rootLocation.toAbsolutePath())) {
-                throw new RuntimeException("Não é possível salvar arquivo fora do diretório permitido");
+            String filename = hex(sha256.digest()) + extension;
+            String chave = chave(filename);
+
+            // Reaproveitada: renovar a data a protege como um upload novo
+            if (renovar(chave)) {
+                deduplicadas.increment();
+            } else {
+                armazenamento.gravar(chave, temporario);
+                Path original = armazenamento.caminhoLocal(chave);
+                variantes.gerarEmSegundoPlano(original, () -> publicarVariantes(chave, original));
             }
+            // A foto nova costuma ser vista logo em seguida (perfil, listagens)
+            cache.buscar(armazenamento.caminhoLocal(chave));
 
-            Files.copy(file.getInputStream(), destinationFile, StandardCopyOption.REPLACE_EXISTING);
-            
             return filename;
-        } catch (IOException e) {
-            throw new RuntimeException("Falha ao salvar arquivo", e);
+        } finally {
+            try {
+                Files.deleteIfExists(temporario);
+            } catch (IOException e) {
+                logger.warn("Não foi possível remover {}: {}", temporario, e.getMessage());
+            }
         }
     }
 
     /**
-     * Carrega um arquivo de imagem.
-     * 
+     * Carrega um arquivo de imagem, trazendo-o do armazenamento para o disco
+     * local se preciso.
+     *
      * @param filename Nome do arquivo
-     * @return Path do arquivo
+     * @return Path local do arquivo (no subdiretório do hash, ou na raiz para
+     *         nomes antigos); o arquivo não existe se a imagem não existir.
      */
     public Path load(String filename) {
-        return rootLocation.resolve(filename);
+        return armazenamento.abrir(chave(filename));
+    }
+
+    /**
+     * Carrega a variante de uma imagem no tamanho pedido. Enquanto ela não
+     * tiver sido gerada (ou se o formato não permitir), devolve o original.
+     *
+     * @param filename Nome do arquivo original
+     * @param tamanho  "thumb", "card", "full" ou null para o original
+     * @return Path da variante ou do original
+     */
+    public Path load(String filename, String tamanho) {
+        VariantesImagem.Tamanho variante = VariantesImagem.Tamanho.de(tamanho);
+        if (variante == null) {
+            return load(filename);
+        }
+        Path arquivo = armazenamento.abrir(chave(VariantesImagem.nome(filename, variante)));
+        return Files.exists(arquivo) ? arquivo : load(filename);
+    }
+
+    /**
+     * Placeholder de uma imagem recém-enviada (ver VariantesImagem.placeholder),
+     * para ser gravado junto com a fotoUrl.
+     *
+     * @param filename Nome devolvido por store
+     * @return Data URI, ou null se o formato não permitir
+     */
+    public String placeholder(String filename) {
+        return variantes.placeholder(load(filename));
     }
 
     /**
-     * Deleta uma imagem se ela existir.
-     * 
+     * Conteúdo de uma imagem (original ou variante) pelo cache em memória,
+     * carregando o arquivo se necessário.
+     *
+     * @param file Path devolvido por load
+     * @return A imagem, ou null se ela não couber no cache ou não existir
+     */
+    public CacheImagens.Imagem loadCached(Path file) {
+        return cache.buscar(file);
+    }
+
+    /**
+     * Deleta uma imagem se ela existir, nenhuma instituição a usar mais e
+     * ela não tiver sido gravada nem reaproveitada há menos de
+     * 'imagens.protecao-upload'. Deve ser chamado depois de gravada a nova
+     * fotoUrl. Se a remoção
+     * falhar, o arquivo fica para a coleta de órfãs (ColetaImagensOrfas).
+     *
      * @param filename Nome do arquivo
+     * @return true se a imagem e as variantes foram removidas
      */
-    public void delete(String filename) {
+    public boolean delete(String filename) {
+        if (filename == null || filename.isEmpty()) {
+            return false;
+        }
+        if (enviadaRecentemente(chave(filename))
+                || instituicaoRepository.countByFotoUrl(URL_PREFIXO + filename) > 0) {
+            logger.debug("Imagem {} ainda referenciada; mantida", filename);
+            return false;
+        }
         try {
-            if (filename != null && !filename.isEmpty()) {
-                Path file = load(filename);
-                Files.deleteIfExists(file);
+            apagar(chave(filename));
+            for (VariantesImagem.Tamanho tamanho : VariantesImagem.Tamanho.values()) {
+                apagar(chave(VariantesImagem.nome(filename, tamanho)));
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("Falha ao remover {}: {}", filename, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Gera, ao subir, as variantes das imagens enviadas antes delas existirem
+     * (ou cuja geração foi descartada com a fila cheia). Roda numa única
+     * tarefa do pool de variantes, uma imagem por vez.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void gerarVariantesPendentes() {
+        variantes.executar(() -> {
+            int geradas = 0;
+            // Raiz (nomes antigos) e os dois níveis de subdiretórios
+            try (Stream<Path> arquivos = Files.walk(rootLocation, 3)) {
+                Iterator<Path> it = arquivos.filter(Files::isRegularFile).iterator();
+                while (it.hasNext()) {
+                    Path arquivo = it.next();
+                    String nome = arquivo.getFileName().toString();
+                    // Ocultos: temporários de upload e diretórios do armazenamento
+                    if (rootLocation.relativize(arquivo).toString().startsWith(".")
+                            || VariantesImagem.isVariante(nome) || nome.endsWith(".tmp")
+                            || Files.exists(VariantesImagem.caminho(arquivo, VariantesImagem.Tamanho.THUMB))) {
+                        continue;
+                    }
+                    if (variantes.gerar(arquivo)) {
+                        publicarVariantes(chave(nome), arquivo);
+                        geradas++;
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Falha ao listar {}: {}", rootLocation, e.getMessage());
+            }
+            if (geradas > 0) {
+                logger.info("Variantes geradas para {} imagens existentes", geradas);
+            }
+        });
+    }
+
+    /**
+     * Chave da imagem no armazenamento: "ab/cd/<nome>" para nomes pelo
+     * conteúdo (a variante fica no diretório do original) e só o nome para
+     * os antigos.
+     */
+    static String chave(String filename) {
+        String base = filename;
+        int ponto = base.indexOf('.');
+        if (ponto > 0) {
+            base = base.substring(0, ponto);
+        }
+        if (NOME_POR_CONTEUDO.matcher(base).matches()) {
+            return filename.substring(0, 2) + "/" + filename.substring(2, 4) + "/" + filename;
+        }
+        return filename;
+    }
+
+    /**
+     * Publica no armazenamento as variantes geradas ao lado do original.
+     */
+    private void publicarVariantes(String chave, Path original) {
+        String diretorio = chave.substring(0, chave.lastIndexOf('/') + 1);
+        for (VariantesImagem.Tamanho tamanho : VariantesImagem.Tamanho.values()) {
+            Path variante = VariantesImagem.caminho(original, tamanho);
+            try {
+                armazenamento.gravar(diretorio + variante.getFileName(), variante);
+            } catch (IOException e) {
+                logger.warn("Falha ao publicar {}: {}", variante.getFileName(), e.getMessage());
             }
+        }
+    }
+
+    /**
+     * Renova a data da imagem, se ela já existir. Na falha, trata como
+     * inexistente: com a chave pelo conteúdo, gravar de novo é inofensivo.
+     */
+    private boolean renovar(String chave) {
+        try {
+            return armazenamento.tocar(chave);
         } catch (IOException e) {
-            // Ignora erro de deleção
+            logger.warn("Falha ao renovar {}: {}", chave, e.getMessage());
+            return false;
+        }
+    }
+
+    /** Dentro de 'imagens.protecao-upload' (na dúvida, sim). */
+    private boolean enviadaRecentemente(String chave) {
+        try {
+            Instant modificada = armazenamento.modificadaEm(chave);
+            return modificada != null && modificada.isAfter(Instant.now().minus(protecaoUpload));
+        } catch (IOException e) {
+            logger.warn("Falha ao consultar {}: {}", chave, e.getMessage());
+            return true;
+        }
+    }
+
+    private void apagar(String chave) throws IOException {
+        cache.invalidar(armazenamento.caminhoLocal(chave));
+        armazenamento.apagar(chave);
+    }
+
+    /**
+     * Formato pelos bytes iniciais (não pelo nome ou Content-Type informados).
+     */
+    static String detectarExtensao(ByteBuffer inicio) {
+        if (comeca(inicio, 0xFF, 0xD8, 0xFF)) {
+            return ".jpg";
+        }
+        if (comeca(inicio, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return ".png";
+        }
+        if (comeca(inicio, 'G', 'I', 'F', '8')) {
+            return ".gif";
+        }
+        if (comeca(inicio, 'R', 'I', 'F', 'F') && inicio.remaining() >= 12
+                && inicio.get(inicio.position() + 8) == 'W' && inicio.get(inicio.position() + 9) == 'E'
+                && inicio.get(inicio.position() + 10) == 'B' && inicio.get(inicio.position() + 11) == 'P') {
+            return ".webp";
+        }
+        throw new ImagemRecusadaException("Apenas imagens JPEG, PNG, GIF ou WebP são permitidas", false);
+    }
+
+    private static boolean comeca(ByteBuffer buffer, int... assinatura) {
+        if (buffer.remaining() < assinatura.length) {
+            return false;
+        }
+        for (int i = 0; i < assinatura.length; i++) {
+            if ((buffer.get(buffer.position() + i) & 0xFF) != assinatura[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ImagemRecusadaException muitoGrande() {
+        return new ImagemRecusadaException("A imagem deve ter no máximo "
+                + DataSize.ofBytes(limiteUpload).toMegabytes() + "MB", true);
+    }
+
+    private static MessageDigest novoSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] saida = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            saida[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            saida[2 * i + 1] = HEX[bytes[i] & 0xF];
         }
+        return new String(saida);
     }
 }
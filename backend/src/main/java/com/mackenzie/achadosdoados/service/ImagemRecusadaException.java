@@ -0,0 +1,20 @@
+package com.mackenzie.achadosdoados.service;
+
+/**
+ * Upload de imagem recusado: formato não reconhecido, arquivo vazio ou
+ * maior que o limite. O ImageController responde 400 (ou 413 quando
+ * muitoGrande) com a mensagem.
+ */
+public class ImagemRecusadaException extends RuntimeException {
+
+    private final boolean muitoGrande;
+
+    public ImagemRecusadaException(String message, boolean muitoGrande) {
+        super(message);
+        this.muitoGrande = muitoGrande;
+    }
+
+    public boolean isMuitoGrande() {
+        return muitoGrande;
+    }
+}
@@ -0,0 +1,323 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mackenzie.achadosdoados.dto.ResultadoImportacao;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import com.mackenzie.achadosdoados.model.Doador;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.model.Usuario;
+import com.mackenzie.achadosdoados.repository.CadastroLoteRepository;
+import com.mackenzie.achadosdoados.repository.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Importação em lote de instituições e doadores (cadastro de redes parceiras).
+ *
+ * Cada registro passa pelas mesmas validações do cadastro individual; os
+ * recusados (campos ausentes, e-mail repetido no arquivo ou já cadastrado)
+ * voltam no resultado com o número da linha, e os demais são criados.
+ * As senhas são codificadas em paralelo no pool do CodificadorSenhas e a
+ * gravação acontece numa única transação, em batches JDBC por tabela
+ * (ver CadastroLoteRepository).
+ * Se um e-mail for cadastrado por outra requisição durante a importação,
+ * o índice único recusa o lote inteiro e nada é gravado.
+ */
+@Service
+public class ImportacaoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacaoService.class);
+
+    /** Registros por batch de insert. */
+    static final int LOTE_GRAVACAO = 250;
+
+    /** E-mails por consulta de existência (limite da lista do IN). */
+    static final int LOTE_CONSULTA = 500;
+
+    public enum Tipo {
+        INSTITUICOES("instituicoes"),
+        DOADORES("doadores");
+
+        private final String caminho;
+
+        Tipo(String caminho) {
+            this.caminho = caminho;
+        }
+
+        /**
+         * @throws RuntimeException se o tipo não for suportado.
+         */
+        public static Tipo de(String valor) {
+            for (Tipo tipo : values()) {
+                if (tipo.caminho.equalsIgnoreCase(valor)) {
+                    return tipo;
+                }
+            }
+            throw new RuntimeException("Tipo de importação inválido. Use 'instituicoes' ou 'doadores'.");
+        }
+    }
+
+    private final CadastroLoteRepository cadastroLoteRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final InstituicaoService instituicaoService;
+    private final DoadorService doadorService;
+    private final CodificadorSenhas codificadorSenhas;
+    private final FiltroEmails filtroEmails;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transacao;
+    private final int maximoLinhas;
+
+    public ImportacaoService(CadastroLoteRepository cadastroLoteRepository,
+                             UsuarioRepository usuarioRepository,
+                             InstituicaoService instituicaoService,
+                             DoadorService doadorService,
+                             CodificadorSenhas codificadorSenhas,
+                             FiltroEmails filtroEmails,
+                             ApplicationEventPublisher eventPublisher,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${importacao.maximo-linhas:5000}") int maximoLinhas) {
+        this.cadastroLoteRepository = cadastroLoteRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.instituicaoService = instituicaoService;
+        this.doadorService = doadorService;
+        this.codificadorSenhas = codificadorSenhas;
+        this.filtroEmails = filtroEmails;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.maximoLinhas = maximoLinhas;
+    }
+
+    /**
+     * Importa registros em CSV (primeira linha com os nomes dos campos:
+     * nome, email, senha, telefone, endereco, numero, cep, cidade, estado...).
+     */
+    public ResultadoImportacao importarCsv(Tipo tipo, Reader csv) throws IOException {
+        return importar(tipo, lerCsv(csv));
+    }
+
+    /**
+     * Importa registros já lidos (JSON: lista de objetos com os campos do cadastro).
+     */
+    public ResultadoImportacao importar(Tipo tipo, List<Map<String, Object>> registros) {
+        if (registros.size() > maximoLinhas) {
+            throw new RuntimeException("Importação limitada a " + maximoLinhas + " registros por requisição.");
+        }
+        List<ResultadoImportacao.Erro> erros = new ArrayList<>();
+        List<Usuario> validos = new ArrayList<>();
+        List<Integer> linhas = new ArrayList<>();
+        Set<String> emailsNoArquivo = new HashSet<>();
+        for (int i = 0; i < registros.size(); i++) {
+            int linha = i + 1;
+            try {
+                Usuario usuario = converter(tipo, registros.get(i));
+                usuario.setEmail(Usuario.normalizarEmail(usuario.getEmail()));
+                if (!emailsNoArquivo.add(usuario.getEmail())) {
+                    erros.add(new ResultadoImportacao.Erro(linha, "E-mail repetido no arquivo."));
+                    continue;
+                }
+                validos.add(usuario);
+                linhas.add(linha);
+            } catch (RuntimeException e) {
+                erros.add(new ResultadoImportacao.Erro(linha, e.getMessage()));
+            }
+        }
+
+        // Descarta os e-mails que já têm conta (só consulta os que o filtro não descarta)
+        Set<String> existentes = emailsExistentes(validos);
+        List<Usuario> novos = new ArrayList<>();
+        for (int i = 0; i < validos.size(); i++) {
+            if (existentes.contains(validos.get(i).getEmail())) {
+                erros.add(new ResultadoImportacao.Erro(linhas.get(i), "Já existe conta com o e-mail informado."));
+            } else {
+                novos.add(validos.get(i));
+            }
+        }
+        erros.sort((a, b) -> Integer.compare(a.getLinha(), b.getLinha()));
+        if (novos.isEmpty()) {
+            return new ResultadoImportacao(0, erros);
+        }
+
+        List<String> hashes = codificadorSenhas.codificarTodos(
+                novos.stream().map(Usuario::getSenha).collect(Collectors.toList()));
+        for (int i = 0; i < novos.size(); i++) {
+            novos.get(i).setSenha(hashes.get(i));
+        }
+
+        try {
+            transacao.executeWithoutResult(status -> gravar(tipo, novos));
+        } catch (DataIntegrityViolationException e) {
+            if (FiltroEmails.isEmailDuplicado(e)) {
+                throw new RuntimeException("Um dos e-mails foi cadastrado durante a importação. "
+                        + "Nenhuma conta foi criada; envie o arquivo novamente.");
+            }
+            throw e;
+        }
+        for (Usuario usuario : novos) {
+            filtroEmails.adicionar(usuario.getEmail());
+        }
+        logger.info("Importação de {}: {} contas criadas, {} registros recusados", tipo, novos.size(), erros.size());
+        return new ResultadoImportacao(novos.size(), erros);
+    }
+
+    private Usuario converter(Tipo tipo, Map<String, Object> registro) {
+        Class<? extends Usuario> classe = tipo == Tipo.INSTITUICOES ? Instituicao.class : Doador.class;
+        Usuario usuario;
+        try {
+            usuario = objectMapper.convertValue(registro, classe);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Registro com campos em formato inválido.");
+        }
+        // Campos que a importação não define
+        usuario.setId(null);
+        if (usuario instanceof Instituicao) {
+            Instituicao instituicao = (Instituicao) usuario;
+            instituicao.setFotoUrl(null);
+            InstituicaoService.validarObrigatorios(instituicao);
+        } else {
+            DoadorService.validarObrigatorios((Doador) usuario);
+        }
+        return usuario;
+    }
+
+    private Set<String> emailsExistentes(List<Usuario> usuarios) {
+        List<String> talvez = usuarios.stream()
+                .map(Usuario::getEmail)
+                .filter(filtroEmails::podeExistir)
+                .collect(Collectors.toList());
+        Set<String> existentes = new HashSet<>();
+        for (int i = 0; i < talvez.size(); i += LOTE_CONSULTA) {
+            existentes.addAll(usuarioRepository.buscarEmailsExistentes(
+                    talvez.subList(i, Math.min(i + LOTE_CONSULTA, talvez.size()))));
+        }
+        return existentes;
+    }
+
+    private void gravar(Tipo tipo, List<Usuario> novos) {
+        for (int i = 0; i < novos.size(); i += LOTE_GRAVACAO) {
+            List<Usuario> lote = novos.subList(i, Math.min(i + LOTE_GRAVACAO, novos.size()));
+            if (tipo == Tipo.INSTITUICOES) {
+                List<Instituicao> instituicoes = new ArrayList<>(lote.size());
+                for (Usuario usuario : lote) {
+                    Instituicao instituicao = (Instituicao) usuario;
+                    instituicaoService.geocodificar(instituicao);
+                    instituicoes.add(instituicao);
+                }
+                cadastroLoteRepository.inserirInstituicoes(instituicoes);
+                instituicoes.forEach(salva -> eventPublisher.publishEvent(new InstituicaoAlteradaEvent(salva)));
+            } else {
+                List<Doador> doadores = new ArrayList<>(lote.size());
+                for (Usuario usuario : lote) {
+                    Doador doador = (Doador) usuario;
+                    doadorService.geocodificar(doador);
+                    doadores.add(doador);
+                }
+                cadastroLoteRepository.inserirDoadores(doadores);
+            }
+        }
+    }
+
+    /**
+     * Lê um CSV (RFC 4180: separador vírgula, campos entre aspas com "" para
+     * aspas literais e quebras de linha permitidas) em registros indexados
+     * pelos nomes do cabeçalho. Linhas vazias são ignoradas; campos vazios
+     * ficam de fora do registro.
+     */
+    static List<Map<String, Object>> lerCsv(Reader entrada) throws IOException {
+        BufferedReader leitor = new BufferedReader(entrada);
+        List<List<String>> linhas = new ArrayList<>();
+        List<String> atual = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreAspas = false;
+        boolean linhaVazia = true;
+        int c;
+        while ((c = leitor.read()) != -1) {
+            char ch = (char) c;
+            if (entreAspas) {
+                if (ch == '"') {
+                    leitor.mark(1);
+                    int proximo = leitor.read();
+                    if (proximo == '"') {
+                        campo.append('"');
+                    } else {
+                        entreAspas = false;
+                        if (proximo != -1) {
+                            leitor.reset();
+                        }
+                    }
+                } else {
+                    campo.append(ch);
+                }
+            } else if (ch == '"') {
+                entreAspas = true;
+                linhaVazia = false;
+            } else if (ch == ',') {
+                atual.add(campo.toString());
+                campo.setLength(0);
+                linhaVazia = false;
+            } else if (ch == '\n' || ch == '\r') {
+                if (ch == '\r') {
+                    leitor.mark(1);
+                    if (leitor.read() != '\n') {
+                        leitor.reset();
+                    }
+                }
+                if (!linhaVazia || campo.length() > 0) {
+                    atual.add(campo.toString());
+                    linhas.add(atual);
+                }
+                atual = new ArrayList<>();
+                campo.setLength(0);
+                linhaVazia = true;
+            } else {
+                campo.append(ch);
+                linhaVazia = false;
+            }
+        }
+        if (entreAspas) {
+            throw new RuntimeException("CSV inválido: aspas sem fechamento.");
+        }
+        if (!linhaVazia || campo.length() > 0) {
+            atual.add(campo.toString());
+            linhas.add(atual);
+        }
+        if (linhas.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<String> cabecalho = linhas.get(0).stream()
+                .map(nome -> nome.replace("\uFEFF", "").trim())
+                .collect(Collectors.toList());
+        List<Map<String, Object>> registros = new ArrayList<>(linhas.size() - 1);
+        for (List<String> valores : linhas.subList(1, linhas.size())) {
+            Map<String, Object> registro = new LinkedHashMap<>();
+            for (int i = 0; i < Math.min(cabecalho.size(), valores.size()); i++) {
+                String valor = valores.get(i).trim();
+                if (!valor.isEmpty()) {
+                    registro.put(cabecalho.get(i), valor);
+                }
+            }
+            registros.add(registro);
+        }
+        return registros;
+    }
+}
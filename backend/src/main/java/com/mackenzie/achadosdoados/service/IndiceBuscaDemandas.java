@@ -0,0 +1,400 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.event.DemandaAlteradaEvent;
+import com.mackenzie.achadosdoados.model.Demanda;
+import com.mackenzie.achadosdoados.repository.DemandaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido em memória sobre as demandas públicas (não inativas).
+ *
+ * Cada termo aponta para as demandas que o contêm (lista de postings), com a
+ * frequência ponderada pelo campo: título vale mais que categoria, que vale
+ * mais que descrição. Os termos passam por normalização para o português:
+ * minúsculas, remoção de acentos (calçado -> calcado) e redução de plurais
+ * (roupas -> roupa). A relevância é calculada com BM25.
+ *
+ * O índice é carregado ao subir a aplicação e atualizado incrementalmente
+ * quando o DemandaService confirma uma criação, atualização ou exclusão.
+ * Como esses eventos são locais, a cada 'busca.sincronizacao.intervalo' as
+ * demandas gravadas desde a última leitura (Demanda.atualizadoEm) são
+ * relidas do banco, o que traz as alterações feitas por outras instâncias.
+ * A leitura recua MARGEM_SINCRONIZACAO para cobrir transações confirmadas
+ * depois de gravar o instante e relógios um pouco diferentes entre
+ * instâncias; reindexar uma demanda já em dia não muda nada.
+ */
+@Component
+public class IndiceBuscaDemandas {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceBuscaDemandas.class);
+
+    static final int PESO_TITULO = 3;
+    static final int PESO_CATEGORIA = 2;
+    static final int PESO_DESCRICAO = 1;
+
+    // Parâmetros padrão do BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /** Peso de um termo que só casa por prefixo (ex.: "roup" -> "roupa"). */
+    private static final double PESO_PREFIXO = 0.5;
+
+    private static final int TAMANHO_LOTE_CARGA = 500;
+
+    static final Duration MARGEM_SINCRONIZACAO = Duration.ofMinutes(2);
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+    private static final Set<String> STOPWORDS = new HashSet<>(Arrays.asList(
+            "a", "o", "as", "os", "e", "de", "da", "do", "das", "dos", "em", "no", "na", "nos", "nas",
+            "um", "uma", "uns", "umas", "para", "pra", "por", "com", "sem", "ao", "aos", "que", "se"));
+
+    private final DemandaRepository demandaRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** termo -> (id da demanda -> frequência ponderada). Ordenado para busca por prefixo. */
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    /** id da demanda -> termos indexados, usado para remover/reindexar. */
+    private final Map<Long, Map<String, Integer>> termosPorDemanda = new HashMap<>();
+
+    /** id da demanda -> comprimento ponderado do documento. */
+    private final Map<Long, Integer> comprimentos = new HashMap<>();
+
+    private long somaComprimentos = 0;
+
+    /**
+     * Demandas indexadas por evento durante a carga inicial: o evento é mais
+     * recente que o lote lido do banco, que não deve sobrescrevê-lo.
+     */
+    private final Set<Long> alteradasDuranteCarga = new HashSet<>();
+
+    private boolean carregando = false;
+
+    private volatile boolean pronto = false;
+
+    /** Início da última leitura do banco (carga ou sincronização). */
+    private volatile Instant sincronizadoEm;
+
+    public IndiceBuscaDemandas(DemandaRepository demandaRepository) {
+        this.demandaRepository = demandaRepository;
+    }
+
+    /**
+     * Carrega todas as demandas públicas no índice, em lotes, ao subir a aplicação.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        Instant inicio = Instant.now();
+        lock.writeLock().lock();
+        try {
+            carregando = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long aposId = 0L;
+        int total = 0;
+        List<Demanda> lote;
+        do {
+            lote = demandaRepository.buscarPublicasAposId(aposId, PageRequest.of(0, TAMANHO_LOTE_CARGA));
+            for (Demanda demanda : lote) {
+                indexar(demanda, true);
+                aposId = demanda.getId();
+            }
+            total += lote.size();
+        } while (lote.size() == TAMANHO_LOTE_CARGA);
+
+        lock.writeLock().lock();
+        try {
+            carregando = false;
+            alteradasDuranteCarga.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        sincronizadoEm = inicio;
+        pronto = true;
+        logger.info("Índice de busca de demandas carregado com {} demandas", total);
+    }
+
+    /**
+     * Reindexa as demandas gravadas desde a última leitura, inclusive as
+     * excluídas logicamente, para acompanhar as outras instâncias.
+     *
+     * @return Quantidade de demandas relidas.
+     */
+    @Scheduled(initialDelayString = "${busca.sincronizacao.intervalo:PT1M}",
+               fixedDelayString = "${busca.sincronizacao.intervalo:PT1M}")
+    public int sincronizar() {
+        if (!pronto) {
+            return 0;
+        }
+        Instant inicio = Instant.now();
+        Instant desde = sincronizadoEm.minus(MARGEM_SINCRONIZACAO);
+        long aposId = Long.MIN_VALUE;
+        int total = 0;
+        List<Demanda> lote;
+        do {
+            lote = demandaRepository.buscarAlteradasDesde(desde, aposId, PageRequest.of(0, TAMANHO_LOTE_CARGA));
+            for (Demanda demanda : lote) {
+                indexar(demanda);
+                desde = demanda.getAtualizadoEm();
+                aposId = demanda.getId();
+            }
+            total += lote.size();
+        } while (lote.size() == TAMANHO_LOTE_CARGA);
+
+        sincronizadoEm = inicio;
+        logger.debug("Índice de busca sincronizado: {} demandas relidas", total);
+        return total;
+    }
+
+    /**
+     * Mantém o índice em dia depois que a alteração foi confirmada no banco.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDemandaAlterada(DemandaAlteradaEvent event) {
+        indexar(event.getDemanda());
+    }
+
+    /**
+     * @return true quando a carga inicial terminou e as buscas podem usar o índice.
+     */
+    public boolean isPronto() {
+        return pronto;
+    }
+
+    /**
+     * (Re)indexa uma demanda. Demandas inativas são removidas do índice.
+     *
+     * @param demanda A demanda a ser indexada.
+     */
+    public void indexar(Demanda demanda) {
+        indexar(demanda, false);
+    }
+
+    private void indexar(Demanda demanda, boolean daCarga) {
+        if (demanda == null || demanda.getId() == null) {
+            return;
+        }
+        Map<String, Integer> termos = new HashMap<>();
+        if (!"Inativo".equals(demanda.getStatus())) {
+            acumular(termos, demanda.getTitulo(), PESO_TITULO);
+            acumular(termos, demanda.getCategoria(), PESO_CATEGORIA);
+            acumular(termos, demanda.getDescricao(), PESO_DESCRICAO);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (daCarga && alteradasDuranteCarga.contains(demanda.getId())) {
+                return;
+            }
+            if (!daCarga && carregando) {
+                alteradasDuranteCarga.add(demanda.getId());
+            }
+            removerSemLock(demanda.getId());
+            if (termos.isEmpty()) {
+                return;
+            }
+            int comprimento = 0;
+            for (Map.Entry<String, Integer> termo : termos.entrySet()) {
+                postings.computeIfAbsent(termo.getKey(), t -> new HashMap<>())
+                        .put(demanda.getId(), termo.getValue());
+                comprimento += termo.getValue();
+            }
+            termosPorDemanda.put(demanda.getId(), termos);
+            comprimentos.put(demanda.getId(), comprimento);
+            somaComprimentos += comprimento;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove uma demanda do índice.
+     *
+     * @param demandaId O ID da demanda.
+     */
+    public void remover(Long demandaId) {
+        lock.writeLock().lock();
+        try {
+            if (carregando) {
+                alteradasDuranteCarga.add(demandaId);
+            }
+            removerSemLock(demandaId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca demandas cujo título, categoria ou descrição contenham todos os
+     * termos da consulta (exatos ou como prefixo), ordenadas por relevância.
+     *
+     * @param consulta Texto digitado pelo usuário.
+     * @param limite   Número máximo de ids retornados.
+     * @return IDs das demandas, do mais para o menos relevante.
+     */
+    public List<Long> buscar(String consulta, int limite) {
+        List<String> termosConsulta = new ArrayList<>(new LinkedHashSet<>(analisar(consulta)));
+        if (termosConsulta.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            int totalDocumentos = comprimentos.size();
+            if (totalDocumentos == 0) {
+                return new ArrayList<>();
+            }
+            double comprimentoMedio = (double) somaComprimentos / totalDocumentos;
+
+            Map<Long, Double> pontuacoes = null;
+            for (String termoConsulta : termosConsulta) {
+                Map<Long, Double> pontuacoesTermo = new HashMap<>();
+                // Termos do índice que começam com o termo da consulta (inclui o próprio termo)
+                Map<String, Map<Long, Integer>> candidatos =
+                        postings.subMap(termoConsulta, true, termoConsulta + Character.MAX_VALUE, false);
+                for (Map.Entry<String, Map<Long, Integer>> termo : candidatos.entrySet()) {
+                    Map<Long, Integer> lista = termo.getValue();
+                    double idf = Math.log(1 + (totalDocumentos - lista.size() + 0.5) / (lista.size() + 0.5));
+                    double peso = termo.getKey().equals(termoConsulta) ? 1.0 : PESO_PREFIXO;
+                    for (Map.Entry<Long, Integer> posting : lista.entrySet()) {
+                        double frequencia = posting.getValue();
+                        double normalizacao = K1 * (1 - B + B * comprimentos.get(posting.getKey()) / comprimentoMedio);
+                        double pontos = peso * idf * frequencia * (K1 + 1) / (frequencia + normalizacao);
+                        pontuacoesTermo.merge(posting.getKey(), pontos, Math::max);
+                    }
+                }
+
+                // Todos os termos da consulta precisam casar
+                if (pontuacoes == null) {
+                    pontuacoes = pontuacoesTermo;
+                } else {
+                    pontuacoes.keySet().retainAll(pontuacoesTermo.keySet());
+                    for (Map.Entry<Long, Double> entrada : pontuacoes.entrySet()) {
+                        entrada.setValue(entrada.getValue() + pontuacoesTermo.get(entrada.getKey()));
+                    }
+                }
+                if (pontuacoes.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ordenadas = new ArrayList<>(pontuacoes.entrySet());
+            // Mais relevante primeiro; em empate, a demanda mais recente
+            ordenadas.sort((a, b) -> {
+                int cmp = Double.compare(b.getValue(), a.getValue());
+                return cmp != 0 ? cmp : Long.compare(b.getKey(), a.getKey());
+            });
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < ordenadas.size() && i < limite; i++) {
+                ids.add(ordenadas.get(i).getKey());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removerSemLock(Long demandaId) {
+        Map<String, Integer> termos = termosPorDemanda.remove(demandaId);
+        if (termos == null) {
+            return;
+        }
+        for (String termo : termos.keySet()) {
+            Map<Long, Integer> lista = postings.get(termo);
+            if (lista != null) {
+                lista.remove(demandaId);
+                if (lista.isEmpty()) {
+                    postings.remove(termo);
+                }
+            }
+        }
+        Integer comprimento = comprimentos.remove(demandaId);
+        if (comprimento != null) {
+            somaComprimentos -= comprimento;
+        }
+    }
+
+    private static void acumular(Map<String, Integer> termos, String texto, int peso) {
+        for (String termo : analisar(texto)) {
+            termos.merge(termo, peso, Integer::sum);
+        }
+    }
+
+    /**
+     * Quebra um texto em termos normalizados: minúsculas, sem acentos,
+     * sem stopwords e com plurais reduzidos ao singular.
+     *
+     * @param texto Texto livre.
+     * @return Lista de termos, na ordem em que aparecem.
+     */
+    static List<String> analisar(String texto) {
+        List<String> termos = new ArrayList<>();
+        if (texto == null || texto.isEmpty()) {
+            return termos;
+        }
+        String semAcentos = MARCAS_DIACRITICAS
+                .matcher(Normalizer.normalize(texto.toLowerCase(Locale.ROOT), Normalizer.Form.NFD))
+                .replaceAll("");
+        for (String token : SEPARADORES.split(semAcentos)) {
+            if (token.isEmpty() || STOPWORDS.contains(token)) {
+                continue;
+            }
+            termos.add(radical(token));
+        }
+        return termos;
+    }
+
+    /**
+     * Redução leve de plurais do português, aplicada igualmente
+     * na indexação e na consulta.
+     */
+    static String radical(String termo) {
+        int n = termo.length();
+        if (n <= 3 || !termo.endsWith("s")) {
+            return termo;
+        }
+        if (termo.endsWith("oes") || termo.endsWith("aes")) {
+            return termo.substring(0, n - 3) + "ao";  // doações -> doacao
+        }
+        if (termo.endsWith("ais")) {
+            return termo.substring(0, n - 3) + "al";  // materiais -> material
+        }
+        if (termo.endsWith("eis")) {
+            return termo.substring(0, n - 3) + "el";  // papéis -> papel
+        }
+        if (termo.endsWith("ns")) {
+            return termo.substring(0, n - 2) + "m";   // itens -> item
+        }
+        if (termo.endsWith("res") || termo.endsWith("zes")) {
+            return termo.substring(0, n - 2);          // cobertores -> cobertor
+        }
+        return termo.substring(0, n - 1);              // roupas -> roupa
+    }
+}
@@ -0,0 +1,417 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.dto.InstituicaoProxima;
+import com.mackenzie.achadosdoados.dto.InstituicaoResumo;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice espacial em memória das instituições com coordenadas.
+ *
+ * As instituições são distribuídas em uma grade regular de células de
+ * TAMANHO_CELULA graus. A busca por raio só visita as células que cruzam
+ * o retângulo envolvente do círculo; a busca dos k mais próximos visita
+ * anéis de células ao redor do ponto até que nenhum anel seguinte possa
+ * conter algo mais perto que o k-ésimo encontrado. As distâncias são
+ * calculadas com haversine.
+ *
+ * O índice guarda o resumo de cada instituição, de modo que as consultas
+ * não acessam o banco. É carregado ao subir a aplicação e atualizado a
+ * cada InstituicaoAlteradaEvent confirmado.
+ */
+@Component
+public class IndiceEspacialInstituicoes {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceEspacialInstituicoes.class);
+
+    /** Lado da célula da grade, em graus (~11 km de latitude). */
+    static final double TAMANHO_CELULA = 0.1;
+
+    private static final double RAIO_TERRA_KM = 6371.0088;
+    private static final double KM_POR_GRAU = Math.PI * RAIO_TERRA_KM / 180;
+
+    /** Acima deste número de células visitadas, compensa varrer todos os pontos. */
+    private static final int MAXIMO_CELULAS_VISITADAS = 4096;
+
+    /** Posição indexada de uma instituição. */
+    private static final class Ponto {
+        final InstituicaoResumo instituicao;
+        final double latitude;
+        final double longitude;
+        final long celula;
+
+        Ponto(InstituicaoResumo instituicao) {
+            this.instituicao = instituicao;
+            this.latitude = instituicao.getLatitude();
+            this.longitude = instituicao.getLongitude();
+            this.celula = celula(linha(latitude), coluna(longitude));
+        }
+    }
+
+    private final InstituicaoRepository instituicaoRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** id da instituição -> posição. */
+    private final Map<Long, Ponto> pontos = new HashMap<>();
+
+    /** célula da grade -> pontos nela. */
+    private final Map<Long, List<Ponto>> celulas = new HashMap<>();
+
+    public IndiceEspacialInstituicoes(InstituicaoRepository instituicaoRepository) {
+        this.instituicaoRepository = instituicaoRepository;
+    }
+
+    /**
+     * Carrega todas as instituições com coordenadas ao subir a aplicação.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        for (InstituicaoResumo instituicao : instituicaoRepository.listarResumos()) {
+            indexar(instituicao);
+        }
+        logger.info("Índice espacial carregado com {} instituições", tamanho());
+    }
+
+    /**
+     * Mantém o índice em dia depois que a alteração foi confirmada no banco.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstituicaoAlterada(InstituicaoAlteradaEvent event) {
+        Instituicao instituicao = event.getInstituicao();
+        if (instituicao == null || instituicao.getId() == null) {
+            return;
+        }
+        indexar(new InstituicaoResumo(instituicao.getId(), instituicao.getNome(), instituicao.getEmail(),
+                instituicao.getEndereco(), instituicao.getNumero(), instituicao.getCidade(),
+                instituicao.getEstado(), instituicao.getTelefone(), instituicao.getFotoUrl(),
+                instituicao.getFotoPlaceholder(), instituicao.getLatitude(), instituicao.getLongitude()));
+    }
+
+    /**
+     * (Re)indexa uma instituição. Sem coordenadas válidas, ela sai do índice.
+     *
+     * @param instituicao Resumo da instituição.
+     */
+    public void indexar(InstituicaoResumo instituicao) {
+        Ponto novo = coordenadasValidas(instituicao.getLatitude(), instituicao.getLongitude())
+                ? new Ponto(instituicao) : null;
+        lock.writeLock().lock();
+        try {
+            removerSemLock(instituicao.getId());
+            if (novo != null) {
+                pontos.put(instituicao.getId(), novo);
+                celulas.computeIfAbsent(novo.celula, c -> new ArrayList<>()).add(novo);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove uma instituição do índice.
+     *
+     * @param instituicaoId O ID da instituição.
+     */
+    public void remover(Long instituicaoId) {
+        lock.writeLock().lock();
+        try {
+            removerSemLock(instituicaoId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Número de instituições indexadas.
+     */
+    public int tamanho() {
+        lock.readLock().lock();
+        try {
+            return pontos.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * As k instituições mais próximas do ponto.
+     *
+     * @param latitude  Latitude do ponto, em graus.
+     * @param longitude Longitude do ponto, em graus.
+     * @param k         Número máximo de resultados.
+     * @return Instituições da mais para a menos próxima.
+     */
+    public List<InstituicaoProxima> maisProximas(double latitude, double longitude, int k) {
+        lock.readLock().lock();
+        try {
+            if (pontos.isEmpty() || k <= 0) {
+                return new ArrayList<>();
+            }
+            // Heap de máximo com os k melhores até aqui
+            PriorityQueue<InstituicaoProxima> melhores = new PriorityQueue<>(
+                    Comparator.comparingDouble(InstituicaoProxima::getDistanciaKm).reversed());
+            int linha = linha(latitude);
+            int coluna = coluna(longitude);
+            int visitadas = 0;
+            for (int anel = 0; ; anel++) {
+                // Nenhum ponto do anel fica a menos desta distância do ponto consultado
+                if (melhores.size() == k && distanciaMinimaAnel(latitude, anel) > melhores.peek().getDistanciaKm()) {
+                    break;
+                }
+                visitadas += anel == 0 ? 1 : 8 * anel;
+                if (visitadas > MAXIMO_CELULAS_VISITADAS) {
+                    return ordenar(varrerTodos(latitude, longitude, Double.MAX_VALUE), k);
+                }
+                for (int l = linha - anel; l <= linha + anel; l++) {
+                    for (int c = coluna - anel; c <= coluna + anel; c++) {
+                        if (Math.max(Math.abs(l - linha), Math.abs(c - coluna)) != anel) {
+                            continue;
+                        }
+                        List<Ponto> naCelula = celulas.get(celula(l, c));
+                        if (naCelula == null) {
+                            continue;
+                        }
+                        for (Ponto ponto : naCelula) {
+                            double distancia = distanciaKm(latitude, longitude, ponto.latitude, ponto.longitude);
+                            if (melhores.size() < k) {
+                                melhores.add(new InstituicaoProxima(ponto.instituicao, distancia));
+                            } else if (distancia < melhores.peek().getDistanciaKm()) {
+                                melhores.poll();
+                                melhores.add(new InstituicaoProxima(ponto.instituicao, distancia));
+                            }
+                        }
+                    }
+                }
+            }
+            return ordenar(melhores, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Instituições a até raioKm do ponto.
+     *
+     * @param latitude  Latitude do ponto, em graus.
+     * @param longitude Longitude do ponto, em graus.
+     * @param raioKm    Raio, em quilômetros.
+     * @param k         Número máximo de resultados.
+     * @return Instituições da mais para a menos próxima.
+     */
+    public List<InstituicaoProxima> dentroDoRaio(double latitude, double longitude, double raioKm, int k) {
+        lock.readLock().lock();
+        try {
+            return ordenar(buscarNoRaio(latitude, longitude, raioKm), k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * IDs das instituições a até raioKm do ponto, sem ordem definida.
+     * Usado para filtrar a busca de demandas por região.
+     */
+    public Set<Long> idsDentroDoRaio(double latitude, double longitude, double raioKm) {
+        lock.readLock().lock();
+        try {
+            Set<Long> ids = new HashSet<>();
+            for (InstituicaoProxima proxima : buscarNoRaio(latitude, longitude, raioKm)) {
+                ids.add(proxima.getInstituicao().getId());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Instituições dentro de um retângulo de coordenadas (área visível do
+     * mapa). Se longitudeMin > longitudeMax, o retângulo cruza o antimeridiano.
+     *
+     * @return Resumos das instituições, sem ordem definida.
+     */
+    public List<InstituicaoResumo> dentroDoRetangulo(double latitudeMin, double longitudeMin,
+                                                     double latitudeMax, double longitudeMax) {
+        lock.readLock().lock();
+        try {
+            List<InstituicaoResumo> encontradas = new ArrayList<>();
+            if (longitudeMin <= longitudeMax) {
+                coletarRetangulo(latitudeMin, longitudeMin, latitudeMax, longitudeMax, encontradas);
+            } else {
+                coletarRetangulo(latitudeMin, longitudeMin, latitudeMax, 180, encontradas);
+                coletarRetangulo(latitudeMin, -180, latitudeMax, longitudeMax, encontradas);
+            }
+            return encontradas;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void coletarRetangulo(double latitudeMin, double longitudeMin, double latitudeMax, double longitudeMax,
+                                  List<InstituicaoResumo> destino) {
+        int linhaMin = linha(latitudeMin);
+        int linhaMax = linha(latitudeMax);
+        int colunaMin = coluna(longitudeMin);
+        int colunaMax = coluna(longitudeMax);
+        long totalCelulas = (long) (linhaMax - linhaMin + 1) * (colunaMax - colunaMin + 1);
+        Collection<Ponto> candidatos;
+        if (totalCelulas > celulas.size()) {
+            candidatos = pontos.values();
+        } else {
+            candidatos = new ArrayList<>();
+            for (int l = linhaMin; l <= linhaMax; l++) {
+                for (int c = colunaMin; c <= colunaMax; c++) {
+                    List<Ponto> naCelula = celulas.get(celula(l, c));
+                    if (naCelula != null) {
+                        candidatos.addAll(naCelula);
+                    }
+                }
+            }
+        }
+        for (Ponto ponto : candidatos) {
+            if (ponto.latitude >= latitudeMin && ponto.latitude <= latitudeMax
+                    && ponto.longitude >= longitudeMin && ponto.longitude <= longitudeMax) {
+                destino.add(ponto.instituicao);
+            }
+        }
+    }
+
+    private List<InstituicaoProxima> buscarNoRaio(double latitude, double longitude, double raioKm) {
+        double deltaLatitude = raioKm / KM_POR_GRAU;
+        double cosseno = Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + deltaLatitude)));
+        double deltaLongitude = cosseno > 1e-6 ? raioKm / (KM_POR_GRAU * cosseno) : 360;
+        int linhaMin = linha(latitude - deltaLatitude);
+        int linhaMax = linha(latitude + deltaLatitude);
+        int colunaMin = coluna(longitude - deltaLongitude);
+        int colunaMax = coluna(longitude + deltaLongitude);
+
+        long totalCelulas = (long) (linhaMax - linhaMin + 1) * (colunaMax - colunaMin + 1);
+        if (totalCelulas > MAXIMO_CELULAS_VISITADAS || totalCelulas > celulas.size()) {
+            return varrerTodos(latitude, longitude, raioKm);
+        }
+        List<InstituicaoProxima> encontradas = new ArrayList<>();
+        for (int l = linhaMin; l <= linhaMax; l++) {
+            for (int c = colunaMin; c <= colunaMax; c++) {
+                List<Ponto> naCelula = celulas.get(celula(l, c));
+                if (naCelula != null) {
+                    coletar(naCelula, latitude, longitude, raioKm, encontradas);
+                }
+            }
+        }
+        return encontradas;
+    }
+
+    private List<InstituicaoProxima> varrerTodos(double latitude, double longitude, double raioKm) {
+        List<InstituicaoProxima> encontradas = new ArrayList<>();
+        coletar(pontos.values(), latitude, longitude, raioKm, encontradas);
+        return encontradas;
+    }
+
+    private static void coletar(Collection<Ponto> candidatos, double latitude, double longitude, double raioKm,
+                                List<InstituicaoProxima> destino) {
+        for (Ponto ponto : candidatos) {
+            double distancia = distanciaKm(latitude, longitude, ponto.latitude, ponto.longitude);
+            if (distancia <= raioKm) {
+                destino.add(new InstituicaoProxima(ponto.instituicao, distancia));
+            }
+        }
+    }
+
+    private static List<InstituicaoProxima> ordenar(Collection<InstituicaoProxima> encontradas, int k) {
+        List<InstituicaoProxima> ordenadas = new ArrayList<>(encontradas);
+        ordenadas.sort(Comparator.comparingDouble(InstituicaoProxima::getDistanciaKm)
+                .thenComparing(p -> p.getInstituicao().getId()));
+        return ordenadas.size() > k ? new ArrayList<>(ordenadas.subList(0, k)) : ordenadas;
+    }
+
+    private void removerSemLock(Long instituicaoId) {
+        Ponto anterior = pontos.remove(instituicaoId);
+        if (anterior == null) {
+            return;
+        }
+        List<Ponto> naCelula = celulas.get(anterior.celula);
+        if (naCelula != null) {
+            naCelula.remove(anterior);
+            if (naCelula.isEmpty()) {
+                celulas.remove(anterior.celula);
+            }
+        }
+    }
+
+    /**
+     * Limite inferior da distância entre o ponto e qualquer célula do anel
+     * informado: anel - 1 células inteiras, na direção em que a célula é
+     * mais estreita (a longitude, na latitude mais afastada do equador).
+     */
+    private static double distanciaMinimaAnel(double latitude, int anel) {
+        if (anel <= 1) {
+            return 0;
+        }
+        double latitudeExtrema = Math.min(90, Math.abs(latitude) + anel * TAMANHO_CELULA);
+        double larguraCelulaKm = TAMANHO_CELULA * KM_POR_GRAU * Math.cos(Math.toRadians(latitudeExtrema));
+        return (anel - 1) * larguraCelulaKm;
+    }
+
+    /**
+     * Valida o centro e o raio de uma consulta por região.
+     *
+     * @param raioKm Raio em km; null quando a consulta não limita o raio.
+     * @throws RuntimeException se algum parâmetro estiver ausente ou fora da faixa.
+     */
+    public static void validarConsulta(Double latitude, Double longitude, Double raioKm) {
+        if (!coordenadasValidas(latitude, longitude)) {
+            throw new RuntimeException("Coordenadas inválidas. Informe lat entre -90 e 90 e lng entre -180 e 180.");
+        }
+        if (raioKm != null && !(raioKm > 0)) {
+            throw new RuntimeException("Raio inválido. Informe um raio em km maior que zero.");
+        }
+    }
+
+    static boolean coordenadasValidas(Double latitude, Double longitude) {
+        return latitude != null && longitude != null
+                && latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+
+    /**
+     * Distância de grande círculo (haversine), em quilômetros.
+     */
+    static double distanciaKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * RAIO_TERRA_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static int linha(double latitude) {
+        return (int) Math.floor(latitude / TAMANHO_CELULA);
+    }
+
+    private static int coluna(double longitude) {
+        return (int) Math.floor(longitude / TAMANHO_CELULA);
+    }
+
+    private static long celula(int linha, int coluna) {
+        return ((long) linha << 32) | (coluna & 0xffffffffL);
+    }
+}
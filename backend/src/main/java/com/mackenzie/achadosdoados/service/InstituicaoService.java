@@ -1,14 +1,26 @@
 package com.mackenzie.achadosdoados.service;
 
+import com.mackenzie.achadosdoados.config.CacheConfig;
+import com.mackenzie.achadosdoados.dto.InstituicaoProxima;
+import com.mackenzie.achadosdoados.dto.InstituicaoResumo;
+import com.mackenzie.achadosdoados.dto.MapaInstituicoes;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
 import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.model.Usuario;
 import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
 import com.mackenzie.achadosdoados.repository.UsuarioRepository;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Classe de serviço para gerenciar a lógica de negócio da Instituicao.
  * Implementa o Caso de Uso 3 - Cadastrar Instituição.
@@ -18,17 +30,58 @@ public class InstituicaoService {
 
     private static final Logger logger = LoggerFactory.getLogger(InstituicaoService.class);
 
+    /** Quantidade de instituições devolvidas pela busca por proximidade quando k não é informado. */
+    public static final int PROXIMAS_PADRAO = 10;
+
+    /** Maior k aceito na busca por proximidade. */
+    public static final int PROXIMAS_MAXIMO = 100;
+
+    /** Maior zoom aceito pelo mapa (limite dos tiles do OpenStreetMap). */
+    public static final int ZOOM_MAXIMO = 22;
+
+    private static final String EMAIL_EXISTENTE = "Instituição já cadastrada. Já existe conta com o e-mail informado.";
+
     private final InstituicaoRepository instituicaoRepository;
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IndiceEspacialInstituicoes indiceEspacial;
+    private final AgregadosMapaInstituicoes agregadosMapa;
+    private final GeocodificadorCep geocodificador;
+    private final FiltroEmails filtroEmails;
 
     // Injeção de dependência via construtor
     public InstituicaoService(InstituicaoRepository instituicaoRepository,
                               UsuarioRepository usuarioRepository,
-                              PasswordEncoder passwordEncoder) {
+                              PasswordEncoder passwordEncoder,
+                              ApplicationEventPublisher eventPublisher,
+                              IndiceEspacialInstituicoes indiceEspacial,
+                              AgregadosMapaInstituicoes agregadosMapa,
+                              GeocodificadorCep geocodificador,
+                              FiltroEmails filtroEmails) {
         this.instituicaoRepository = instituicaoRepository;
         this.usuarioRepository = usuarioRepository;
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
+        this.indiceEspacial = indiceEspacial;
+        this.agregadosMapa = agregadosMapa;
+        this.geocodificador = geocodificador;
+        this.filtroEmails = filtroEmails;
+    }
+
+    /**
+     * Confere os campos obrigatórios do cadastro (também usado na importação).
+     *
+     * @throws RuntimeException se algum estiver ausente.
+     */
+    public static void validarObrigatorios(Instituicao instituicao) {
+        if (instituicao.getNome() == null || instituicao.getNome().isEmpty() ||
+            instituicao.getEmail() == null || instituicao.getEmail().isEmpty() ||
+            instituicao.getSenha() == null || instituicao.getSenha().isEmpty() ||
+            instituicao.getEndereco() == null || instituicao.getEndereco().isEmpty() ||
+            instituicao.getTelefone() == null || instituicao.getTelefone().isEmpty()) {
+            throw new RuntimeException("Dados inválidos ou ausentes. Campos obrigatórios não podem ser nulos.");
+        }
     }
 
     /**
@@ -48,21 +101,157 @@ public class InstituicaoService {
             instituicao != null ? instituicao.getEndereco() : null,
             instituicao != null ? instituicao.getTelefone() : null);
 
-        if (instituicao.getNome() == null || instituicao.getNome().isEmpty() ||
-            instituicao.getEmail() == null || instituicao.getEmail().isEmpty() ||
-            instituicao.getSenha() == null || instituicao.getSenha().isEmpty() ||
-            instituicao.getEndereco() == null || instituicao.getEndereco().isEmpty() ||
-            instituicao.getTelefone() == null || instituicao.getTelefone().isEmpty()) {
-            throw new RuntimeException("Dados inválidos ou ausentes. Campos obrigatórios não podem ser nulos.");
-        }
+        validarObrigatorios(instituicao);
 
-        if (usuarioRepository.findByEmail(instituicao.getEmail()).isPresent()) {
-            throw new RuntimeException("Instituição já cadastrada. Já existe conta com o e-mail informado.");
+        // Consulta só se o filtro não descartar o e-mail; o índice único cobre o resto
+        instituicao.setEmail(Usuario.normalizarEmail(instituicao.getEmail()));
+        if (filtroEmails.podeExistir(instituicao.getEmail())
+                && usuarioRepository.findByEmail(instituicao.getEmail()).isPresent()) {
+            throw new RuntimeException(EMAIL_EXISTENTE);
         }
 
         String senhaCriptografada = passwordEncoder.encode(instituicao.getSenha());
         instituicao.setSenha(senhaCriptografada);
 
-        return instituicaoRepository.save(instituicao);
+        // Coordenadas pelo CEP (base local), para aparecer no mapa
+        geocodificar(instituicao);
+
+        Instituicao salva;
+        try {
+            salva = instituicaoRepository.save(instituicao);
+            instituicaoRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if (FiltroEmails.isEmailDuplicado(e)) {
+                throw new RuntimeException(EMAIL_EXISTENTE);
+            }
+            throw e;
+        }
+        filtroEmails.adicionar(salva.getEmail());
+        eventPublisher.publishEvent(new InstituicaoAlteradaEvent(salva));
+        return salva;
+    }
+
+    /**
+     * Preenche latitude/longitude (e cidade/UF, se vazias) a partir do CEP,
+     * quando a instituição ainda não tem coordenadas.
+     *
+     * @return true se a instituição foi geocodificada.
+     */
+    public boolean geocodificar(Instituicao instituicao) {
+        if (instituicao.getLatitude() != null && instituicao.getLongitude() != null) {
+            return false;
+        }
+        Optional<GeocodificadorCep.Localizacao> localizacao = geocodificador.localizar(instituicao.getCep());
+        if (!localizacao.isPresent()) {
+            return false;
+        }
+        GeocodificadorCep.Localizacao local = localizacao.get();
+        instituicao.setLatitude(local.getLatitude());
+        instituicao.setLongitude(local.getLongitude());
+        if (instituicao.getCidade() == null || instituicao.getCidade().isEmpty()) {
+            instituicao.setCidade(local.getCidade());
+        }
+        if (instituicao.getEstado() == null || instituicao.getEstado().isEmpty()) {
+            instituicao.setEstado(local.getUf());
+        }
+        return true;
+    }
+
+    /**
+     * Lista pública de instituições (página "Instituições" e mapa).
+     * O resultado fica em cache até a próxima alteração confirmada
+     * (ver InvalidacaoCacheCatalogo).
+     *
+     * @return Resumos de todas as instituições.
+     */
+    @Cacheable(CacheConfig.INSTITUICOES)
+    @Transactional(readOnly = true)
+    public List<InstituicaoResumo> listarInstituicoes() {
+        return instituicaoRepository.listarResumos();
+    }
+
+    /**
+     * Instituições mais próximas de um ponto, respondidas pelo índice
+     * espacial em memória (sem consulta ao banco).
+     *
+     * @param latitude  Latitude do ponto.
+     * @param longitude Longitude do ponto.
+     * @param raioKm    Raio máximo em km; null para apenas os k mais próximos.
+     * @param k         Máximo de resultados; limitado a PROXIMAS_MAXIMO.
+     * @return Instituições ordenadas pela distância.
+     * @throws RuntimeException se as coordenadas ou o raio forem inválidos.
+     */
+    public List<InstituicaoProxima> buscarProximas(Double latitude, Double longitude, Double raioKm, Integer k) {
+        IndiceEspacialInstituicoes.validarConsulta(latitude, longitude, raioKm);
+        int quantidade = k == null ? PROXIMAS_PADRAO : Math.max(1, Math.min(k, PROXIMAS_MAXIMO));
+        if (raioKm == null) {
+            return indiceEspacial.maisProximas(latitude, longitude, quantidade);
+        }
+        return indiceEspacial.dentroDoRaio(latitude, longitude, raioKm, quantidade);
+    }
+
+    /**
+     * Conteúdo do mapa para a área visível: clusters pré-calculados até
+     * AgregadosMapaInstituicoes.ZOOM_MAXIMO_AGRUPADO e marcadores
+     * individuais acima dele.
+     *
+     * @param bbox Área visível no formato "oeste,sul,leste,norte" (graus),
+     *             o mesmo de LatLngBounds.toBBoxString() do Leaflet.
+     * @param zoom Nível de zoom do mapa.
+     * @throws RuntimeException se a área ou o zoom forem inválidos.
+     */
+    public MapaInstituicoes montarMapa(String bbox, Integer zoom) {
+        if (zoom == null || zoom < 0 || zoom > ZOOM_MAXIMO) {
+            throw new RuntimeException("Zoom inválido. Informe um zoom entre 0 e " + ZOOM_MAXIMO + ".");
+        }
+        double[] area = lerBbox(bbox);
+        double oeste = area[0];
+        double sul = area[1];
+        double leste = area[2];
+        double norte = area[3];
+        if (zoom <= AgregadosMapaInstituicoes.ZOOM_MAXIMO_AGRUPADO) {
+            return MapaInstituicoes.agrupado(zoom, agregadosMapa.clusters(sul, oeste, norte, leste, zoom));
+        }
+        return MapaInstituicoes.individual(zoom, indiceEspacial.dentroDoRetangulo(sul, oeste, norte, leste));
+    }
+
+    /**
+     * Lê "oeste,sul,leste,norte". Longitudes fora de [-180, 180] (o Leaflet
+     * as produz ao arrastar além do antimeridiano) são normalizadas; se a
+     * área cobre o mundo todo, a faixa vira [-180, 180].
+     */
+    private static double[] lerBbox(String bbox) {
+        String[] partes = bbox == null ? new String[0] : bbox.split(",");
+        if (partes.length != 4) {
+            throw new RuntimeException("Área inválida. Informe bbox=oeste,sul,leste,norte.");
+        }
+        double[] area = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                area[i] = Double.parseDouble(partes[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Área inválida. Informe bbox=oeste,sul,leste,norte.");
+        }
+        if (Double.isNaN(area[0]) || Double.isNaN(area[2]) || area[1] > area[3]
+                || area[1] < -90 || area[3] > 90) {
+            throw new RuntimeException("Área inválida. Informe bbox=oeste,sul,leste,norte.");
+        }
+        if (area[2] - area[0] >= 360) {
+            area[0] = -180;
+            area[2] = 180;
+        } else {
+            area[0] = normalizarLongitude(area[0]);
+            area[2] = normalizarLongitude(area[2]);
+        }
+        return area;
+    }
+
+    private static double normalizarLongitude(double longitude) {
+        if (longitude >= -180 && longitude <= 180) {
+            return longitude;
+        }
+        double normalizada = ((longitude + 180) % 360 + 360) % 360 - 180;
+        return normalizada == -180 && longitude > 0 ? 180 : normalizada;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.config.CacheConfig;
+import com.mackenzie.achadosdoados.event.DemandaAlteradaEvent;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Invalida as listagens públicas em cache depois que uma alteração foi
+ * confirmada no banco, para que nenhuma leitura concorrente volte a guardar
+ * o estado anterior ao commit.
+ */
+@Component
+public class InvalidacaoCacheCatalogo {
+
+    /**
+     * Uma demanda mudou: só a lista de demandas fica desatualizada.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @CacheEvict(cacheNames = CacheConfig.DEMANDAS_PUBLICAS, allEntries = true)
+    public void onDemandaAlterada(DemandaAlteradaEvent event) {
+    }
+
+    /**
+     * Uma instituição mudou: a lista de instituições e a de demandas, que
+     * repete o nome e a foto da instituição em cada card.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @CacheEvict(cacheNames = {CacheConfig.INSTITUICOES, CacheConfig.DEMANDAS_PUBLICAS}, allEntries = true)
+    public void onInstituicaoAlterada(InstituicaoAlteradaEvent event) {
+    }
+}
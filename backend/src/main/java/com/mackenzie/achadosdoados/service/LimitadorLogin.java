@@ -0,0 +1,119 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mackenzie.achadosdoados.model.Usuario;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Limita as tentativas de login por IP e por e-mail (token bucket).
+ *
+ * Cada chave tem um balde com 'capacidade' fichas, reabastecido à taxa de
+ * 'por-minuto'; cada tentativa consome uma ficha de cada balde e, sem
+ * ficha, a tentativa é recusada antes do BCrypt com LimiteExcedidoException
+ * (429). O limite por e-mail segura ataques distribuídos contra uma conta;
+ * o por IP, varreduras de várias contas a partir de um mesmo cliente.
+ * Os baldes ociosos saem da memória depois de 'baldes.ociosidade'.
+ */
+@Component
+public class LimitadorLogin {
+
+    /** Balde de fichas de uma chave; o saldo é recalculado a cada consumo. */
+    static final class Balde {
+        private final double capacidade;
+        private final double fichasPorNano;
+        private double fichas;
+        private long atualizadoEm;
+
+        Balde(double capacidade, double fichasPorNano, long agora) {
+            this.capacidade = capacidade;
+            this.fichasPorNano = fichasPorNano;
+            this.fichas = capacidade;
+            this.atualizadoEm = agora;
+        }
+
+        /**
+         * @return 0 se consumiu uma ficha; senão, os nanossegundos até a próxima.
+         */
+        synchronized long consumir(long agora) {
+            fichas = Math.min(capacidade, fichas + (agora - atualizadoEm) * fichasPorNano);
+            atualizadoEm = agora;
+            if (fichas >= 1) {
+                fichas -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - fichas) / fichasPorNano);
+        }
+    }
+
+    private final int capacidadeIp;
+    private final double taxaIp;
+    private final int capacidadeEmail;
+    private final double taxaEmail;
+    private final LongSupplier relogio;
+    private final Cache<String, Balde> baldes;
+    private final Counter recusadasIp;
+    private final Counter recusadasEmail;
+
+    @Autowired
+    public LimitadorLogin(@Value("${login.limite.ip.capacidade:20}") int capacidadeIp,
+                          @Value("${login.limite.ip.por-minuto:10}") int porMinutoIp,
+                          @Value("${login.limite.email.capacidade:5}") int capacidadeEmail,
+                          @Value("${login.limite.email.por-minuto:2}") int porMinutoEmail,
+                          @Value("${login.limite.baldes.ociosidade:PT15M}") Duration ociosidade,
+                          MeterRegistry meterRegistry) {
+        this(capacidadeIp, porMinutoIp, capacidadeEmail, porMinutoEmail, ociosidade, meterRegistry, System::nanoTime);
+    }
+
+    LimitadorLogin(int capacidadeIp, int porMinutoIp, int capacidadeEmail, int porMinutoEmail,
+                   Duration ociosidade, MeterRegistry meterRegistry, LongSupplier relogio) {
+        this.capacidadeIp = capacidadeIp;
+        this.taxaIp = porMinutoIp / (double) Duration.ofMinutes(1).toNanos();
+        this.capacidadeEmail = capacidadeEmail;
+        this.taxaEmail = porMinutoEmail / (double) Duration.ofMinutes(1).toNanos();
+        this.relogio = relogio;
+        this.baldes = Caffeine.newBuilder()
+                .expireAfterAccess(ociosidade)
+                .maximumSize(100_000)
+                .build();
+        this.recusadasIp = Counter.builder("login.recusados").tag("motivo", "ip")
+                .description("Tentativas de login recusadas pelo limite de taxa")
+                .register(meterRegistry);
+        this.recusadasEmail = Counter.builder("login.recusados").tag("motivo", "email")
+                .description("Tentativas de login recusadas pelo limite de taxa")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra uma tentativa de login.
+     *
+     * @throws LimiteExcedidoException se o IP ou o e-mail estourou o limite.
+     */
+    public void registrarTentativa(String ip, String email) {
+        long agora = relogio.getAsLong();
+        long esperaIp = baldes.get("ip:" + ip, k -> new Balde(capacidadeIp, taxaIp, agora)).consumir(agora);
+        if (esperaIp > 0) {
+            recusadasIp.increment();
+            throw recusa(esperaIp);
+        }
+        String chaveEmail = "email:" + Usuario.normalizarEmail(email);
+        long esperaEmail = baldes.get(chaveEmail, k -> new Balde(capacidadeEmail, taxaEmail, agora)).consumir(agora);
+        if (esperaEmail > 0) {
+            recusadasEmail.increment();
+            throw recusa(esperaEmail);
+        }
+    }
+
+    private static LimiteExcedidoException recusa(long esperaNanos) {
+        long segundos = Math.max(1, (long) Math.ceil(esperaNanos / 1e9));
+        return new LimiteExcedidoException("Muitas tentativas de login. Tente novamente em "
+                + segundos + " segundos", segundos);
+    }
+}
@@ -0,0 +1,19 @@
+package com.mackenzie.achadosdoados.service;
+
+/**
+ * Requisição recusada por excesso de carga ou de tentativas.
+ * O RestExceptionHandler responde 429 com o header Retry-After.
+ */
+public class LimiteExcedidoException extends RuntimeException {
+
+    private final long tentarNovamenteEmSegundos;
+
+    public LimiteExcedidoException(String message, long tentarNovamenteEmSegundos) {
+        super(message);
+        this.tentarNovamenteEmSegundos = tentarNovamenteEmSegundos;
+    }
+
+    public long getTentarNovamenteEmSegundos() {
+        return tentarNovamenteEmSegundos;
+    }
+}
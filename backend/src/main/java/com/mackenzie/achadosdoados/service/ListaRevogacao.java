@@ -0,0 +1,87 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.model.TokenRevogado;
+import com.mackenzie.achadosdoados.repository.TokenRevogadoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Tokens assinados revogados antes de expirar (logout).
+ *
+ * Guarda apenas o identificador do token (jti) e sua expiração. A
+ * revogação é gravada na tabela tokens_revogados, compartilhada entre as
+ * instâncias, e cada instância copia a tabela para a memória na varredura
+ * ('auth.token.revogacao.varredura'), de modo que a validação continua
+ * sendo só uma consulta ao mapa. Um logout feito em outra instância passa
+ * a valer aqui no máximo uma varredura depois. A entrada (e a linha) é
+ * descartada assim que o token expiraria de qualquer forma, então o
+ * tamanho fica limitado aos logouts da janela de validade.
+ */
+@Component
+public class ListaRevogacao {
+
+    private final ConcurrentHashMap<UUID, Long> revogados = new ConcurrentHashMap<>();
+    private final TokenRevogadoRepository repository;
+    private final LongSupplier relogio;
+
+    @Autowired
+    public ListaRevogacao(TokenRevogadoRepository repository) {
+        this(repository, () -> System.currentTimeMillis() / 1000);
+    }
+
+    ListaRevogacao(TokenRevogadoRepository repository, LongSupplier relogio) {
+        this.repository = repository;
+        this.relogio = relogio;
+    }
+
+    /**
+     * @param expiraEm Expiração do token, em segundos desde a época.
+     */
+    public void revogar(long jtiAltos, long jtiBaixos, long expiraEm) {
+        if (expiraEm <= relogio.getAsLong()) {
+            return;
+        }
+        UUID jti = new UUID(jtiAltos, jtiBaixos);
+        revogados.put(jti, expiraEm);
+        try {
+            repository.save(new TokenRevogado(jti.toString(), expiraEm));
+        } catch (DataIntegrityViolationException e) {
+            // logout simultâneo do mesmo token em outra instância: já gravado
+        }
+    }
+
+    public boolean isRevogado(long jtiAltos, long jtiBaixos) {
+        return !revogados.isEmpty() && revogados.containsKey(new UUID(jtiAltos, jtiBaixos));
+    }
+
+    /**
+     * Remove as entradas de tokens já expirados e traz as revogações
+     * gravadas pelas outras instâncias. Também roda ao subir, então uma
+     * instância reiniciada volta a recusar os tokens revogados.
+     *
+     * @return Quantidade de entradas removidas da memória.
+     */
+    @Scheduled(fixedDelayString = "${auth.token.revogacao.varredura:PT15S}")
+    public int varrer() {
+        long agora = relogio.getAsLong();
+        int antes = revogados.size();
+        revogados.values().removeIf(expiraEm -> expiraEm <= agora);
+        int removidos = antes - revogados.size();
+
+        for (TokenRevogado token : repository.listarVigentes(agora)) {
+            revogados.putIfAbsent(UUID.fromString(token.getJti()), token.getExpiraEm());
+        }
+        repository.apagarExpirados(agora);
+        return removidos;
+    }
+
+    public int tamanho() {
+        return revogados.size();
+    }
+}
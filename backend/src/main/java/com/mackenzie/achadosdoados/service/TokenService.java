@@ -1,39 +1,161 @@
 package com.mackenzie.achadosdoados.service;
 
+import com.mackenzie.achadosdoados.model.Doador;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.model.Usuario;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.function.LongSupplier;
 
 /**
- * Serviço simples para gerenciar tokens em memória durante o desenvolvimento.
+ * Serviço para emitir e validar os tokens de sessão.
+ *
+ * No modo 'assinado' (padrão) o token é autocontido (ver AssinadorToken):
+ * carrega id, tipo e expiração, e a validação é só a conferência da
+ * assinatura, sem consulta a estado compartilhado; o logout registra o
+ * token na ListaRevogacao até ele expirar. No modo 'memoria' os tokens
+ * ficam no TokenStore, com expiração por inatividade.
  */
 @Service
 public class TokenService {
 
-    private final ConcurrentHashMap<String, Long> tokenStore = new ConcurrentHashMap<>();
+    public static final String MODO_ASSINADO = "assinado";
+    public static final String MODO_MEMORIA = "memoria";
+
+    public static final String TIPO_USUARIO = "USUARIO";
+    public static final String TIPO_DOADOR = "DOADOR";
+    public static final String TIPO_INSTITUICAO = "INSTITUICAO";
+
+    private static final String[] TIPOS = {TIPO_USUARIO, TIPO_DOADOR, TIPO_INSTITUICAO};
+    /** Bits reservados para o tipo no valor guardado pelo TokenStore. */
+    private static final int BITS_TIPO = 2;
+
+    /** Usuário autenticado por um token válido. */
+    public static final class Sessao {
+        private final Long usuarioId;
+        private final String tipo;
+
+        public Sessao(Long usuarioId, String tipo) {
+            this.usuarioId = usuarioId;
+            this.tipo = tipo;
+        }
+
+        public Long getUsuarioId() {
+            return usuarioId;
+        }
+
+        public String getTipo() {
+            return tipo;
+        }
+
+        public boolean isInstituicao() {
+            return TIPO_INSTITUICAO.equals(tipo);
+        }
+
+        public boolean isDoador() {
+            return TIPO_DOADOR.equals(tipo);
+        }
+    }
+
+    private final TokenStore tokenStore;
+    private final AssinadorToken assinador;
+    private final ListaRevogacao revogacao;
+    private final boolean assinado;
+    private final long validadeSegundos;
+    private final LongSupplier relogio;
+
+    @Autowired
+    public TokenService(TokenStore tokenStore,
+                        AssinadorToken assinador,
+                        ListaRevogacao revogacao,
+                        @Value("${auth.token.modo:assinado}") String modo,
+                        @Value("${auth.token.validade:PT12H}") Duration validade) {
+        this(tokenStore, assinador, revogacao, modo, validade, () -> System.currentTimeMillis() / 1000);
+    }
+
+    TokenService(TokenStore tokenStore, AssinadorToken assinador, ListaRevogacao revogacao,
+                 String modo, Duration validade, LongSupplier relogio) {
+        if (!MODO_ASSINADO.equals(modo) && !MODO_MEMORIA.equals(modo)) {
+            throw new IllegalStateException("auth.token.modo inválido: " + modo
+                    + " (use '" + MODO_ASSINADO + "' ou '" + MODO_MEMORIA + "')");
+        }
+        this.tokenStore = tokenStore;
+        this.assinador = assinador;
+        this.revogacao = revogacao;
+        this.assinado = MODO_ASSINADO.equals(modo);
+        this.validadeSegundos = validade.getSeconds();
+        this.relogio = relogio;
+    }
 
     /**
-     * Gera e armazena um token para o userId informado.
+     * Tipo de conta exposto ao frontend e carregado no token.
      */
-    public String generateToken(Long userId) {
-        String token = UUID.randomUUID().toString();
-        tokenStore.put(token, userId);
-        return token;
+    public static String tipoDe(Usuario usuario) {
+        if (usuario instanceof Instituicao) return TIPO_INSTITUICAO;
+        if (usuario instanceof Doador) return TIPO_DOADOR;
+        return TIPO_USUARIO;
     }
 
     /**
-     * Recupera o userId associado a um token, ou null se inválido.
+     * Gera um token para o usuário informado.
      */
-    public Long getUserIdForToken(String token) {
+    public String generateToken(Long userId, String tipo) {
+        byte codigo = codigoTipo(tipo);
+        if (assinado) {
+            return assinador.assinar(userId, codigo, relogio.getAsLong() + validadeSegundos);
+        }
+        return tokenStore.emitir(userId << BITS_TIPO | codigo);
+    }
+
+    /**
+     * Valida o token e devolve o usuário autenticado, ou null se o token
+     * for inválido, expirado ou revogado.
+     */
+    public Sessao validar(String token) {
         if (token == null) return null;
-        return tokenStore.get(token);
+        if (assinado) {
+            AssinadorToken.Conteudo conteudo = assinador.verificar(token, relogio.getAsLong());
+            if (conteudo == null || conteudo.getTipo() < 0 || conteudo.getTipo() >= TIPOS.length
+                    || revogacao.isRevogado(conteudo.getJtiAltos(), conteudo.getJtiBaixos())) {
+                return null;
+            }
+            return new Sessao(conteudo.getUsuarioId(), TIPOS[conteudo.getTipo()]);
+        }
+        Long valor = tokenStore.buscar(token);
+        if (valor == null) return null;
+        return new Sessao(valor >>> BITS_TIPO, TIPOS[(int) (valor & ((1 << BITS_TIPO) - 1))]);
     }
 
     /**
-     * Remove um token (logout).
+     * Recupera o userId associado a um token, ou null se inválido ou expirado.
+     */
+    public Long getUserIdForToken(String token) {
+        Sessao sessao = validar(token);
+        return sessao != null ? sessao.getUsuarioId() : null;
+    }
+
+    /**
+     * Invalida um token (logout).
      */
     public void invalidateToken(String token) {
-        if (token != null) tokenStore.remove(token);
+        if (token == null) return;
+        if (!assinado) {
+            tokenStore.revogar(token);
+            return;
+        }
+        AssinadorToken.Conteudo conteudo = assinador.verificar(token, relogio.getAsLong());
+        if (conteudo != null) {
+            revogacao.revogar(conteudo.getJtiAltos(), conteudo.getJtiBaixos(), conteudo.getExpiraEm());
+        }
+    }
+
+    private static byte codigoTipo(String tipo) {
+        for (byte i = 0; i < TIPOS.length; i++) {
+            if (TIPOS[i].equals(tipo)) return i;
+        }
+        throw new IllegalArgumentException("Tipo de usuário inválido: " + tipo);
     }
 }
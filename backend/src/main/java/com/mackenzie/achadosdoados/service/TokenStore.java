@@ -0,0 +1,366 @@
+package com.mackenzie.achadosdoados.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Armazenamento em memória dos tokens de sessão, com expiração e
+ * capacidade limitada.
+ *
+ * Cada token é um UUID guardado como dois longs (sem a String de 36
+ * caracteres), junto com o id do usuário, o instante de emissão e o de
+ * expiração, em arrays primitivos de tabelas hash de endereçamento aberto
+ * (sondagem linear, remoção por deslocamento para trás). As tabelas são
+ * divididas em SEGMENTOS, cada um com seu próprio lock, e alocadas uma
+ * única vez no tamanho da capacidade máxima.
+ *
+ * A expiração é deslizante: cada uso válido adia a expiração em 'ttl',
+ * até no máximo 'duracaoMaxima' depois da emissão. Com o segmento cheio,
+ * o token que expira primeiro entre AMOSTRA_DESPEJO posições sorteadas é
+ * descartado (aproximação de LRU, já que a expiração acompanha o último
+ * uso). Uma varredura agendada remove os tokens expirados.
+ *
+ * Métricas: tokens.ativos, tokens.capacidade, tokens.removidos
+ * (motivo=expirado|capacidade|logout) e tokens.consulta (latência).
+ */
+@Component
+public class TokenStore {
+
+    static final int SEGMENTOS = 16;
+    static final int AMOSTRA_DESPEJO = 8;
+
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+    private final int capacidade;
+    private final long ttl;
+    private final long duracaoMaxima;
+    private final LongSupplier relogio;
+
+    private final AtomicInteger ativos = new AtomicInteger();
+    private final Counter expirados;
+    private final Counter despejados;
+    private final Counter revogados;
+    private final Timer consultas;
+
+    @Autowired
+    public TokenStore(@Value("${tokens.capacidade:50000}") int capacidade,
+                      @Value("${tokens.ttl:PT12H}") Duration ttl,
+                      @Value("${tokens.duracao-maxima:P7D}") Duration duracaoMaxima,
+                      MeterRegistry registry) {
+        this(capacidade, ttl, duracaoMaxima, registry, System::currentTimeMillis);
+    }
+
+    TokenStore(int capacidade, Duration ttl, Duration duracaoMaxima, MeterRegistry registry, LongSupplier relogio) {
+        if (capacidade < SEGMENTOS) {
+            throw new IllegalArgumentException("tokens.capacidade deve ser pelo menos " + SEGMENTOS);
+        }
+        this.capacidade = capacidade;
+        this.ttl = ttl.toMillis();
+        this.duracaoMaxima = duracaoMaxima.toMillis();
+        this.relogio = relogio;
+        int limitePorSegmento = (capacidade + SEGMENTOS - 1) / SEGMENTOS;
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento(limitePorSegmento);
+        }
+
+        Gauge.builder("tokens.ativos", ativos, AtomicInteger::get)
+                .description("Tokens de sessão em memória").register(registry);
+        Gauge.builder("tokens.capacidade", this, t -> t.capacidade)
+                .description("Máximo de tokens de sessão em memória").register(registry);
+        expirados = Counter.builder("tokens.removidos").tag("motivo", "expirado").register(registry);
+        despejados = Counter.builder("tokens.removidos").tag("motivo", "capacidade").register(registry);
+        revogados = Counter.builder("tokens.removidos").tag("motivo", "logout").register(registry);
+        consultas = Timer.builder("tokens.consulta")
+                .description("Latência da validação de tokens").register(registry);
+    }
+
+    /**
+     * Emite um token novo para o usuário.
+     *
+     * @return O token no formato UUID.
+     */
+    public String emitir(long usuarioId) {
+        UUID token = UUID.randomUUID();
+        long agora = relogio.getAsLong();
+        segmento(token.getMostSignificantBits(), token.getLeastSignificantBits())
+                .inserir(token.getMostSignificantBits(), token.getLeastSignificantBits(),
+                        usuarioId, agora, Math.min(agora + ttl, agora + duracaoMaxima));
+        return token.toString();
+    }
+
+    /**
+     * Valida o token e renova a expiração.
+     *
+     * @return O id do usuário, ou null se o token for inválido ou expirado.
+     */
+    public Long buscar(String token) {
+        long inicio = System.nanoTime();
+        try {
+            long[] chave = new long[2];
+            if (!lerUuid(token, chave)) {
+                return null;
+            }
+            long usuario = segmento(chave[0], chave[1]).buscar(chave[0], chave[1], relogio.getAsLong());
+            return usuario == Segmento.AUSENTE ? null : usuario;
+        } finally {
+            consultas.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Remove o token (logout). Tokens desconhecidos são ignorados.
+     */
+    public void revogar(String token) {
+        long[] chave = new long[2];
+        if (lerUuid(token, chave) && segmento(chave[0], chave[1]).remover(chave[0], chave[1])) {
+            revogados.increment();
+        }
+    }
+
+    /**
+     * Remove os tokens expirados de todos os segmentos.
+     *
+     * @return Quantos tokens foram removidos.
+     */
+    @Scheduled(fixedDelayString = "${tokens.varredura.intervalo:PT1M}")
+    public int varrer() {
+        long agora = relogio.getAsLong();
+        int removidos = 0;
+        for (Segmento segmento : segmentos) {
+            removidos += segmento.varrer(agora);
+        }
+        return removidos;
+    }
+
+    /**
+     * @return Número de tokens em memória.
+     */
+    public int tamanho() {
+        return ativos.get();
+    }
+
+    private Segmento segmento(long altos, long baixos) {
+        return segmentos[(int) (espalhar(altos, baixos) >>> 60) & (SEGMENTOS - 1)];
+    }
+
+    private static long espalhar(long altos, long baixos) {
+        long h = altos * 0x9E3779B97F4A7C15L ^ baixos;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Converte "xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx" em dois longs sem
+     * criar objetos intermediários.
+     */
+    static boolean lerUuid(String texto, long[] destino) {
+        if (texto == null || texto.length() != 36) {
+            return false;
+        }
+        long altos = 0;
+        long baixos = 0;
+        int digitos = 0;
+        for (int i = 0; i < 36; i++) {
+            char c = texto.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+                continue;
+            }
+            int valor = Character.digit(c, 16);
+            if (valor < 0) {
+                return false;
+            }
+            if (digitos++ < 16) {
+                altos = altos << 4 | valor;
+            } else {
+                baixos = baixos << 4 | valor;
+            }
+        }
+        destino[0] = altos;
+        destino[1] = baixos;
+        return true;
+    }
+
+    /**
+     * Uma tabela de endereçamento aberto. Posição vazia: altos == 0 e
+     * baixos == 0 (um UUID aleatório nunca tem esse valor).
+     */
+    private final class Segmento {
+
+        static final long AUSENTE = Long.MIN_VALUE;
+
+        private final long[] altos;
+        private final long[] baixos;
+        private final long[] usuarios;
+        private final long[] emitidoEm;
+        private final long[] expiraEm;
+        private final int mascara;
+        private final int limite;
+        private int tamanho;
+
+        Segmento(int limite) {
+            // No máximo metade das posições ocupadas: sondagens curtas
+            int posicoes = Integer.highestOneBit(Math.max(2, limite * 2 - 1)) << 1;
+            this.altos = new long[posicoes];
+            this.baixos = new long[posicoes];
+            this.usuarios = new long[posicoes];
+            this.emitidoEm = new long[posicoes];
+            this.expiraEm = new long[posicoes];
+            this.mascara = posicoes - 1;
+            this.limite = limite;
+        }
+
+        synchronized long buscar(long a, long b, long agora) {
+            int i = localizar(a, b);
+            if (i < 0) {
+                return AUSENTE;
+            }
+            if (expiraEm[i] <= agora) {
+                removerNaPosicao(i);
+                expirados.increment();
+                return AUSENTE;
+            }
+            expiraEm[i] = Math.min(agora + ttl, emitidoEm[i] + duracaoMaxima);
+            return usuarios[i];
+        }
+
+        synchronized void inserir(long a, long b, long usuario, long agora, long expira) {
+            if (tamanho >= limite) {
+                despejarUm(agora);
+            }
+            int i = posicaoIdeal(a, b);
+            while (ocupada(i)) {
+                i = (i + 1) & mascara;
+            }
+            altos[i] = a;
+            baixos[i] = b;
+            usuarios[i] = usuario;
+            emitidoEm[i] = agora;
+            expiraEm[i] = expira;
+            tamanho++;
+            ativos.incrementAndGet();
+        }
+
+        synchronized boolean remover(long a, long b) {
+            int i = localizar(a, b);
+            if (i < 0) {
+                return false;
+            }
+            removerNaPosicao(i);
+            return true;
+        }
+
+        synchronized int varrer(long agora) {
+            int removidos = 0;
+            int i = 0;
+            while (i <= mascara) {
+                if (ocupada(i) && expiraEm[i] <= agora) {
+                    // O deslocamento pode trazer outro token para i: reexamina
+                    removerNaPosicao(i);
+                    removidos++;
+                } else {
+                    i++;
+                }
+            }
+            if (removidos > 0) {
+                expirados.increment(removidos);
+            }
+            return removidos;
+        }
+
+        private void despejarUm(long agora) {
+            ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+            int escolhida = -1;
+            for (int amostras = 0, tentativas = 0; amostras < AMOSTRA_DESPEJO && tentativas < 4 * AMOSTRA_DESPEJO;
+                 tentativas++) {
+                int i = aleatorio.nextInt(mascara + 1);
+                if (!ocupada(i)) {
+                    continue;
+                }
+                amostras++;
+                if (escolhida < 0 || expiraEm[i] < expiraEm[escolhida]) {
+                    escolhida = i;
+                }
+            }
+            if (escolhida < 0) {
+                // Tabela pelo menos metade ocupada: uma varredura linear sempre acha
+                for (int i = 0; escolhida < 0; i++) {
+                    if (ocupada(i)) {
+                        escolhida = i;
+                    }
+                }
+            }
+            boolean expirado = expiraEm[escolhida] <= agora;
+            removerNaPosicao(escolhida);
+            (expirado ? expirados : despejados).increment();
+        }
+
+        private int localizar(long a, long b) {
+            if (a == 0 && b == 0) {
+                return -1;
+            }
+            int i = posicaoIdeal(a, b);
+            while (ocupada(i)) {
+                if (altos[i] == a && baixos[i] == b) {
+                    return i;
+                }
+                i = (i + 1) & mascara;
+            }
+            return -1;
+        }
+
+        /**
+         * Remove sem deixar marcadores: puxa para trás os tokens seguintes
+         * da mesma sequência que ficariam inalcançáveis.
+         */
+        private void removerNaPosicao(int removida) {
+            int vazia = removida;
+            int j = removida;
+            while (true) {
+                j = (j + 1) & mascara;
+                if (!ocupada(j)) {
+                    break;
+                }
+                int ideal = posicaoIdeal(altos[j], baixos[j]);
+                // O token em j pode ocupar a vaga se sua posição ideal não
+                // estiver no intervalo circular (vazia, j]
+                boolean fica = vazia <= j ? (ideal > vazia && ideal <= j) : (ideal > vazia || ideal <= j);
+                if (!fica) {
+                    altos[vazia] = altos[j];
+                    baixos[vazia] = baixos[j];
+                    usuarios[vazia] = usuarios[j];
+                    emitidoEm[vazia] = emitidoEm[j];
+                    expiraEm[vazia] = expiraEm[j];
+                    vazia = j;
+                }
+            }
+            altos[vazia] = 0;
+            baixos[vazia] = 0;
+            tamanho--;
+            ativos.decrementAndGet();
+        }
+
+        private boolean ocupada(int i) {
+            return altos[i] != 0 || baixos[i] != 0;
+        }
+
+        private int posicaoIdeal(long a, long b) {
+            return (int) espalhar(a, b) & mascara;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.mackenzie.achadosdoados.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gera as variantes redimensionadas (thumb, card, full) de cada imagem
+ * enviada, gravadas ao lado do original como "<nome>.<tamanho>.jpg".
+ *
+ * A geração roda num pool próprio e limitado, fora da requisição de upload;
+ * enquanto a variante não existe (ou se o formato não for legível pelo
+ * ImageIO, como WebP) o original é servido no lugar. O formato de saída é
+ * JPEG porque o JDK não tem codificador WebP.
+ * Métricas: executor.*{name=variantes} e imagens.variantes{resultado}.
+ */
+@Component
+public class VariantesImagem {
+
+    private static final Logger logger = LoggerFactory.getLogger(VariantesImagem.class);
+
+    private static final String EXTENSAO = ".jpg";
+    /** Lado maior do placeholder, em pixels. */
+    static final int LADO_PLACEHOLDER = 16;
+    private static final float QUALIDADE_PLACEHOLDER = 0.5f;
+    /** Tamanho da coluna Instituicao.fotoPlaceholder. */
+    private static final int MAXIMO_PLACEHOLDER = 1024;
+
+    /**
+     * Tamanhos gerados; o lado maior da imagem fica limitado a 'lado'
+     * pixels (imagens menores não são ampliadas).
+     */
+    public enum Tamanho {
+        THUMB("thumb", 192),
+        CARD("card", 640),
+        FULL("full", 1600);
+
+        private final String nome;
+        private final int lado;
+
+        Tamanho(String nome, int lado) {
+            this.nome = nome;
+            this.lado = lado;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public int getLado() {
+            return lado;
+        }
+
+        /**
+         * @return O tamanho informado, ou null se o valor for vazio (original).
+         * @throws RuntimeException se o tamanho não existir.
+         */
+        public static Tamanho de(String valor) {
+            if (valor == null || valor.isEmpty()) {
+                return null;
+            }
+            for (Tamanho tamanho : values()) {
+                if (tamanho.nome.equalsIgnoreCase(valor)) {
+                    return tamanho;
+                }
+            }
+            throw new RuntimeException("Tamanho de imagem inválido. Use 'thumb', 'card' ou 'full'.");
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final float qualidade;
+    private final Counter geradas;
+    private final Counter ignoradas;
+    private final Counter falhas;
+    private final Counter rejeitadas;
+
+    public VariantesImagem(@Value("${imagens.variantes.threads:2}") int threads,
+                           @Value("${imagens.variantes.fila:100}") int fila,
+                           @Value("${imagens.variantes.qualidade:0.82}") float qualidade,
+                           MeterRegistry meterRegistry) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fila), novaFabrica(), new ThreadPoolExecutor.AbortPolicy());
+        this.qualidade = qualidade;
+        this.geradas = contador(meterRegistry, "geradas");
+        this.ignoradas = contador(meterRegistry, "ignoradas");
+        this.falhas = contador(meterRegistry, "falhas");
+        this.rejeitadas = contador(meterRegistry, "rejeitadas");
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "variantes", Collections.emptyList());
+    }
+
+    /**
+     * Caminho da variante de uma imagem (no mesmo diretório do original).
+     */
+    public static Path caminho(Path original, Tamanho tamanho) {
+        return original.resolveSibling(nome(original.getFileName().toString(), tamanho));
+    }
+
+    /**
+     * Nome do arquivo da variante de uma imagem ("<nome sem extensão>.<tamanho>.jpg").
+     */
+    public static String nome(String original, Tamanho tamanho) {
+        int ponto = original.lastIndexOf('.');
+        String base = ponto > 0 ? original.substring(0, ponto) : original;
+        return base + "." + tamanho.nome + EXTENSAO;
+    }
+
+    /**
+     * Indica se o arquivo é uma variante gerada (e não um original).
+     */
+    public static boolean isVariante(String nomeArquivo) {
+        for (Tamanho tamanho : Tamanho.values()) {
+            if (nomeArquivo.endsWith("." + tamanho.nome + EXTENSAO)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Agenda a geração das variantes. Com o pool cheio a tarefa é descartada
+     * (o original continua sendo servido) e a geração fica para a próxima
+     * subida da aplicação.
+     *
+     * @param aoConcluir Executado no pool depois que todas as variantes
+     *                   forem gravadas (ex.: publicá-las no armazenamento).
+     */
+    public void gerarEmSegundoPlano(Path original, Runnable aoConcluir) {
+        try {
+            executor.execute(() -> {
+                if (gerar(original)) {
+                    aoConcluir.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejeitadas.increment();
+            logger.warn("Fila de variantes cheia; {} ficará só com o original por enquanto", original.getFileName());
+        }
+    }
+
+    /**
+     * Executa a tarefa no pool de variantes (ex.: a geração das pendentes ao subir).
+     */
+    public void executar(Runnable tarefa) {
+        try {
+            executor.execute(tarefa);
+        } catch (RejectedExecutionException e) {
+            rejeitadas.increment();
+        }
+    }
+
+    /**
+     * Gera todas as variantes de uma imagem, na thread atual.
+     *
+     * @return false se o formato não puder ser lido ou a geração falhar.
+     */
+    boolean gerar(Path original) {
+        try {
+            BufferedImage imagem = ler(original, 2 * Tamanho.FULL.lado);
+            if (imagem == null) {
+                ignoradas.increment();
+                logger.debug("Formato não suportado para variantes: {}", original.getFileName());
+                return false;
+            }
+            // Do maior para o menor: cada redução parte da anterior
+            BufferedImage origem = imagem;
+            for (int i = Tamanho.values().length - 1; i >= 0; i--) {
+                Tamanho tamanho = Tamanho.values()[i];
+                origem = reduzir(origem, tamanho.lado);
+                gravar(origem, caminho(original, tamanho));
+            }
+            geradas.increment();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            falhas.increment();
+            logger.warn("Falha ao gerar variantes de {}: {}", original.getFileName(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Placeholder da imagem para a primeira pintura da página: a imagem
+     * reduzida a no máximo 16x16 pixels, como data URI JPEG (cerca de 450
+     * caracteres), que o navegador mostra ampliado e borrado enquanto a
+     * foto carrega. JPEG porque o JDK não tem codificador WebP; as tabelas
+     * de Huffman otimizadas são a maior parte da economia nesse tamanho.
+     * Roda na thread atual: a decodificação com subamostragem forte é barata.
+     *
+     * @return O data URI, ou null se o formato não puder ser lido (ex.: WebP)
+     *         ou a geração falhar.
+     */
+    public String placeholder(Path original) {
+        try {
+            BufferedImage imagem = ler(original, 4 * LADO_PLACEHOLDER);
+            if (imagem == null) {
+                return null;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ImageOutputStream saida = ImageIO.createImageOutputStream(bytes)) {
+                codificar(reduzir(imagem, LADO_PLACEHOLDER), QUALIDADE_PLACEHOLDER, true, saida);
+            }
+            String uri = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(bytes.toByteArray());
+            return uri.length() <= MAXIMO_PLACEHOLDER ? uri : null;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Falha ao gerar placeholder de {}: {}", original.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Decodifica a imagem com subamostragem, para que uma foto de dezenas
+     * de megapixels não seja carregada inteira no heap: basta que o lado
+     * maior fique com ao menos 'ladoMinimo' pixels (o dobro do maior
+     * tamanho gerado).
+     */
+    private static BufferedImage ler(Path arquivo, int ladoMinimo) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(arquivo.toFile())) {
+            if (entrada == null) {
+                return null;
+            }
+            Iterator<ImageReader> leitores = ImageIO.getImageReaders(entrada);
+            if (!leitores.hasNext()) {
+                return null;
+            }
+            ImageReader leitor = leitores.next();
+            try {
+                leitor.setInput(entrada, true, true);
+                int maiorLado = Math.max(leitor.getWidth(0), leitor.getHeight(0));
+                int passo = Math.max(1, maiorLado / ladoMinimo);
+                ImageReadParam parametros = leitor.getDefaultReadParam();
+                parametros.setSourceSubsampling(passo, passo, 0, 0);
+                return leitor.read(0, parametros);
+            } finally {
+                leitor.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reduz a imagem em etapas de no máximo metade (bilinear), o que evita o
+     * serrilhado de uma única redução grande; o resultado é sempre RGB.
+     */
+    static BufferedImage reduzir(BufferedImage imagem, int lado) {
+        int largura = imagem.getWidth();
+        int altura = imagem.getHeight();
+        double escala = Math.min(1.0, (double) lado / Math.max(largura, altura));
+        int larguraFinal = Math.max(1, (int) Math.round(largura * escala));
+        int alturaFinal = Math.max(1, (int) Math.round(altura * escala));
+
+        BufferedImage atual = imagem;
+        do {
+            largura = Math.max(larguraFinal, largura / 2);
+            altura = Math.max(alturaFinal, altura / 2);
+            atual = desenhar(atual, largura, altura);
+        } while (largura != larguraFinal || altura != alturaFinal);
+        return atual;
+    }
+
+    private static BufferedImage desenhar(BufferedImage origem, int largura, int altura) {
+        BufferedImage destino = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = destino.createGraphics();
+        try {
+            // Fundo branco para imagens com transparência (JPEG não tem alfa)
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, largura, altura);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(origem, 0, 0, largura, altura, null);
+        } finally {
+            g.dispose();
+        }
+        return destino;
+    }
+
+    /**
+     * Grava num arquivo temporário e renomeia, para que uma requisição nunca
+     * leia uma variante pela metade.
+     */
+    private void gravar(BufferedImage imagem, Path destino) throws IOException {
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (ImageOutputStream saida = ImageIO.createImageOutputStream(temporario.toFile())) {
+            codificar(imagem, qualidade, false, saida);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void codificar(BufferedImage imagem, float qualidade, boolean otimizarTabelas,
+                                  ImageOutputStream saida) throws IOException {
+        ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try {
+            JPEGImageWriteParam parametros = (JPEGImageWriteParam) escritor.getDefaultWriteParam();
+            parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametros.setCompressionQuality(qualidade);
+            parametros.setOptimizeHuffmanTables(otimizarTabelas);
+            escritor.setOutput(saida);
+            escritor.write(null, new IIOImage(imagem, null, null), parametros);
+        } finally {
+            escritor.dispose();
+        }
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("imagens.variantes")
+                .description("Imagens processadas pelo gerador de variantes")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    private static ThreadFactory novaFabrica() {
+        AtomicInteger contador = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "variantes-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
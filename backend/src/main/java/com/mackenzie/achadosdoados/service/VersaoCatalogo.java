@@ -0,0 +1,134 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.event.DemandaAlteradaEvent;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import com.mackenzie.achadosdoados.repository.DemandaRepository;
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Versões das listagens públicas, usadas como ETag forte em /api/demandas,
+ * /api/demandas/{id} e /api/instituicoes.
+ *
+ * A versão vem do banco (maior atualizadoEm e quantidade de linhas de cada
+ * tabela), então todas as instâncias atrás do balanceador chegam à mesma
+ * tag para o mesmo conteúdo. A tag das demandas inclui a das instituições,
+ * cujo nome e foto elas repetem. Para não consultar o banco a cada
+ * requisição, cada tag é reaproveitada por 'catalogo.versao.validade';
+ * uma alteração confirmada nesta instância descarta a tag na hora, e as
+ * de outras instâncias aparecem no máximo depois da validade.
+ */
+@Component
+public class VersaoCatalogo {
+
+    /**
+     * Tag calculada, o instante (System.nanoTime) em que foi lida e o número
+     * de alterações locais até então: uma alteração confirmada durante a
+     * leitura invalida a tag lida.
+     */
+    private static final class Lida {
+        final String tag;
+        final long lidaEm;
+        final long alteracoes;
+
+        Lida(String tag, long lidaEm, long alteracoes) {
+            this.tag = tag;
+            this.lidaEm = lidaEm;
+            this.alteracoes = alteracoes;
+        }
+    }
+
+    private final DemandaRepository demandaRepository;
+    private final InstituicaoRepository instituicaoRepository;
+    private final long validadeNanos;
+    private final LongSupplier relogio;
+
+    private final AtomicLong alteracoesDemandas = new AtomicLong();
+    private final AtomicLong alteracoesInstituicoes = new AtomicLong();
+    private volatile Lida demandas;
+    private volatile Lida instituicoes;
+
+    @Autowired
+    public VersaoCatalogo(DemandaRepository demandaRepository,
+                          InstituicaoRepository instituicaoRepository,
+                          @Value("${catalogo.versao.validade:PT5S}") Duration validade) {
+        this(demandaRepository, instituicaoRepository, validade, System::nanoTime);
+    }
+
+    VersaoCatalogo(DemandaRepository demandaRepository, InstituicaoRepository instituicaoRepository,
+                   Duration validade, LongSupplier relogio) {
+        this.demandaRepository = demandaRepository;
+        this.instituicaoRepository = instituicaoRepository;
+        this.validadeNanos = validade.toNanos();
+        this.relogio = relogio;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDemandaAlterada(DemandaAlteradaEvent event) {
+        alteracoesDemandas.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInstituicaoAlterada(InstituicaoAlteradaEvent event) {
+        alteracoesInstituicoes.incrementAndGet();
+        alteracoesDemandas.incrementAndGet();
+    }
+
+    /**
+     * @return ETag atual das respostas de demandas.
+     */
+    public String etagDemandas() {
+        Lida lida = demandas;
+        if (!valida(lida, alteracoesDemandas)) {
+            long alteracoes = alteracoesDemandas.get();
+            long agora = relogio.getAsLong();
+            String tag = "\"d-" + versao(demandaRepository::versao) + "-" + versaoInstituicoes() + "\"";
+            demandas = lida = new Lida(tag, agora, alteracoes);
+        }
+        return lida.tag;
+    }
+
+    /**
+     * @return ETag atual das respostas de instituições.
+     */
+    public String etagInstituicoes() {
+        return "\"i-" + versaoInstituicoes() + "\"";
+    }
+
+    private String versaoInstituicoes() {
+        Lida lida = instituicoes;
+        if (!valida(lida, alteracoesInstituicoes)) {
+            long alteracoes = alteracoesInstituicoes.get();
+            long agora = relogio.getAsLong();
+            instituicoes = lida = new Lida(versao(instituicaoRepository::versao), agora, alteracoes);
+        }
+        return lida.tag;
+    }
+
+    private boolean valida(Lida lida, AtomicLong alteracoes) {
+        return lida != null && lida.alteracoes == alteracoes.get()
+                && relogio.getAsLong() - lida.lidaEm < validadeNanos;
+    }
+
+    /**
+     * "maior atualizadoEm (microssegundos)-quantidade", em base 36.
+     */
+    private static String versao(Supplier<List<Object[]>> consulta) {
+        List<Object[]> linhas = consulta.get();
+        Object[] linha = linhas.isEmpty() ? new Object[2] : linhas.get(0);
+        Instant maior = (Instant) linha[0];
+        long micros = maior == null ? 0 : maior.getEpochSecond() * 1_000_000 + maior.getNano() / 1_000;
+        long quantidade = linha[1] == null ? 0 : ((Number) linha[1]).longValue();
+        return Long.toString(micros, 36) + "-" + Long.toString(quantidade, 36);
+    }
+}
@@ -0,0 +1,40 @@
+-- Executado no perfil prod depois que o Hibernate cria/atualiza as tabelas
+-- (spring.jpa.defer-datasource-initialization). Precisa ser idempotente.
+
+-- Contas gravadas antes da normalização podem repetir o mesmo e-mail com
+-- caixa diferente, o que impediria a criação do índice único abaixo. Em
+-- cada grupo repetido, a conta de menor id fica com o e-mail; as demais
+-- são registradas em usuarios_emails_duplicados e recebem um e-mail
+-- provisório ('duplicado-<id>@invalid'), sem login até a revisão manual:
+-- mesclar a conta na mantida (demandas e doações) ou devolver a ela um
+-- e-mail próprio. Depois do índice, os passos abaixo não alteram nada.
+CREATE TABLE IF NOT EXISTS usuarios_emails_duplicados (
+    usuario_id BIGINT PRIMARY KEY,
+    email_original VARCHAR(100) NOT NULL,
+    mantido_id BIGINT NOT NULL,
+    registrado_em TIMESTAMP NOT NULL DEFAULT now()
+);
+
+INSERT INTO usuarios_emails_duplicados (usuario_id, email_original, mantido_id)
+SELECT u.id, u.email, g.mantido_id
+FROM usuarios u
+JOIN (SELECT lower(trim(email)) AS chave, min(id) AS mantido_id
+      FROM usuarios GROUP BY lower(trim(email)) HAVING count(*) > 1) g
+  ON lower(trim(u.email)) = g.chave
+WHERE u.id <> g.mantido_id
+ON CONFLICT DO NOTHING;
+
+UPDATE usuarios SET email = 'duplicado-' || id || '@invalid'
+WHERE id IN (SELECT u.id
+             FROM usuarios u
+             JOIN (SELECT lower(trim(email)) AS chave, min(id) AS mantido_id
+                   FROM usuarios GROUP BY lower(trim(email)) HAVING count(*) > 1) g
+               ON lower(trim(u.email)) = g.chave
+             WHERE u.id <> g.mantido_id);
+
+-- Sem repetições, normaliza como Usuario.normalizarEmail
+UPDATE usuarios SET email = lower(trim(email)) WHERE email <> lower(trim(email));
+
+-- E-mail único sem diferenciar caixa; também atende a busca por lower(email)
+-- do login e do cadastro. A aplicação grava os e-mails já normalizados.
+CREATE UNIQUE INDEX IF NOT EXISTS ux_usuarios_email_lower ON usuarios (lower(email));
@@ -3,7 +3,12 @@ package com.mackenzie.achadosdoados;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Banco em memória e imagens em target/: o teste não altera data/ (banco e
+// imagens de desenvolvimento versionados), nem com os jobs que rodam ao subir
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:contexto;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"imagens.diretorio=target/test-data/images"
+})
 class AchadosEDoadosApplicationTests {
 
 	@Test
@@ -0,0 +1,176 @@
+package com.mackenzie.achadosdoados.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mackenzie.achadosdoados.model.Demanda;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.repository.DemandaRepository;
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import com.mackenzie.achadosdoados.service.DemandaService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compara, por requisição, a listagem serializando entidades JPA com a
+ * listagem por projeções (DemandaResumo, InstituicaoResumo): bytes alocados
+ * pela thread, tempo (mediana e p95) e tamanho do JSON. Cada requisição é
+ * simulada como consulta + serialização com o ObjectMapper da aplicação.
+ *
+ * Não roda no build padrão; use: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.springframework.web=INFO",
+        "imagens.diretorio=target/test-data/images"
+})
+class ProjecaoListagemBenchmarkTest {
+
+    private static final int INSTITUICOES = 50;
+    private static final int DEMANDAS = 2000;
+    private static final int AQUECIMENTO = 20;
+    private static final int MEDICOES = 50;
+
+    @Autowired
+    private DemandaRepository demandaRepository;
+
+    @Autowired
+    private InstituicaoRepository instituicaoRepository;
+
+    @Autowired
+    private DemandaService demandaService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate leitura;
+
+    @BeforeAll
+    void popularBanco() {
+        leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+
+        List<Instituicao> instituicoes = new ArrayList<>();
+        for (int i = 0; i < INSTITUICOES; i++) {
+            Instituicao instituicao = new Instituicao("Instituição " + i, "inst" + i + "@bench.org", "senha",
+                    "Rua Benchmark, " + i, "1133334444");
+            instituicao.setCep("01000-000");
+            instituicao.setCidade("São Paulo");
+            instituicao.setEstado("SP");
+            instituicao.setNumero(String.valueOf(i));
+            instituicao.setLatitude(-23.5 + i / 1000.0);
+            instituicao.setLongitude(-46.6 + i / 1000.0);
+            instituicoes.add(instituicao);
+        }
+        instituicaoRepository.saveAll(instituicoes);
+
+        String descricaoLonga = String.join(" ", Collections.nCopies(150,
+                "Precisamos de doações para as famílias atendidas."));
+        List<Demanda> demandas = new ArrayList<>();
+        for (int i = 0; i < DEMANDAS; i++) {
+            Demanda demanda = new Demanda();
+            demanda.setTitulo("Demanda " + i);
+            demanda.setCategoria(i % 2 == 0 ? "Roupas" : "Alimentos");
+            demanda.setDescricao(descricaoLonga);
+            demanda.setQuantidadeDescricao("10 itens");
+            demanda.setStatus(i % 10 == 0 ? "Inativo" : "Ativo");
+            demanda.setNivelUrgencia("Alta");
+            demanda.setPrazoDesejado(LocalDate.now().plusDays(i % 30));
+            demanda.setInstituicao(instituicoes.get(i % INSTITUICOES));
+            demandas.add(demanda);
+        }
+        demandaRepository.saveAll(demandas);
+    }
+
+    @Test
+    void compararListagemDeDemandas() throws Exception {
+        Medicao entidades = medir("GET /api/demandas (entidades)", () -> leitura.execute(status ->
+                serializar(demandaRepository.findAllWithInstituicao().stream()
+                        .filter(d -> !"Inativo".equals(d.getStatus()))
+                        .collect(Collectors.toList()))));
+        Medicao resumos = medir("GET /api/demandas (resumos)", () ->
+                serializar(demandaService.buscarTodasDemandas()));
+
+        assertTrue(resumos.bytesAlocados < entidades.bytesAlocados);
+        assertTrue(resumos.tamanhoResposta < entidades.tamanhoResposta);
+    }
+
+    @Test
+    void compararListagemDeInstituicoes() throws Exception {
+        Medicao entidades = medir("GET /api/instituicoes (entidades)", () -> leitura.execute(status ->
+                serializar(instituicaoRepository.findAll())));
+        Medicao resumos = medir("GET /api/instituicoes (resumos)", () ->
+                serializar(instituicaoRepository.listarResumos()));
+
+        assertTrue(resumos.bytesAlocados < entidades.bytesAlocados);
+    }
+
+    private byte[] serializar(Object valor) {
+        try {
+            return objectMapper.writeValueAsBytes(valor);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Medicao medir(String nome, Callable<byte[]> requisicao) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            requisicao.call();
+        }
+
+        long[] tempos = new long[MEDICOES];
+        long alocados = 0;
+        int tamanho = 0;
+        for (int i = 0; i < MEDICOES; i++) {
+            long alocadosAntes = threads.getThreadAllocatedBytes(threadId);
+            long inicio = System.nanoTime();
+            tamanho = requisicao.call().length;
+            tempos[i] = System.nanoTime() - inicio;
+            alocados += threads.getThreadAllocatedBytes(threadId) - alocadosAntes;
+        }
+        Arrays.sort(tempos);
+
+        Medicao medicao = new Medicao(alocados / MEDICOES, tamanho);
+        System.out.printf("%-36s alocação/req: %8d KB  mediana: %6.2f ms  p95: %6.2f ms  resposta: %7d KB%n",
+                nome, medicao.bytesAlocados / 1024,
+                tempos[MEDICOES / 2] / 1e6, tempos[(int) (MEDICOES * 0.95)] / 1e6,
+                medicao.tamanhoResposta / 1024);
+        return medicao;
+    }
+
+    private static final class Medicao {
+        final long bytesAlocados;
+        final int tamanhoResposta;
+
+        Medicao(long bytesAlocados, int tamanhoResposta) {
+            this.bytesAlocados = bytesAlocados;
+            this.tamanhoResposta = tamanhoResposta;
+        }
+    }
+}
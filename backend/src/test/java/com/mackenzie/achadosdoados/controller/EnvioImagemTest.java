@@ -0,0 +1,160 @@
+package com.mackenzie.achadosdoados.controller;
+
+import com.mackenzie.achadosdoados.service.CacheImagens;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnvioImagemTest {
+
+    @TempDir
+    Path diretorio;
+
+    private Path arquivo;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        arquivo = diretorio.resolve("foto.jpg");
+        Files.write(arquivo, "0123456789".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void deveEnviarArquivoComHeadersDeCache() throws IOException {
+        MockHttpServletResponse response = enviar(new MockHttpServletRequest("GET", "/"), true);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals("image/jpeg", response.getContentType());
+        assertEquals(EnvioImagem.CACHE_IMUTAVEL, response.getHeader("Cache-Control"));
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals("\"foto.jpg\"", response.getHeader("ETag"));
+        assertNull(response.getHeader("Last-Modified"));
+    }
+
+    @Test
+    void deveManterOEtagQuandoADataDoArquivoMuda() throws IOException {
+        String etag = enviar(new MockHttpServletRequest("GET", "/"), true).getHeader("ETag");
+        // o reaproveitamento de uma imagem renova a data (ver ArmazenamentoImagens.tocar)
+        Files.setLastModifiedTime(arquivo, FileTime.from(Instant.now().plusSeconds(3600)));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("If-None-Match", etag);
+
+        assertEquals(304, enviar(request, true).getStatus());
+
+        request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-Range", etag);
+        assertEquals(206, enviar(request, true).getStatus());
+    }
+
+    @Test
+    void deveResponder304QuandoOEtagConfere() throws IOException {
+        String etag = enviar(new MockHttpServletRequest("GET", "/"), true).getHeader("ETag");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("If-None-Match", "\"outro\", " + etag);
+
+        MockHttpServletResponse response = enviar(request, false);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(EnvioImagem.CACHE_REVALIDAR, response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void deveEnviarSoOIntervaloPedido() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=2-5");
+
+        MockHttpServletResponse response = enviar(request, true);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", response.getContentAsString());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+
+        request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=-3");
+        assertEquals("789", enviar(request, true).getContentAsString());
+    }
+
+    @Test
+    void deveIgnorarRangeDeOutraVersaoEResponder416ForaDoArquivo() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-Range", "\"versao-antiga\"");
+        MockHttpServletResponse response = enviar(request, true);
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+
+        request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=10-");
+        response = enviar(request, true);
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void deveDelegarAoSendfileDoTomcatQuandoSuportado() throws IOException {
+        Path grande = diretorio.resolve("grande.png");
+        Files.write(grande, new byte[100_000]);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=1000-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        EnvioImagem.enviar(grande, true, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(grande.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(1000L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(100_000L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(99_000, response.getContentLengthLong());
+    }
+
+    @Test
+    void deveEnviarImagemEmMemoriaComOsMesmosHeaders() throws IOException {
+        CacheImagens cache = new CacheImagens(DataSize.ofMegabytes(1), DataSize.ofMegabytes(1),
+                new SimpleMeterRegistry());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=6-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        EnvioImagem.enviar(arquivo, cache.buscar(arquivo), true, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("6789", response.getContentAsString());
+        assertEquals(enviar(new MockHttpServletRequest("GET", "/"), true).getHeader("ETag"),
+                response.getHeader("ETag"));
+    }
+
+    @Test
+    void deveInterpretarIntervalos() {
+        assertArrayEquals(new long[]{0, 9}, EnvioImagem.intervalo("bytes=0-100", 10));
+        assertArrayEquals(new long[]{4, 9}, EnvioImagem.intervalo("bytes=4-", 10));
+        assertArrayEquals(new long[]{0, 9}, EnvioImagem.intervalo("bytes=-50", 10));
+        assertNull(EnvioImagem.intervalo("bytes=0-1,4-5", 10));
+        assertNull(EnvioImagem.intervalo("bytes=5-2", 10));
+        assertNull(EnvioImagem.intervalo("itens=0-1", 10));
+        assertEquals(0, EnvioImagem.intervalo("bytes=20-30", 10).length);
+    }
+
+    private MockHttpServletResponse enviar(MockHttpServletRequest request, boolean imutavel) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        EnvioImagem.enviar(arquivo, imutavel, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,54 @@
+package com.mackenzie.achadosdoados.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Limite de login por IP atrás de um balanceador (configuração de produção):
+ * o IP é o do cliente, lido de X-Forwarded-For, e não o do balanceador.
+ * O teste faz o papel do balanceador, no endereço de loopback.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:login;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "imagens.diretorio=target/test-data/images",
+        "server.forward-headers-strategy=native",
+        "server.tomcat.remoteip.internal-proxies=127[.][0-9]+[.][0-9]+[.][0-9]+|0:0:0:0:0:0:0:1",
+        "login.limite.ip.capacidade=3",
+        "login.limite.ip.por-minuto=1"
+})
+class LoginAtrasDoBalanceadorTest {
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Test
+    void deveLimitarPorIpDoClienteEnaoDoBalanceador() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(HttpStatus.UNAUTHORIZED, login("203.0.113.10", "a" + i + "@example.com"));
+        }
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, login("203.0.113.10", "a3@example.com"));
+
+        // Outro cliente atrás do mesmo balanceador segue liberado
+        assertEquals(HttpStatus.UNAUTHORIZED, login("203.0.113.20", "b@example.com"));
+        // O IP informado pelo cliente antes do balanceador não é confiável
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, login("198.51.100.1, 203.0.113.10", "c@example.com"));
+    }
+
+    private HttpStatus login(String xForwardedFor, String email) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Forwarded-For", xForwardedFor);
+        Map<String, String> corpo = Map.of("email", email, "senha", "qualquer");
+        return rest.postForEntity("/api/login", new HttpEntity<>(corpo, headers), String.class).getStatusCode();
+    }
+}
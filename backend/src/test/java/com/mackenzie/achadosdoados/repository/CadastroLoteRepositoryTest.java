@@ -0,0 +1,55 @@
+package com.mackenzie.achadosdoados.repository;
+
+import com.mackenzie.achadosdoados.model.Doador;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ids da importação em lote num banco novo (sequência ainda no valor
+ * inicial), junto com os gerados pelo Hibernate.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cadastro-lote;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "imagens.diretorio=target/test-data/images"
+})
+class CadastroLoteRepositoryTest {
+
+    @Autowired
+    private CadastroLoteRepository cadastroLoteRepository;
+
+    @Autowired
+    private DoadorRepository doadorRepository;
+
+    @Autowired
+    private TransactionTemplate transacao;
+
+    @Test
+    void deveGerarIdsPositivosQueNaoColidemComOsDoHibernate() {
+        assertEquals(0, doadorRepository.count());
+        List<Doador> importados = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            importados.add(new Doador("Doador " + i, "lote" + i + "@example.com", "hash"));
+        }
+
+        transacao.executeWithoutResult(status -> cadastroLoteRepository.inserirDoadores(importados));
+        Doador salvo = doadorRepository.save(new Doador("Depois", "depois@example.com", "hash"));
+
+        Set<Long> ids = new HashSet<>();
+        for (Doador d : importados) {
+            assertTrue(d.getId() > 0, "id " + d.getId());
+            ids.add(d.getId());
+        }
+        assertEquals(120, ids.size());
+        assertFalse(ids.contains(salvo.getId()));
+        assertEquals(121, doadorRepository.count());
+    }
+}
@@ -0,0 +1,55 @@
+package com.mackenzie.achadosdoados.repository;
+
+import com.mackenzie.achadosdoados.model.Demanda;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Busca por título (fallback sem o índice de busca) com caracteres
+ * especiais do LIKE no termo.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:demanda-specs;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "imagens.diretorio=target/test-data/images"
+})
+class DemandaSpecificationsTest {
+
+    @Autowired
+    private DemandaRepository demandaRepository;
+
+    @Autowired
+    private InstituicaoRepository instituicaoRepository;
+
+    @Test
+    void deveTratarCuringasDoLikeComoLiterais() {
+        Instituicao instituicao = instituicaoRepository.save(
+                new Instituicao("Abrigo", "abrigo@example.com", "hash", "Rua A, 1", "1199999999"));
+        for (String titulo : new String[]{"Desconto de 50% em roupas", "500 cobertores",
+                "Kit_higiene", "Kit de higiene", "Pasta C:\\docs", "Pasta C:docs"}) {
+            Demanda demanda = new Demanda();
+            demanda.setTitulo(titulo);
+            demanda.setCategoria("Outros");
+            demanda.setDescricao(titulo);
+            demanda.setInstituicao(instituicao);
+            demandaRepository.save(demanda);
+        }
+
+        assertEquals(List.of("Desconto de 50% em roupas"), titulos("50%"));
+        assertEquals(List.of("Kit_higiene"), titulos("t_h"));
+        assertEquals(List.of("Pasta C:\\docs"), titulos("c:\\d"));
+        assertEquals(2, titulos("kit").size());
+    }
+
+    private List<String> titulos(String termo) {
+        return demandaRepository.findAll(DemandaSpecifications.tituloContem(termo)).stream()
+                .map(Demanda::getTitulo)
+                .collect(Collectors.toList());
+    }
+}
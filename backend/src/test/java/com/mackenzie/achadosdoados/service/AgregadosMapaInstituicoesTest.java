@@ -0,0 +1,86 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.dto.InstituicaoResumo;
+import com.mackenzie.achadosdoados.dto.MapaInstituicoes;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AgregadosMapaInstituicoesTest {
+
+    private InstituicaoRepository instituicaoRepository;
+    private AgregadosMapaInstituicoes agregados;
+
+    @BeforeEach
+    void setUp() {
+        instituicaoRepository = mock(InstituicaoRepository.class);
+        agregados = new AgregadosMapaInstituicoes(instituicaoRepository);
+    }
+
+    @Test
+    void deveAgruparPorCelulaComQuantidadeECentroide() {
+        when(instituicaoRepository.listarResumos()).thenReturn(Arrays.asList(
+                resumo(1L, -23.55, -46.63),
+                resumo(2L, -23.57, -46.65),
+                resumo(3L, -22.90, -43.17),
+                resumo(4L, null, null)));
+        agregados.carregar();
+
+        // Zoom 0: São Paulo e Rio caem na mesma célula (90 graus de longitude)
+        List<MapaInstituicoes.Cluster> brasil = agregados.clusters(-34, -74, 6, -34, 0);
+        assertEquals(1, brasil.size());
+        assertEquals(3, brasil.get(0).getQuantidade());
+        assertEquals((-23.55 - 23.57 - 22.90) / 3, brasil.get(0).getLatitude(), 1e-9);
+
+        // Zoom 7: ficam separadas; só a célula de São Paulo está na área visível
+        List<MapaInstituicoes.Cluster> saoPaulo = agregados.clusters(-24, -47, -23, -46, 7);
+        assertEquals(1, saoPaulo.size());
+        assertEquals(2, saoPaulo.get(0).getQuantidade());
+        assertEquals(-46.64, saoPaulo.get(0).getLongitude(), 1e-9);
+    }
+
+    @Test
+    void deveMoverInstituicaoDeCelulaAoReceberEvento() {
+        agregados.atualizar(1L, -23.55, -46.63);
+        agregados.atualizar(2L, -23.57, -46.65);
+
+        Instituicao mudou = new Instituicao();
+        mudou.setId(2L);
+        mudou.setLatitude(-22.90);
+        mudou.setLongitude(-43.17);
+        agregados.onInstituicaoAlterada(new InstituicaoAlteradaEvent(mudou));
+
+        assertEquals(1, agregados.clusters(-24, -47, -23, -46, 7).get(0).getQuantidade());
+        assertEquals(1, agregados.clusters(-23.5, -43.5, -22.5, -43, 7).get(0).getQuantidade());
+        assertEquals(2, agregados.clusters(-90, -180, 90, 180, 0).get(0).getQuantidade());
+
+        mudou.setLatitude(null);
+        agregados.onInstituicaoAlterada(new InstituicaoAlteradaEvent(mudou));
+
+        assertTrue(agregados.clusters(-23.5, -43.5, -22.5, -43, 7).isEmpty());
+    }
+
+    @Test
+    void deveConsiderarAreaQueCruzaOAntimeridiano() {
+        agregados.atualizar(1L, -17.7, 178.4); // Fiji
+        agregados.atualizar(2L, -13.8, -171.8); // Samoa
+        agregados.atualizar(3L, -23.55, -46.63);
+
+        List<MapaInstituicoes.Cluster> clusters = agregados.clusters(-30, 170, 0, -165, 5);
+
+        assertEquals(2, clusters.size());
+    }
+
+    private static InstituicaoResumo resumo(Long id, Double lat, Double lng) {
+        return new InstituicaoResumo(id, "Instituição " + id, "inst" + id + "@teste.org", "Rua A", "1",
+                "São Paulo", "SP", "1122334455", null, null, lat, lng);
+    }
+}
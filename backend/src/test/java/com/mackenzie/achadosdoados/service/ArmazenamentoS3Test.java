@@ -0,0 +1,280 @@
+package com.mackenzie.achadosdoados.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArmazenamentoS3Test {
+
+    private static final long PARTE = ArmazenamentoS3.PARTE_MINIMA;
+
+    @TempDir
+    Path diretorio;
+
+    @Mock
+    private S3Client s3;
+
+    private SimpleMeterRegistry registry;
+    /** Tarefas de réplica, executadas quando o teste quiser. */
+    private final List<Runnable> replicacoes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void deveGravarLocalmenteEReplicarEmSegundoPlano() throws IOException {
+        ArmazenamentoS3 armazenamento = novo(replicacoes::add);
+        Path temporario = Files.write(diretorio.resolve("upload.tmp"), new byte[]{1, 2, 3});
+        when(s3.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenReturn(PutObjectResponse.builder().build());
+
+        armazenamento.gravar("ab/cd/abcd.jpg", temporario);
+
+        assertTrue(Files.exists(diretorio.resolve("ab/cd/abcd.jpg")));
+        assertFalse(Files.exists(temporario));
+        assertTrue(armazenamento.tocar("ab/cd/abcd.jpg"));
+        assertEquals(1.0, registry.get("imagens.replicacao.pendentes").gauge().value());
+        verifyNoInteractions(s3);
+
+        replicacoes.forEach(Runnable::run);
+
+        ArgumentCaptor<PutObjectRequest> put = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3).putObject(put.capture(), any(RequestBody.class));
+        assertEquals("imagens", put.getValue().bucket());
+        assertEquals("prod/ab/cd/abcd.jpg", put.getValue().key());
+        assertEquals(0.0, registry.get("imagens.replicacao.pendentes").gauge().value());
+        assertEquals(1.0, registry.get("imagens.replicacao").tag("resultado", "replicadas").counter().count());
+    }
+
+    @Test
+    void deveTentarDeNovoQuandoOEnvioFalhar() throws IOException {
+        ArmazenamentoS3 armazenamento = novo(Runnable::run);
+        Path temporario = Files.write(diretorio.resolve("upload.tmp"), new byte[]{1});
+        when(s3.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenThrow(SdkClientException.create("fora do ar"))
+                .thenReturn(PutObjectResponse.builder().build());
+
+        armazenamento.gravar("a.jpg", temporario);
+
+        verify(s3, times(2)).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        assertEquals(1.0, registry.get("imagens.replicacao").tag("resultado", "replicadas").counter().count());
+    }
+
+    @Test
+    void deveReenviarReplicacaoQueEsgotouAsTentativas() throws IOException {
+        ArmazenamentoS3 armazenamento = novo(Runnable::run);
+        when(s3.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenThrow(SdkClientException.create("fora do ar"))
+                .thenThrow(SdkClientException.create("fora do ar"))
+                .thenThrow(SdkClientException.create("fora do ar"))
+                .thenReturn(PutObjectResponse.builder().build());
+
+        armazenamento.gravar("ab/cd/abcd.jpg", Files.write(diretorio.resolve("upload.tmp"), new byte[]{1}));
+
+        assertEquals(1.0, registry.get("imagens.replicacao").tag("resultado", "falhas").counter().count());
+        assertEquals(1, marcadores());
+
+        assertEquals(1, armazenamento.reenviarPendentes());
+
+        verify(s3, times(4)).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        assertEquals(1.0, registry.get("imagens.replicacao").tag("resultado", "replicadas").counter().count());
+        assertEquals(0, marcadores());
+        assertEquals(0, armazenamento.reenviarPendentes());
+    }
+
+    @Test
+    void deveRetomarAoSubirAsReplicacoesInterrompidas() throws IOException {
+        novo(replicacoes::add).gravar("ab/cd/abcd.jpg", Files.write(diretorio.resolve("upload.tmp"), new byte[]{1}));
+        novo(replicacoes::add).gravar("ab/cd/apagada.jpg", Files.write(diretorio.resolve("upload.tmp"), new byte[]{2}));
+        Files.delete(diretorio.resolve("ab/cd/apagada.jpg"));
+        when(s3.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+                .thenReturn(PutObjectResponse.builder().build());
+
+        // Nova instância sobre o mesmo disco; as réplicas da anterior nunca rodaram
+        ArmazenamentoS3 reiniciado = novo(Runnable::run);
+        assertEquals(1, reiniciado.reenviarPendentes());
+
+        ArgumentCaptor<PutObjectRequest> put = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3).putObject(put.capture(), any(RequestBody.class));
+        assertEquals("prod/ab/cd/abcd.jpg", put.getValue().key());
+        assertEquals(0, marcadores());
+    }
+
+    @Test
+    void deveEnviarArquivoGrandeEmPartes() throws IOException {
+        ArmazenamentoS3 armazenamento = novo(Runnable::run);
+        Path arquivo = Files.write(diretorio.resolve("grande.jpg"), new byte[(int) (2 * PARTE + 10)]);
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("u1").build());
+        List<Long> tamanhos = new ArrayList<>();
+        when(s3.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenAnswer(invocacao -> {
+            UploadPartRequest parte = invocacao.getArgument(0);
+            tamanhos.add(((RequestBody) invocacao.getArgument(1)).optionalContentLength().orElse(-1L));
+            return UploadPartResponse.builder().eTag("e" + parte.partNumber()).build();
+        });
+
+        armazenamento.enviar("grande.jpg", arquivo);
+
+        assertEquals(List.of(PARTE, PARTE, 10L), tamanhos);
+        ArgumentCaptor<CompleteMultipartUploadRequest> completar =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3).completeMultipartUpload(completar.capture());
+        assertEquals("u1", completar.getValue().uploadId());
+        assertEquals("e3", completar.getValue().multipartUpload().parts().get(2).eTag());
+        verify(s3, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void deveAbortarMultipartQuandoUmaParteFalhar() throws IOException {
+        ArmazenamentoS3 armazenamento = novo(Runnable::run);
+        Path arquivo = Files.write(diretorio.resolve("grande.jpg"), new byte[(int) (PARTE + 1)]);
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("u1").build());
+        when(s3.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenThrow(SdkClientException.create("conexão perdida"));
+
+        assertThrows(SdkClientException.class, () -> armazenamento.enviar("grande.jpg", arquivo));
+
+        verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void deveBaixarNaPrimeiraLeituraEServirDoDiscoDepois() {
+        ArmazenamentoS3 armazenamento = novo(Runnable::run);
+        when(s3.getObject(any(GetObjectRequest.class), any(Path.class))).thenAnswer(invocacao -> {
+            Files.write(invocacao.<Path>getArgument(1), new byte[]{9});
+            return null;
+        });
+
+        Path arquivo = armazenamento.abrir("ab/cd/abcd.jpg");
+        armazenamento.abrir("ab/cd/abcd.jpg");
+
+        assertEquals(diretorio.resolve("ab/cd/abcd.jpg"), arquivo);
+        assertTrue(Files.exists(arquivo));
+        verify(s3, times(1)).getObject(any(GetObjectRequest.class), any(Path.class));
+        // Nenhum temporário de download sobrando
+        assertArrayEquals(new String[]{"abcd.jpg"}, arquivo.getParent().toFile().list());
+    }
+
+    @Test
+    void deveLembrarDasImagensAusentesNoBucket() {
+        ArmazenamentoS3 armazenamento = novo(Runnable::run);
+        when(s3.getObject(any(GetObjectRequest.class), any(Path.class)))
+                .thenThrow(NoSuchKeyException.builder().build());
+
+        assertFalse(Files.exists(armazenamento.abrir("a.thumb.jpg")));
+        assertFalse(Files.exists(armazenamento.abrir("a.thumb.jpg")));
+
+        verify(s3, times(1)).getObject(any(GetObjectRequest.class), any(Path.class));
+    }
+
+    @Test
+    void deveApagarLocalEDoBucketCancelandoReplicacaoPendente() throws IOException {
+        ArmazenamentoS3 armazenamento = novo(replicacoes::add);
+        armazenamento.gravar("a.jpg", Files.write(diretorio.resolve("upload.tmp"), new byte[]{1}));
+
+        armazenamento.apagar("a.jpg");
+        replicacoes.forEach(Runnable::run);
+
+        assertFalse(Files.exists(diretorio.resolve("a.jpg")));
+        verify(s3).deleteObject(any(DeleteObjectRequest.class));
+        verify(s3, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void deveRenovarOObjetoNoBucketEConsultarASuaData() throws IOException {
+        ArmazenamentoS3 armazenamento = novo(replicacoes::add);
+        Instant data = Instant.parse("2024-05-01T10:00:00Z");
+        when(s3.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder().lastModified(data).build());
+        when(s3.copyObject(any(CopyObjectRequest.class)))
+                .thenReturn(CopyObjectResponse.builder().build())
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+
+        assertTrue(armazenamento.tocar("ab/cd/abcd.jpg"));
+        assertFalse(armazenamento.tocar("ab/cd/outra.jpg"));
+        assertEquals(data, armazenamento.modificadaEm("ab/cd/abcd.jpg"));
+
+        ArgumentCaptor<CopyObjectRequest> copia = ArgumentCaptor.forClass(CopyObjectRequest.class);
+        verify(s3, times(2)).copyObject(copia.capture());
+        assertEquals("prod/ab/cd/abcd.jpg", copia.getAllValues().get(0).sourceKey());
+        assertEquals("prod/ab/cd/abcd.jpg", copia.getAllValues().get(0).destinationKey());
+        assertEquals(MetadataDirective.REPLACE, copia.getAllValues().get(0).metadataDirective());
+    }
+
+    @Test
+    void devePercorrerOBucketPaginaAPaginaSemOPrefixo() throws IOException {
+        ArmazenamentoS3 armazenamento = novo(replicacoes::add);
+        Instant data = Instant.parse("2024-05-01T10:00:00Z");
+        when(s3.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(
+                ListObjectsV2Response.builder().isTruncated(true).nextContinuationToken("t1")
+                        .contents(S3Object.builder().key("prod/aa/11/a.jpg").size(10L).lastModified(data).build())
+                        .build(),
+                ListObjectsV2Response.builder().isTruncated(false)
+                        .contents(S3Object.builder().key("prod/bb/22/b.jpg").size(20L).lastModified(data).build())
+                        .build());
+        List<String> chaves = new ArrayList<>();
+
+        armazenamento.percorrerRemotas((chave, tamanho, modificadaEm) -> chaves.add(chave));
+
+        assertEquals(List.of("aa/11/a.jpg", "bb/22/b.jpg"), chaves);
+        ArgumentCaptor<ListObjectsV2Request> lista = ArgumentCaptor.forClass(ListObjectsV2Request.class);
+        verify(s3, times(2)).listObjectsV2(lista.capture());
+        assertEquals("prod/", lista.getAllValues().get(0).prefix());
+        assertEquals("t1", lista.getAllValues().get(1).continuationToken());
+    }
+
+    private long marcadores() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio.resolve(ArmazenamentoS3.DIRETORIO_REPLICACAO))) {
+            return arquivos.count();
+        }
+    }
+
+    private ArmazenamentoS3 novo(Executor replicacao) {
+        return new ArmazenamentoS3(s3, "imagens", "prod", diretorio, PARTE, 3, Duration.ofMinutes(1),
+                replicacao, registry);
+    }
+}
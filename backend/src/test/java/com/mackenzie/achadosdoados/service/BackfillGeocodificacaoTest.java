@@ -0,0 +1,87 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.repository.DoadorRepository;
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BackfillGeocodificacaoTest {
+
+    private InstituicaoRepository instituicaoRepository;
+    private DoadorRepository doadorRepository;
+    private InstituicaoService instituicaoService;
+    private GeocodificadorCep geocodificador;
+    private ApplicationEventPublisher eventPublisher;
+    private BackfillGeocodificacao backfill;
+
+    @BeforeEach
+    void setUp() {
+        instituicaoRepository = mock(InstituicaoRepository.class);
+        doadorRepository = mock(DoadorRepository.class);
+        instituicaoService = mock(InstituicaoService.class);
+        geocodificador = mock(GeocodificadorCep.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        backfill = new BackfillGeocodificacao(instituicaoRepository, doadorRepository, instituicaoService,
+                mock(DoadorService.class), geocodificador, eventPublisher,
+                mock(PlatformTransactionManager.class), 2);
+    }
+
+    @Test
+    void devePercorrerEmLotesPorIdEAvisarAsAlteracoes() {
+        Instituicao a = instituicao(1L);
+        Instituicao b = instituicao(4L);
+        Instituicao c = instituicao(7L);
+        when(instituicaoRepository.buscarSemCoordenadasAposId(Long.MIN_VALUE, PageRequest.of(0, 2))).thenReturn(Arrays.asList(a, b));
+        when(instituicaoRepository.buscarSemCoordenadasAposId(4L, PageRequest.of(0, 2))).thenReturn(Arrays.asList(c));
+        when(instituicaoService.geocodificar(a)).thenReturn(true);
+        when(instituicaoService.geocodificar(b)).thenReturn(false); // CEP fora da base
+        when(instituicaoService.geocodificar(c)).thenReturn(true);
+
+        int atualizadas = backfill.geocodificarInstituicoes();
+
+        assertEquals(2, atualizadas);
+        verify(instituicaoRepository, times(2)).buscarSemCoordenadasAposId(anyLong(), any());
+        verify(eventPublisher, times(2)).publishEvent(any(InstituicaoAlteradaEvent.class));
+    }
+
+    @Test
+    void naoDeveConsultarBancoSemBaseDeCeps() {
+        when(geocodificador.isDisponivel()).thenReturn(false);
+
+        backfill.executar();
+
+        verifyNoInteractions(instituicaoRepository, doadorRepository);
+    }
+
+    @Test
+    void devePararQuandoLoteVemIncompleto() {
+        when(geocodificador.isDisponivel()).thenReturn(true);
+        when(instituicaoRepository.buscarSemCoordenadasAposId(eq(Long.MIN_VALUE), any())).thenReturn(Collections.emptyList());
+        when(doadorRepository.buscarSemCoordenadasAposId(eq(Long.MIN_VALUE), any())).thenReturn(Collections.emptyList());
+
+        backfill.executar();
+
+        verify(instituicaoRepository, times(1)).buscarSemCoordenadasAposId(anyLong(), any());
+        verify(doadorRepository, times(1)).buscarSemCoordenadasAposId(anyLong(), any());
+    }
+
+    private static Instituicao instituicao(Long id) {
+        Instituicao instituicao = new Instituicao();
+        instituicao.setId(id);
+        instituicao.setCep("01302-907");
+        return instituicao;
+    }
+}
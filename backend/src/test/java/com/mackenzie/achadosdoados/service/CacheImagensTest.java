@@ -0,0 +1,84 @@
+package com.mackenzie.achadosdoados.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheImagensTest {
+
+    @TempDir
+    Path diretorio;
+
+    private SimpleMeterRegistry registry;
+    private CacheImagens cache;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new CacheImagens(DataSize.ofKilobytes(10), DataSize.ofKilobytes(4), registry);
+    }
+
+    @Test
+    void deveCarregarEmMemoriaDiretaEServirDoCache() throws IOException {
+        Path arquivo = arquivo("a.jpg", 1000);
+
+        CacheImagens.Imagem imagem = cache.buscar(arquivo);
+        Files.delete(arquivo); // a segunda leitura não vai ao disco
+
+        assertSame(imagem, cache.buscar(arquivo));
+        cache.limparPendencias();
+        ByteBuffer conteudo = imagem.getConteudo();
+        assertTrue(conteudo.isDirect());
+        assertTrue(conteudo.isReadOnly());
+        assertEquals(1000, conteudo.remaining());
+        assertEquals((byte) 7, conteudo.get(7));
+        assertEquals(1000.0, registry.get("imagens.cache.bytes").gauge().value());
+        assertEquals(0.5, registry.get("imagens.cache.acertos").gauge().value());
+    }
+
+    @Test
+    void naoDeveGuardarArquivosGrandesOuInexistentes() throws IOException {
+        assertNull(cache.buscar(arquivo("grande.jpg", 5000)));
+        assertNull(cache.buscar(diretorio.resolve("nao-existe.jpg")));
+        assertEquals(0.0, registry.get("imagens.cache.bytes").gauge().value());
+    }
+
+    @Test
+    void deveRecarregarAposInvalidar() throws IOException {
+        Path arquivo = arquivo("a.jpg", 1000);
+        cache.buscar(arquivo);
+        Files.write(arquivo, new byte[300]);
+
+        cache.invalidar(arquivo);
+
+        assertEquals(300, cache.buscar(arquivo).getTamanho());
+    }
+
+    @Test
+    void deveRespeitarACapacidadeEmBytes() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            cache.buscar(arquivo("f" + i + ".jpg", 3000));
+        }
+
+        cache.limparPendencias();
+
+        assertTrue(cache.getBytesResidentes() <= 10 * 1024, "residentes: " + cache.getBytesResidentes());
+    }
+
+    private Path arquivo(String nome, int tamanho) throws IOException {
+        byte[] bytes = new byte[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            bytes[i] = (byte) i;
+        }
+        return Files.write(diretorio.resolve(nome), bytes);
+    }
+}
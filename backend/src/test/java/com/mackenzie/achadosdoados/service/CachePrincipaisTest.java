@@ -0,0 +1,73 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.dto.UsuarioAutenticado;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import com.mackenzie.achadosdoados.model.Doador;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.repository.UsuarioRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachePrincipaisTest {
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    private CachePrincipais cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CachePrincipais(usuarioRepository, "maximumSize=100", new SimpleMeterRegistry());
+    }
+
+    @Test
+    void deveCarregarUmaVezEServirDoCache() {
+        Doador doador = new Doador();
+        doador.setId(3L);
+        doador.setNome("João");
+        when(usuarioRepository.findById(3L)).thenReturn(Optional.of(doador));
+
+        UsuarioAutenticado primeiro = cache.buscar(3L);
+        UsuarioAutenticado segundo = cache.buscar(3L);
+
+        assertSame(primeiro, segundo);
+        assertEquals(TokenService.TIPO_DOADOR, primeiro.getTipo());
+        assertEquals("João", primeiro.getNome());
+        verify(usuarioRepository, times(1)).findById(3L);
+    }
+
+    @Test
+    void deveRecarregarAposAlteracaoDaInstituicao() {
+        Instituicao instituicao = new Instituicao();
+        instituicao.setId(1L);
+        instituicao.setNome("Casa da Criança");
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(instituicao));
+        assertTrue(cache.buscar(1L).isInstituicao(1L));
+
+        instituicao.setNome("Casa da Criança Feliz");
+        cache.onInstituicaoAlterada(new InstituicaoAlteradaEvent(instituicao));
+
+        assertEquals("Casa da Criança Feliz", cache.buscar(1L).getNome());
+        verify(usuarioRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void naoDeveGuardarUsuarioInexistente() {
+        when(usuarioRepository.findById(9L)).thenReturn(Optional.empty());
+
+        assertNull(cache.buscar(9L));
+        assertNull(cache.buscar(9L));
+
+        verify(usuarioRepository, times(2)).findById(9L);
+    }
+}
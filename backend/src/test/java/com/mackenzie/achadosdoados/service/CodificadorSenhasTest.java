@@ -0,0 +1,77 @@
+package com.mackenzie.achadosdoados.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodificadorSenhasTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private CodificadorSenhas codificador;
+
+    @AfterEach
+    void tearDown() {
+        codificador.shutdown();
+    }
+
+    @Test
+    void deveCodificarEConferirNoPoolEDetectarForcaAntiga() {
+        codificador = new CodificadorSenhas(new BCryptPasswordEncoder(5), 1, 1, registry);
+        String hashAntigo = new BCryptPasswordEncoder(4).encode("senha123");
+
+        String hash = codificador.encode("senha123");
+
+        assertTrue(codificador.matches("senha123", hash));
+        assertFalse(codificador.matches("outra", hash));
+        assertFalse(codificador.upgradeEncoding(hash));
+        assertTrue(codificador.upgradeEncoding(hashAntigo));
+    }
+
+    @Test
+    void deveRecusarQuandoPoolEFilaEstaoCheios() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch ocupado = new CountDownLatch(1);
+        PasswordEncoder lento = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence senha) {
+                ocupado.countDown();
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence senha, String hash) {
+                return true;
+            }
+        };
+        codificador = new CodificadorSenhas(lento, 1, 1, registry);
+        ExecutorService clientes = Executors.newFixedThreadPool(2);
+        try {
+            clientes.submit(() -> codificador.encode("a")); // ocupa a única thread
+            assertTrue(ocupado.await(5, TimeUnit.SECONDS));
+            clientes.submit(() -> codificador.encode("b")); // ocupa a fila
+            while (registry.get("executor.queued").gauge().value() < 1) {
+                Thread.sleep(5);
+            }
+
+            assertThrows(LimiteExcedidoException.class, () -> codificador.encode("c"));
+            assertEquals(1.0, registry.get("senhas.rejeitadas").counter().count());
+        } finally {
+            liberar.countDown();
+            clientes.shutdown();
+        }
+    }
+}
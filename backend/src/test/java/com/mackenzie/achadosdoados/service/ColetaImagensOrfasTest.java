@@ -0,0 +1,162 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ColetaImagensOrfasTest {
+
+    private static final String EM_USO = "aa11" + repetir('0', 60);
+    private static final String ORFA = "bb22" + repetir('0', 60);
+
+    @TempDir
+    Path diretorio;
+
+    private InstituicaoRepository instituicaoRepository;
+    private SimpleMeterRegistry registry;
+    private ColetaImagensOrfas coleta;
+
+    @BeforeEach
+    void setUp() {
+        instituicaoRepository = mock(InstituicaoRepository.class);
+        registry = new SimpleMeterRegistry();
+        coleta = novaColeta(new ArmazenamentoLocal(diretorio));
+    }
+
+    @Test
+    void deveRemoverImagensSemReferenciaComAsVariantesEContarOsBytes() throws IOException {
+        when(instituicaoRepository.buscarFotoUrlsAposId(Long.MIN_VALUE, PageRequest.of(0, 2))).thenReturn(
+                Collections.singletonList(new Object[]{3L, "/api/images/" + EM_USO + ".jpg"}));
+        Path emUso = antigo(arquivo(EM_USO + ".jpg", 100));
+        Path emUsoThumb = antigo(arquivo(EM_USO + ".thumb.jpg", 10));
+        Path orfa = antigo(arquivo(ORFA + ".png", 200));
+        Path orfaCard = antigo(arquivo(ORFA + ".card.jpg", 20));
+        Path upload = antigo(Files.write(diretorio.resolve(".upload-1.tmp"), new byte[5]));
+        Files.createDirectories(diretorio.resolve(".replicacao"));
+        Path marcador = antigo(Files.write(diretorio.resolve(".replicacao").resolve("x.jpg"), new byte[7]));
+
+        coleta.executar();
+
+        assertTrue(Files.exists(emUso));
+        assertTrue(Files.exists(emUsoThumb));
+        assertFalse(Files.exists(orfa));
+        assertFalse(Files.exists(orfaCard));
+        assertFalse(Files.exists(upload));
+        assertTrue(Files.exists(marcador));
+        assertEquals(225.0, registry.get("imagens.coleta.bytes").counter().count());
+        assertEquals(3.0, registry.get("imagens.coleta.arquivos").counter().count());
+    }
+
+    @Test
+    void deveRespeitarACarenciaEAsReferenciasGravadasDuranteARodada() throws IOException {
+        when(instituicaoRepository.buscarFotoUrlsAposId(anyLong(), any())).thenReturn(Collections.emptyList());
+        Path recente = arquivo(ORFA + ".png", 200);
+        Path antigaReferenciada = antigo(arquivo(EM_USO + ".jpg", 100));
+        // Foto gravada depois da leitura das fotoUrl: a remoção confere de novo
+        when(instituicaoRepository.countByFotoUrl("/api/images/" + EM_USO + ".jpg")).thenReturn(1L);
+
+        coleta.executar();
+
+        assertTrue(Files.exists(recente));
+        assertTrue(Files.exists(antigaReferenciada));
+        assertEquals(0.0, registry.get("imagens.coleta.bytes").counter().count());
+    }
+
+    @Test
+    void deveRemoverVarianteSemOriginal() throws IOException {
+        when(instituicaoRepository.buscarFotoUrlsAposId(anyLong(), any())).thenReturn(Collections.emptyList());
+        Path variante = antigo(arquivo(ORFA + ".thumb.jpg", 30));
+
+        coleta.executar();
+
+        assertFalse(Files.exists(variante));
+        assertEquals(30.0, registry.get("imagens.coleta.bytes").counter().count());
+    }
+
+    @Test
+    void deveLerAsFotoUrlsEmLotesPorId() {
+        when(instituicaoRepository.buscarFotoUrlsAposId(Long.MIN_VALUE, PageRequest.of(0, 2))).thenReturn(Arrays.asList(
+                new Object[]{-48L, "/api/images/a.jpg"}, new Object[]{5L, "https://externo/b.jpg"}));
+        when(instituicaoRepository.buscarFotoUrlsAposId(5L, PageRequest.of(0, 2))).thenReturn(
+                Collections.singletonList(new Object[]{9L, "/api/images/c.webp"}));
+
+        assertEquals(new HashSet<>(Arrays.asList("a", "c")), coleta.carregarReferenciadas());
+        verify(instituicaoRepository, times(2)).buscarFotoUrlsAposId(anyLong(), any());
+    }
+
+    @Test
+    void deveRemoverImagensQueSoExistemNoArmazenamentoRemoto() throws IOException {
+        when(instituicaoRepository.buscarFotoUrlsAposId(anyLong(), any())).thenReturn(
+                Collections.singletonList(new Object[]{3L, "/api/images/" + EM_USO + ".jpg"}));
+        ArmazenamentoImagens armazenamento = mock(ArmazenamentoImagens.class);
+        Instant antiga = Instant.now().minus(Duration.ofDays(2));
+        when(armazenamento.modificadaEm(any())).thenReturn(antiga);
+        String soVariante = "cc33" + repetir('0', 60);
+        String recente = "dd44" + repetir('0', 60);
+        doAnswer(invocacao -> {
+            ArmazenamentoImagens.Visitante visitante = invocacao.getArgument(0);
+            visitante.visitar(ImageStorageService.chave(EM_USO + ".jpg"), 100, antiga);
+            // Variante listada antes do original: sai junto com ele
+            visitante.visitar(ImageStorageService.chave(ORFA + ".card.jpg"), 20, antiga);
+            visitante.visitar(ImageStorageService.chave(ORFA + ".png"), 200, antiga);
+            visitante.visitar(ImageStorageService.chave(soVariante + ".thumb.jpg"), 30, antiga);
+            visitante.visitar(ImageStorageService.chave(recente + ".jpg"), 50, Instant.now());
+            return null;
+        }).when(armazenamento).percorrerRemotas(any());
+
+        novaColeta(armazenamento).executar();
+
+        verify(armazenamento).apagar(ImageStorageService.chave(ORFA + ".png"));
+        verify(armazenamento).apagar(ImageStorageService.chave(ORFA + ".card.jpg"));
+        verify(armazenamento).apagar(ImageStorageService.chave(soVariante + ".thumb.jpg"));
+        verify(armazenamento, never()).apagar(ImageStorageService.chave(EM_USO + ".jpg"));
+        verify(armazenamento, never()).apagar(ImageStorageService.chave(recente + ".jpg"));
+        assertEquals(250.0, registry.get("imagens.coleta.bytes").counter().count());
+        assertEquals(3.0, registry.get("imagens.coleta.arquivos").counter().count());
+    }
+
+    private ColetaImagensOrfas novaColeta(ArmazenamentoImagens armazenamento) {
+        ImageStorageService service = new ImageStorageService(mock(VariantesImagem.class), armazenamento,
+                mock(CacheImagens.class), instituicaoRepository, registry, diretorio.toString(), Duration.ZERO,
+                DataSize.ofMegabytes(1));
+        return new ColetaImagensOrfas(service, armazenamento, instituicaoRepository, registry, diretorio.toString(),
+                Duration.ofHours(24), 2, 1000);
+    }
+
+    /** Grava no subdiretório do hash, como o ImageStorageService. */
+    private Path arquivo(String nome, int tamanho) throws IOException {
+        Path arquivo = diretorio.resolve(nome.substring(0, 2)).resolve(nome.substring(2, 4)).resolve(nome);
+        Files.createDirectories(arquivo.getParent());
+        return Files.write(arquivo, new byte[tamanho]);
+    }
+
+    private static Path antigo(Path arquivo) throws IOException {
+        Files.setLastModifiedTime(arquivo, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        return arquivo;
+    }
+
+    private static String repetir(char c, int n) {
+        char[] chars = new char[n];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -1,5 +1,9 @@
 package com.mackenzie.achadosdoados.service;
 
+import com.mackenzie.achadosdoados.dto.CursorPage;
+import com.mackenzie.achadosdoados.dto.DemandaFiltro;
+import com.mackenzie.achadosdoados.dto.DemandaResumo;
+import com.mackenzie.achadosdoados.event.DemandaAlteradaEvent;
 import com.mackenzie.achadosdoados.model.Demanda;
 import com.mackenzie.achadosdoados.model.Instituicao;
 import com.mackenzie.achadosdoados.repository.DemandaRepository;
@@ -10,9 +14,12 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,6 +34,18 @@ class DemandaServiceTest {
     @Mock
     private InstituicaoRepository instituicaoRepository;
 
+    @Mock
+    private IndiceBuscaDemandas indiceBusca;
+
+    @Mock
+    private FacetasDemandas facetas;
+
+    @Mock
+    private IndiceEspacialInstituicoes indiceEspacial;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private DemandaService demandaService;
 
@@ -42,6 +61,7 @@ class DemandaServiceTest {
         assertSame(instituicao, resultado.getInstituicao());
         assertEquals("Ativo", resultado.getStatus());
         verify(demandaRepository).save(demanda);
+        verify(eventPublisher).publishEvent(any(DemandaAlteradaEvent.class));
     }
 
     @Test
@@ -66,14 +86,36 @@ class DemandaServiceTest {
     }
 
     @Test
-    void deveFiltrarDemandasInativasAoBuscarTodas() {
-        Demanda ativa = novaDemanda();
-        ativa.setStatus("Ativo");
-        Demanda inativa = novaDemanda();
-        inativa.setStatus("Inativo");
-        when(demandaRepository.findAllWithInstituicao()).thenReturn(Arrays.asList(ativa, inativa));
+    void deveBuscarTodasPelaProjecaoDeResumo() {
+        DemandaResumo ativa = novoResumo(1L, "Ativo");
+        when(demandaRepository.listarResumosPublicos()).thenReturn(Arrays.asList(ativa));
 
-        assertEquals(1, demandaService.buscarTodasDemandas().size());
+        assertEquals(Arrays.asList(ativa), demandaService.buscarTodasDemandas());
+        verify(demandaRepository, never()).findAllWithInstituicao();
+    }
+
+    @Test
+    void deveBuscarPeloIndiceMantendoOrdemDeRelevancia() {
+        DemandaResumo maisRelevante = novoResumo(8L, "Ativo");
+        DemandaResumo menosRelevante = novoResumo(2L, "Ativo");
+        DemandaResumo inativa = novoResumo(5L, "Inativo");
+        when(indiceBusca.isPronto()).thenReturn(true);
+        when(indiceBusca.buscar(eq("roupas"), anyInt())).thenReturn(Arrays.asList(8L, 5L, 2L));
+        when(demandaRepository.listarResumosPorIds(Arrays.asList(8L, 5L, 2L)))
+                .thenReturn(Arrays.asList(menosRelevante, inativa, maisRelevante));
+
+        assertEquals(Arrays.asList(maisRelevante, menosRelevante), demandaService.buscarDemandasPorTitulo("roupas"));
+        verify(demandaRepository, never()).buscarPaginaPorId(any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void deveBuscarNoBancoEnquantoIndiceNaoEstaPronto() {
+        DemandaResumo demanda = novoResumo(1L, "Ativo");
+        when(indiceBusca.isPronto()).thenReturn(false);
+        when(demandaRepository.buscarPaginaPorId(any(), eq(0L), eq(DemandaService.LIMITE_MAXIMO)))
+                .thenReturn(Arrays.asList(demanda));
+
+        assertEquals(Arrays.asList(demanda), demandaService.buscarDemandasPorTitulo("roupas"));
     }
 
     @Test
@@ -88,6 +130,142 @@ class DemandaServiceTest {
         ArgumentCaptor<Demanda> captor = ArgumentCaptor.forClass(Demanda.class);
         verify(demandaRepository).save(captor.capture());
         assertEquals("Inativo", captor.getValue().getStatus());
+        verify(eventPublisher).publishEvent(any(DemandaAlteradaEvent.class));
+    }
+
+    @Test
+    void deveRetornarPaginaComCursorQuandoHaMaisItens() {
+        DemandaResumo d1 = novoResumo(1L, "Ativo");
+        DemandaResumo d2 = novoResumo(2L, "Ativo");
+        DemandaResumo d3 = novoResumo(3L, "Ativo");
+        when(demandaRepository.buscarPaginaPorId(any(), eq(0L), eq(3)))
+                .thenReturn(Arrays.asList(d1, d2, d3));
+        when(demandaRepository.buscarPaginaPorId(any(), eq(2L), eq(3)))
+                .thenReturn(Arrays.asList(d3));
+
+        CursorPage<DemandaResumo> primeira = demandaService.buscarPaginaDemandas(new DemandaFiltro(), null, 2, null);
+
+        assertEquals(Arrays.asList(d1, d2), primeira.getItems());
+        assertNotNull(primeira.getNext());
+
+        CursorPage<DemandaResumo> segunda = demandaService.buscarPaginaDemandas(new DemandaFiltro(), null, 2, primeira.getNext());
+
+        assertEquals(Arrays.asList(d3), segunda.getItems());
+        assertNull(segunda.getNext());
+    }
+
+    @Test
+    void deveContinuarComDemandasSemPrazoNaOrdemPorPrazo() {
+        DemandaResumo datada = novoResumo(7L, "Ativo");
+        DemandaResumo semPrazo1 = novoResumo(3L, "Ativo", null);
+        DemandaResumo semPrazo2 = novoResumo(5L, "Ativo", null);
+        when(demandaRepository.buscarPaginaPorPrazo(any(), any(LocalDate.class), eq(0L), eq(3)))
+                .thenReturn(Arrays.asList(datada));
+        when(demandaRepository.buscarPaginaSemPrazo(any(), eq(0L), eq(2)))
+                .thenReturn(Arrays.asList(semPrazo1, semPrazo2));
+        when(demandaRepository.buscarPaginaSemPrazo(any(), eq(3L), eq(3)))
+                .thenReturn(Arrays.asList(semPrazo2));
+
+        CursorPage<DemandaResumo> primeira = demandaService.buscarPaginaDemandas(new DemandaFiltro(), "prazo", 2, null);
+
+        assertEquals(Arrays.asList(datada, semPrazo1), primeira.getItems());
+
+        CursorPage<DemandaResumo> segunda = demandaService.buscarPaginaDemandas(new DemandaFiltro(), "prazo", 2, primeira.getNext());
+
+        assertEquals(Arrays.asList(semPrazo2), segunda.getItems());
+        assertNull(segunda.getNext());
+        verify(demandaRepository, times(1))
+                .buscarPaginaPorPrazo(any(), any(LocalDate.class), anyLong(), anyInt());
+    }
+
+    @Test
+    void deveCombinarTermoDeBuscaComFiltrosNaPaginacao() {
+        DemandaResumo demanda = novoResumo(4L, "Ativo");
+        DemandaFiltro filtro = new DemandaFiltro();
+        filtro.setTitulo("roupas");
+        filtro.setInstituicaoId(1L);
+        when(indiceBusca.isPronto()).thenReturn(true);
+        when(indiceBusca.buscar("roupas", DemandaService.LIMITE_CANDIDATOS_BUSCA)).thenReturn(Arrays.asList(4L, 9L));
+        when(demandaRepository.buscarPaginaPorId(any(), eq(0L), eq(21))).thenReturn(Arrays.asList(demanda));
+
+        CursorPage<DemandaResumo> pagina = demandaService.buscarPaginaDemandas(filtro, null, null, null);
+
+        assertEquals(Arrays.asList(demanda), pagina.getItems());
+        assertNull(pagina.getNext());
+    }
+
+    @Test
+    void deveRetornarPaginaVaziaSemConsultarBancoQuandoTermoNaoTemCandidatos() {
+        DemandaFiltro filtro = new DemandaFiltro();
+        filtro.setTitulo("inexistente");
+        filtro.setInstituicaoId(1L);
+        when(indiceBusca.isPronto()).thenReturn(true);
+        when(indiceBusca.buscar(eq("inexistente"), anyInt())).thenReturn(Collections.emptyList());
+
+        CursorPage<DemandaResumo> pagina = demandaService.buscarPaginaDemandas(filtro, null, 10, null);
+
+        assertTrue(pagina.getItems().isEmpty());
+        verifyNoInteractions(demandaRepository);
+    }
+
+    @Test
+    void deveFiltrarPorRegiaoPelasInstituicoesDentroDoRaio() {
+        DemandaResumo demanda = novoResumo(4L, "Ativo");
+        DemandaFiltro filtro = new DemandaFiltro();
+        filtro.setLat(-23.55);
+        filtro.setLng(-46.63);
+        filtro.setRaio(5.0);
+        when(indiceEspacial.idsDentroDoRaio(-23.55, -46.63, 5.0)).thenReturn(new HashSet<>(Arrays.asList(1L)));
+        when(demandaRepository.buscarPaginaPorId(any(), eq(0L), eq(11))).thenReturn(Arrays.asList(demanda));
+
+        CursorPage<DemandaResumo> pagina = demandaService.buscarPaginaDemandas(filtro, null, 10, null);
+
+        assertEquals(Arrays.asList(demanda), pagina.getItems());
+    }
+
+    @Test
+    void deveRetornarPaginaVaziaQuandoNenhumaInstituicaoNoRaio() {
+        DemandaFiltro filtro = new DemandaFiltro();
+        filtro.setLat(-23.55);
+        filtro.setLng(-46.63);
+        filtro.setRaio(1.0);
+        when(indiceEspacial.idsDentroDoRaio(-23.55, -46.63, 1.0)).thenReturn(Collections.emptySet());
+
+        CursorPage<DemandaResumo> pagina = demandaService.buscarPaginaDemandas(filtro, null, 10, null);
+
+        assertTrue(pagina.getItems().isEmpty());
+        verifyNoInteractions(demandaRepository);
+    }
+
+    @Test
+    void deveLancarExcecaoQuandoRegiaoIncompleta() {
+        DemandaFiltro filtro = new DemandaFiltro();
+        filtro.setLat(-23.55);
+        filtro.setLng(-46.63);
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> demandaService.buscarPaginaDemandas(filtro, null, 10, null));
+
+        assertTrue(ex.getMessage().contains("Raio inválido"));
+        verifyNoInteractions(demandaRepository);
+    }
+
+    @Test
+    void deveLancarExcecaoQuandoCursorInvalido() {
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> demandaService.buscarPaginaDemandas(new DemandaFiltro(), null, 10, "nao-e-um-cursor"));
+
+        assertTrue(ex.getMessage().contains("Cursor inválido"));
+        verifyNoInteractions(demandaRepository);
+    }
+
+    private DemandaResumo novoResumo(Long id, String status) {
+        return novoResumo(id, status, LocalDate.now().plusDays(10));
+    }
+
+    private DemandaResumo novoResumo(Long id, String status, LocalDate prazo) {
+        return new DemandaResumo(id, "Roupas de inverno", "Roupas", "Precisamos de casacos e luvas",
+                "50 itens", status, "Alta", prazo, 50, 1L, "Casa do Bem", null, null);
     }
 
     private Demanda novaDemanda() {
@@ -8,8 +8,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.sql.SQLException;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,6 +30,12 @@ class DoadorServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private GeocodificadorCep geocodificador;
+
+    @Mock
+    private FiltroEmails filtroEmails;
+
     @InjectMocks
     private DoadorService doadorService;
 
@@ -36,6 +45,7 @@ class DoadorServiceTest {
         doador.setNome("João");
         doador.setEmail("joao@example.com");
         doador.setSenha("123456");
+        when(filtroEmails.podeExistir("joao@example.com")).thenReturn(true);
         when(usuarioRepository.findByEmail("joao@example.com")).thenReturn(Optional.empty());
         when(passwordEncoder.encode("123456")).thenReturn("senha-hash");
         when(doadorRepository.save(any(Doador.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -48,6 +58,7 @@ class DoadorServiceTest {
 
     @Test
     void deveLancarExcecaoQuandoEmailJaExiste() {
+        when(filtroEmails.podeExistir("joao@example.com")).thenReturn(true);
         when(usuarioRepository.findByEmail("joao@example.com")).thenReturn(Optional.of(new Doador()));
 
         Doador doador = new Doador();
@@ -60,4 +71,48 @@ class DoadorServiceTest {
         assertTrue(ex.getMessage().contains("Usuário já existente"));
         verify(doadorRepository, never()).save(any());
     }
+
+    @Test
+    void devePreencherCoordenadasPeloCepAoCadastrar() {
+        Doador doador = new Doador("Maria", "maria@example.com", "123456");
+        doador.setCep("01302-907");
+        when(filtroEmails.podeExistir("maria@example.com")).thenReturn(true);
+        when(usuarioRepository.findByEmail("maria@example.com")).thenReturn(Optional.empty());
+        when(geocodificador.localizar("01302-907")).thenReturn(Optional.of(
+                new GeocodificadorCep.Localizacao(-23.547, -46.652, "São Paulo", "SP")));
+        when(doadorRepository.save(any(Doador.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Doador salvo = doadorService.cadastrarDoador(doador);
+
+        assertEquals(-23.547, salvo.getLatitude());
+        assertEquals(-46.652, salvo.getLongitude());
+        assertEquals("São Paulo", salvo.getCidade());
+        assertEquals("SP", salvo.getEstado());
+    }
+
+    @Test
+    void devePularConsultaQuandoFiltroDescartaEmailENormalizar() {
+        Doador doador = new Doador("Ana", "  Ana@Example.com ", "123456");
+        when(doadorRepository.save(any(Doador.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Doador salvo = doadorService.cadastrarDoador(doador);
+
+        assertEquals("ana@example.com", salvo.getEmail());
+        verify(usuarioRepository, never()).findByEmail(any());
+        verify(filtroEmails).adicionar("ana@example.com");
+    }
+
+    @Test
+    void deveTraduzirViolacaoDoIndiceUnicoDeEmail() {
+        Doador doador = new Doador("Ana", "ana@example.com", "123456");
+        when(doadorRepository.save(any(Doador.class))).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement", new ConstraintViolationException("could not execute statement",
+                new SQLException("duplicate key value violates unique constraint \"ux_usuarios_email_lower\"", "23505"),
+                "ux_usuarios_email_lower")));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> doadorService.cadastrarDoador(doador));
+
+        assertEquals("Usuário já existente. Já existe conta com o e-mail informado.", ex.getMessage());
+        verify(filtroEmails, never()).adicionar(any());
+    }
 }
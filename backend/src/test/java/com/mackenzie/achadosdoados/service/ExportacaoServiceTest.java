@@ -0,0 +1,85 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mackenzie.achadosdoados.dto.DemandaExportacao;
+import com.mackenzie.achadosdoados.dto.DoacaoResumo;
+import com.mackenzie.achadosdoados.repository.DemandaRepository;
+import com.mackenzie.achadosdoados.repository.DoacaoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ExportacaoServiceTest {
+
+    private DemandaRepository demandaRepository;
+    private DoacaoRepository doacaoRepository;
+    private ExportacaoService exportacaoService;
+
+    @BeforeEach
+    void setUp() {
+        demandaRepository = mock(DemandaRepository.class);
+        doacaoRepository = mock(DoacaoRepository.class);
+        exportacaoService = new ExportacaoService(demandaRepository, doacaoRepository,
+                new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+
+    @Test
+    void deveExportarDemandasEmNdjsonUmaPorLinhaEFecharOStream() throws Exception {
+        AtomicBoolean fechado = new AtomicBoolean();
+        when(demandaRepository.exportarPorInstituicao(1L)).thenReturn(Stream.of(
+                novaDemanda(1L, "Roupas"), novaDemanda(2L, "Livros")).onClose(() -> fechado.set(true)));
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        long total = exportacaoService.exportarDemandas(1L, ExportacaoService.Formato.NDJSON, saida);
+
+        String[] linhas = saida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, total);
+        assertEquals(2, linhas.length);
+        assertTrue(linhas[0].startsWith("{\"id\":1,"));
+        assertTrue(linhas[1].contains("\"prazoDesejado\":\"2025-12-31\""));
+        assertTrue(fechado.get());
+    }
+
+    @Test
+    void deveExportarDoacoesEmCsvComCabecalhoEEscape() throws Exception {
+        DoacaoResumo doacao = new DoacaoResumo(7L, LocalDateTime.of(2025, 1, 2, 3, 4), "Aguardando",
+                3L, "Silva, Ana", "ana@x.org", 1L, "Casacos \"novos\"");
+        when(doacaoRepository.exportarPorInstituicao(1L)).thenReturn(Stream.of(doacao));
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        exportacaoService.exportarDoacoes(1L, ExportacaoService.Formato.CSV, saida);
+
+        String[] linhas = saida.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals("id,data,status,doadorId,doadorNome,doadorEmail,demandaId,demandaTitulo", linhas[0]);
+        assertEquals("7,2025-01-02T03:04,Aguardando,3,\"Silva, Ana\",ana@x.org,1,\"Casacos \"\"novos\"\"\"", linhas[1]);
+    }
+
+    @Test
+    void deveNeutralizarFormulasNoCsv() {
+        assertEquals("'=1+1", ExportacaoService.campoCsv("=1+1"));
+        assertEquals("-5", ExportacaoService.campoCsv(-5));
+        assertEquals("", ExportacaoService.campoCsv(null));
+    }
+
+    @Test
+    void deveRejeitarFormatoDesconhecido() {
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> ExportacaoService.Formato.de("xml"));
+
+        assertTrue(ex.getMessage().contains("Formato de exportação inválido"));
+    }
+
+    private DemandaExportacao novaDemanda(Long id, String titulo) {
+        return new DemandaExportacao(id, titulo, "Roupas", "Descrição completa", "10 itens",
+                "Ativo", "Alta", LocalDate.of(2025, 12, 31), 10);
+    }
+}
@@ -0,0 +1,100 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.dto.Facetas;
+import com.mackenzie.achadosdoados.model.Demanda;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.repository.DemandaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FacetasDemandasTest {
+
+    private DemandaRepository demandaRepository;
+    private FacetasDemandas facetas;
+
+    @BeforeEach
+    void setUp() {
+        demandaRepository = mock(DemandaRepository.class);
+        facetas = new FacetasDemandas(demandaRepository);
+    }
+
+    @Test
+    void deveCarregarContagensDoBancoUmaUnicaVez() {
+        when(demandaRepository.buscarFacetasAposId(eq(0L), any())).thenReturn(Arrays.asList(
+                new Object[]{1L, 10L, "Roupas", "Alta", "Ativo"},
+                new Object[]{2L, 10L, "Alimentos", "Alta", "Ativo"},
+                new Object[]{3L, 20L, "Roupas", "Baixa", "Concluído"}));
+
+        facetas.carregar();
+
+        Facetas globais = facetas.contagens(null);
+        assertEquals(3, globais.getTotal());
+        assertEquals(2L, globais.getCategoria().get("Roupas"));
+        assertEquals(2L, globais.getNivelUrgencia().get("Alta"));
+
+        Facetas daInstituicao = facetas.contagens(10L);
+        assertEquals(2, daInstituicao.getTotal());
+        assertEquals(Collections.singletonMap("Ativo", 2L), daInstituicao.getStatus());
+
+        verify(demandaRepository, times(1)).buscarFacetasAposId(anyLong(), any());
+    }
+
+    @Test
+    void deveAtualizarContagensIncrementalmente() {
+        Demanda demanda = demanda(1L, 10L, "Roupas", "Alta", "Ativo");
+        facetas.registrar(demanda);
+        facetas.registrar(demanda(2L, 10L, "Roupas", "Média", "Ativo"));
+
+        demanda.setNivelUrgencia("Baixa");
+        facetas.registrar(demanda);
+
+        Facetas contagens = facetas.contagens(10L);
+        assertEquals(2, contagens.getTotal());
+        assertNull(contagens.getNivelUrgencia().get("Alta"));
+        assertEquals(1L, contagens.getNivelUrgencia().get("Baixa"));
+
+        demanda.setStatus("Inativo");
+        facetas.registrar(demanda);
+
+        assertEquals(1, facetas.contagens(null).getTotal());
+        assertEquals(1L, facetas.contagens(10L).getCategoria().get("Roupas"));
+        assertEquals(0, facetas.contagens(99L).getTotal());
+    }
+
+    @Test
+    void naoDeveRecontarDemandaExcluidaDuranteACarga() {
+        when(demandaRepository.buscarFacetasAposId(eq(0L), any())).thenAnswer(invocacao -> {
+            // Exclusão confirmada depois da leitura do lote, antes de ele ser aplicado
+            facetas.registrar(demanda(1L, 10L, "Roupas", "Alta", "Inativo"));
+            return Arrays.asList(
+                    new Object[]{1L, 10L, "Roupas", "Alta", "Ativo"},
+                    new Object[]{2L, 10L, "Alimentos", "Alta", "Ativo"});
+        });
+
+        facetas.carregar();
+
+        Facetas contagens = facetas.contagens(null);
+        assertEquals(1, contagens.getTotal());
+        assertNull(contagens.getCategoria().get("Roupas"));
+    }
+
+    private Demanda demanda(Long id, Long instituicaoId, String categoria, String urgencia, String status) {
+        Instituicao instituicao = new Instituicao();
+        instituicao.setId(instituicaoId);
+        Demanda demanda = new Demanda();
+        demanda.setId(id);
+        demanda.setInstituicao(instituicao);
+        demanda.setCategoria(categoria);
+        demanda.setNivelUrgencia(urgencia);
+        demanda.setStatus(status);
+        return demanda;
+    }
+}
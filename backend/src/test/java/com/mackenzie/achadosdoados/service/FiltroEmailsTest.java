@@ -0,0 +1,99 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.repository.UsuarioRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FiltroEmailsTest {
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Test
+    void deveResponderTalvezAteCarregar() {
+        FiltroEmails filtro = new FiltroEmails(usuarioRepository, 1000);
+
+        assertTrue(filtro.podeExistir("qualquer@example.com"));
+    }
+
+    @Test
+    void deveCarregarEmLotesEReconhecerEmailsSemDiferenciarCaixa() {
+        List<Object[]> primeiroLote = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            primeiroLote.add(new Object[]{id, "usuario" + id + "@example.com"});
+        }
+        List<Object[]> segundoLote = Collections.singletonList(new Object[]{1001L, "Ultimo@Example.com"});
+        when(usuarioRepository.buscarEmailsAposId(eq(Long.MIN_VALUE), any(Pageable.class))).thenReturn(primeiroLote);
+        when(usuarioRepository.buscarEmailsAposId(eq(1000L), any(Pageable.class))).thenReturn(segundoLote);
+        FiltroEmails filtro = new FiltroEmails(usuarioRepository, 2000);
+
+        filtro.carregar();
+
+        assertTrue(filtro.podeExistir("usuario1@example.com"));
+        assertTrue(filtro.podeExistir(" USUARIO500@example.com"));
+        assertTrue(filtro.podeExistir("ultimo@example.com"));
+        assertFalse(filtro.podeExistir("novo@example.com"));
+        filtro.adicionar("novo@example.com");
+        assertTrue(filtro.podeExistir("novo@example.com"));
+    }
+
+    @Test
+    void deveManterTaxaDeFalsosPositivosPertoDaConfigurada() {
+        when(usuarioRepository.buscarEmailsAposId(eq(Long.MIN_VALUE), any(Pageable.class))).thenReturn(Collections.emptyList());
+        FiltroEmails filtro = new FiltroEmails(usuarioRepository, 10_000);
+        filtro.carregar();
+        for (int i = 0; i < 10_000; i++) {
+            filtro.adicionar("cadastrado" + i + "@example.com");
+        }
+
+        int falsosPositivos = 0;
+        for (int i = 0; i < 20_000; i++) {
+            if (filtro.podeExistir("ausente" + i + "@example.org")) {
+                falsosPositivos++;
+            }
+        }
+
+        assertEquals(7, filtro.getFuncoes());
+        assertTrue(falsosPositivos < 20_000 * FiltroEmails.TAXA_FALSO_POSITIVO * 2,
+                "falsos positivos: " + falsosPositivos);
+    }
+
+    @Test
+    void deveReconhecerSoAsRestricoesDeEmail() {
+        assertTrue(FiltroEmails.isEmailDuplicado(violacao("ux_usuarios_email_lower",
+                "duplicate key value violates unique constraint \"ux_usuarios_email_lower\"")));
+        // Gravação em lote via JDBC, sem a exceção do Hibernate (H2)
+        assertTrue(FiltroEmails.isEmailDuplicado(new DataIntegrityViolationException("batch", new SQLException(
+                "Unique index or primary key violation: \"PUBLIC.UK_KFSP0S1TFLM1CWLJ8IDHQSAD0_INDEX_3 "
+                + "ON PUBLIC.USUARIOS(EMAIL NULLS FIRST)\"", "23505"))));
+
+        assertFalse(FiltroEmails.isEmailDuplicado(violacao("usuarios_pkey",
+                "duplicate key value violates unique constraint \"usuarios_pkey\" Detail: email x@example.com")));
+        assertFalse(FiltroEmails.isEmailDuplicado(new DataIntegrityViolationException(
+                "not-null property references a null or transient value : Doador.email")));
+        assertFalse(FiltroEmails.isEmailDuplicado(new DataIntegrityViolationException("insert", new SQLException(
+                "NULL not allowed for column \"EMAIL\"", "23502"))));
+    }
+
+    private static DataIntegrityViolationException violacao(String restricao, String mensagem) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", new SQLException(mensagem, "23505"),
+                        restricao));
+    }
+}
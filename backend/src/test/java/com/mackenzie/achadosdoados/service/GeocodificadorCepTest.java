@@ -0,0 +1,79 @@
+package com.mackenzie.achadosdoados.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeocodificadorCepTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void deveCompilarCsvELocalizarCepExato() throws Exception {
+        Path csv = escreverCsv(
+                "cep;latitude;longitude;cidade;uf",
+                "20040-020;-22.9035;-43.1758;Rio de Janeiro;RJ",
+                "01302-907;-23.5470;-46.6520;São Paulo;SP",
+                "30130-010;-19.9191;-43.9386;Belo Horizonte;mg",
+                "linha inválida");
+
+        GeocodificadorCep geocodificador = new GeocodificadorCep(csv.toString(), diretorio.resolve("ceps.bin").toString());
+
+        assertTrue(geocodificador.isDisponivel());
+        GeocodificadorCep.Localizacao sp = geocodificador.localizar("01302907").get();
+        assertEquals(-23.547, sp.getLatitude(), 1e-5);
+        assertEquals(-46.652, sp.getLongitude(), 1e-5);
+        assertEquals("São Paulo", sp.getCidade());
+        assertEquals("SP", sp.getUf());
+        assertEquals("MG", geocodificador.localizar("30130-010").get().getUf());
+    }
+
+    @Test
+    void deveUsarCepVizinhoDoMesmoSetor() throws Exception {
+        Path csv = escreverCsv("01302-907,-23.5470,-46.6520,São Paulo,SP");
+        GeocodificadorCep geocodificador = new GeocodificadorCep(csv.toString(), diretorio.resolve("ceps.bin").toString());
+
+        assertEquals("São Paulo", geocodificador.localizar("01302-100").get().getCidade());
+        assertEquals(Optional.empty(), geocodificador.localizar("01303-000"));
+        assertEquals(Optional.empty(), geocodificador.localizar("123"));
+        assertEquals(Optional.empty(), geocodificador.localizar(null));
+    }
+
+    @Test
+    void deveRecompilarQuandoCsvMaisNovoQueArquivo() throws Exception {
+        Path arquivo = diretorio.resolve("ceps.bin");
+        Path csv = escreverCsv("01302-907,-23.5470,-46.6520,São Paulo,SP");
+        new GeocodificadorCep(csv.toString(), arquivo.toString());
+
+        Files.write(csv, Arrays.asList("20040-020,-22.9035,-43.1758,Rio de Janeiro,RJ"), StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(Files.getLastModifiedTime(arquivo).toMillis() + 1000));
+        GeocodificadorCep geocodificador = new GeocodificadorCep(csv.toString(), arquivo.toString());
+
+        assertTrue(geocodificador.localizar("20040-020").isPresent());
+        assertFalse(geocodificador.localizar("01302-907").isPresent());
+    }
+
+    @Test
+    void deveFicarIndisponivelSemBase() {
+        GeocodificadorCep geocodificador = new GeocodificadorCep(
+                diretorio.resolve("nao-existe.csv").toString(), diretorio.resolve("nao-existe.bin").toString());
+
+        assertFalse(geocodificador.isDisponivel());
+        assertFalse(geocodificador.localizar("01302-907").isPresent());
+    }
+
+    private Path escreverCsv(String... linhas) throws Exception {
+        Path csv = diretorio.resolve("ceps.csv");
+        Files.write(csv, Arrays.asList(linhas), StandardCharsets.UTF_8);
+        return csv;
+    }
+}
@@ -0,0 +1,219 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageStorageServiceTest {
+
+    // Um nome no formato dos gerados por store (64 dígitos hexadecimais)
+    private static final String NOME_HASH = "e3e8b2e2f1a85b7a4a4d7f1ac4b3fdcfc0b8b9f7e1f3c7cdb0e71e2c95b0b27c";
+
+    @TempDir
+    Path diretorio;
+
+    @Mock
+    private VariantesImagem variantes;
+
+    @Mock
+    private CacheImagens cache;
+
+    @Mock
+    private InstituicaoRepository instituicaoRepository;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void deveGravarPeloHashEmSubdiretoriosEDeduplicar() throws IOException {
+        ImageStorageService service = novoService(Duration.ofMinutes(10));
+
+        String nome = service.store(arquivo("Foto.PNG", "foto"));
+        String repetido = service.store(arquivo("outra.jpeg", "foto"));
+
+        assertEquals(nome, repetido);
+        assertTrue(nome.matches("[0-9a-f]{64}\\.jpg"), nome);
+        Path gravado = diretorio.resolve(nome.substring(0, 2)).resolve(nome.substring(2, 4)).resolve(nome);
+        assertEquals(gravado, service.load(nome));
+        assertArrayEquals(jpeg("foto"), Files.readAllBytes(gravado));
+        verify(variantes, times(1)).gerarEmSegundoPlano(eq(gravado), any());
+        assertEquals(1.0, registry.get("imagens.deduplicadas").counter().count());
+        // Só o arquivo final: nenhum temporário de upload sobrando
+        try (java.util.stream.Stream<Path> arquivos = Files.walk(diretorio)) {
+            assertEquals(1, arquivos.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void deveManterImagemAindaReferenciada() throws IOException {
+        ImageStorageService service = novoService(Duration.ZERO);
+        String nome = service.store(arquivo("a.png", "foto"));
+        when(instituicaoRepository.countByFotoUrl("/api/images/" + nome)).thenReturn(1L);
+
+        service.delete(nome);
+
+        assertTrue(Files.exists(service.load(nome)));
+    }
+
+    @Test
+    void deveApagarImagemSemReferenciasComAsVariantes() throws IOException {
+        ImageStorageService service = novoService(Duration.ZERO);
+        String nome = service.store(arquivo("a.png", "foto"));
+        Path thumb = VariantesImagem.caminho(service.load(nome), VariantesImagem.Tamanho.THUMB);
+        Files.write(thumb, new byte[]{1});
+        when(instituicaoRepository.countByFotoUrl(any())).thenReturn(0L);
+
+        service.delete(nome);
+
+        assertFalse(Files.exists(service.load(nome)));
+        assertFalse(Files.exists(thumb));
+        verify(cache).invalidar(service.load(nome));
+    }
+
+    @Test
+    void naoDeveApagarUploadRecenteAindaSemFotoUrlGravada() throws IOException {
+        ImageStorageService service = novoService(Duration.ofMinutes(10));
+        String nome = service.store(arquivo("a.png", "foto"));
+
+        service.delete(nome);
+
+        assertTrue(Files.exists(service.load(nome)));
+        verifyNoInteractions(instituicaoRepository);
+    }
+
+    @Test
+    void naoDeveApagarImagemAntigaRecemReaproveitada() throws IOException {
+        ImageStorageService service = novoService(Duration.ofMinutes(10));
+        String nome = service.store(arquivo("a.png", "foto"));
+        Path gravado = service.load(nome);
+        Files.setLastModifiedTime(gravado, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+
+        // Outra instituição envia a mesma foto (em qualquer instância)
+        service.store(arquivo("b.png", "foto"));
+        service.delete(nome);
+
+        assertTrue(Files.exists(gravado));
+        assertTrue(Files.getLastModifiedTime(gravado).toInstant().isAfter(Instant.now().minus(Duration.ofMinutes(1))));
+        verifyNoInteractions(instituicaoRepository);
+    }
+
+    @Test
+    void deveResolverNomesAntigosNaRaiz() {
+        ImageStorageService service = novoService(Duration.ZERO);
+
+        assertEquals(diretorio.resolve("57c62df4-5763-480f-859d-24dc14db9504.jfif"),
+                service.load("57c62df4-5763-480f-859d-24dc14db9504.jfif"));
+        assertEquals(diretorio.resolve("e3").resolve("e8").resolve(NOME_HASH + ".webp"),
+                service.load(NOME_HASH + ".webp"));
+    }
+
+    @Test
+    void devePublicarAsVariantesDepoisDeGeradas() throws IOException {
+        ArmazenamentoImagens armazenamento = spy(new ArmazenamentoLocal(diretorio));
+        ImageStorageService service = new ImageStorageService(variantes, armazenamento, cache,
+                instituicaoRepository, registry, diretorio.toString(), Duration.ZERO, DataSize.ofKilobytes(100));
+        String nome = service.store(arquivo("a.png", "foto"));
+        String chave = nome.substring(0, 2) + "/" + nome.substring(2, 4) + "/" + nome;
+        ArgumentCaptor<Runnable> aoConcluir = ArgumentCaptor.forClass(Runnable.class);
+        verify(variantes).gerarEmSegundoPlano(eq(diretorio.resolve(chave)), aoConcluir.capture());
+        for (VariantesImagem.Tamanho tamanho : VariantesImagem.Tamanho.values()) {
+            Files.write(VariantesImagem.caminho(diretorio.resolve(chave), tamanho), new byte[]{1});
+        }
+
+        aoConcluir.getValue().run();
+
+        String thumb = VariantesImagem.nome(nome, VariantesImagem.Tamanho.THUMB);
+        Path arquivoThumb = diretorio.resolve(chave).resolveSibling(thumb);
+        verify(armazenamento).gravar(chave.substring(0, 6) + thumb, arquivoThumb);
+        assertEquals(arquivoThumb, service.load(nome, "thumb"));
+    }
+
+    @Test
+    void deveMontarAChaveDasVariantesNoDiretorioDoOriginal() {
+        assertEquals("e3/e8/" + NOME_HASH + ".thumb.jpg", ImageStorageService.chave(NOME_HASH + ".thumb.jpg"));
+        assertEquals("57c62df4-5763-480f-859d-24dc14db9504.card.jpg",
+                ImageStorageService.chave("57c62df4-5763-480f-859d-24dc14db9504.card.jpg"));
+    }
+
+    @Test
+    void deveGravarCorpoEmStreamingDetectandoOFormato() throws IOException {
+        ImageStorageService service = novoService(Duration.ZERO);
+        byte[] png = new byte[90_000]; // mais de um buffer, abaixo do limite
+        System.arraycopy(new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A}, 0, png, 0, 8);
+
+        String nome = service.store(Channels.newChannel(new ByteArrayInputStream(png)), -1);
+
+        assertTrue(nome.endsWith(".png"), nome);
+        assertArrayEquals(png, Files.readAllBytes(service.load(nome)));
+    }
+
+    @Test
+    void deveRecusarFormatoDesconhecidoEArquivoAcimaDoLimite() throws IOException {
+        ImageStorageService service = novoService(Duration.ZERO);
+
+        ImagemRecusadaException formato = assertThrows(ImagemRecusadaException.class, () -> service.store(
+                Channels.newChannel(new ByteArrayInputStream("<svg></svg>".getBytes(StandardCharsets.UTF_8))), -1));
+        assertFalse(formato.isMuitoGrande());
+
+        // Sem tamanho declarado, o limite é conferido durante a leitura
+        byte[] grande = jpeg(new String(new char[200_000]));
+        ImagemRecusadaException tamanho = assertThrows(ImagemRecusadaException.class, () -> service.store(
+                Channels.newChannel(new ByteArrayInputStream(grande)), -1));
+        assertTrue(tamanho.isMuitoGrande());
+        assertThrows(ImagemRecusadaException.class, () -> service.store(
+                Channels.newChannel(new ByteArrayInputStream(new byte[0])), 10_000_000));
+
+        // Nada gravado, nem temporários
+        try (java.util.stream.Stream<Path> arquivos = Files.walk(diretorio)) {
+            assertEquals(0, arquivos.filter(Files::isRegularFile).count());
+        }
+    }
+
+    private ImageStorageService novoService(Duration protecaoUpload) {
+        return new ImageStorageService(variantes, new ArmazenamentoLocal(diretorio), cache, instituicaoRepository, registry,
+                diretorio.toString(), protecaoUpload, DataSize.ofKilobytes(100));
+    }
+
+    private static MockMultipartFile arquivo(String nome, String conteudo) {
+        return new MockMultipartFile("foto", nome, "image/jpeg", jpeg(conteudo));
+    }
+
+    /** Conteúdo com a assinatura de um JPEG (FF D8 FF) no início. */
+    private static byte[] jpeg(String conteudo) {
+        byte[] corpo = conteudo.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[corpo.length + 3];
+        bytes[0] = (byte) 0xFF;
+        bytes[1] = (byte) 0xD8;
+        bytes[2] = (byte) 0xFF;
+        System.arraycopy(corpo, 0, bytes, 3, corpo.length);
+        return bytes;
+    }
+}
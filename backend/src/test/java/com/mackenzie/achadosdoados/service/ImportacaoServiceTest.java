@@ -0,0 +1,137 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mackenzie.achadosdoados.dto.ResultadoImportacao;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import com.mackenzie.achadosdoados.model.Doador;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.repository.CadastroLoteRepository;
+import com.mackenzie.achadosdoados.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportacaoServiceTest {
+
+    @Mock
+    private CadastroLoteRepository cadastroLoteRepository;
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private InstituicaoService instituicaoService;
+
+    @Mock
+    private DoadorService doadorService;
+
+    @Mock
+    private CodificadorSenhas codificadorSenhas;
+
+    @Mock
+    private FiltroEmails filtroEmails;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ImportacaoService importacaoService;
+
+    @BeforeEach
+    void setUp() {
+        importacaoService = new ImportacaoService(cadastroLoteRepository, usuarioRepository,
+                instituicaoService, doadorService, codificadorSenhas, filtroEmails, eventPublisher,
+                new ObjectMapper(), transactionManager, 3);
+    }
+
+    @Test
+    void deveLerCsvComAspasEQuebrasDeLinha() throws Exception {
+        String csv = "\uFEFFnome,email,senha,endereco\r\n"
+                + "\"Casa \"\"Azul\"\"\",azul@example.org,s1,\"Rua A, 10\"\r\n"
+                + "\n"
+                + "Lar,lar@example.org,s2,\"Rua B\nFundos\"";
+
+        List<Map<String, Object>> registros = ImportacaoService.lerCsv(new StringReader(csv));
+
+        assertEquals(2, registros.size());
+        assertEquals("Casa \"Azul\"", registros.get(0).get("nome"));
+        assertEquals("Rua A, 10", registros.get(0).get("endereco"));
+        assertEquals("Rua B\nFundos", registros.get(1).get("endereco"));
+        assertEquals("lar@example.org", registros.get(1).get("email"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deveCriarValidosERelatarLinhasRecusadas() throws Exception {
+        String csv = "nome,email,senha,endereco,telefone,cidade\n"
+                + "Casa Azul,Azul@Example.org,s1,Rua A,1111,Santos\n"
+                + "Sem Telefone,semfone@example.org,s2,Rua B,,\n"
+                + "Casa Azul 2,azul@example.org,s3,Rua C,2222,\n";
+        when(codificadorSenhas.codificarTodos(List.of("s1"))).thenReturn(List.of("h1"));
+
+        ResultadoImportacao resultado = importacaoService.importarCsv(ImportacaoService.Tipo.INSTITUICOES,
+                new StringReader(csv));
+
+        assertEquals(1, resultado.getCriadas());
+        assertEquals(List.of(2, 3), resultado.getErros().stream()
+                .map(ResultadoImportacao.Erro::getLinha).collect(Collectors.toList()));
+        assertTrue(resultado.getErros().get(0).getMensagem().contains("Dados inválidos"));
+        assertEquals("E-mail repetido no arquivo.", resultado.getErros().get(1).getMensagem());
+        ArgumentCaptor<List<Instituicao>> salvas = ArgumentCaptor.forClass(List.class);
+        verify(cadastroLoteRepository).inserirInstituicoes(salvas.capture());
+        Instituicao salva = salvas.getValue().get(0);
+        assertEquals("azul@example.org", salva.getEmail());
+        assertEquals("h1", salva.getSenha());
+        assertEquals("Santos", salva.getCidade());
+        verify(eventPublisher).publishEvent(any(InstituicaoAlteradaEvent.class));
+        verify(filtroEmails).adicionar("azul@example.org");
+        // o filtro descartou o e-mail: nenhuma consulta ao banco
+        verify(usuarioRepository, never()).buscarEmailsExistentes(any());
+    }
+
+    @Test
+    void deveRecusarEmailsJaCadastrados() {
+        when(filtroEmails.podeExistir("joao@example.com")).thenReturn(true);
+        when(usuarioRepository.buscarEmailsExistentes(List.of("joao@example.com")))
+                .thenReturn(List.of("joao@example.com"));
+        when(codificadorSenhas.codificarTodos(List.of("s2"))).thenReturn(List.of("h2"));
+
+        ResultadoImportacao resultado = importacaoService.importar(ImportacaoService.Tipo.DOADORES, List.of(
+                Map.of("nome", "João", "email", "JOAO@example.com", "senha", "s1"),
+                Map.of("nome", "Maria", "email", "maria@example.com", "senha", "s2", "id", 99)));
+
+        assertEquals(1, resultado.getCriadas());
+        assertEquals(1, resultado.getErros().get(0).getLinha());
+        assertEquals("Já existe conta com o e-mail informado.", resultado.getErros().get(0).getMensagem());
+        verify(doadorService).geocodificar(argThat((Doador d) -> d.getId() == null && "h2".equals(d.getSenha())));
+        verify(cadastroLoteRepository).inserirDoadores(anyList());
+    }
+
+    @Test
+    void deveRecusarImportacaoAcimaDoLimite() {
+        List<Map<String, Object>> registros = List.of(Map.of(), Map.of(), Map.of(), Map.of());
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> importacaoService.importar(ImportacaoService.Tipo.DOADORES, registros));
+
+        assertTrue(ex.getMessage().contains("limitada a 3"));
+        verifyNoInteractions(codificadorSenhas, cadastroLoteRepository);
+    }
+}
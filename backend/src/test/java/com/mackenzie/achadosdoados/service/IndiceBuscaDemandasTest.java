@@ -0,0 +1,126 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.model.Demanda;
+import com.mackenzie.achadosdoados.repository.DemandaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndiceBuscaDemandasTest {
+
+    private DemandaRepository demandaRepository;
+    private IndiceBuscaDemandas indice;
+
+    @BeforeEach
+    void setUp() {
+        demandaRepository = mock(DemandaRepository.class);
+        indice = new IndiceBuscaDemandas(demandaRepository);
+    }
+
+    @Test
+    void deveIgnorarAcentosEPlurais() {
+        indice.indexar(demanda(1L, "Calçados infantis", "Calçados", "Tênis e sandálias"));
+        indice.indexar(demanda(2L, "Roupas de inverno", "Roupas", "Casacos e luvas"));
+
+        assertEquals(Collections.singletonList(1L), indice.buscar("calcado", 10));
+        assertEquals(Collections.singletonList(2L), indice.buscar("ROUPA", 10));
+        assertEquals(Collections.singletonList(2L), indice.buscar("casaco", 10));
+    }
+
+    @Test
+    void deveOrdenarPorRelevanciaComTituloAcimaDaDescricao() {
+        indice.indexar(demanda(1L, "Kit escolar", "Materiais Escolares", "Cadernos, lápis e mochilas"));
+        indice.indexar(demanda(2L, "Mochilas para crianças", "Materiais Escolares", "Mochilas em bom estado"));
+
+        assertEquals(Arrays.asList(2L, 1L), indice.buscar("mochila", 10));
+    }
+
+    @Test
+    void deveExigirTodosOsTermosEAceitarPrefixo() {
+        indice.indexar(demanda(1L, "Roupas de inverno", "Roupas", "Casacos"));
+        indice.indexar(demanda(2L, "Roupas de verão", "Roupas", "Camisetas"));
+
+        assertEquals(Collections.singletonList(1L), indice.buscar("roupas invern", 10));
+        assertEquals(2, indice.buscar("roup", 10).size());
+        assertTrue(indice.buscar("roupas alimentos", 10).isEmpty());
+    }
+
+    @Test
+    void deveRemoverDemandaAoReindexarComoInativa() {
+        Demanda demanda = demanda(1L, "Alimentos não perecíveis", "Alimentos", "Arroz e feijão");
+        indice.indexar(demanda);
+        assertEquals(Collections.singletonList(1L), indice.buscar("arroz", 10));
+
+        demanda.setTitulo("Cestas básicas");
+        demanda.setDescricao("Óleo e açúcar");
+        indice.indexar(demanda);
+        assertTrue(indice.buscar("arroz", 10).isEmpty());
+        assertEquals(Collections.singletonList(1L), indice.buscar("acucar", 10));
+
+        demanda.setStatus("Inativo");
+        indice.indexar(demanda);
+        assertTrue(indice.buscar("cesta", 10).isEmpty());
+    }
+
+    @Test
+    void naoDeveSobrescreverComACargaUmaAlteracaoConfirmadaDuranteEla() {
+        Demanda lida = demanda(1L, "Roupas de inverno", "Roupas", "Casacos");
+        Demanda excluida = demanda(2L, "Livros", "Educação", "Didáticos");
+        when(demandaRepository.buscarPublicasAposId(0L, PageRequest.of(0, 500))).thenAnswer(invocacao -> {
+            // Eventos confirmados depois da leitura do lote, antes de ele ser indexado
+            Demanda atualizada = demanda(1L, "Cobertores", "Roupas", "Mantas");
+            indice.indexar(atualizada);
+            Demanda inativa = demanda(2L, "Livros", "Educação", "Didáticos");
+            inativa.setStatus("Inativo");
+            indice.indexar(inativa);
+            return Arrays.asList(lida, excluida);
+        });
+
+        indice.carregar();
+
+        assertEquals(Collections.singletonList(1L), indice.buscar("cobertor", 10));
+        assertTrue(indice.buscar("casaco", 10).isEmpty());
+        assertTrue(indice.buscar("livro", 10).isEmpty());
+    }
+
+    @Test
+    void deveTrazerNaSincronizacaoAsAlteracoesDeOutrasInstancias() {
+        when(demandaRepository.buscarPublicasAposId(anyLong(), any()))
+                .thenReturn(Collections.singletonList(demanda(1L, "Roupas de inverno", "Roupas", "Casacos")));
+        indice.carregar();
+
+        // Gravadas por outra instância: uma nova e a exclusão lógica da carregada
+        Demanda nova = demanda(2L, "Brinquedos", "Brinquedos", "Bonecas");
+        nova.setAtualizadoEm(Instant.now());
+        Demanda excluida = demanda(1L, "Roupas de inverno", "Roupas", "Casacos");
+        excluida.setStatus("Inativo");
+        excluida.setAtualizadoEm(nova.getAtualizadoEm());
+        when(demandaRepository.buscarAlteradasDesde(any(), anyLong(), any()))
+                .thenReturn(Arrays.asList(excluida, nova));
+
+        assertEquals(2, indice.sincronizar());
+
+        assertEquals(Collections.singletonList(2L), indice.buscar("boneca", 10));
+        assertTrue(indice.buscar("casaco", 10).isEmpty());
+    }
+
+    private Demanda demanda(Long id, String titulo, String categoria, String descricao) {
+        Demanda demanda = new Demanda();
+        demanda.setId(id);
+        demanda.setTitulo(titulo);
+        demanda.setCategoria(categoria);
+        demanda.setDescricao(descricao);
+        demanda.setStatus("Ativo");
+        return demanda;
+    }
+}
@@ -0,0 +1,126 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.dto.InstituicaoProxima;
+import com.mackenzie.achadosdoados.dto.InstituicaoResumo;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IndiceEspacialInstituicoesTest {
+
+    private InstituicaoRepository instituicaoRepository;
+    private IndiceEspacialInstituicoes indice;
+
+    @BeforeEach
+    void setUp() {
+        instituicaoRepository = mock(InstituicaoRepository.class);
+        indice = new IndiceEspacialInstituicoes(instituicaoRepository);
+    }
+
+    @Test
+    void deveCarregarApenasInstituicoesComCoordenadas() {
+        when(instituicaoRepository.listarResumos()).thenReturn(Arrays.asList(
+                resumo(1L, -23.5505, -46.6333),
+                resumo(2L, null, null)));
+
+        indice.carregar();
+
+        assertEquals(1, indice.tamanho());
+    }
+
+    @Test
+    void deveCoincidirComBuscaExaustiva() {
+        Random random = new Random(42);
+        List<InstituicaoResumo> todas = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            todas.add(resumo(id, -24 + random.nextDouble() * 2, -47.5 + random.nextDouble() * 2));
+        }
+        todas.forEach(indice::indexar);
+
+        for (int i = 0; i < 50; i++) {
+            double lat = -24 + random.nextDouble() * 2;
+            double lng = -47.5 + random.nextDouble() * 2;
+
+            assertEquals(exaustiva(todas, lat, lng, Double.MAX_VALUE, 15),
+                    ids(indice.maisProximas(lat, lng, 15)));
+            assertEquals(exaustiva(todas, lat, lng, 8.0, 100),
+                    ids(indice.dentroDoRaio(lat, lng, 8.0, 100)));
+        }
+    }
+
+    @Test
+    void deveEncontrarVizinhoDistanteQuandoCelulasProximasEstaoVazias() {
+        indice.indexar(resumo(1L, -23.5505, -46.6333)); // São Paulo
+        indice.indexar(resumo(2L, -22.9068, -43.1729)); // Rio de Janeiro
+
+        List<InstituicaoProxima> proximas = indice.maisProximas(-22.95, -43.2, 2);
+
+        assertEquals(Arrays.asList(2L, 1L), ids(proximas));
+        assertTrue(proximas.get(1).getDistanciaKm() > 300);
+    }
+
+    @Test
+    void deveAtualizarPosicaoERemoverSemCoordenadasAoReceberEvento() {
+        indice.indexar(resumo(1L, -23.5505, -46.6333));
+
+        Instituicao mudou = instituicao(1L, -22.9068, -43.1729);
+        indice.onInstituicaoAlterada(new InstituicaoAlteradaEvent(mudou));
+
+        assertTrue(indice.idsDentroDoRaio(-23.5505, -46.6333, 10).isEmpty());
+        assertEquals(Arrays.asList(1L), new ArrayList<>(indice.idsDentroDoRaio(-22.9068, -43.1729, 1)));
+
+        mudou.setLatitude(null);
+        indice.onInstituicaoAlterada(new InstituicaoAlteradaEvent(mudou));
+
+        assertEquals(0, indice.tamanho());
+    }
+
+    @Test
+    void deveRejeitarConsultaComCoordenadasOuRaioInvalidos() {
+        assertThrows(RuntimeException.class, () -> IndiceEspacialInstituicoes.validarConsulta(91.0, 0.0, null));
+        assertThrows(RuntimeException.class, () -> IndiceEspacialInstituicoes.validarConsulta(0.0, null, null));
+        assertThrows(RuntimeException.class, () -> IndiceEspacialInstituicoes.validarConsulta(0.0, 0.0, -1.0));
+        assertDoesNotThrow(() -> IndiceEspacialInstituicoes.validarConsulta(-23.5, -46.6, 5.0));
+    }
+
+    private static List<Long> exaustiva(List<InstituicaoResumo> todas, double lat, double lng, double raioKm, int k) {
+        return todas.stream()
+                .map(i -> new InstituicaoProxima(i, IndiceEspacialInstituicoes.distanciaKm(
+                        lat, lng, i.getLatitude(), i.getLongitude())))
+                .filter(p -> p.getDistanciaKm() <= raioKm)
+                .sorted(Comparator.comparingDouble(InstituicaoProxima::getDistanciaKm))
+                .limit(k)
+                .map(p -> p.getInstituicao().getId())
+                .collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(List<InstituicaoProxima> proximas) {
+        return proximas.stream().map(p -> p.getInstituicao().getId()).collect(Collectors.toList());
+    }
+
+    private static InstituicaoResumo resumo(Long id, Double lat, Double lng) {
+        return new InstituicaoResumo(id, "Instituição " + id, "inst" + id + "@teste.org", "Rua A", "1",
+                "São Paulo", "SP", "1122334455", null, null, lat, lng);
+    }
+
+    private static Instituicao instituicao(Long id, Double lat, Double lng) {
+        Instituicao instituicao = new Instituicao();
+        instituicao.setId(id);
+        instituicao.setNome("Casa do Bem");
+        instituicao.setLatitude(lat);
+        instituicao.setLongitude(lng);
+        return instituicao;
+    }
+}
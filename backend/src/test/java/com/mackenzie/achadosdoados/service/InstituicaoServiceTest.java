@@ -1,5 +1,7 @@
 package com.mackenzie.achadosdoados.service;
 
+import com.mackenzie.achadosdoados.dto.MapaInstituicoes;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
 import com.mackenzie.achadosdoados.model.Instituicao;
 import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
 import com.mackenzie.achadosdoados.repository.UsuarioRepository;
@@ -8,8 +10,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,12 +34,28 @@ class InstituicaoServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private IndiceEspacialInstituicoes indiceEspacial;
+
+    @Mock
+    private AgregadosMapaInstituicoes agregadosMapa;
+
+    @Mock
+    private GeocodificadorCep geocodificador;
+
+    @Mock
+    private FiltroEmails filtroEmails;
+
     @InjectMocks
     private InstituicaoService instituicaoService;
 
     @Test
     void deveCadastrarInstituicaoComSenhaCriptografada() {
         Instituicao instituicao = novaInstituicao();
+        when(filtroEmails.podeExistir("contato@casadobem.org")).thenReturn(true);
         when(usuarioRepository.findByEmail("contato@casadobem.org")).thenReturn(Optional.empty());
         when(passwordEncoder.encode("segredo")).thenReturn("hash");
         when(instituicaoRepository.save(any(Instituicao.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -41,6 +64,21 @@ class InstituicaoServiceTest {
 
         assertEquals("hash", salvo.getSenha());
         verify(instituicaoRepository).save(instituicao);
+        verify(eventPublisher).publishEvent(any(InstituicaoAlteradaEvent.class));
+    }
+
+    @Test
+    void deveTraduzirViolacaoDoIndiceUnicoDeEmail() {
+        Instituicao instituicao = novaInstituicao();
+        when(passwordEncoder.encode("segredo")).thenReturn("hash");
+        when(instituicaoRepository.save(any(Instituicao.class))).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement", new SQLException("Unique index or primary key violation: "
+                + "\"PUBLIC.UK_KFSP0S1TFLM1CWLJ8IDHQSAD0_INDEX_3 ON PUBLIC.USUARIOS(EMAIL NULLS FIRST)\"", "23505")));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> instituicaoService.cadastrarInstituicao(instituicao));
+
+        assertTrue(ex.getMessage().contains("Instituição já cadastrada"));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -51,6 +89,66 @@ class InstituicaoServiceTest {
 
         assertTrue(ex.getMessage().contains("Dados inválidos"));
         verifyNoInteractions(instituicaoRepository);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void naoDeveSobrescreverCoordenadasInformadas() {
+        Instituicao instituicao = novaInstituicao();
+        instituicao.setCep("01302-907");
+        instituicao.setLatitude(-23.5);
+        instituicao.setLongitude(-46.6);
+
+        assertFalse(instituicaoService.geocodificar(instituicao));
+        verifyNoInteractions(geocodificador);
+    }
+
+    @Test
+    void devePreencherCoordenadasSemTrocarCidadeInformada() {
+        Instituicao instituicao = novaInstituicao();
+        instituicao.setCep("01302-907");
+        instituicao.setCidade("Sampa");
+        when(geocodificador.localizar("01302-907")).thenReturn(Optional.of(
+                new GeocodificadorCep.Localizacao(-23.547, -46.652, "São Paulo", "SP")));
+
+        assertTrue(instituicaoService.geocodificar(instituicao));
+        assertEquals(-23.547, instituicao.getLatitude());
+        assertEquals("Sampa", instituicao.getCidade());
+        assertEquals("SP", instituicao.getEstado());
+    }
+
+    @Test
+    void deveMontarMapaComClustersAteOZoomDeAgrupamento() {
+        List<MapaInstituicoes.Cluster> clusters = Arrays.asList(new MapaInstituicoes.Cluster(-23.5, -46.6, 3));
+        when(agregadosMapa.clusters(-24.0, -47.0, -23.0, -46.0, 8)).thenReturn(clusters);
+
+        MapaInstituicoes mapa = instituicaoService.montarMapa("-47,-24,-46,-23", 8);
+
+        assertTrue(mapa.isAgrupado());
+        assertSame(clusters, mapa.getClusters());
+        verifyNoInteractions(indiceEspacial);
+    }
+
+    @Test
+    void deveMontarMapaComMarcadoresAcimaDoZoomDeAgrupamento() {
+        instituicaoService.montarMapa("-46.7,-23.6,-46.6,-23.5", AgregadosMapaInstituicoes.ZOOM_MAXIMO_AGRUPADO + 1);
+
+        verify(indiceEspacial).dentroDoRetangulo(-23.6, -46.7, -23.5, -46.6);
+        verifyNoInteractions(agregadosMapa);
+    }
+
+    @Test
+    void deveNormalizarLongitudesDoBboxAlemDoAntimeridiano() {
+        instituicaoService.montarMapa("170,-30,195,0", 5);
+
+        verify(agregadosMapa).clusters(-30.0, 170.0, 0.0, -165.0, 5);
+    }
+
+    @Test
+    void deveLancarExcecaoQuandoBboxInvalido() {
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> instituicaoService.montarMapa("1,2,3", 5));
+
+        assertTrue(ex.getMessage().contains("Área inválida"));
     }
 
     private Instituicao novaInstituicao() {
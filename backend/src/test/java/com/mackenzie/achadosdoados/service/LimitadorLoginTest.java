@@ -0,0 +1,45 @@
+package com.mackenzie.achadosdoados.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitadorLoginTest {
+
+    private final AtomicLong agora = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LimitadorLogin limitador = new LimitadorLogin(4, 60, 2, 1,
+            Duration.ofMinutes(15), registry, agora::get);
+
+    @Test
+    void deveRecusarEmailAposARajadaEIndicarQuandoTentarDeNovo() {
+        limitador.registrarTentativa("10.0.0.1", "Joao@Example.com");
+        limitador.registrarTentativa("10.0.0.2", "joao@example.com ");
+
+        LimiteExcedidoException ex = assertThrows(LimiteExcedidoException.class,
+                () -> limitador.registrarTentativa("10.0.0.3", "JOAO@example.com"));
+
+        assertEquals(60, ex.getTentarNovamenteEmSegundos());
+        assertEquals(1.0, registry.get("login.recusados").tag("motivo", "email").counter().count());
+        // outro e-mail segue liberado
+        limitador.registrarTentativa("10.0.0.3", "maria@example.com");
+    }
+
+    @Test
+    void deveRecusarIpAposARajadaEReabastecerComOTempo() {
+        for (int i = 0; i < 4; i++) {
+            limitador.registrarTentativa("10.0.0.1", "usuario" + i + "@example.com");
+        }
+        assertThrows(LimiteExcedidoException.class,
+                () -> limitador.registrarTentativa("10.0.0.1", "outro@example.com"));
+
+        agora.addAndGet(Duration.ofSeconds(1).toNanos()); // 60 por minuto = 1 ficha por segundo
+
+        limitador.registrarTentativa("10.0.0.1", "outro@example.com");
+        assertEquals(1.0, registry.get("login.recusados").tag("motivo", "ip").counter().count());
+    }
+}
@@ -0,0 +1,153 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.model.TokenRevogado;
+import com.mackenzie.achadosdoados.repository.TokenRevogadoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenServiceTest {
+
+    private static final String SEGREDO = "segredo-de-teste-com-pelo-menos-32-caracteres";
+
+    private final AtomicLong agora = new AtomicLong(1_700_000_000L);
+    /** Tabela tokens_revogados, compartilhada pelas instâncias do teste. */
+    private final List<TokenRevogado> tabela = new CopyOnWriteArrayList<>();
+    private final ListaRevogacao revogacao = novaLista();
+
+    @Test
+    void deveEmitirEValidarTokenAssinado() {
+        TokenService service = novoService(TokenService.MODO_ASSINADO, SEGREDO);
+
+        String token = service.generateToken(7L, TokenService.TIPO_INSTITUICAO);
+        TokenService.Sessao sessao = service.validar(token);
+
+        assertEquals(7L, sessao.getUsuarioId());
+        assertTrue(sessao.isInstituicao());
+        assertFalse(sessao.isDoador());
+        assertEquals(7L, service.getUserIdForToken(token));
+    }
+
+    @Test
+    void deveRejeitarTokenAdulteradoOuDeOutroSegredo() {
+        TokenService service = novoService(TokenService.MODO_ASSINADO, SEGREDO);
+        TokenService outro = novoService(TokenService.MODO_ASSINADO, SEGREDO + "-outro");
+        String token = service.generateToken(7L, TokenService.TIPO_DOADOR);
+
+        // troca um caractere do conteúdo mantendo a assinatura original
+        char c = token.charAt(3);
+        String adulterado = token.substring(0, 3) + (c == 'A' ? 'B' : 'A') + token.substring(4);
+
+        assertNull(service.validar(adulterado));
+        assertNull(outro.validar(token));
+        assertNull(service.validar("abc"));
+        assertNull(service.validar("abc.def"));
+        assertNull(service.validar(null));
+    }
+
+    @Test
+    void deveExpirarTokenAssinado() {
+        TokenService service = novoService(TokenService.MODO_ASSINADO, SEGREDO);
+        String token = service.generateToken(1L, TokenService.TIPO_USUARIO);
+
+        agora.addAndGet(Duration.ofHours(1).getSeconds() - 1);
+        assertNotNull(service.validar(token));
+        agora.incrementAndGet();
+
+        assertNull(service.validar(token));
+    }
+
+    @Test
+    void deveRevogarTokenAssinadoNoLogout() {
+        TokenService service = novoService(TokenService.MODO_ASSINADO, SEGREDO);
+        String token = service.generateToken(1L, TokenService.TIPO_DOADOR);
+        String outroToken = service.generateToken(1L, TokenService.TIPO_DOADOR);
+
+        service.invalidateToken(token);
+
+        assertNull(service.validar(token));
+        assertNotNull(service.validar(outroToken));
+        assertEquals(1, revogacao.tamanho());
+        // a entrada some da lista quando o token expiraria de qualquer forma
+        agora.addAndGet(Duration.ofHours(1).getSeconds());
+        assertEquals(1, revogacao.varrer());
+        assertEquals(0, revogacao.tamanho());
+    }
+
+    @Test
+    void deveRecusarTokenRevogadoEmOutraInstanciaAposVarredura() {
+        TokenService instanciaA = novoService(TokenService.MODO_ASSINADO, SEGREDO);
+        ListaRevogacao revogacaoB = novaLista();
+        TokenService instanciaB = novoService(TokenService.MODO_ASSINADO, SEGREDO, revogacaoB);
+        String token = instanciaA.generateToken(1L, TokenService.TIPO_USUARIO);
+
+        instanciaA.invalidateToken(token);
+        assertNotNull(instanciaB.validar(token));
+        revogacaoB.varrer();
+
+        assertNull(instanciaB.validar(token));
+        assertEquals(1, tabela.size());
+        // a linha é apagada quando o token expiraria de qualquer forma
+        agora.addAndGet(Duration.ofHours(1).getSeconds());
+        revogacaoB.varrer();
+        assertTrue(tabela.isEmpty());
+    }
+
+    @Test
+    void deveGuardarIdETipoNoModoMemoria() {
+        TokenService service = novoService(TokenService.MODO_MEMORIA, SEGREDO);
+
+        String token = service.generateToken(123_456L, TokenService.TIPO_DOADOR);
+        TokenService.Sessao sessao = service.validar(token);
+
+        assertEquals(123_456L, sessao.getUsuarioId());
+        assertTrue(sessao.isDoador());
+        service.invalidateToken(token);
+        assertNull(service.validar(token));
+    }
+
+    @Test
+    void deveRecusarConfiguracaoInvalida() {
+        assertThrows(IllegalStateException.class, () -> new AssinadorToken("curto"));
+        assertThrows(IllegalStateException.class, () -> new AssinadorToken("", true));
+        assertThrows(IllegalStateException.class, () -> novoService("jwt", SEGREDO));
+    }
+
+    private TokenService novoService(String modo, String segredo) {
+        return novoService(modo, segredo, revogacao);
+    }
+
+    private TokenService novoService(String modo, String segredo, ListaRevogacao revogacao) {
+        TokenStore store = new TokenStore(1000, Duration.ofMinutes(30), Duration.ofDays(1),
+                new SimpleMeterRegistry(), () -> agora.get() * 1000);
+        return new TokenService(store, new AssinadorToken(segredo), revogacao, modo,
+                Duration.ofHours(1), agora::get);
+    }
+
+    private ListaRevogacao novaLista() {
+        TokenRevogadoRepository repository = mock(TokenRevogadoRepository.class);
+        when(repository.save(any())).thenAnswer(i -> {
+            tabela.add(i.getArgument(0));
+            return i.getArgument(0);
+        });
+        when(repository.listarVigentes(anyLong())).thenAnswer(i -> tabela.stream()
+                .filter(t -> t.getExpiraEm() > i.<Long>getArgument(0)).collect(Collectors.toList()));
+        when(repository.apagarExpirados(anyLong())).thenAnswer(i -> {
+            int antes = tabela.size();
+            tabela.removeIf(t -> t.getExpiraEm() <= i.<Long>getArgument(0));
+            return antes - tabela.size();
+        });
+        return new ListaRevogacao(repository, agora::get);
+    }
+}
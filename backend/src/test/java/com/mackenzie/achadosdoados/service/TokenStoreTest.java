@@ -0,0 +1,128 @@
+package com.mackenzie.achadosdoados.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenStoreTest {
+
+    private final AtomicLong agora = new AtomicLong(1_000_000L);
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void deveEmitirBuscarERevogarToken() {
+        TokenStore store = novoStore(1000, Duration.ofMinutes(30), Duration.ofDays(1));
+
+        String token = store.emitir(42L);
+
+        assertEquals(42L, store.buscar(token));
+        assertEquals(token.toUpperCase(), UUID.fromString(token).toString().toUpperCase());
+        store.revogar(token);
+        assertNull(store.buscar(token));
+        assertEquals(0, store.tamanho());
+        assertEquals(1.0, registry.get("tokens.removidos").tag("motivo", "logout").counter().count());
+    }
+
+    @Test
+    void deveRejeitarTokensMalFormados() {
+        TokenStore store = novoStore(1000, Duration.ofMinutes(30), Duration.ofDays(1));
+
+        assertNull(store.buscar(null));
+        assertNull(store.buscar("abc"));
+        assertNull(store.buscar("00000000-0000-0000-0000-000000000000"));
+        assertNull(store.buscar("zzzzzzzz-0000-0000-0000-000000000000"));
+    }
+
+    @Test
+    void deveRenovarExpiracaoAteODuracaoMaxima() {
+        TokenStore store = novoStore(1000, Duration.ofMinutes(30), Duration.ofMinutes(50));
+        String token = store.emitir(1L);
+
+        agora.addAndGet(Duration.ofMinutes(20).toMillis());
+        assertEquals(1L, store.buscar(token)); // expira agora em t+50 (limite da duração máxima)
+        agora.addAndGet(Duration.ofMinutes(20).toMillis());
+        assertEquals(1L, store.buscar(token));
+        agora.addAndGet(Duration.ofMinutes(11).toMillis());
+
+        assertNull(store.buscar(token));
+        assertEquals(0, store.tamanho());
+    }
+
+    @Test
+    void deveRemoverExpiradosNaVarredura() {
+        TokenStore store = novoStore(1000, Duration.ofMinutes(30), Duration.ofDays(1));
+        List<String> antigos = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            antigos.add(store.emitir(i));
+        }
+        agora.addAndGet(Duration.ofMinutes(20).toMillis());
+        String recente = store.emitir(999L);
+        agora.addAndGet(Duration.ofMinutes(15).toMillis());
+
+        assertEquals(300, store.varrer());
+
+        assertEquals(1, store.tamanho());
+        assertEquals(999L, store.buscar(recente));
+        assertNull(store.buscar(antigos.get(0)));
+        assertEquals(300.0, registry.get("tokens.removidos").tag("motivo", "expirado").counter().count());
+    }
+
+    @Test
+    void deveRespeitarCapacidadeDescartandoOsMenosUsados() {
+        int capacidade = 160;
+        TokenStore store = novoStore(capacidade, Duration.ofMinutes(30), Duration.ofDays(1));
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            agora.incrementAndGet();
+            tokens.add(store.emitir(i));
+        }
+
+        assertTrue(store.tamanho() <= capacidade);
+        assertEquals(1000 - store.tamanho(),
+                registry.get("tokens.removidos").tag("motivo", "capacidade").counter().count(), 0.0);
+        // Os últimos emitidos continuam válidos; os primeiros foram descartados
+        assertEquals(999L, store.buscar(tokens.get(999)));
+        long sobreviventesAntigos = tokens.subList(0, 100).stream().filter(t -> store.buscar(t) != null).count();
+        assertTrue(sobreviventesAntigos < 10, "sobreviventes antigos: " + sobreviventesAntigos);
+    }
+
+    @Test
+    void deveManterTodosOsTokensAcessiveisAposRemocoes() {
+        TokenStore store = novoStore(20000, Duration.ofMinutes(30), Duration.ofDays(1));
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            tokens.add(store.emitir(i));
+        }
+        for (int i = 0; i < 10000; i += 2) {
+            store.revogar(tokens.get(i));
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            Long usuario = store.buscar(tokens.get(i));
+            if (i % 2 == 0) {
+                assertNull(usuario);
+            } else {
+                assertEquals(i, usuario.longValue());
+            }
+        }
+        assertEquals(5000, store.tamanho());
+        assertEquals(5000.0, registry.get("tokens.ativos").gauge().value());
+    }
+
+    private TokenStore novoStore(int capacidade, Duration ttl, Duration duracaoMaxima) {
+        return new TokenStore(capacidade, ttl, duracaoMaxima, registry, agora::get);
+    }
+}
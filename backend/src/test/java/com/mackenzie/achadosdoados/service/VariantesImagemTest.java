@@ -0,0 +1,115 @@
+package com.mackenzie.achadosdoados.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VariantesImagemTest {
+
+    @TempDir
+    Path diretorio;
+
+    private SimpleMeterRegistry registry;
+    private VariantesImagem variantes;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        variantes = new VariantesImagem(1, 10, 0.8f, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        variantes.shutdown();
+    }
+
+    @Test
+    void deveGerarAsVariantesLimitandoOLadoMaior() throws IOException {
+        Path original = diretorio.resolve("foto.png");
+        ImageIO.write(new BufferedImage(4000, 2000, BufferedImage.TYPE_INT_ARGB), "png", original.toFile());
+
+        assertTrue(variantes.gerar(original));
+
+        assertDimensoes(diretorio.resolve("foto.full.jpg"), 1600, 800);
+        assertDimensoes(diretorio.resolve("foto.card.jpg"), 640, 320);
+        assertDimensoes(diretorio.resolve("foto.thumb.jpg"), 192, 96);
+        assertEquals(1.0, registry.get("imagens.variantes").tag("resultado", "geradas").counter().count());
+    }
+
+    @Test
+    void naoDeveAmpliarImagensPequenas() throws IOException {
+        Path original = diretorio.resolve("pequena.jpg");
+        ImageIO.write(new BufferedImage(300, 100, BufferedImage.TYPE_INT_RGB), "jpeg", original.toFile());
+
+        assertTrue(variantes.gerar(original));
+
+        assertDimensoes(diretorio.resolve("pequena.full.jpg"), 300, 100);
+        assertDimensoes(diretorio.resolve("pequena.card.jpg"), 300, 100);
+        assertDimensoes(diretorio.resolve("pequena.thumb.jpg"), 192, 64);
+    }
+
+    @Test
+    void deveIgnorarFormatosQueOImageIONaoLe() throws IOException {
+        Path original = diretorio.resolve("foto.webp");
+        Files.write(original, new byte[]{'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'});
+
+        assertFalse(variantes.gerar(original));
+
+        assertFalse(Files.exists(VariantesImagem.caminho(original, VariantesImagem.Tamanho.THUMB)));
+        assertEquals(1.0, registry.get("imagens.variantes").tag("resultado", "ignoradas").counter().count());
+    }
+
+    @Test
+    void deveGerarPlaceholderMinusculoComoDataUri() throws IOException {
+        Path original = diretorio.resolve("foto.png");
+        BufferedImage imagem = new BufferedImage(3000, 1500, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < imagem.getWidth(); x++) {
+            for (int y = 0; y < imagem.getHeight(); y++) {
+                imagem.setRGB(x, y, (x * 255 / 3000) << 16 | (y * 255 / 1500));
+            }
+        }
+        ImageIO.write(imagem, "png", original.toFile());
+
+        String placeholder = variantes.placeholder(original);
+
+        assertTrue(placeholder.startsWith("data:image/jpeg;base64,"), placeholder);
+        assertTrue(placeholder.length() < 700, "tamanho: " + placeholder.length());
+        byte[] jpeg = Base64.getDecoder().decode(placeholder.substring(placeholder.indexOf(',') + 1));
+        BufferedImage decodificada = ImageIO.read(new ByteArrayInputStream(jpeg));
+        assertEquals(16, decodificada.getWidth());
+        assertEquals(8, decodificada.getHeight());
+        assertNull(variantes.placeholder(diretorio.resolve("nao-existe.jpg")));
+    }
+
+    @Test
+    void deveReconhecerNomesDeVariantesETamanhos() {
+        Path original = diretorio.resolve("abc.jfif");
+
+        assertEquals("abc.card.jpg", VariantesImagem.caminho(original, VariantesImagem.Tamanho.CARD)
+                .getFileName().toString());
+        assertTrue(VariantesImagem.isVariante("abc.thumb.jpg"));
+        assertFalse(VariantesImagem.isVariante("abc.jpg"));
+        assertNull(VariantesImagem.Tamanho.de(null));
+        assertEquals(VariantesImagem.Tamanho.FULL, VariantesImagem.Tamanho.de("FULL"));
+        assertThrows(RuntimeException.class, () -> VariantesImagem.Tamanho.de("gigante"));
+    }
+
+    private static void assertDimensoes(Path arquivo, int largura, int altura) throws IOException {
+        BufferedImage imagem = ImageIO.read(arquivo.toFile());
+        assertNotNull(imagem, "variante não gerada: " + arquivo.getFileName());
+        assertEquals(largura, imagem.getWidth());
+        assertEquals(altura, imagem.getHeight());
+    }
+}
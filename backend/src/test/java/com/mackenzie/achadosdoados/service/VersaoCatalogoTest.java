@@ -0,0 +1,100 @@
+package com.mackenzie.achadosdoados.service;
+
+import com.mackenzie.achadosdoados.event.DemandaAlteradaEvent;
+import com.mackenzie.achadosdoados.event.InstituicaoAlteradaEvent;
+import com.mackenzie.achadosdoados.model.Demanda;
+import com.mackenzie.achadosdoados.model.Instituicao;
+import com.mackenzie.achadosdoados.repository.DemandaRepository;
+import com.mackenzie.achadosdoados.repository.InstituicaoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VersaoCatalogoTest {
+
+    private static final Duration VALIDADE = Duration.ofSeconds(5);
+    private static final Instant T0 = Instant.parse("2025-06-01T12:00:00.123456Z");
+
+    private DemandaRepository demandaRepository;
+    private InstituicaoRepository instituicaoRepository;
+    private final AtomicLong relogio = new AtomicLong();
+    private VersaoCatalogo versao;
+
+    @BeforeEach
+    void setUp() {
+        demandaRepository = mock(DemandaRepository.class);
+        instituicaoRepository = mock(InstituicaoRepository.class);
+        when(demandaRepository.versao()).thenReturn(linha(T0, 10));
+        when(instituicaoRepository.versao()).thenReturn(linha(T0, 3));
+        versao = nova();
+    }
+
+    @Test
+    void deveDarAMesmaTagEmInstanciasDiferentesParaOMesmoBanco() {
+        VersaoCatalogo outraInstancia = nova();
+
+        assertEquals(versao.etagDemandas(), outraInstancia.etagDemandas());
+        assertEquals(versao.etagInstituicoes(), outraInstancia.etagInstituicoes());
+        assertTrue(versao.etagDemandas().startsWith("\"d-") && versao.etagDemandas().endsWith("\""));
+    }
+
+    @Test
+    void deveVerAGravacaoDeOutraInstanciaDepoisDaValidade() {
+        String antes = versao.etagDemandas();
+        when(demandaRepository.versao()).thenReturn(linha(T0.plusMillis(1), 10));
+
+        assertEquals(antes, versao.etagDemandas());
+        verify(demandaRepository, times(1)).versao();
+
+        relogio.addAndGet(VALIDADE.toNanos());
+        assertNotEquals(antes, versao.etagDemandas());
+    }
+
+    @Test
+    void deveMudarApenasAEtagDeDemandasQuandoDemandaMudaNestaInstancia() {
+        String demandas = versao.etagDemandas();
+        String instituicoes = versao.etagInstituicoes();
+        when(demandaRepository.versao()).thenReturn(linha(T0, 11));
+
+        versao.onDemandaAlterada(new DemandaAlteradaEvent(new Demanda()));
+
+        assertNotEquals(demandas, versao.etagDemandas());
+        assertEquals(instituicoes, versao.etagInstituicoes());
+        verify(instituicaoRepository, times(1)).versao();
+    }
+
+    @Test
+    void deveMudarAsDuasEtagsQuandoInstituicaoMuda() {
+        String demandas = versao.etagDemandas();
+        String instituicoes = versao.etagInstituicoes();
+        when(instituicaoRepository.versao()).thenReturn(linha(T0.plusSeconds(1), 3));
+
+        versao.onInstituicaoAlterada(new InstituicaoAlteradaEvent(new Instituicao()));
+
+        assertNotEquals(demandas, versao.etagDemandas());
+        assertNotEquals(instituicoes, versao.etagInstituicoes());
+    }
+
+    @Test
+    void deveAceitarTabelasVazias() {
+        when(instituicaoRepository.versao()).thenReturn(linha(null, 0));
+
+        assertEquals("\"i-0-0\"", versao.etagInstituicoes());
+    }
+
+    private VersaoCatalogo nova() {
+        return new VersaoCatalogo(demandaRepository, instituicaoRepository, VALIDADE, relogio::get);
+    }
+
+    private static List<Object[]> linha(Instant maior, long quantidade) {
+        return Collections.singletonList(new Object[]{maior, quantidade});
+    }
+}
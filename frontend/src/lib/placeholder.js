@@ -0,0 +1,12 @@
+// src/lib/placeholder.js
+// Placeholder da foto (data URI minúsculo enviado junto com a instituição),
+// mostrado como fundo borrado do <img> até a foto carregar, sem outra requisição.
+
+export function estiloPlaceholder(fotoPlaceholder) {
+  if (!fotoPlaceholder) return undefined;
+  return {
+    backgroundImage: `url(${fotoPlaceholder})`,
+    backgroundSize: 'cover',
+    backgroundPosition: 'center',
+  };
+}
@@ -3,6 +3,7 @@ import { useParams, Link } from 'react-router-dom';
 import Header from '../components/Header';
 import Footer from '../components/Footer';
 import { getUser, getToken } from '../lib/auth';
+import { estiloPlaceholder } from '../lib/placeholder';
 
 export default function DemandaDetail() {
   const { id } = useParams();
@@ -266,8 +267,9 @@ export default function DemandaDetail() {
                 <div className="flex flex-col items-center text-center mb-4">
                   {demanda.instituicao?.fotoUrl ? (
                     <img 
-                      src={`http://localhost:8080${demanda.instituicao.fotoUrl}`} 
+                      src={`http://localhost:8080${demanda.instituicao.fotoUrl}?size=thumb`} 
                       alt={demanda.instituicao.nome}
+                      style={estiloPlaceholder(demanda.instituicao.fotoPlaceholder)}
                       className="w-24 h-24 rounded-full object-cover border-4 border-white shadow-lg mb-3"
                     />
                   ) : (
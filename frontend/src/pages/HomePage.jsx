@@ -3,6 +3,10 @@ import React, { useEffect, useState } from 'react';
 import { Link, useSearchParams } from 'react-router-dom';
 import Header from '../components/Header';
 import Footer from '../components/Footer';
+import { estiloPlaceholder } from '../lib/placeholder';
+
+// Maior página aceita por GET /api/demandas
+const LIMITE_PAGINA = 100;
 
 export function HomePage() {
   const [searchParams, setSearchParams] = useSearchParams();
@@ -10,6 +14,9 @@ export function HomePage() {
   const [instituicoes, setInstituicoes] = useState([]);
   const [q, setQ] = useState('');
   const [loading, setLoading] = useState(false);
+  // Cursor da próxima página (resposta paginada) e filtros que a geraram
+  const [proximaPagina, setProximaPagina] = useState(null);
+  const [carregandoMais, setCarregandoMais] = useState(false);
   const [instituicaoSelecionada, setInstituicaoSelecionada] = useState(null);
 
   useEffect(() => {
@@ -39,8 +46,12 @@ export function HomePage() {
     }
   }
 
-  async function fetchDemandas(titulo, instituicaoId) {
-    setLoading(true);
+  async function fetchDemandas(titulo, instituicaoId, cursor) {
+    if (cursor) {
+      setCarregandoMais(true);
+    } else {
+      setLoading(true);
+    }
     try {
       let url = '/api/demandas';
       const params = new URLSearchParams();
@@ -50,26 +61,41 @@ export function HomePage() {
       }
       
       if (instituicaoId) {
-        // Filtrar localmente pois a API não tem esse filtro
-        const res = await fetch(url);
-        if (!res.ok) throw new Error('Erro ao carregar demandas');
-        const data = await res.json();
-        const filtered = data.filter(d => d.instituicao?.id === parseInt(instituicaoId));
-        setDemandas(filtered || []);
-      } else {
-        if (params.toString()) {
-          url += '?' + params.toString();
-        }
-        const res = await fetch(url);
-        if (!res.ok) throw new Error('Erro ao carregar demandas');
-        const data = await res.json();
-        setDemandas(data || []);
+        // Filtro por instituição feito no servidor (resposta paginada)
+        params.append('instituicaoId', instituicaoId);
+        params.append('limite', LIMITE_PAGINA);
+      }
+
+      if (cursor) {
+        params.append('cursor', cursor);
+      }
+
+      if (params.toString()) {
+        url += '?' + params.toString();
       }
+      const res = await fetch(url);
+      if (!res.ok) throw new Error('Erro ao carregar demandas');
+      const data = await res.json();
+      const itens = (Array.isArray(data) ? data : data?.items) || [];
+      setDemandas(anteriores => (cursor ? [...anteriores, ...itens] : itens));
+      setProximaPagina(
+        Array.isArray(data) || !data?.next ? null : { titulo, instituicaoId, cursor: data.next }
+      );
     } catch (e) {
       console.error(e);
-      setDemandas([]);
+      if (!cursor) {
+        setDemandas([]);
+        setProximaPagina(null);
+      }
     } finally {
       setLoading(false);
+      setCarregandoMais(false);
+    }
+  }
+
+  function carregarMais() {
+    if (proximaPagina) {
+      fetchDemandas(proximaPagina.titulo, proximaPagina.instituicaoId, proximaPagina.cursor);
     }
   }
 
@@ -258,8 +284,9 @@ export function HomePage() {
                       <div className="flex items-center gap-3">
                         {d.instituicao?.fotoUrl ? (
                           <img 
-                            src={`http://localhost:8080${d.instituicao.fotoUrl}`} 
+                            src={`http://localhost:8080${d.instituicao.fotoUrl}?size=thumb`} 
                             alt={d.instituicao.nome}
+                            style={estiloPlaceholder(d.instituicao.fotoPlaceholder)}
                             className="w-12 h-12 rounded-full object-cover border-2 border-white shadow-sm"
                           />
                         ) : (
@@ -330,6 +357,19 @@ export function HomePage() {
               ))}
             </div>
           )}
+
+          {/* Próxima página (listagem paginada por cursor) */}
+          {!loading && proximaPagina && (
+            <div className="flex justify-center mt-8">
+              <button
+                onClick={carregarMais}
+                disabled={carregandoMais}
+                className="px-6 py-3 bg-blue-600 hover:bg-blue-700 text-white rounded-lg font-medium transition-colors disabled:opacity-50 disabled:cursor-not-allowed"
+              >
+                {carregandoMais ? 'Carregando...' : 'Carregar mais demandas'}
+              </button>
+            </div>
+          )}
         </section>
       </main>
 
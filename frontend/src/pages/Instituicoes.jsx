@@ -1,6 +1,7 @@
 import React, { useEffect, useState } from 'react';
 import { Header } from '../components/Header';
 import { Footer } from '../components/Footer';
+import { estiloPlaceholder } from '../lib/placeholder';
 
 export function Instituicoes() {
   const [lista, setLista] = useState([]);
@@ -169,8 +170,9 @@ export function Instituicoes() {
                     <div className="absolute -bottom-12 left-1/2 transform -translate-x-1/2">
                       {inst.fotoUrl ? (
                         <img 
-                          src={`http://localhost:8080${inst.fotoUrl}`} 
+                          src={`http://localhost:8080${inst.fotoUrl}?size=thumb`} 
                           alt={inst.nome}
+                          style={estiloPlaceholder(inst.fotoPlaceholder)}
                           className="w-24 h-24 rounded-full object-cover border-4 border-white shadow-xl group-hover:scale-110 transition-transform"
                         />
                       ) : (
@@ -1,6 +1,6 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useCallback } from 'react';
 import { Link } from 'react-router-dom';
-import { MapContainer, TileLayer, Marker, Popup } from 'react-leaflet';
+import { MapContainer, TileLayer, Marker, Popup, useMap, useMapEvents } from 'react-leaflet';
 import 'leaflet/dist/leaflet.css';
 import L from 'leaflet';
 import { Header } from '../components/Header';
@@ -14,34 +14,110 @@ L.Icon.Default.mergeOptions({
   shadowUrl: 'https://cdnjs.cloudflare.com/ajax/libs/leaflet/1.7.1/images/marker-shadow.png',
 });
 
-export function MapaInstituicoes() {
-  const [instituicoes, setInstituicoes] = useState([]);
-  const [loading, setLoading] = useState(true);
-  const [error, setError] = useState(null);
+// Ícone de cluster: círculo com a quantidade de instituições da célula
+const iconeCluster = (quantidade) => {
+  const tamanho = quantidade < 10 ? 32 : quantidade < 100 ? 40 : 48;
+  return L.divIcon({
+    html: `<div style="width:${tamanho}px;height:${tamanho}px;line-height:${tamanho}px" class="rounded-full bg-blue-600/80 text-white text-sm font-bold text-center border-2 border-white shadow">${quantidade}</div>`,
+    className: '',
+    iconSize: [tamanho, tamanho],
+  });
+};
 
-  useEffect(() => {
-    fetchInstituicoes();
-  }, []);
+// Busca clusters/marcadores da área visível sempre que o mapa para de mover
+function CamadaInstituicoes({ onCarregado, onErro }) {
+  const map = useMap();
+  const [mapa, setMapa] = useState({ clusters: [], marcadores: [] });
 
-  const fetchInstituicoes = async () => {
+  const carregar = useCallback(async () => {
+    const params = new URLSearchParams({
+      bbox: map.getBounds().toBBoxString(),
+      zoom: String(map.getZoom()),
+    });
     try {
-      const res = await fetch('/api/instituicoes');
+      const res = await fetch(`/api/instituicoes/mapa?${params}`);
       if (res.ok) {
         const data = await res.json();
-        // Filtrar apenas instituições com coordenadas válidas
-        const instituicoesComLocalizacao = data.filter(
-          inst => inst.latitude && inst.longitude
-        );
-        setInstituicoes(instituicoesComLocalizacao);
+        setMapa(data);
+        onCarregado(data);
       } else {
-        setError('Erro ao carregar instituições');
+        onErro('Erro ao carregar instituições');
       }
     } catch (err) {
-      setError('Erro de rede: ' + err.message);
-    } finally {
-      setLoading(false);
+      onErro('Erro de rede: ' + err.message);
     }
-  };
+  }, [map, onCarregado, onErro]);
+
+  useEffect(() => {
+    carregar();
+  }, [carregar]);
+
+  useMapEvents({ moveend: carregar });
+
+  return (
+    <>
+      {mapa.clusters.map((cluster) => (
+        <Marker
+          key={`c-${cluster.latitude}-${cluster.longitude}`}
+          position={[cluster.latitude, cluster.longitude]}
+          icon={iconeCluster(cluster.quantidade)}
+          eventHandlers={{
+            click: () => map.setView([cluster.latitude, cluster.longitude], map.getZoom() + 2),
+          }}
+        />
+      ))}
+
+      {mapa.marcadores.map((inst) => (
+        <Marker
+          key={inst.id}
+          position={[inst.latitude, inst.longitude]}
+        >
+          <Popup>
+            <div className="p-2">
+              <h3 className="font-bold text-lg text-blue-600">
+                {inst.nome}
+              </h3>
+              {inst.endereco && (
+                <p className="text-sm text-gray-600 mt-1">
+                  📍 {inst.endereco}
+                  {inst.numero && `, ${inst.numero}`}
+                </p>
+              )}
+              {inst.cidade && inst.estado && (
+                <p className="text-sm text-gray-600">
+                  {inst.cidade} - {inst.estado}
+                </p>
+              )}
+              {inst.telefone && (
+                <p className="text-sm text-gray-600 mt-1">
+                  📞 {inst.telefone}
+                </p>
+              )}
+              <Link
+                to={`/?instituicao=${inst.id}`}
+                className="inline-block mt-3 px-4 py-2 bg-blue-600 text-white text-sm rounded-lg hover:bg-blue-700 transition-colors"
+              >
+                Ver Demandas
+              </Link>
+            </div>
+          </Popup>
+        </Marker>
+      ))}
+    </>
+  );
+}
+
+export function MapaInstituicoes() {
+  const [total, setTotal] = useState(null);
+  const [error, setError] = useState(null);
+
+  // Total de instituições na área visível (soma dos clusters ou marcadores)
+  const onCarregado = useCallback((data) => {
+    setError(null);
+    setTotal(data.agrupado
+      ? data.clusters.reduce((soma, c) => soma + c.quantidade, 0)
+      : data.marcadores.length);
+  }, []);
 
   // Centro do Brasil como posição inicial
   const centerBrasil = [-15.7942, -47.8822];
@@ -63,90 +139,39 @@ export function MapaInstituicoes() {
 
         {/* Map Container */}
         <div className="max-w-7xl mx-auto px-4 py-8">
-          {loading && (
-            <div className="bg-white rounded-lg shadow-md p-8 text-center">
-              <div className="inline-block animate-spin rounded-full h-8 w-8 border-b-2 border-blue-600"></div>
-              <p className="mt-4 text-gray-600">Carregando mapa...</p>
-            </div>
-          )}
-
           {error && (
-            <div className="bg-red-50 border border-red-200 rounded-lg p-4 text-red-800">
+            <div className="bg-red-50 border border-red-200 rounded-lg p-4 mb-4 text-red-800">
               {error}
             </div>
           )}
 
-          {!loading && !error && (
-            <>
-              {instituicoes.length === 0 ? (
-                <div className="bg-white rounded-lg shadow-md p-8 text-center">
-                  <p className="text-gray-600">
-                    Nenhuma instituição com localização cadastrada ainda.
-                  </p>
-                </div>
+          <div className="bg-white rounded-lg shadow-md p-4 mb-4">
+            <p className="text-gray-700">
+              {total === null ? (
+                'Carregando instituições...'
               ) : (
                 <>
-                  <div className="bg-white rounded-lg shadow-md p-4 mb-4">
-                    <p className="text-gray-700">
-                      <span className="font-semibold">{instituicoes.length}</span> instituição(ões) 
-                      encontrada(s) com localização
-                    </p>
-                  </div>
-
-                  <div className="bg-white rounded-lg shadow-md overflow-hidden">
-                    <MapContainer
-                      center={centerBrasil}
-                      zoom={4}
-                      style={{ height: '600px', width: '100%' }}
-                      className="z-0"
-                    >
-                      <TileLayer
-                        attribution='&copy; <a href="https://www.openstreetmap.org/copyright">OpenStreetMap</a> contributors'
-                        url="https://{s}.tile.openstreetmap.org/{z}/{x}/{y}.png"
-                      />
-                      
-                      {instituicoes.map((inst) => (
-                        <Marker
-                          key={inst.id}
-                          position={[inst.latitude, inst.longitude]}
-                        >
-                          <Popup>
-                            <div className="p-2">
-                              <h3 className="font-bold text-lg text-blue-600">
-                                {inst.nome}
-                              </h3>
-                              {inst.endereco && (
-                                <p className="text-sm text-gray-600 mt-1">
-                                  📍 {inst.endereco}
-                                  {inst.numero && `, ${inst.numero}`}
-                                </p>
-                              )}
-                              {inst.cidade && inst.estado && (
-                                <p className="text-sm text-gray-600">
-                                  {inst.cidade} - {inst.estado}
-                                </p>
-                              )}
-                              {inst.telefone && (
-                                <p className="text-sm text-gray-600 mt-1">
-                                  📞 {inst.telefone}
-                                </p>
-                              )}
-                              <Link
-                                to={`/?instituicao=${inst.id}`}
-                                className="inline-block mt-3 px-4 py-2 bg-blue-600 text-white text-sm rounded-lg hover:bg-blue-700 transition-colors"
-                              >
-                                Ver Demandas
-                              </Link>
-                            </div>
-                          </Popup>
-                        </Marker>
-                      ))}
-                    </MapContainer>
-                  </div>
+                  <span className="font-semibold">{total}</span> instituição(ões)
+                  com localização nesta área do mapa
                 </>
               )}
-            </>
-          )}
+            </p>
+          </div>
+
+          <div className="bg-white rounded-lg shadow-md overflow-hidden">
+            <MapContainer
+              center={centerBrasil}
+              zoom={4}
+              style={{ height: '600px', width: '100%' }}
+              className="z-0"
+            >
+              <TileLayer
+                attribution='&copy; <a href="https://www.openstreetmap.org/copyright">OpenStreetMap</a> contributors'
+                url="https://{s}.tile.openstreetmap.org/{z}/{x}/{y}.png"
+              />
+              <CamadaInstituicoes onCarregado={onCarregado} onErro={setError} />
+            </MapContainer>
+          </div>
         </div>
       </main>
 
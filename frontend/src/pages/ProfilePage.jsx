@@ -46,24 +46,23 @@ export function ProfilePage() {
     setUploadingPhoto(true);
 
     try {
-      const formData = new FormData();
-      formData.append('foto', file);
-
       const token = localStorage.getItem('auth.token');
       
+      // A imagem vai como corpo da requisição (sem multipart)
       const response = await fetch('/api/portal/instituicoes/foto', {
         method: 'POST',
         headers: {
           'Authorization': `Bearer ${token}`,
+          'Content-Type': file.type,
         },
-        body: formData,
+        body: file,
       });
 
       if (response.ok) {
         const data = await response.json();
         setPhotoPreview(`http://localhost:8080${data.fotoUrl}`);
         
-        const updatedUser = { ...user, fotoUrl: data.fotoUrl };
+        const updatedUser = { ...user, fotoUrl: data.fotoUrl, fotoPlaceholder: data.fotoPlaceholder };
         localStorage.setItem('auth.user', JSON.stringify(updatedUser));
         
         alert('Foto atualizada com sucesso!');